@@ -16,7 +16,14 @@
  */
 package io.cloudbeaver.model;
 
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
 import org.jkiss.dbeaver.model.runtime.AbstractJob;
+import org.jkiss.dbeaver.model.runtime.DBRBlockingObject;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Web connection info
@@ -33,6 +40,15 @@ public class WebAsyncTaskInfo {
 
     private AbstractJob job;
 
+    // Blocking operations (statements) which are currently executed by the task
+    private final List<DBRBlockingObject> activeBlocks = new ArrayList<>();
+    private long cancelTime;
+    private Long cancelDuration;
+    // Statement timeout timer. It runs only while task executes statements.
+    private long statementTimeout;
+    private Runnable timeoutHandler;
+    private AbstractJob timeoutJob;
+
     public WebAsyncTaskInfo(String id, String name) {
         this.id = id;
         this.name = name;
@@ -111,4 +127,120 @@ public class WebAsyncTaskInfo {
         this.job = job;
     }
 
+    public void addActiveBlock(DBRBlockingObject block) {
+        synchronized (activeBlocks) {
+            if (activeBlocks.isEmpty()) {
+                startTimeoutTimer();
+            }
+            activeBlocks.add(block);
+        }
+    }
+
+    public void removeActiveBlock() {
+        synchronized (activeBlocks) {
+            if (!activeBlocks.isEmpty()) {
+                activeBlocks.remove(activeBlocks.size() - 1);
+            }
+            if (activeBlocks.isEmpty()) {
+                stopTimeoutTimer();
+                markStopped();
+            }
+        }
+    }
+
+    /**
+     * Removes the specified block. Used by tasks which run blocks in parallel threads.
+     */
+    public void removeActiveBlock(DBRBlockingObject block) {
+        synchronized (activeBlocks) {
+            activeBlocks.remove(block);
+            if (activeBlocks.isEmpty()) {
+                stopTimeoutTimer();
+                markStopped();
+            }
+        }
+    }
+
+    /**
+     * Sets statement timeout. Timeout handler is called if task executes statements longer than timeout without a break,
+     * so time spent in the task queue and on results fetch is not counted.
+     */
+    public void setStatementTimeout(long timeoutMs, Runnable timeoutHandler) {
+        synchronized (activeBlocks) {
+            this.statementTimeout = timeoutMs;
+            this.timeoutHandler = timeoutHandler;
+            if (!activeBlocks.isEmpty()) {
+                // Statement execution has already started
+                startTimeoutTimer();
+            }
+        }
+    }
+
+    private void startTimeoutTimer() {
+        if (statementTimeout <= 0 || timeoutHandler == null || timeoutJob != null) {
+            return;
+        }
+        Runnable handler = timeoutHandler;
+        timeoutJob = new AbstractJob("Async task '" + name + "' timeout") {
+            @Override
+            protected IStatus run(DBRProgressMonitor monitor) {
+                synchronized (activeBlocks) {
+                    if (timeoutJob != this) {
+                        // Statement finished while the timer was starting
+                        return Status.OK_STATUS;
+                    }
+                    timeoutJob = null;
+                }
+                handler.run();
+                return Status.OK_STATUS;
+            }
+        };
+        timeoutJob.schedule(statementTimeout);
+    }
+
+    private void stopTimeoutTimer() {
+        if (timeoutJob != null) {
+            timeoutJob.cancel();
+            timeoutJob = null;
+        }
+    }
+
+    public List<DBRBlockingObject> getActiveBlocks() {
+        synchronized (activeBlocks) {
+            return new ArrayList<>(activeBlocks);
+        }
+    }
+
+    public synchronized boolean isCanceled() {
+        return cancelTime > 0;
+    }
+
+    /**
+     * Marks task as canceled. Returns false if task was already canceled.
+     */
+    public synchronized boolean markCanceled() {
+        if (cancelTime > 0) {
+            return false;
+        }
+        cancelTime = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Called when task stops execution of all statements.
+     * For canceled tasks it saves time passed since cancel request.
+     */
+    public synchronized void markStopped() {
+        if (cancelTime > 0 && cancelDuration == null) {
+            cancelDuration = System.currentTimeMillis() - cancelTime;
+        }
+    }
+
+    /**
+     * Time (ms) between cancel request and actual task stop. Null if task wasn't canceled or still runs.
+     */
+    public synchronized Long getCancelDuration() {
+        return cancelDuration;
+    }
+
 }
@@ -30,6 +30,7 @@ import io.cloudbeaver.service.sql.WebSQLConstants;
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.jkiss.code.NotNull;
 import org.jkiss.code.Nullable;
 import org.jkiss.dbeaver.DBException;
@@ -48,6 +49,7 @@ import org.jkiss.dbeaver.model.meta.Property;
 import org.jkiss.dbeaver.model.navigator.DBNModel;
 import org.jkiss.dbeaver.model.runtime.AbstractJob;
 import org.jkiss.dbeaver.model.runtime.BaseProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.DBRBlockingObject;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
 import org.jkiss.dbeaver.model.runtime.ProxyProgressMonitor;
 import org.jkiss.dbeaver.model.sql.DBQuotaException;
@@ -558,6 +560,15 @@ public class WebSession extends AbstractDBASessionPersistent implements DBASessi
         }
     }
 
+    /**
+     * Removes task whose results were delivered without task status request (e.g. streamed in the response).
+     */
+    public void removeAsyncTask(@NotNull WebAsyncTaskInfo taskInfo) {
+        synchronized (asyncTasks) {
+            asyncTasks.remove(taskInfo.getId(), taskInfo);
+        }
+    }
+
     public boolean asyncTaskCancel(String taskId) throws DBWebException {
         WebAsyncTaskInfo taskInfo;
         synchronized (asyncTasks) {
@@ -567,13 +578,60 @@ public class WebSession extends AbstractDBASessionPersistent implements DBASessi
             }
         }
         AbstractJob job = taskInfo.getJob();
-        if (job != null) {
+        if (job != null && taskInfo.markCanceled()) {
             job.cancel();
+            cancelTaskStatements(taskInfo);
         }
         return true;
     }
 
+    /**
+     * Cancels task if its statement executes longer than the specified timeout.
+     * Timer starts when statement execution begins, so queue wait and results fetch are not counted.
+     */
+    public void setAsyncTaskTimeout(@NotNull WebAsyncTaskInfo taskInfo, long timeoutMs) {
+        taskInfo.setStatementTimeout(timeoutMs, () -> {
+            if (taskInfo.isRunning() && taskInfo.getJob() != null && taskInfo.markCanceled()) {
+                log.debug("Task '" + taskInfo.getName() + "' statement timed out after " + timeoutMs + "ms, cancel");
+                taskInfo.getJob().cancel();
+                cancelTaskStatements(taskInfo);
+            }
+        });
+    }
+
+    /**
+     * Cancel statements which are executed by the task right now.
+     * Job cancel just sets monitor flag, so the task won't stop until the database returns control.
+     */
+    private void cancelTaskStatements(@NotNull WebAsyncTaskInfo taskInfo) {
+        List<DBRBlockingObject> activeBlocks = taskInfo.getActiveBlocks();
+        if (activeBlocks.isEmpty()) {
+            return;
+        }
+        // Cancel may block, do it in a separate job
+        new AbstractJob("Cancel task '" + taskInfo.getName() + "' statements") {
+            @Override
+            protected IStatus run(DBRProgressMonitor monitor) {
+                for (DBRBlockingObject block : activeBlocks) {
+                    try {
+                        block.cancelBlock(monitor, null);
+                    } catch (Exception e) {
+                        log.debug("Error canceling task '" + taskInfo.getName() + "' statement: " + e.getMessage());
+                    }
+                }
+                return Status.OK_STATUS;
+            }
+        }.schedule();
+    }
+
     public WebAsyncTaskInfo createAndRunAsyncTask(String taskName, WebAsyncTaskProcessor<?> runnable) {
+        return createAndRunAsyncTask(taskName, runnable, Job.LONG);
+    }
+
+    /**
+     * Runs async task with the specified job priority (see {@link Job#getPriority()}).
+     */
+    public WebAsyncTaskInfo createAndRunAsyncTask(String taskName, WebAsyncTaskProcessor<?> runnable, int priority) {
         int taskId = TASK_ID.incrementAndGet();
         WebAsyncTaskInfo asyncTask = getAsyncTask(String.valueOf(taskId), taskName, true);
 
@@ -602,11 +660,16 @@ public class WebSession extends AbstractDBASessionPersistent implements DBASessi
                     asyncTask.setJobError(e);
                 } finally {
                     taskCount.decrementAndGet();
+                    asyncTask.markStopped();
+                    if (asyncTask.getCancelDuration() != null) {
+                        log.debug("Task '" + taskName + "' stopped in " + asyncTask.getCancelDuration() + "ms after cancel");
+                    }
                 }
                 return Status.OK_STATUS;
             }
         };
 
+        job.setPriority(priority);
         asyncTask.setJob(job);
         asyncTask.setRunning(true);
         job.schedule();
@@ -879,6 +942,18 @@ public class WebSession extends AbstractDBASessionPersistent implements DBASessi
             super.subTask(name);
             asyncTask.setStatus(name);
         }
+
+        @Override
+        public void startBlock(DBRBlockingObject object, String taskName) {
+            super.startBlock(object, taskName);
+            asyncTask.addActiveBlock(object);
+        }
+
+        @Override
+        public void endBlock() {
+            super.endBlock();
+            asyncTask.removeActiveBlock();
+        }
     }
 
     private class PersistentAttribute {
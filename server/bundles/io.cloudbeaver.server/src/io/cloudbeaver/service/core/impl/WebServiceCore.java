@@ -27,6 +27,8 @@ import io.cloudbeaver.registry.WebSessionHandlerDescriptor;
 import io.cloudbeaver.server.CBApplication;
 import io.cloudbeaver.server.CBPlatform;
 import io.cloudbeaver.service.core.DBWServiceCore;
+import io.cloudbeaver.service.sql.WebSQLDialectInfo;
+import io.cloudbeaver.service.sql.WebSQLResultCache;
 import org.jkiss.code.NotNull;
 import org.jkiss.code.Nullable;
 import org.jkiss.dbeaver.DBException;
@@ -324,6 +326,8 @@ public class WebServiceCore implements DBWServiceCore {
         WebServiceUtils.saveAuthProperties(dataSource, dataSource.getConnectionConfiguration(), config.getCredentials(), config.isSaveCredentials());
 
         sessionRegistry.updateDataSource(dataSource);
+        WebSQLResultCache.evictConnectionCache(connectionInfo.getId());
+        WebSQLDialectInfo.evictDialectInfo(connectionInfo.getId());
 
         return connectionInfo;
     }
@@ -511,7 +515,9 @@ public class WebServiceCore implements DBWServiceCore {
             // Disconnect in async mode?
             //new DisconnectJob(connectionInfo.getDataSource()).schedule();
         }
+        WebSQLResultCache.evictConnectionCache(connectionId);
         if (forceDelete) {
+            WebSQLDialectInfo.evictDialectInfo(connectionId);
             webSession.getSingletonProject().getDataSourceRegistry().removeDataSource(dataSourceContainer);
             webSession.removeConnection(connectionInfo);
         } else {
@@ -25,6 +25,8 @@ import io.cloudbeaver.service.navigator.DBWServiceNavigator;
 import io.cloudbeaver.service.navigator.WebCatalog;
 import io.cloudbeaver.service.navigator.WebNavigatorNodeInfo;
 import io.cloudbeaver.service.navigator.WebStructContainers;
+import io.cloudbeaver.service.sql.WebSQLProcessor;
+import io.cloudbeaver.service.sql.WebServiceBindingSQL;
 import org.jkiss.code.NotNull;
 import org.jkiss.code.Nullable;
 import org.jkiss.dbeaver.DBException;
@@ -164,12 +166,26 @@ public class WebServiceNavigator implements DBWServiceNavigator {
             } else {
                 node.refreshNode(monitor, this);
             }
+            if (node instanceof DBNDatabaseNode) {
+                refreshIdentifierIndex(session, (DBNDatabaseNode) node);
+            }
             return true;
         } catch (DBException e) {
             throw new DBWebException("Error refreshing navigator node '"  + nodePath + "'", e);
         }
     }
 
+    private void refreshIdentifierIndex(@NotNull WebSession session, @NotNull DBNDatabaseNode node) {
+        WebConnectionInfo connectionInfo = session.findWebConnectionInfo(node.getDataSourceContainer().getId());
+        if (connectionInfo == null) {
+            return;
+        }
+        WebSQLProcessor processor = WebServiceBindingSQL.findSQLProcessor(connectionInfo);
+        if (processor != null) {
+            processor.refreshIdentifierIndex(node instanceof DBNDataSource ? null : node.getObject());
+        }
+    }
+
     @Override
     public WebStructContainers getStructContainers(WebConnectionInfo connection, String contextId, String catalog) throws DBWebException {
         DBPDataSource dataSource = connection.getDataSource();
@@ -44,10 +44,11 @@ public interface DBWServiceSQL extends DBWService {
     @WebAction
     WebSQLCompletionProposal[] getCompletionProposals(
         @NotNull WebSQLContextInfo sqlContext,
-        @NotNull String query,
+        @Nullable String query,
         Integer position,
         Integer maxResults,
-        Boolean simpleMode) throws DBWebException;
+        Boolean simpleMode,
+        @Nullable Integer scriptVersion) throws DBWebException;
 
     @WebAction
     String formatQuery(@NotNull WebSQLContextInfo sqlContext, @NotNull String query) throws DBWebException;
@@ -118,6 +119,31 @@ public interface DBWServiceSQL extends DBWService {
     @WebAction
     WebSQLExecuteInfo asyncGetQueryResults(@NotNull WebSession webSession, @NotNull String taskId) throws DBWebException;
 
+    @WebAction
+    WebAsyncTaskInfo asyncExecutePreparedQuery(
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String sql,
+        @Nullable Map<String, Object> parameters,
+        @Nullable WebSQLDataFilter filter,
+        @Nullable WebDataFormat dataFormat) throws DBWebException;
+
+    @WebAction
+    WebSQLStatementCacheInfo getStatementCacheInfo(@NotNull WebSQLProcessor processor) throws DBWebException;
+
+    @WebAction
+    WebAsyncTaskInfo asyncExecuteScript(
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String script,
+        @Nullable WebSQLDataFilter filter,
+        @Nullable WebDataFormat dataFormat,
+        boolean parallel) throws DBWebException;
+
+    @WebAction
+    List<WebSQLScriptQueryResults> asyncGetScriptResults(
+        @NotNull WebSession webSession,
+        @NotNull String taskId,
+        @Nullable Integer fromIndex) throws DBWebException;
+
     @WebAction
     WebAsyncTaskInfo asyncSqlExplainExecutionPlan(
         @NotNull WebSQLContextInfo contextInfo,
@@ -127,6 +153,31 @@ public interface DBWServiceSQL extends DBWService {
     @WebAction
     WebSQLExecutionPlan asyncSqlExplainExecutionPlanResult(@NotNull WebSession webSession, @NotNull String taskId) throws DBWebException;
 
+    @WebAction
+    WebSQLResultsRowCount getResultsRowCountEstimate(@NotNull WebSQLContextInfo contextInfo, @NotNull String resultsId) throws DBWebException;
+
+    @WebAction
+    List<WebSQLResultsGroupCount> getResultsGroupCounts(
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String resultsId,
+        @NotNull List<Integer> columnIndexes) throws DBWebException;
+
+    @WebAction
+    WebAsyncTaskInfo asyncSqlRowDataCount(@NotNull WebSQLContextInfo contextInfo, @NotNull String resultsId) throws DBWebException;
+
+    @WebAction
+    Long asyncSqlRowDataCountResult(@NotNull WebSession webSession, @NotNull String taskId) throws DBWebException;
+
+    @WebAction
+    WebSQLScriptState updateScript(
+        @NotNull WebSQLContextInfo contextInfo,
+        @Nullable Integer version,
+        @Nullable String script,
+        @Nullable List<WebSQLScriptChange> changes) throws DBWebException;
+
+    @WebAction
+    WebSQLQueryInfo getScriptQueryAt(@NotNull WebSQLContextInfo contextInfo, int position) throws DBWebException;
+
     @WebAction
     WebSQLScriptInfo parseSqlScript(@NotNull WebSQLProcessor processor, @NotNull String sqlScript) throws DBWebException;
 }
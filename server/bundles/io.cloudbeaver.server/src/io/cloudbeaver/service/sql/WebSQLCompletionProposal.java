@@ -18,6 +18,7 @@ package io.cloudbeaver.service.sql;
 
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.model.DBPImage;
+import org.jkiss.dbeaver.model.DBPKeywordType;
 import org.jkiss.dbeaver.model.sql.completion.SQLCompletionProposalBase;
 
 /**
@@ -27,39 +28,69 @@ public class WebSQLCompletionProposal {
 
     private static final Log log = Log.getLog(WebSQLCompletionProposal.class);
 
-    private SQLCompletionProposalBase proposal;
+    private final String displayString;
+    private final String type;
+    private final String replacementString;
+    private final int replacementOffset;
+    private final int replacementLength;
+    private final int score;
+    private final String icon;
 
     public WebSQLCompletionProposal(SQLCompletionProposalBase proposal) {
-        this.proposal = proposal;
+        DBPImage image = proposal.getObjectImage();
+        this.displayString = proposal.getDisplayString();
+        this.type = proposal.getProposalType().name();
+        this.replacementString = proposal.getReplacementString();
+        this.replacementOffset = proposal.getReplacementOffset();
+        this.replacementLength = proposal.getReplacementLength();
+        this.score = proposal.getProposalScore();
+        this.icon = image == null ? null : image.getLocation();
+    }
+
+    public WebSQLCompletionProposal(
+        String displayString,
+        DBPKeywordType type,
+        String replacementString,
+        int replacementOffset,
+        int replacementLength,
+        int score,
+        String icon)
+    {
+        this.displayString = displayString;
+        this.type = type.name();
+        this.replacementString = replacementString;
+        this.replacementOffset = replacementOffset;
+        this.replacementLength = replacementLength;
+        this.score = score;
+        this.icon = icon;
     }
 
     public String getDisplayString() {
-        return proposal.getDisplayString();
+        return displayString;
     }
 
     public String getType() {
-        return proposal.getProposalType().name();
+        return type;
     }
 
     public String getReplacementString() {
-        return proposal.getReplacementString();
+        return replacementString;
     }
 
     public int getReplacementOffset() {
-        return proposal.getReplacementOffset();
+        return replacementOffset;
     }
 
     public int getReplacementLength() {
-        return proposal.getReplacementLength();
+        return replacementLength;
     }
 
     public int getScore() {
-        return proposal.getProposalScore();
+        return score;
     }
 
     public String getIcon() {
-        DBPImage image = proposal.getObjectImage();
-        return image == null ? null : image.getLocation();
+        return icon;
     }
 
     public String getNodePath() {
@@ -24,6 +24,34 @@ public class WebSQLConstants {
     public static final String QUOTA_PROP_ROW_LIMIT = "sqlResultSetRowsLimit";
     public static final String QUOTA_PROP_MEMORY_LIMIT = "sqlResultSetMemoryLimit";
     public static final String QUOTA_PROP_QUERY_LIMIT = "sqlMaxRunningQueries";
+    // Statement timeout in seconds. Connection timeouts override role timeouts, role timeouts override the default one.
+    public static final String QUOTA_PROP_QUERY_TIMEOUT = "sqlQueryTimeout";
+    public static final String QUOTA_PROP_QUERY_TIMEOUT_CONNECTIONS = "sqlQueryTimeoutConnections";
+    public static final String QUOTA_PROP_QUERY_TIMEOUT_ROLES = "sqlQueryTimeoutRoles";
+    public static final String QUOTA_PROP_RESULT_CACHE_TTL = "sqlResultCacheTTL";
+    public static final String QUOTA_PROP_RESULT_CACHE_MAX_ENTRIES = "sqlResultCacheMaxEntries";
+    public static final String QUOTA_PROP_RESULT_CACHE_MAX_ROWS = "sqlResultCacheMaxRows";
+
+    // Max number of fully fetched rows which are retained for in-memory sorting and filtering
+    public static final String QUOTA_PROP_RESULT_RETAIN_MAX_ROWS = "sqlResultRetainMaxRows";
+    // Retained rows above this memory size (in bytes) are spilled to disk
+    public static final String QUOTA_PROP_RESULT_BUFFER_MEMORY_LIMIT = "sqlResultBufferMemoryLimit";
+    // Max size (in bytes) of retained rows of a single result set
+    public static final String QUOTA_PROP_RESULT_BUFFER_MAX_SIZE = "sqlResultBufferMaxSize";
+    // Max total size (in bytes) of retained rows spilled to disk by all result sets
+    public static final String QUOTA_PROP_RESULT_BUFFER_DISK_LIMIT = "sqlResultBufferDiskLimit";
+
+    // Max number of prepared statements cached per SQL context. 0 disables statements caching
+    public static final String QUOTA_PROP_STATEMENT_CACHE_SIZE = "sqlStatementCacheSize";
+    // Max number of names in SQL completion identifiers index
+    public static final String QUOTA_PROP_COMPLETION_INDEX_MAX_ENTRIES = "sqlCompletionIndexMaxEntries";
+    // Max number of read-only script queries executed in parallel
+    public static final String QUOTA_PROP_SCRIPT_MAX_PARALLEL_QUERIES = "sqlScriptMaxParallelQueries";
+    // Max number of row batches buffered between fetch and response writer of results stream
+    public static final String QUOTA_PROP_RESULT_STREAM_QUEUE_SIZE = "sqlResultStreamQueueSize";
+
+    // Connection provider property which enables shared results cache
+    public static final String CONN_PROP_RESULT_CACHE = "cloudbeaver.sql.resultCache";
 
     public static final int BINARY_PREVIEW_LENGTH = 255;
     public static final int BINARY_MAX_LENGTH = 1 * 1024 * 1024;
@@ -20,7 +20,9 @@ import io.cloudbeaver.DBWebException;
 import io.cloudbeaver.WebAction;
 import io.cloudbeaver.model.session.WebSession;
 import io.cloudbeaver.model.session.WebSessionProvider;
+import io.cloudbeaver.server.CBApplication;
 import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
 import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
@@ -32,8 +34,8 @@ import org.jkiss.dbeaver.model.struct.rdb.DBSCatalog;
 import org.jkiss.dbeaver.model.struct.rdb.DBSSchema;
 import org.jkiss.utils.CommonUtils;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -45,9 +47,13 @@ public class WebSQLContextInfo implements WebSessionProvider {
 
     private final WebSQLProcessor processor;
     private final String id;
-    private final Map<String, WebSQLResultsInfo> resultInfoMap = new HashMap<>();
+    // Results may be saved by parallel script queries
+    private final Map<String, WebSQLResultsInfo> resultInfoMap = new ConcurrentHashMap<>();
 
     private final AtomicInteger resultId = new AtomicInteger();
+    private WebSQLStatementCache statementCache;
+    private WebSQLIsolatedContextPool isolatedContexts;
+    private WebSQLScriptModel scriptModel;
 
     public WebSQLContextInfo(WebSQLProcessor processor, String id, String catalogName, String schemaName) throws DBCException {
         this.processor = processor;
@@ -118,6 +124,62 @@ public class WebSQLContextInfo implements WebSessionProvider {
         } catch (DBException e) {
             throw new DBWebException("Error ", e);
         }
+        // Cached statements and isolated contexts were prepared with previous defaults
+        clearStatementCache();
+        closeIsolatedContexts();
+        // Names index contains contents of the default schema
+        processor.refreshIdentifierIndex(null);
+    }
+
+    /**
+     * Returns incrementally parsed script of this context.
+     */
+    @NotNull
+    public synchronized WebSQLScriptModel getScriptModel() {
+        if (scriptModel == null) {
+            scriptModel = new WebSQLScriptModel(this);
+        }
+        return scriptModel;
+    }
+
+    /**
+     * Returns prepared statements cache or null if statements caching is disabled.
+     */
+    @Nullable
+    synchronized WebSQLStatementCache getStatementCache() {
+        if (statementCache == null) {
+            Number cacheSize = CBApplication.getInstance().getAppConfiguration().getResourceQuota(WebSQLConstants.QUOTA_PROP_STATEMENT_CACHE_SIZE);
+            int maxSize = cacheSize == null ? WebSQLStatementCache.DEFAULT_MAX_SIZE : cacheSize.intValue();
+            if (maxSize <= 0) {
+                return null;
+            }
+            statementCache = new WebSQLStatementCache(maxSize, processor.getStatementCacheInfo());
+        }
+        return statementCache;
+    }
+
+    private synchronized void clearStatementCache() {
+        if (statementCache != null) {
+            statementCache.clear();
+        }
+    }
+
+    /**
+     * Returns isolated contexts of parallel script queries
+     */
+    @NotNull
+    synchronized WebSQLIsolatedContextPool getIsolatedContexts() {
+        if (isolatedContexts == null) {
+            isolatedContexts = new WebSQLIsolatedContextPool(this);
+        }
+        return isolatedContexts;
+    }
+
+    private synchronized void closeIsolatedContexts() {
+        if (isolatedContexts != null) {
+            isolatedContexts.close();
+            isolatedContexts = null;
+        }
     }
 
     @NotNull
@@ -141,14 +203,29 @@ public class WebSQLContextInfo implements WebSessionProvider {
     }
 
     public boolean closeResult(@NotNull String resultId) {
-        return resultInfoMap.remove(resultId) != null;
+        WebSQLResultsInfo resultsInfo = resultInfoMap.remove(resultId);
+        if (resultsInfo == null) {
+            return false;
+        }
+        resultsInfo.dispose();
+        return true;
+    }
+
+    /**
+     * Releases retained rows of all results. Called after data modification, retained rows are stale.
+     */
+    void releaseRetainedRows() {
+        resultInfoMap.values().forEach(WebSQLResultsInfo::dispose);
     }
 
     ///////////////////////////////////////////////////////
     // Async model
 
     void dispose() {
+        resultInfoMap.values().forEach(WebSQLResultsInfo::dispose);
         resultInfoMap.clear();
+        clearStatementCache();
+        closeIsolatedContexts();
     }
 
     @Override
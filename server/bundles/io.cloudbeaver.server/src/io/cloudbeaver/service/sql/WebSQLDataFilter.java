@@ -46,6 +46,7 @@ public class WebSQLDataFilter {
     private int offset;
     private int limit ;
     private String where;
+    private boolean sample;
     private final List<WebSQLDataFilterConstraint> constraints = new ArrayList<>();
 
     public WebSQLDataFilter() {
@@ -62,6 +63,7 @@ public class WebSQLDataFilter {
             this.limit = MAX_ROWS_NUMBER;
         }
         this.where = CommonUtils.toString(filterProps.get("where"), null);
+        this.sample = CommonUtils.toBoolean(filterProps.get("sample"));
         Object constraints = filterProps.get("constraints");
         if (constraints instanceof Collection) {
             for (Object constrItem : (Collection)constraints) {
@@ -97,6 +99,17 @@ public class WebSQLDataFilter {
         return where;
     }
 
+    /**
+     * Sample mode: read a random subset of rows (or a bounded scan) instead of an exact page. Offset is ignored.
+     */
+    public boolean isSample() {
+        return sample;
+    }
+
+    public void setSample(boolean sample) {
+        this.sample = sample;
+    }
+
     public DBDDataFilter makeDataFilter(
         @NotNull DBRProgressMonitor monitor,
         @Nullable WebSQLResultsInfo resultInfo,
@@ -16,74 +16,163 @@
  */
 package io.cloudbeaver.service.sql;
 
+import org.jkiss.code.NotNull;
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.DBPDataSourceInfo;
 import org.jkiss.dbeaver.model.exec.plan.DBCQueryPlanner;
 import org.jkiss.dbeaver.model.sql.SQLDialect;
 import org.jkiss.dbeaver.model.sql.SQLUtils;
 import org.jkiss.dbeaver.utils.GeneralUtils;
+import org.jkiss.utils.CommonUtils;
 import org.jkiss.utils.Pair;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Web SQL dialect.
+ * Dialect info is immutable and is computed once per connection, driver and server version.
  */
 public class WebSQLDialectInfo {
 
     private static final Log log = Log.getLog(WebSQLDialectInfo.class);
 
-    private final DBPDataSource dataSource;
-    private final SQLDialect dialect;
+    private static final Map<String, WebSQLDialectInfo> dialectCache = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final String[] dataTypes;
+    private final String[] functions;
+    private final String[] reservedWords;
+    private final String[][] quoteStrings;
+    private final String[] singleLineComments;
+    private final String[][] multiLineComments;
+    private final String catalogSeparator;
+    private final String structSeparator;
+    private final String scriptDelimiter;
+    private final boolean supportsExplainExecutionPlan;
+    private final String version;
 
     public WebSQLDialectInfo(DBPDataSource dataSource, SQLDialect dialect) {
-        this.dataSource = dataSource;
-        this.dialect = dialect;
+        this.name = dialect.getDialectName();
+        this.dataTypes = dialect.getDataTypes(dataSource).toArray(new String[0]);
+        this.functions = dialect.getFunctions().toArray(new String[0]);
+        this.reservedWords = dialect.getReservedWords().toArray(new String[0]);
+        this.quoteStrings = dialect.getIdentifierQuoteStrings();
+        this.singleLineComments = dialect.getSingleLineComments();
+        Pair<String, String> mlComments = dialect.getMultiLineComments();
+        this.multiLineComments = mlComments == null ?
+            new String[0][] :
+            new String[][] { { mlComments.getFirst(), mlComments.getSecond() } };
+        this.catalogSeparator = dialect.getCatalogSeparator();
+        this.structSeparator = String.valueOf(dialect.getStructSeparator());
+        this.scriptDelimiter = SQLUtils.getDefaultScriptDelimiter(dialect);
+        this.supportsExplainExecutionPlan = GeneralUtils.adapt(dataSource, DBCQueryPlanner.class) != null;
+        this.version = makeVersion();
+    }
+
+    /**
+     * Returns cached dialect info. Info is recomputed if driver or database version changes.
+     */
+    @NotNull
+    public static WebSQLDialectInfo getDialectInfo(@NotNull DBPDataSource dataSource) {
+        DBPDataSourceInfo info = dataSource.getInfo();
+        String cacheKey = dataSource.getContainer().getId() + "/" +
+            dataSource.getContainer().getDriver().getFullId() + "/" +
+            info.getDriverVersion() + "/" + info.getDatabaseProductVersion();
+        WebSQLDialectInfo dialectInfo = dialectCache.get(cacheKey);
+        if (dialectInfo == null) {
+            dialectInfo = new WebSQLDialectInfo(dataSource, SQLUtils.getDialectFromDataSource(dataSource));
+            // Remove info of previous driver and server versions
+            String keyPrefix = dataSource.getContainer().getId() + "/";
+            dialectCache.keySet().removeIf(key -> key.startsWith(keyPrefix));
+            dialectCache.put(cacheKey, dialectInfo);
+        }
+        return dialectInfo;
+    }
+
+    /**
+     * Removes cached dialect info of the connection. Called when connection is updated or deleted.
+     */
+    public static void evictDialectInfo(@NotNull String connectionId) {
+        String keyPrefix = connectionId + "/";
+        dialectCache.keySet().removeIf(key -> key.startsWith(keyPrefix));
     }
 
     public String getName() {
-        return dialect.getDialectName();
+        return name;
     }
 
     public String[] getDataTypes() {
-        return dialect.getDataTypes(dataSource).toArray(new String[0]);
+        return dataTypes;
     }
 
     public String[] getFunctions() {
-        return dialect.getFunctions().toArray(new String[0]);
+        return functions;
     }
 
     public String[] getReservedWords() {
-        return dialect.getReservedWords().toArray(new String[0]);
+        return reservedWords;
     }
 
     public String[][] getQuoteStrings() {
-        return dialect.getIdentifierQuoteStrings();
+        return quoteStrings;
     }
 
     public String[] getSingleLineComments() {
-        return dialect.getSingleLineComments();
+        return singleLineComments;
     }
 
     public String[][] getMultiLineComments() {
-        Pair<String, String> mlComments = dialect.getMultiLineComments();
-        if (mlComments == null) {
-            return new String[0][];
-        }
-        return new String[][] { { mlComments.getFirst(), mlComments.getSecond() } };
+        return multiLineComments;
     }
 
     public String getCatalogSeparator() {
-        return dialect.getCatalogSeparator();
+        return catalogSeparator;
     }
 
     public String getStructSeparator() {
-        return String.valueOf(dialect.getStructSeparator());
+        return structSeparator;
     }
 
     public String getScriptDelimiter() {
-        return SQLUtils.getDefaultScriptDelimiter(dialect);
+        return scriptDelimiter;
     }
 
     public boolean isSupportsExplainExecutionPlan() {
-        return GeneralUtils.adapt(dataSource, DBCQueryPlanner.class) != null;
+        return supportsExplainExecutionPlan;
+    }
+
+    /**
+     * Content hash. May be used by clients to check whether cached dialect info is still valid.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    private String makeVersion() {
+        String content = String.join("\n",
+            name,
+            Arrays.toString(dataTypes),
+            Arrays.toString(functions),
+            Arrays.toString(reservedWords),
+            Arrays.deepToString(quoteStrings),
+            Arrays.toString(singleLineComments),
+            Arrays.deepToString(multiLineComments),
+            catalogSeparator,
+            structSeparator,
+            scriptDelimiter,
+            String.valueOf(supportsExplainExecutionPlan));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return CommonUtils.toHexString(digest.digest(content.getBytes(StandardCharsets.UTF_8))).substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            log.debug(e);
+            return Integer.toHexString(content.hashCode());
+        }
     }
 }
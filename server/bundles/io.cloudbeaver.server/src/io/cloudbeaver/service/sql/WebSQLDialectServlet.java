@@ -0,0 +1,79 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.cloudbeaver.DBWebException;
+import io.cloudbeaver.model.session.WebSession;
+import io.cloudbeaver.server.CBApplication;
+import io.cloudbeaver.service.WebServiceServletBase;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.utils.CommonUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves SQL dialect info as JSON. Responses have ETag (dialect info version) so clients may use conditional requests.
+ */
+public class WebSQLDialectServlet extends WebServiceServletBase {
+
+    private static final Gson gson = new GsonBuilder().create();
+
+    public WebSQLDialectServlet(CBApplication application) {
+        super(application);
+    }
+
+    @Override
+    protected void processServiceRequest(WebSession session, HttpServletRequest request, HttpServletResponse response) throws DBException, IOException {
+        String connectionId = request.getPathInfo();
+        if (connectionId != null && connectionId.startsWith("/")) {
+            connectionId = connectionId.substring(1);
+        }
+        if (CommonUtils.isEmpty(connectionId)) {
+            throw new DBWebException("Connection ID not specified");
+        }
+        WebSQLProcessor sqlProcessor = WebServiceBindingSQL.getSQLProcessor(
+            WebServiceBindingSQL.getWebConnection(session, connectionId));
+        DBPDataSource dataSource = sqlProcessor.getConnection().getDataSource();
+        if (dataSource == null) {
+            throw new DBWebException("Data source was not found");
+        }
+        WebSQLDialectInfo dialectInfo = WebSQLDialectInfo.getDialectInfo(dataSource);
+
+        String etag = "\"" + dialectInfo.getVersion() + "\"";
+        response.setHeader("ETag", etag);
+        // Client must revalidate, dialect may change after driver or server upgrade
+        response.setHeader("Cache-Control", "private, no-cache");
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null && (ifNoneMatch.equals(etag) || ifNoneMatch.equals("*"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try (Writer writer = response.getWriter()) {
+            gson.toJson(dialectInfo, writer);
+        }
+    }
+
+}
@@ -0,0 +1,471 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.DBPImage;
+import org.jkiss.dbeaver.model.DBPKeywordType;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.DBValueFormatting;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContext;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContextDefaults;
+import org.jkiss.dbeaver.model.runtime.AbstractJob;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSEntity;
+import org.jkiss.dbeaver.model.struct.DBSEntityAttribute;
+import org.jkiss.dbeaver.model.struct.DBSObject;
+import org.jkiss.dbeaver.model.struct.DBSObjectContainer;
+import org.jkiss.dbeaver.model.struct.rdb.DBSProcedure;
+import org.jkiss.dbeaver.model.struct.rdb.DBSProcedureContainer;
+
+import java.util.*;
+
+/**
+ * Index of connection database object names (catalogs, schemas, tables, columns and procedures) used for SQL completion.
+ * Entries are sorted by name so prefix lookup is a binary search. Index is built and refreshed in background,
+ * lookups use the last built snapshot.
+ * Initial build reads contents of the default catalog/schema only, other containers are indexed by name
+ * and read when they are used as a completion qualifier.
+ */
+public class WebSQLIdentifierIndex {
+
+    private static final Log log = Log.getLog(WebSQLIdentifierIndex.class);
+
+    private static final int DEFAULT_MAX_ENTRIES = 200000;
+
+    private static final int SCORE_EXACT = 1000;
+    private static final int SCORE_PREFIX = 800;
+    private static final int SCORE_WORD_PREFIX = 500;
+    private static final int SCORE_CONTAINS = 300;
+    private static final int SCORE_FUZZY = 100;
+
+    /**
+     * Indexed object name.
+     */
+    static class Entry {
+        final String name;
+        final String lowerName;
+        // Lower-cased name of the parent object
+        final String parentName;
+        // Lower-cased full name of the parent object
+        final String parentPath;
+        final DBPKeywordType type;
+        final String icon;
+
+        Entry(@NotNull String name, @Nullable String parentName, @NotNull String parentPath, @NotNull DBPKeywordType type, @Nullable String icon) {
+            this.name = name;
+            this.lowerName = name.toLowerCase(Locale.ENGLISH);
+            this.parentName = parentName == null ? null : parentName.toLowerCase(Locale.ENGLISH);
+            this.parentPath = parentPath;
+            this.type = type;
+            this.icon = icon;
+        }
+    }
+
+    /**
+     * Search match.
+     */
+    public static class Match {
+        final Entry entry;
+        final int score;
+
+        Match(@NotNull Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+
+        public String getName() {
+            return entry.name;
+        }
+
+        public DBPKeywordType getType() {
+            return entry.type;
+        }
+
+        public String getIcon() {
+            return entry.icon;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+
+    private final WebSQLProcessor processor;
+    private final int maxEntries;
+    private volatile Entry[] entries;
+    private volatile Map<String, List<Entry>> childrenByParent;
+    // Containers which contents weren't indexed yet, by lower-cased name
+    private volatile Map<String, DBSObject> unindexedContainers = Collections.emptyMap();
+    private final Object refreshLock = new Object();
+    private AbstractJob refreshJob;
+    // Objects which must be re-indexed. Null element means the whole data source
+    private final Set<DBSObject> pendingRefresh = new LinkedHashSet<>();
+    private boolean fullRefresh;
+
+    WebSQLIdentifierIndex(@NotNull WebSQLProcessor processor, int maxEntries) {
+        this.processor = processor;
+        this.maxEntries = maxEntries <= 0 ? DEFAULT_MAX_ENTRIES : maxEntries;
+    }
+
+    /**
+     * True if index was built and may be used for lookups.
+     */
+    public boolean isReady() {
+        return entries != null;
+    }
+
+    public int getSize() {
+        Entry[] curEntries = entries;
+        return curEntries == null ? 0 : curEntries.length;
+    }
+
+    /**
+     * Schedules re-indexing of the specified object (or of the whole data source if object is null).
+     */
+    public void refresh(@Nullable DBSObject object) {
+        synchronized (refreshLock) {
+            if (object == null || object instanceof DBPDataSource) {
+                fullRefresh = true;
+                pendingRefresh.clear();
+            } else if (!fullRefresh) {
+                pendingRefresh.add(object);
+            }
+            if (refreshJob == null) {
+                refreshJob = new AbstractJob("Index SQL identifiers of " + processor.getConnection().getName()) {
+                    @Override
+                    protected IStatus run(DBRProgressMonitor monitor) {
+                        processRefresh(monitor);
+                        return Status.OK_STATUS;
+                    }
+                };
+                refreshJob.setSystem(true);
+                refreshJob.setPriority(Job.DECORATE);
+            }
+            refreshJob.schedule(100);
+        }
+    }
+
+    void dispose() {
+        synchronized (refreshLock) {
+            if (refreshJob != null) {
+                refreshJob.cancel();
+                refreshJob = null;
+            }
+            pendingRefresh.clear();
+        }
+        entries = null;
+        childrenByParent = null;
+        unindexedContainers = Collections.emptyMap();
+    }
+
+    /**
+     * Finds names matching the specified prefix. If qualifier is specified then searches only children of objects with the qualifier name.
+     * Returns null if qualifier is unknown for the index.
+     */
+    @Nullable
+    public List<Match> search(@Nullable String qualifier, @NotNull String prefix, int maxResults) {
+        Entry[] curEntries = entries;
+        Map<String, List<Entry>> curChildren = childrenByParent;
+        if (curEntries == null || curChildren == null) {
+            return null;
+        }
+        String lowerPrefix = prefix.toLowerCase(Locale.ENGLISH);
+        List<Match> matches = new ArrayList<>();
+        if (qualifier != null) {
+            String lowerQualifier = qualifier.toLowerCase(Locale.ENGLISH);
+            List<Entry> children = curChildren.get(lowerQualifier);
+            if (children == null) {
+                DBSObject container = unindexedContainers.get(lowerQualifier);
+                if (container != null) {
+                    // Read container contents for the next requests
+                    refresh(container);
+                }
+                return null;
+            }
+            for (Entry entry : children) {
+                int score = getMatchScore(entry.lowerName, lowerPrefix);
+                if (score > 0) {
+                    matches.add(new Match(entry, score));
+                }
+            }
+        } else {
+            // Prefix matches come from the sorted range
+            int index = findFirst(curEntries, lowerPrefix);
+            for (int i = index; i < curEntries.length && curEntries[i].lowerName.startsWith(lowerPrefix); i++) {
+                matches.add(new Match(curEntries[i], getMatchScore(curEntries[i].lowerName, lowerPrefix)));
+            }
+            if (matches.size() < maxResults && !lowerPrefix.isEmpty()) {
+                // Not enough prefix matches - look for names containing the prefix
+                for (Entry entry : curEntries) {
+                    if (!entry.lowerName.startsWith(lowerPrefix)) {
+                        int score = getMatchScore(entry.lowerName, lowerPrefix);
+                        if (score > 0) {
+                            matches.add(new Match(entry, score));
+                        }
+                    }
+                }
+            }
+        }
+        matches.sort((m1, m2) -> {
+            int cmp = Integer.compare(m2.score, m1.score);
+            if (cmp == 0) {
+                cmp = Integer.compare(m1.entry.name.length(), m2.entry.name.length());
+            }
+            return cmp != 0 ? cmp : m1.entry.lowerName.compareTo(m2.entry.lowerName);
+        });
+        return matches.size() > maxResults ? matches.subList(0, maxResults) : matches;
+    }
+
+    /**
+     * Match score. Zero means name doesn't match.
+     */
+    public static int getMatchScore(@NotNull String name, @NotNull String prefix) {
+        if (prefix.isEmpty()) {
+            return SCORE_PREFIX;
+        }
+        if (name.equals(prefix)) {
+            return SCORE_EXACT;
+        }
+        if (name.startsWith(prefix)) {
+            return SCORE_PREFIX;
+        }
+        int pos = name.indexOf(prefix);
+        if (pos > 0) {
+            char prevChar = name.charAt(pos - 1);
+            return prevChar == '_' || prevChar == '$' ? SCORE_WORD_PREFIX : SCORE_CONTAINS;
+        }
+        // Fuzzy match: all prefix characters appear in the name in the same order
+        int namePos = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            namePos = name.indexOf(prefix.charAt(i), namePos);
+            if (namePos < 0) {
+                return 0;
+            }
+            namePos++;
+        }
+        return prefix.length() > 1 && name.charAt(0) == prefix.charAt(0) ? SCORE_FUZZY : 0;
+    }
+
+    private static int findFirst(@NotNull Entry[] entries, @NotNull String prefix) {
+        int low = 0, high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid].lowerName.compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void processRefresh(@NotNull DBRProgressMonitor monitor) {
+        boolean full;
+        List<DBSObject> objects;
+        synchronized (refreshLock) {
+            full = fullRefresh || entries == null;
+            objects = new ArrayList<>(pendingRefresh);
+            fullRefresh = false;
+            pendingRefresh.clear();
+        }
+        DBPDataSource dataSource = processor.getConnection().getDataSource();
+        if (dataSource == null) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        List<Entry> newEntries = new ArrayList<>();
+        Map<String, DBSObject> newUnindexed = new HashMap<>();
+        try {
+            if (full) {
+                collectChildren(monitor, dataSource, null, "", getDefaultContainer(dataSource), newEntries, newUnindexed);
+            } else {
+                newUnindexed.putAll(unindexedContainers);
+                newUnindexed.values().removeAll(objects);
+                Entry[] curEntries = entries;
+                List<String> refreshedPaths = new ArrayList<>();
+                for (DBSObject object : objects) {
+                    refreshedPaths.add(getObjectPath(object));
+                }
+                for (Entry entry : curEntries) {
+                    String entryPath = entry.parentPath.isEmpty() ? entry.lowerName : entry.parentPath + "." + entry.lowerName;
+                    if (refreshedPaths.stream().noneMatch(path -> entryPath.equals(path) || entryPath.startsWith(path + "."))) {
+                        newEntries.add(entry);
+                    }
+                }
+                for (DBSObject object : objects) {
+                    DBSObject parent = object.getParentObject();
+                    String parentPath = parent == null ? "" : getObjectPath(parent);
+                    collectObject(monitor, object, parent == null || parent instanceof DBPDataSource ? null : parent.getName(), parentPath, null, newEntries, newUnindexed);
+                }
+            }
+        } catch (DBException e) {
+            log.debug("Error indexing SQL identifiers", e);
+            if (newEntries.isEmpty()) {
+                return;
+            }
+        }
+        if (monitor.isCanceled()) {
+            return;
+        }
+        Entry[] sortedEntries = newEntries.toArray(new Entry[0]);
+        Arrays.sort(sortedEntries, Comparator.comparing(entry -> entry.lowerName));
+        Map<String, List<Entry>> children = new HashMap<>();
+        for (Entry entry : sortedEntries) {
+            if (entry.parentName != null) {
+                children.computeIfAbsent(entry.parentName, name -> new ArrayList<>()).add(entry);
+            }
+        }
+        childrenByParent = children;
+        unindexedContainers = newUnindexed;
+        entries = sortedEntries;
+        log.debug("SQL identifiers index of " + processor.getConnection().getName() + " updated: " +
+            sortedEntries.length + " names in " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    /**
+     * Returns the deepest default container (schema or catalog) of the main execution context.
+     * Data source is returned if context has no defaults.
+     */
+    @NotNull
+    private DBSObject getDefaultContainer(@NotNull DBPDataSource dataSource) {
+        DBCExecutionContext context = processor.getExecutionContext();
+        DBCExecutionContextDefaults<?, ?> contextDefaults = context == null ? null : context.getContextDefaults();
+        if (contextDefaults != null) {
+            if (contextDefaults.getDefaultSchema() != null) {
+                return contextDefaults.getDefaultSchema();
+            }
+            if (contextDefaults.getDefaultCatalog() != null) {
+                return contextDefaults.getDefaultCatalog();
+            }
+        }
+        return dataSource;
+    }
+
+    /**
+     * Collects children of the object.
+     * If scope is specified then only scope and its parents are expanded, other containers are indexed by name only.
+     * Null scope means that all object contents are indexed.
+     */
+    private void collectChildren(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBSObject object,
+        @Nullable String parentName,
+        @NotNull String parentPath,
+        @Nullable DBSObject scope,
+        @NotNull List<Entry> result,
+        @NotNull Map<String, DBSObject> unindexed) throws DBException
+    {
+        String path = parentName == null ? parentPath : (parentPath.isEmpty() ? "" : parentPath + ".") + parentName.toLowerCase(Locale.ENGLISH);
+        if (object instanceof DBSEntity) {
+            List<? extends DBSEntityAttribute> attributes = ((DBSEntity) object).getAttributes(monitor);
+            if (attributes != null) {
+                for (DBSEntityAttribute attribute : attributes) {
+                    addEntry(attribute, parentName, path, DBPKeywordType.OTHER, result);
+                }
+            }
+            return;
+        }
+        DBSObjectContainer container = DBUtils.getAdapter(DBSObjectContainer.class, object);
+        if (container != null) {
+            if (scope == null || (object == scope && !(object instanceof DBPDataSource))) {
+                // Read all tables and columns at once
+                container.cacheStructure(monitor, DBSObjectContainer.STRUCT_ENTITIES | DBSObjectContainer.STRUCT_ATTRIBUTES);
+            }
+            Collection<? extends DBSObject> children = container.getChildren(monitor);
+            if (children != null) {
+                for (DBSObject child : children) {
+                    if (monitor.isCanceled() || result.size() >= maxEntries) {
+                        return;
+                    }
+                    collectObject(monitor, child, parentName, path, scope, result, unindexed);
+                }
+            }
+        }
+        if (object instanceof DBSProcedureContainer) {
+            Collection<? extends DBSProcedure> procedures = ((DBSProcedureContainer) object).getProcedures(monitor);
+            if (procedures != null) {
+                for (DBSProcedure procedure : procedures) {
+                    addEntry(procedure, parentName, path, DBPKeywordType.FUNCTION, result);
+                }
+            }
+        }
+    }
+
+    private void collectObject(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBSObject object,
+        @Nullable String parentName,
+        @NotNull String parentPath,
+        @Nullable DBSObject scope,
+        @NotNull List<Entry> result,
+        @NotNull Map<String, DBSObject> unindexed) throws DBException
+    {
+        if (result.size() >= maxEntries) {
+            return;
+        }
+        addEntry(object, parentName, parentPath, object instanceof DBSProcedure ? DBPKeywordType.FUNCTION : DBPKeywordType.OTHER, result);
+        if (object instanceof DBSEntity) {
+            collectChildren(monitor, object, object.getName(), parentPath, scope, result, unindexed);
+        } else if (object instanceof DBSObjectContainer) {
+            if (scope == null || isScopeOrParent(object, scope)) {
+                collectChildren(monitor, object, object.getName(), parentPath, scope, result, unindexed);
+            } else if (object.getName() != null) {
+                unindexed.put(object.getName().toLowerCase(Locale.ENGLISH), object);
+            }
+        }
+    }
+
+    private static boolean isScopeOrParent(@NotNull DBSObject object, @NotNull DBSObject scope) {
+        for (DBSObject o = scope; o != null && !(o instanceof DBPDataSource); o = o.getParentObject()) {
+            if (o == object) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addEntry(
+        @NotNull DBSObject object,
+        @Nullable String parentName,
+        @NotNull String parentPath,
+        @NotNull DBPKeywordType type,
+        @NotNull List<Entry> result)
+    {
+        if (result.size() >= maxEntries || object.getName() == null) {
+            return;
+        }
+        DBPImage image = DBValueFormatting.getObjectImage(object);
+        result.add(new Entry(object.getName(), parentName, parentPath, type, image == null ? null : image.getLocation()));
+    }
+
+    @NotNull
+    private static String getObjectPath(@NotNull DBSObject object) {
+        List<String> names = new ArrayList<>();
+        for (DBSObject o = object; o != null && !(o instanceof DBPDataSource); o = o.getParentObject()) {
+            names.add(0, o.getName().toLowerCase(Locale.ENGLISH));
+        }
+        return String.join(".", names);
+    }
+}
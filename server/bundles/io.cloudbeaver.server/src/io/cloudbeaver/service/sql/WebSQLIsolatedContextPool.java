@@ -0,0 +1,136 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContext;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Isolated execution contexts of SQL context. Used by parallel script queries.
+ * Contexts are opened on demand and closed when the last script which uses them finishes,
+ * SQL context is disposed or its defaults are changed.
+ */
+class WebSQLIsolatedContextPool {
+
+    private static final Log log = Log.getLog(WebSQLIsolatedContextPool.class);
+
+    private final WebSQLContextInfo contextInfo;
+    private final List<DBCExecutionContext> contexts = new ArrayList<>();
+    private final BlockingQueue<DBCExecutionContext> freeContexts = new LinkedBlockingQueue<>();
+    // Number of running scripts which use the pool
+    private int scriptCount;
+
+    WebSQLIsolatedContextPool(@NotNull WebSQLContextInfo contextInfo) {
+        this.contextInfo = contextInfo;
+    }
+
+    /**
+     * Makes sure that at least one isolated context is open and registers script which uses the pool.
+     * Returns false if data source doesn't support isolated contexts.
+     * Each successful call must be followed by {@link #finish()}.
+     */
+    synchronized boolean open(@NotNull DBRProgressMonitor monitor) {
+        if (contexts.isEmpty()) {
+            DBCExecutionContext context = openContext(monitor);
+            if (context == null) {
+                return false;
+            }
+            freeContexts.add(context);
+        }
+        scriptCount++;
+        return true;
+    }
+
+    /**
+     * Unregisters finished script. Contexts are closed when there are no more running scripts.
+     */
+    synchronized void finish() {
+        if (scriptCount > 0 && --scriptCount == 0) {
+            close();
+        }
+    }
+
+    /**
+     * Returns free context. Opens a new one if pool has less than maxContexts contexts,
+     * otherwise waits for a context released by another query.
+     */
+    @NotNull
+    DBCExecutionContext acquire(@NotNull DBRProgressMonitor monitor, int maxContexts) throws InterruptedException {
+        DBCExecutionContext context = freeContexts.poll();
+        if (context == null) {
+            synchronized (this) {
+                if (contexts.size() < maxContexts) {
+                    context = openContext(monitor);
+                }
+            }
+        }
+        if (context == null) {
+            context = freeContexts.take();
+        }
+        return context;
+    }
+
+    void release(@NotNull DBCExecutionContext context) {
+        synchronized (this) {
+            if (!contexts.contains(context)) {
+                // Pool was closed while context was in use
+                closeContext(context);
+                return;
+            }
+        }
+        freeContexts.add(context);
+    }
+
+    synchronized void close() {
+        freeContexts.clear();
+        for (DBCExecutionContext context : contexts) {
+            closeContext(context);
+        }
+        contexts.clear();
+    }
+
+    @Nullable
+    private DBCExecutionContext openContext(@NotNull DBRProgressMonitor monitor) {
+        DBCExecutionContext mainContext = contextInfo.getProcessor().getExecutionContext();
+        DBCExecutionContext context;
+        try {
+            context = mainContext.getOwnerInstance().openIsolatedContext(monitor, "SQL script query", mainContext);
+        } catch (DBException e) {
+            log.debug("Can't open isolated context for script query", e);
+            return null;
+        }
+        contexts.add(context);
+        return context;
+    }
+
+    private static void closeContext(@NotNull DBCExecutionContext context) {
+        try {
+            context.close();
+        } catch (Exception e) {
+            log.debug("Error closing isolated context", e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.model.DBPContextProvider;
+import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDDataFilter;
+import org.jkiss.dbeaver.model.data.DBDDataReceiver;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.exec.jdbc.JDBCPreparedStatement;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+import org.jkiss.dbeaver.model.struct.DBSObject;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results container of a query with named parameters.
+ * Keeps parameter values, so results are read again (next pages, row count, export) with the same bound values.
+ */
+public class WebSQLPreparedQueryDataContainer implements DBSDataContainer, DBPContextProvider {
+
+    private final DBPDataSource dataSource;
+    private final String text;
+    private final WebSQLStatementCache.NamedQuery query;
+    private final Map<String, Object> parameterValues;
+
+    WebSQLPreparedQueryDataContainer(
+        @NotNull DBPDataSource dataSource,
+        @NotNull String text,
+        @NotNull WebSQLStatementCache.NamedQuery query,
+        @NotNull Map<String, Object> parameterValues)
+    {
+        this.dataSource = dataSource;
+        this.text = text;
+        this.query = query;
+        this.parameterValues = new LinkedHashMap<>(parameterValues);
+    }
+
+    @Nullable
+    @Override
+    public DBSObject getParentObject() {
+        return dataSource;
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return text;
+    }
+
+    @Override
+    public boolean isPersisted() {
+        return false;
+    }
+
+    @Nullable
+    @Override
+    public String getDescription() {
+        return text;
+    }
+
+    @Nullable
+    @Override
+    public DBPDataSource getDataSource() {
+        return dataSource;
+    }
+
+    @Override
+    public String[] getSupportedFeatures() {
+        return new String[] { FEATURE_DATA_SELECT, FEATURE_DATA_COUNT, FEATURE_DATA_FILTER };
+    }
+
+    @NotNull
+    @Override
+    public DBCStatistics readData(
+        @NotNull DBCExecutionSource source,
+        @NotNull DBCSession session,
+        @NotNull DBDDataReceiver dataReceiver,
+        @Nullable DBDDataFilter dataFilter,
+        long firstRow,
+        long maxRows,
+        long flags,
+        int fetchSize) throws DBCException
+    {
+        String queryText = makeQueryText(session, dataFilter);
+        DBCStatistics statistics = new DBCStatistics();
+        statistics.setQueryText(queryText);
+        long startTime = System.currentTimeMillis();
+        try (DBCStatement dbStat = session.prepareStatement(DBCStatementType.QUERY, queryText, false, false, false)) {
+            dbStat.setStatementSource(source);
+            if (firstRow > 0 || maxRows > 0) {
+                dbStat.setLimit(firstRow, maxRows);
+            }
+            if (fetchSize > 0) {
+                dbStat.setResultsFetchSize(fetchSize);
+            }
+            bindParameters(session, dbStat, query, parameterValues);
+            boolean hasResultSet = dbStat.executeStatement();
+            statistics.addStatementsCount();
+            statistics.setExecuteTime(System.currentTimeMillis() - startTime);
+            if (hasResultSet) {
+                long fetchStartTime = System.currentTimeMillis();
+                try (DBCResultSet resultSet = dbStat.openResultSet()) {
+                    if (resultSet != null) {
+                        long rowCount = 0;
+                        dataReceiver.fetchStart(session, resultSet, firstRow, maxRows);
+                        try {
+                            while ((maxRows <= 0 || rowCount < maxRows) && resultSet.nextRow()) {
+                                dataReceiver.fetchRow(session, resultSet);
+                                rowCount++;
+                            }
+                        } finally {
+                            dataReceiver.fetchEnd(session, resultSet);
+                        }
+                        statistics.setRowsFetched(rowCount);
+                    }
+                }
+                statistics.setFetchTime(System.currentTimeMillis() - fetchStartTime);
+            }
+        } finally {
+            dataReceiver.close();
+        }
+        return statistics;
+    }
+
+    @Override
+    public long countData(@NotNull DBCExecutionSource source, @NotNull DBCSession session, @Nullable DBDDataFilter dataFilter, long flags) throws DBCException {
+        String queryText = "SELECT COUNT(*) FROM (" + makeQueryText(session, dataFilter) + ") cnt";
+        try (DBCStatement dbStat = session.prepareStatement(DBCStatementType.QUERY, queryText, false, false, false)) {
+            dbStat.setStatementSource(source);
+            bindParameters(session, dbStat, query, parameterValues);
+            if (!dbStat.executeStatement()) {
+                return 0;
+            }
+            try (DBCResultSet resultSet = dbStat.openResultSet()) {
+                if (resultSet == null || !resultSet.nextRow()) {
+                    return 0;
+                }
+                Object count = resultSet.getAttributeValue(0);
+                return count instanceof Number ? ((Number) count).longValue() : 0;
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    public DBCExecutionContext getExecutionContext() {
+        return DBUtils.getDefaultContext(dataSource, false);
+    }
+
+    @NotNull
+    private String makeQueryText(@NotNull DBCSession session, @Nullable DBDDataFilter dataFilter) throws DBCException {
+        String queryText = query.getPreparedText();
+        if (dataFilter != null && (dataFilter.hasFilters() || dataFilter.hasOrdering())) {
+            // Filter is applied to the query results, parameter placeholders keep their order
+            queryText = dataSource.getSQLDialect().addFiltersToQuery(session.getProgressMonitor(), dataSource, queryText, dataFilter);
+        }
+        return queryText;
+    }
+
+    /**
+     * Binds named parameter values to the query placeholders.
+     */
+    static void bindParameters(
+        @NotNull DBCSession session,
+        @NotNull DBCStatement dbStat,
+        @NotNull WebSQLStatementCache.NamedQuery query,
+        @NotNull Map<String, Object> parameterValues) throws DBCException
+    {
+        List<String> parameterNames = query.getParameterNames();
+        if (parameterNames.isEmpty()) {
+            return;
+        }
+        if (!(dbStat instanceof JDBCPreparedStatement)) {
+            throw new DBCException("Query parameters are not supported by " + session.getDataSource().getContainer().getDriver().getName());
+        }
+        JDBCPreparedStatement preparedStatement = (JDBCPreparedStatement) dbStat;
+        try {
+            preparedStatement.clearParameters();
+            for (int i = 0; i < parameterNames.size(); i++) {
+                preparedStatement.setObject(i + 1, parameterValues.get(parameterNames.get(i)));
+            }
+        } catch (SQLException e) {
+            throw new DBCException(e, session.getExecutionContext());
+        }
+    }
+}
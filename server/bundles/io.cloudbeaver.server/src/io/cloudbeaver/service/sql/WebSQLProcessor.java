@@ -20,28 +20,38 @@ import io.cloudbeaver.DBWebException;
 import io.cloudbeaver.model.WebConnectionInfo;
 import io.cloudbeaver.model.session.WebSession;
 import io.cloudbeaver.model.session.WebSessionProvider;
+import io.cloudbeaver.model.user.WebRole;
+import io.cloudbeaver.model.user.WebUser;
+import io.cloudbeaver.server.CBAppConfig;
+import io.cloudbeaver.server.CBApplication;
 import org.jkiss.code.NotNull;
 import org.jkiss.code.Nullable;
 import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.model.DBPDataKind;
 import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.DBPEvaluationContext;
+import org.jkiss.dbeaver.model.preferences.DBPPropertyDescriptor;
 import org.jkiss.dbeaver.model.DBUtils;
 import org.jkiss.dbeaver.model.data.*;
 import org.jkiss.dbeaver.model.edit.DBEPersistAction;
 import org.jkiss.dbeaver.model.exec.*;
 import org.jkiss.dbeaver.model.exec.plan.DBCPlan;
+import org.jkiss.dbeaver.model.exec.plan.DBCPlanCostNode;
+import org.jkiss.dbeaver.model.exec.plan.DBCPlanNode;
 import org.jkiss.dbeaver.model.exec.plan.DBCQueryPlanner;
 import org.jkiss.dbeaver.model.exec.plan.DBCQueryPlannerConfiguration;
 import org.jkiss.dbeaver.model.impl.AbstractExecutionSource;
 import org.jkiss.dbeaver.model.navigator.DBNDatabaseItem;
 import org.jkiss.dbeaver.model.navigator.DBNNode;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.sql.SQLDialect;
 import org.jkiss.dbeaver.model.sql.SQLQuery;
 import org.jkiss.dbeaver.model.sql.SQLSyntaxManager;
 import org.jkiss.dbeaver.model.sql.SQLUtils;
 import org.jkiss.dbeaver.model.sql.parser.SQLRuleManager;
 import org.jkiss.dbeaver.model.struct.*;
+import org.jkiss.dbeaver.runtime.properties.PropertyCollector;
 import org.jkiss.dbeaver.utils.GeneralUtils;
 import org.jkiss.utils.ArrayUtils;
 import org.jkiss.utils.CommonUtils;
@@ -58,12 +68,23 @@ public class WebSQLProcessor implements WebSessionProvider {
     private static final Log log = Log.getLog(WebSQLProcessor.class);
 
     private static final int MAX_RESULTS_COUNT = 100;
+    private static final int MULTI_INSERT_BATCH_SIZE = 100;
+    private static final long ROW_COUNT_CACHE_TTL = 60000;
+    // Entity properties which hold row count statistics
+    private static final String[] ROW_COUNT_PROPERTIES = { "rowCountEstimate", "rowCount" };
 
     private final WebSession webSession;
     private final WebConnectionInfo connection;
     private final SQLSyntaxManager syntaxManager;
     private final SQLRuleManager ruleManager;
     private final Map<String, WebSQLContextInfo> contexts = new LinkedHashMap<>();
+    // Exact row counts: container and filter -> {count, timestamp}
+    private final Map<String, long[]> rowCountCache = new HashMap<>();
+    private final WebSQLStatementCacheInfo statementCacheInfo = new WebSQLStatementCacheInfo();
+    private WebSQLIdentifierIndex identifierIndex;
+    // Roles of the session user, resolved once per user (used for role based statement timeouts)
+    private WebUser rolesUser;
+    private List<String> sessionRoles;
 
     private AtomicInteger contextId = new AtomicInteger();
 
@@ -76,13 +97,22 @@ public class WebSQLProcessor implements WebSessionProvider {
 
         ruleManager = new SQLRuleManager(syntaxManager);
         ruleManager.loadRules(connection.getDataSource(), false);
+
+        WebSQLResultCache.addConnectionUser(connection);
     }
 
     void dispose() {
+        WebSQLResultCache.removeConnectionUser(connection);
         synchronized (contexts) {
             contexts.forEach((s, context) -> context.dispose());
             contexts.clear();
         }
+        synchronized (this) {
+            if (identifierIndex != null) {
+                identifierIndex.dispose();
+                identifierIndex = null;
+            }
+        }
     }
 
     public WebConnectionInfo getConnection() {
@@ -102,6 +132,29 @@ public class WebSQLProcessor implements WebSessionProvider {
         return ruleManager;
     }
 
+    /**
+     * Returns database object names index. Index is built in background on the first call.
+     */
+    @NotNull
+    public synchronized WebSQLIdentifierIndex getIdentifierIndex() {
+        if (identifierIndex == null) {
+            Number maxEntries = CBApplication.getInstance().getAppConfiguration().getResourceQuota(
+                WebSQLConstants.QUOTA_PROP_COMPLETION_INDEX_MAX_ENTRIES);
+            identifierIndex = new WebSQLIdentifierIndex(this, maxEntries == null ? 0 : maxEntries.intValue());
+            identifierIndex.refresh(null);
+        }
+        return identifierIndex;
+    }
+
+    /**
+     * Updates names index after database objects were refreshed.
+     */
+    public synchronized void refreshIdentifierIndex(@Nullable DBSObject object) {
+        if (identifierIndex != null) {
+            identifierIndex.refresh(object);
+        }
+    }
+
     public DBCExecutionContext getExecutionContext() {
         return DBUtils.getDefaultContext(connection.getDataSource(), false);
     }
@@ -110,6 +163,73 @@ public class WebSQLProcessor implements WebSessionProvider {
         return DBUtils.getDefaultContext(dataContainer, false);
     }
 
+    /**
+     * Returns statement timeout (in seconds) for this connection and session user. 0 means no timeout.
+     */
+    public int getStatementTimeout() {
+        CBAppConfig appConfig = CBApplication.getInstance().getAppConfiguration();
+        Map<String, Object> connectionTimeouts = appConfig.getResourceQuota(WebSQLConstants.QUOTA_PROP_QUERY_TIMEOUT_CONNECTIONS);
+        if (connectionTimeouts != null && connectionTimeouts.get(connection.getId()) != null) {
+            return CommonUtils.toInt(connectionTimeouts.get(connection.getId()));
+        }
+        Map<String, Object> roleTimeouts = appConfig.getResourceQuota(WebSQLConstants.QUOTA_PROP_QUERY_TIMEOUT_ROLES);
+        if (!CommonUtils.isEmpty(roleTimeouts)) {
+            Integer roleTimeout = null;
+            for (String roleId : getSessionRoles(appConfig)) {
+                Object timeout = roleTimeouts.get(roleId);
+                if (timeout == null) {
+                    continue;
+                }
+                int timeoutValue = CommonUtils.toInt(timeout);
+                // The most permissive role wins
+                if (roleTimeout == null || (roleTimeout > 0 && (timeoutValue <= 0 || timeoutValue > roleTimeout))) {
+                    roleTimeout = Math.max(timeoutValue, 0);
+                }
+            }
+            if (roleTimeout != null) {
+                return roleTimeout;
+            }
+        }
+        Number defaultTimeout = appConfig.getResourceQuota(WebSQLConstants.QUOTA_PROP_QUERY_TIMEOUT);
+        return defaultTimeout == null ? 0 : defaultTimeout.intValue();
+    }
+
+    @NotNull
+    private synchronized List<String> getSessionRoles(@NotNull CBAppConfig appConfig) {
+        WebUser user = webSession.getUser();
+        if (user == null) {
+            return Collections.singletonList(appConfig.getAnonymousUserRole());
+        }
+        if (sessionRoles == null || rolesUser != user) {
+            List<String> roles = readUserRoles(user);
+            if (roles == null) {
+                // Do not cache read errors
+                return Collections.emptyList();
+            }
+            sessionRoles = roles;
+            rolesUser = user;
+        }
+        return sessionRoles;
+    }
+
+    @Nullable
+    private List<String> readUserRoles(@NotNull WebUser user) {
+        if (user.getRoles() != null) {
+            return Arrays.asList(user.getGrantedRoles());
+        }
+        // Roles are not loaded into the session user. Read them without changing the user object.
+        try {
+            List<String> roles = new ArrayList<>();
+            for (WebRole role : CBApplication.getInstance().getSecurityController().getUserRoles(user.getUserId())) {
+                roles.add(role.getRoleId());
+            }
+            return roles;
+        } catch (DBException e) {
+            log.debug("Error reading user roles: " + e.getMessage());
+            return null;
+        }
+    }
+
     @NotNull
     public WebSQLContextInfo createContext(String defaultCatalog, String defaultSchema) throws DBCException {
         String contextId = connection.getId() + ":" + this.contextId.incrementAndGet();
@@ -149,21 +269,37 @@ public class WebSQLProcessor implements WebSessionProvider {
         @Nullable String resultId,
         @Nullable WebSQLDataFilter filter,
         @Nullable WebDataFormat dataFormat) throws DBWebException {
+        return processQuery(monitor, contextInfo, sql, resultId, filter, dataFormat, null);
+    }
+
+    /**
+     * Executes query in the specified execution context. Uses default connection context if context is null.
+     */
+    @NotNull
+    public WebSQLExecuteInfo processQuery(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String sql,
+        @Nullable String resultId,
+        @Nullable WebSQLDataFilter filter,
+        @Nullable WebDataFormat dataFormat,
+        @Nullable DBCExecutionContext executionContext) throws DBWebException {
         if (filter == null) {
             // Use default filter
             filter = new WebSQLDataFilter();
         }
         long startTime = System.currentTimeMillis();
-        WebSQLExecuteInfo executeInfo = new WebSQLExecuteInfo();
+        WebSQLExecuteInfo executeInfo;
 
         DBSDataContainer dataContainer = new WebSQLQueryDataContainer(connection.getDataSource(), sql);
 
-        DBCExecutionContext context = getExecutionContext(dataContainer);
+        DBCExecutionContext context = executionContext != null ? executionContext : getExecutionContext(dataContainer);
 
         try {
+            WebSQLResultsInfo prevResults = resultId == null ? null : contextInfo.getResults(resultId);
             final DBDDataFilter dataFilter = filter.makeDataFilter(
                 monitor,
-                (resultId == null ? null : contextInfo.getResults(resultId)),
+                prevResults,
                 dataContainer);
             if (dataFilter.hasFilters()) {
                 sql = context.getDataSource().getSQLDialect().addFiltersToQuery(
@@ -177,28 +313,33 @@ public class WebSQLProcessor implements WebSessionProvider {
             final String sqlQueryText = sql;
             SQLQuery sqlQuery = new SQLQuery(context.getDataSource(), sqlQueryText);
 
-            DBExecUtils.tryExecuteRecover(monitor, connection.getDataSource(), param -> {
-                try (DBCSession session = context.openSession(monitor, DBCExecutionPurpose.USER, "Execute SQL")) {
-                    AbstractExecutionSource source = new AbstractExecutionSource(
-                        dataContainer,
-                        session.getExecutionContext(),
-                        WebSQLProcessor.this,
-                        sqlQuery);
-                    try (DBCStatement dbStat = DBUtils.makeStatement(
-                        source,
-                        session,
-                        DBCStatementType.SCRIPT,
-                        sqlQuery,
-                        webDataFilter.getOffset(),
-                        webDataFilter.getLimit()))
-                    {
-                        boolean hasResultSet = dbStat.executeStatement();
-                        fillQueryResults(contextInfo, dataContainer, dbStat, hasResultSet, executeInfo, webDataFilter, dataFilter, dataFormat);
-                    } catch (DBException e) {
-                        throw new InvocationTargetException(e);
+            WebSQLResultCache resultCache = WebSQLResultCache.getConnectionCache(connection);
+            WebSQLExecuteInfo retainedResults = null;
+            if (prevResults != null && prevResults.getDataContainer() instanceof WebSQLQueryDataContainer &&
+                prevResults.getDataContainer().getName().equals(dataContainer.getName()))
+            {
+                // Same query was fully fetched before - if only sort or filter was changed then evaluate it in memory
+                retainedResults = WebSQLResultsEvaluator.readResults(monitor, contextInfo, prevResults, webDataFilter, dataFilter, dataFormat);
+            }
+            if (retainedResults != null) {
+                executeInfo = retainedResults;
+                setResultFilterText(dataContainer, context.getDataSource(), executeInfo, dataFilter);
+            } else if (resultCache != null && sqlQuery.isPlainSelect()) {
+                executeInfo = resultCache.getOrExecute(
+                    monitor,
+                    contextInfo,
+                    WebSQLResultCache.makeKey(contextInfo, sqlQueryText, webDataFilter, dataFormat),
+                    () -> executeQuery(monitor, contextInfo, dataContainer, context, sqlQuery, webDataFilter, dataFilter, dataFormat));
+            } else {
+                try {
+                    executeInfo = executeQuery(monitor, contextInfo, dataContainer, context, sqlQuery, webDataFilter, dataFilter, dataFormat);
+                } finally {
+                    if (!sqlQuery.isPlainSelect()) {
+                        // Query may modify data
+                        invalidateCachedResults();
                     }
                 }
-            });
+            }
         } catch (DBException e) {
             throw new DBWebException("Error executing query", e);
         }
@@ -212,6 +353,208 @@ public class WebSQLProcessor implements WebSessionProvider {
         return executeInfo;
     }
 
+    @NotNull
+    private WebSQLExecuteInfo executeQuery(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull DBSDataContainer dataContainer,
+        @NotNull DBCExecutionContext context,
+        @NotNull SQLQuery sqlQuery,
+        @NotNull WebSQLDataFilter webDataFilter,
+        @NotNull DBDDataFilter dataFilter,
+        @Nullable WebDataFormat dataFormat) throws DBException
+    {
+        WebSQLExecuteInfo executeInfo = new WebSQLExecuteInfo();
+        DBExecUtils.tryExecuteRecover(monitor, connection.getDataSource(), param -> {
+            try (DBCSession session = context.openSession(monitor, DBCExecutionPurpose.USER, "Execute SQL")) {
+                AbstractExecutionSource source = new AbstractExecutionSource(
+                    dataContainer,
+                    session.getExecutionContext(),
+                    WebSQLProcessor.this,
+                    sqlQuery);
+                try (DBCStatement dbStat = DBUtils.makeStatement(
+                    source,
+                    session,
+                    DBCStatementType.SCRIPT,
+                    sqlQuery,
+                    webDataFilter.getOffset(),
+                    webDataFilter.getLimit()))
+                {
+                    int statementTimeout = getStatementTimeout();
+                    if (statementTimeout > 0) {
+                        dbStat.setStatementTimeout(statementTimeout);
+                    }
+                    boolean hasResultSet = dbStat.executeStatement();
+                    fillQueryResults(contextInfo, dataContainer, dbStat, hasResultSet, executeInfo, webDataFilter, dataFilter, dataFormat);
+                } catch (DBException e) {
+                    throw new InvocationTargetException(e);
+                }
+            }
+        });
+        return executeInfo;
+    }
+
+    /**
+     * Executes query and pushes results into the stream while they are fetched.
+     * Rows are not retained and results are not cached.
+     */
+    public void streamQuery(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String sql,
+        @Nullable WebSQLDataFilter filter,
+        @Nullable WebDataFormat dataFormat,
+        @NotNull WebSQLResultsStream stream) throws DBWebException {
+        WebSQLDataFilter webDataFilter = filter == null ? new WebSQLDataFilter() : filter;
+        DBSDataContainer dataContainer = new WebSQLQueryDataContainer(connection.getDataSource(), sql);
+        DBCExecutionContext context = getExecutionContext(dataContainer);
+        SQLQuery sqlQuery;
+        try {
+            DBDDataFilter dataFilter = webDataFilter.makeDataFilter(monitor, null, dataContainer);
+            if (dataFilter.hasFilters()) {
+                sql = context.getDataSource().getSQLDialect().addFiltersToQuery(
+                    monitor,
+                    context.getDataSource(),
+                    sql,
+                    dataFilter);
+            }
+            sqlQuery = new SQLQuery(context.getDataSource(), sql);
+        } catch (DBException e) {
+            throw new DBWebException("Error preparing query", e);
+        }
+        try (DBCSession session = context.openSession(monitor, DBCExecutionPurpose.USER, "Stream SQL results")) {
+            AbstractExecutionSource source = new AbstractExecutionSource(
+                dataContainer,
+                session.getExecutionContext(),
+                WebSQLProcessor.this,
+                sqlQuery);
+            try (DBCStatement dbStat = DBUtils.makeStatement(
+                source,
+                session,
+                DBCStatementType.SCRIPT,
+                sqlQuery,
+                webDataFilter.getOffset(),
+                webDataFilter.getLimit()))
+            {
+                int statementTimeout = getStatementTimeout();
+                if (statementTimeout > 0) {
+                    dbStat.setStatementTimeout(statementTimeout);
+                }
+                boolean hasResultSet = dbStat.executeStatement();
+                int maxResultsCount = resolveMaxResultsCount(dataContainer.getDataSource());
+                for (int i = 0; i < maxResultsCount; i++) {
+                    if (hasResultSet) {
+                        DBCResultSet resultSet = dbStat.openResultSet();
+                        if (resultSet == null) {
+                            break;
+                        }
+                        boolean truncated;
+                        try (WebSQLStreamDataReceiver dataReceiver = new WebSQLStreamDataReceiver(contextInfo, dataContainer, dataFormat, stream)) {
+                            dataReceiver.fetchStart(session, resultSet, webDataFilter.getOffset(), webDataFilter.getLimit());
+                            int rowCount = 0;
+                            while (rowCount < webDataFilter.getLimit() && resultSet.nextRow()) {
+                                dataReceiver.fetchRow(session, resultSet);
+                                if (dataReceiver.isTruncated()) {
+                                    cancelResultSetStatement(session, resultSet);
+                                    break;
+                                }
+                                rowCount++;
+                            }
+                            dataReceiver.fetchEnd(session, resultSet);
+                            truncated = dataReceiver.isTruncated();
+                        } finally {
+                            resultSet.close();
+                        }
+                        if (truncated) {
+                            break;
+                        }
+                    } else {
+                        long updateRowCount = dbStat.getUpdateRowCount();
+                        if (updateRowCount < 0) {
+                            break;
+                        }
+                        stream.endResults(monitor, updateRowCount, null);
+                    }
+                    hasResultSet = dbStat.nextResults();
+                }
+            }
+        } catch (DBException e) {
+            throw new DBWebException("Error executing query", e);
+        } finally {
+            if (!sqlQuery.isPlainSelect()) {
+                // Query may modify data
+                invalidateCachedResults();
+            }
+        }
+    }
+
+    /**
+     * Executes query with named parameters (:name). Statements are prepared once and cached in SQL context.
+     * Results keep parameter values, so they are read again (next pages, row count, export) with the same bound values.
+     */
+    @NotNull
+    public WebSQLExecuteInfo processPreparedQuery(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String sql,
+        @Nullable Map<String, Object> parameters,
+        @Nullable WebSQLDataFilter filter,
+        @Nullable WebDataFormat dataFormat) throws DBWebException {
+        WebSQLDataFilter webDataFilter = filter == null ? new WebSQLDataFilter() : filter;
+        Map<String, Object> parameterValues = parameters == null ? Collections.emptyMap() : parameters;
+        long startTime = System.currentTimeMillis();
+
+        WebSQLStatementCache.NamedQuery namedQuery = WebSQLStatementCache.parseQuery(sql);
+        for (String paramName : namedQuery.getParameterNames()) {
+            if (!parameterValues.containsKey(paramName)) {
+                throw new DBWebException("Value of parameter '" + paramName + "' is not specified");
+            }
+        }
+
+        DBSDataContainer dataContainer = new WebSQLPreparedQueryDataContainer(connection.getDataSource(), sql, namedQuery, parameterValues);
+        DBCExecutionContext context = getExecutionContext(dataContainer);
+        SQLQuery sqlQuery = new SQLQuery(context.getDataSource(), sql);
+        DBDDataFilter dataFilter = new DBDDataFilter();
+        WebSQLExecuteInfo executeInfo = new WebSQLExecuteInfo();
+        WebSQLStatementCache.StatementExecutor executor = (session, dbStat) -> {
+            dbStat.setStatementSource(new AbstractExecutionSource(dataContainer, context, WebSQLProcessor.this, sqlQuery));
+            WebSQLPreparedQueryDataContainer.bindParameters(session, dbStat, namedQuery, parameterValues);
+            int statementTimeout = getStatementTimeout();
+            if (statementTimeout > 0) {
+                dbStat.setStatementTimeout(statementTimeout);
+            }
+            boolean hasResultSet = dbStat.executeStatement();
+            fillQueryResults(contextInfo, dataContainer, dbStat, hasResultSet, executeInfo, webDataFilter, dataFilter, dataFormat);
+        };
+        try {
+            WebSQLStatementCache statementCache = contextInfo.getStatementCache();
+            if (statementCache != null) {
+                statementCache.execute(monitor, context, namedQuery, sqlQuery.isPlainSelect(), executor);
+            } else {
+                try (DBCSession session = context.openSession(monitor, DBCExecutionPurpose.USER, "Execute prepared SQL");
+                     DBCStatement dbStat = session.prepareStatement(DBCStatementType.QUERY, namedQuery.getPreparedText(), false, false, false))
+                {
+                    executor.execute(session, dbStat);
+                }
+            }
+        } catch (DBException e) {
+            throw new DBWebException("Error executing prepared query", e);
+        } finally {
+            if (!sqlQuery.isPlainSelect()) {
+                // Query may modify data
+                invalidateCachedResults();
+            }
+        }
+        executeInfo.setDuration(System.currentTimeMillis() - startTime);
+        executeInfo.setStatusMessage(executeInfo.getResults().length == 0 ? "No Data" : "Success");
+        return executeInfo;
+    }
+
+    @NotNull
+    public WebSQLStatementCacheInfo getStatementCacheInfo() {
+        return statementCacheInfo;
+    }
+
     @NotNull
     public WebSQLExecuteInfo readDataFromContainer(
         @NotNull WebSQLContextInfo contextInfo,
@@ -224,20 +567,82 @@ public class WebSQLProcessor implements WebSessionProvider {
         WebSQLExecuteInfo executeInfo = new WebSQLExecuteInfo();
 
         DBCExecutionContext executionContext = getExecutionContext(dataContainer);
+        WebSQLResultsInfo prevResults = resultId == null ? null : contextInfo.getResults(resultId);
         DBDDataFilter dataFilter = filter.makeDataFilter(
             monitor,
-            (resultId == null ? null : contextInfo.getResults(resultId)),
+            prevResults,
             dataContainer);
+        if (filter.isSample()) {
+            WebSQLExecuteInfo sampleResults = readSampleData(contextInfo, monitor, dataContainer, filter, dataFilter, dataFormat);
+            if (sampleResults != null) {
+                return sampleResults;
+            }
+            // Bounded scan: first rows without ordering, so database may stop reading as soon as limit is reached
+            dataFilter = new DBDDataFilter(dataFilter);
+            dataFilter.setOrder(null);
+            for (DBDAttributeConstraint constraint : dataFilter.getConstraints()) {
+                constraint.setOrderPosition(0);
+            }
+        } else if (prevResults != null && prevResults.getDataContainer() == dataContainer) {
+            // Container data was fully fetched before - if only sort or filter was changed then evaluate it in memory
+            WebSQLExecuteInfo retainedResults = WebSQLResultsEvaluator.readResults(
+                monitor, contextInfo, prevResults, filter, dataFilter, dataFormat);
+            if (retainedResults != null) {
+                setResultFilterText(dataContainer, executionContext.getDataSource(), retainedResults, dataFilter);
+                return retainedResults;
+            }
+        }
+        // User filter. We show it to the user, key ordering and keyset condition are used for reading only.
+        final DBDDataFilter readResultFilter = dataFilter;
+
+        // Keyset pagination: read next page right after the last row of previous page instead of offset scan
+        long firstRow = filter.getOffset();
+        List<DBSEntityAttribute> keyAttributes = filter.isSample() ? null : getKeysetAttributes(monitor, dataContainer, dataFilter);
+        String keysetFilter = null;
+        Object[] lastRowKey = null;
+        if (keyAttributes != null) {
+            keysetFilter = makeKeysetFilter(executionContext.getDataSource(), dataFilter);
+            if (!dataFilter.hasOrdering()) {
+                dataFilter = new DBDDataFilter(dataFilter);
+                addKeysetOrdering(dataFilter, keyAttributes);
+            }
+            lastRowKey = prevResults == null || prevResults.getDataContainer() != dataContainer ?
+                null : prevResults.getKeysetPosition(keysetFilter, firstRow);
+            if (lastRowKey != null) {
+                firstRow = 0;
+            }
+        }
+        final long readOffset = filter.isSample() ? 0 : firstRow;
+        final DBDDataFilter readFilter = dataFilter;
+        final String readKeysetFilter = keysetFilter;
+        final Object[] readLastRowKey = lastRowKey;
+
         DBExecUtils.tryExecuteRecover(monitor, connection.getDataSource(), param -> {
             try (DBCSession session = executionContext.openSession(monitor, DBCExecutionPurpose.USER, "Read data from container")) {
                 try (WebSQLQueryDataReceiver dataReceiver = new WebSQLQueryDataReceiver(contextInfo, dataContainer, dataFormat)) {
+                    dataReceiver.setKeyAttributes(keyAttributes);
+                    // Sample is not the whole container data, it can't be used for in-memory sorting
+                    dataReceiver.setRetainRows(filter.getOffset() == 0 && !filter.isSample());
+                    long maxRows = filter.getLimit();
+                    Number rowLimit = dataReceiver.getRowLimit();
+                    if (rowLimit != null && rowLimit.longValue() < maxRows) {
+                        // Read one extra row to find out that rows quota was exceeded
+                        maxRows = rowLimit.longValue() + 1;
+                    }
+                    WebExecutionSource executionSource = new WebExecutionSource(dataContainer, executionContext, this);
+                    DBDDataFilter pageFilter = readFilter;
+                    if (readLastRowKey != null) {
+                        // Keyset condition is a part of the container query, so all pages have the same columns
+                        pageFilter = new DBDDataFilter(readFilter);
+                        addKeysetCondition(session.getDataSource(), pageFilter, keyAttributes, readLastRowKey);
+                    }
                     DBCStatistics statistics = dataContainer.readData(
-                        new WebExecutionSource(dataContainer, executionContext, this),
+                        executionSource,
                         session,
                         dataReceiver,
-                        dataFilter,
-                        filter.getOffset(),
-                        filter.getLimit(),
+                        pageFilter,
+                        readOffset,
+                        maxRows,
                         DBSDataContainer.FLAG_NONE,
                         filter.getLimit());
                     executeInfo.setDuration(statistics.getTotalTime());
@@ -246,10 +651,17 @@ public class WebSQLProcessor implements WebSessionProvider {
                     WebSQLQueryResultSet resultSet = dataReceiver.getResultSet();
                     results.setResultSet(resultSet);
                     executeInfo.setResults(new WebSQLQueryResults[]{results});
-                    setResultFilterText(dataContainer, session.getDataSource(), executeInfo, dataFilter);
+                    setResultFilterText(dataContainer, session.getDataSource(), executeInfo, readResultFilter);
 
+                    if (resultSet != null && resultSet.getResultsInfo() != null) {
+                        resultSet.getResultsInfo().setDataFilter(readResultFilter);
+                        resultSet.getResultsInfo().setRetainedRows(dataReceiver.getRetainedRows(), readResultFilter);
+                    }
                     if (resultSet != null && resultSet.getRows() != null) {
                         executeInfo.setStatusMessage(resultSet.getRows().length + " row(s) fetched");
+                        if (readKeysetFilter != null && resultSet.getResultsInfo() != null) {
+                            saveKeysetPosition(resultSet, prevResults, readKeysetFilter, filter.getOffset(), dataReceiver.getLastRowKey());
+                        }
                     }
                 } catch (DBException e) {
                     throw new InvocationTargetException(e);
@@ -259,6 +671,53 @@ public class WebSQLProcessor implements WebSessionProvider {
         return executeInfo;
     }
 
+    /**
+     * Reads table sample with dialect specific sample clause.
+     * Returns null if sampling is not supported or context is in manual commit mode, so caller falls back to a bounded scan.
+     */
+    @Nullable
+    private WebSQLExecuteInfo readSampleData(
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBSDataContainer dataContainer,
+        @NotNull WebSQLDataFilter filter,
+        @NotNull DBDDataFilter dataFilter,
+        @Nullable WebDataFormat dataFormat)
+    {
+        if (!(dataContainer instanceof DBSEntity)) {
+            return null;
+        }
+        DBCTransactionManager txnManager = DBUtils.getTransactionManager(getExecutionContext(dataContainer));
+        if (txnManager != null && txnManager.isSupportsTransactions() && !txnManager.isAutoCommit()) {
+            // Failed sample query may abort the whole transaction in manual commit mode (e.g. PostgreSQL)
+            return null;
+        }
+        Long tableRowCount = readRowCountStatistics(monitor, (DBSEntity) dataContainer);
+        if (tableRowCount == null) {
+            return null;
+        }
+        DBPDataSource dataSource = getExecutionContext(dataContainer).getDataSource();
+        String sampleQuery = WebSQLTableSample.makeSampleQuery(dataSource, (DBSEntity) dataContainer, tableRowCount, filter.getLimit());
+        if (sampleQuery == null) {
+            return null;
+        }
+        try {
+            if (dataFilter.hasFilters()) {
+                sampleQuery = dataSource.getSQLDialect().addFiltersToQuery(monitor, dataSource, sampleQuery, dataFilter);
+            }
+            // Filters are already in the query text
+            WebSQLDataFilter sampleFilter = new WebSQLDataFilter();
+            sampleFilter.setLimit(filter.getLimit());
+            WebSQLExecuteInfo executeInfo = processQuery(monitor, contextInfo, sampleQuery, null, sampleFilter, dataFormat);
+            setResultFilterText(dataContainer, dataSource, executeInfo, dataFilter);
+            return executeInfo;
+        } catch (DBException e) {
+            // Sample clause may be not supported by particular server version
+            log.debug("Error reading table sample, fallback to bounded scan: " + e.getMessage());
+            return null;
+        }
+    }
+
     public WebSQLExecuteInfo updateResultsDataBatch(
         @NotNull DBRProgressMonitor monitor,
         @NotNull WebSQLContextInfo contextInfo,
@@ -268,12 +727,14 @@ public class WebSQLProcessor implements WebSessionProvider {
         @Nullable List<WebSQLResultsRow> addedRows,
         @Nullable WebDataFormat dataFormat) throws DBException
     {
-        Map<DBSDataManipulator.ExecuteBatch, Object[]> resultBatches = new LinkedHashMap<>();
+        Map<DBSDataManipulator.ExecuteBatch, List<Object[]>> resultBatches = new LinkedHashMap<>();
+        // Rows are returned in the request order (updated, added, deleted), client maps them by index
+        List<Object[]> resultRows = new ArrayList<>();
 
         KeyDataReceiver keyReceiver = new KeyDataReceiver(contextInfo.getResults(resultsId));
 
         DBSDataManipulator dataManipulator = generateUpdateResultsDataBatch(
-            monitor, contextInfo, resultsId, updatedRows, deletedRows, addedRows, dataFormat, resultBatches, keyReceiver);
+            monitor, contextInfo, resultsId, updatedRows, deletedRows, addedRows, dataFormat, resultBatches, resultRows, keyReceiver);
 
         WebSQLResultsInfo resultsInfo = contextInfo.getResults(resultsId);
 
@@ -292,20 +753,28 @@ public class WebSQLProcessor implements WebSessionProvider {
             }
             try {
                 Map<String, Object> options = Collections.emptyMap();
-                for (Map.Entry<DBSDataManipulator.ExecuteBatch, Object[]> rb : resultBatches.entrySet()) {
+                long startTime = System.currentTimeMillis();
+                long totalRowCount = 0;
+                for (Map.Entry<DBSDataManipulator.ExecuteBatch, List<Object[]>> rb : resultBatches.entrySet()) {
                     DBSDataManipulator.ExecuteBatch batch = rb.getKey();
-                    Object[] rowValues = rb.getValue();
-                    keyReceiver.setRow(rowValues);
+                    List<Object[]> batchRows = rb.getValue();
                     DBCStatistics statistics = batch.execute(session, options);
 
                     // Patch result rows (adapt to web format)
-                    for (int i = 0; i < rowValues.length; i++) {
-                        rowValues[i] = WebSQLUtils.makeWebCellValue(webSession, resultsInfo.getAttributeByPosition(i), rowValues[i], dataFormat);
+                    for (Object[] rowValues : batchRows) {
+                        for (int i = 0; i < rowValues.length; i++) {
+                            rowValues[i] = WebSQLUtils.makeWebCellValue(webSession, resultsInfo.getAttributeByPosition(i), rowValues[i], dataFormat);
+                        }
                     }
 
+                    totalRowCount += batchRows.size();
                     totalUpdateCount += statistics.getRowsUpdated();
                     result.setDuration(result.getDuration() + statistics.getExecuteTime());
                 }
+                long totalTime = Math.max(System.currentTimeMillis() - startTime, 1);
+                result.setStatusMessage(
+                    totalRowCount + " row(s) saved in " + resultBatches.size() + " batch(es), " +
+                        (totalRowCount * 1000 / totalTime) + " rows/s");
 
                 if (txnManager != null && txnManager.isSupportsTransactions()) {
                     txnManager.commit(session);
@@ -319,6 +788,7 @@ public class WebSQLProcessor implements WebSessionProvider {
                 if (revertToAutoCommit) {
                     txnManager.setAutoCommit(monitor, true);
                 }
+                invalidateCachedResults();
             }
         }
 
@@ -329,7 +799,7 @@ public class WebSQLProcessor implements WebSessionProvider {
         WebSQLQueryResults updateResults = new WebSQLQueryResults(webSession, dataFormat);
         updateResults.setUpdateRowCount(totalUpdateCount);
         updateResults.setResultSet(updatedResultSet);
-        updatedResultSet.setRows(resultBatches.values().toArray(new Object[0][]));
+        updatedResultSet.setRows(resultRows.toArray(new Object[0][]));
 
         queryResults.add(updateResults);
 
@@ -347,10 +817,10 @@ public class WebSQLProcessor implements WebSessionProvider {
         @Nullable List<WebSQLResultsRow> addedRows,
         @Nullable WebDataFormat dataFormat) throws DBException
     {
-        Map<DBSDataManipulator.ExecuteBatch, Object[]> resultBatches = new LinkedHashMap<>();
+        Map<DBSDataManipulator.ExecuteBatch, List<Object[]>> resultBatches = new LinkedHashMap<>();
 
         DBSDataManipulator dataManipulator = generateUpdateResultsDataBatch(
-            monitor, contextInfo, resultsId, updatedRows, deletedRows, addedRows, dataFormat, resultBatches, null);
+            monitor, contextInfo, resultsId, updatedRows, deletedRows, addedRows, dataFormat, resultBatches, new ArrayList<>(), null);
 
         List<DBEPersistAction> actions = new ArrayList<>();
 
@@ -373,8 +843,9 @@ public class WebSQLProcessor implements WebSessionProvider {
         @Nullable List<WebSQLResultsRow> deletedRows,
         @Nullable List<WebSQLResultsRow> addedRows,
         @Nullable WebDataFormat dataFormat,
-        @NotNull Map<DBSDataManipulator.ExecuteBatch, Object[]> resultBatches,
-        @Nullable DBDDataReceiver keyReceiver)
+        @NotNull Map<DBSDataManipulator.ExecuteBatch, List<Object[]>> resultBatches,
+        @NotNull List<Object[]> resultRows,
+        @Nullable KeyDataReceiver keyReceiver)
         throws DBException
     {
         WebSQLResultsInfo resultsInfo = contextInfo.getResults(resultsId);
@@ -383,6 +854,10 @@ public class WebSQLProcessor implements WebSessionProvider {
         checkRowIdentifier(resultsInfo, rowIdentifier);
         DBSEntity dataContainer = rowIdentifier.getEntity();
         checkDataEditAllowed(dataContainer);
+        if (dataContainer.getDataSource() != connection.getDataSource()) {
+            // Results were taken from the shared results cache and belong to another session
+            throw new DBWebException("Results '" + resultsId + "' were read from the shared cache and can't be edited. Refresh results to edit them.");
+        }
         DBSDataManipulator dataManipulator = (DBSDataManipulator) dataContainer;
 
         DBCExecutionContext executionContext = getExecutionContext(dataManipulator);
@@ -392,9 +867,8 @@ public class WebSQLProcessor implements WebSessionProvider {
             DBDAttributeBinding[] allAttributes = resultsInfo.getAttributes();
             DBDAttributeBinding[] keyAttributes = rowIdentifier.getAttributes().toArray(new DBDAttributeBinding[0]);
 
-            WebSQLQueryResultSet updatedResultSet = new WebSQLQueryResultSet();
-            updatedResultSet.setResultsInfo(resultsInfo);
-            updatedResultSet.setColumns(resultsInfo.getAttributes());
+            // Rows with the same statement shape (same table and same set of columns) go to the same batch
+            Map<String, DBSDataManipulator.ExecuteBatch> shapeBatches = new HashMap<>();
 
             if (!CommonUtils.isEmpty(updatedRows)) {
 
@@ -412,6 +886,7 @@ public class WebSQLProcessor implements WebSessionProvider {
                         int attrIndex = CommonUtils.toInt(indexStr, -1);
                         updateAttributes[index++] = allAttributes[attrIndex];
                     }
+                    Arrays.sort(updateAttributes, Comparator.comparingInt(DBDAttributeBinding::getOrdinalPosition));
 
                     Object[] rowValues = new Object[updateAttributes.length + keyAttributes.length];
                     for (int i = 0; i < updateAttributes.length; i++) {
@@ -443,10 +918,17 @@ public class WebSQLProcessor implements WebSessionProvider {
                         }
                     }
 
-                    DBSDataManipulator.ExecuteBatch updateBatch = dataManipulator.updateData(
-                        session, updateAttributes, keyAttributes, keyReceiver, executionSource);
+                    String batchShape = "update:" + makeBatchShape(updateAttributes);
+                    DBSDataManipulator.ExecuteBatch updateBatch = shapeBatches.get(batchShape);
+                    if (updateBatch == null) {
+                        // Updates do not generate keys. Without keys receiver rows are sent in a single JDBC batch.
+                        updateBatch = dataManipulator.updateData(
+                            session, updateAttributes, keyAttributes, null, executionSource);
+                        shapeBatches.put(batchShape, updateBatch);
+                    }
                     updateBatch.add(rowValues);
-                    resultBatches.put(updateBatch, finalRow);
+                    resultBatches.computeIfAbsent(updateBatch, b -> new ArrayList<>()).add(finalRow);
+                    resultRows.add(finalRow);
                 }
             }
 
@@ -470,14 +952,35 @@ public class WebSQLProcessor implements WebSessionProvider {
                         }
                     }
 
-                    DBSDataManipulator.ExecuteBatch insertBatch = dataManipulator.insertData(
-                        session,
-                        insertAttributes.keySet().toArray(new DBDAttributeBinding[0]),
-                        keyReceiver,
-                        executionSource,
-                        new LinkedHashMap<>());
+                    DBDAttributeBinding[] insertAttributeList = insertAttributes.keySet().toArray(new DBDAttributeBinding[0]);
+                    String batchShape = "insert:" + makeBatchShape(insertAttributeList);
+                    DBSDataManipulator.ExecuteBatch insertBatch = shapeBatches.get(batchShape);
+                    if (insertBatch == null) {
+                        if (keyReceiver == null || keyAttributes.length > 0 && ArrayUtils.containsAll(insertAttributeList, keyAttributes)) {
+                            // Inserted rows already contain their keys (or keys are not needed), so
+                            // rows may be inserted with multi-row INSERT ... VALUES statements
+                            Map<String, Object> insertOptions = new LinkedHashMap<>();
+                            if (session.getDataSource().getSQLDialect().getDefaultMultiValueInsertMode() != SQLDialect.MultiValueInsertMode.NOT_SUPPORTED) {
+                                insertOptions.put(DBSDataManipulator.OPTION_USE_MULTI_INSERT, true);
+                                insertOptions.put(DBSDataManipulator.OPTION_MULTI_INSERT_BATCH_SIZE, MULTI_INSERT_BATCH_SIZE);
+                            }
+                            insertBatch = dataManipulator.insertData(
+                                session,
+                                insertAttributeList,
+                                null,
+                                executionSource,
+                                insertOptions);
+                        } else {
+                            // Generated keys must be returned to the client, they are assigned to the batch rows
+                            List<Object[]> batchRows = new ArrayList<>();
+                            insertBatch = new KeyedInsertBatch(dataManipulator, insertAttributeList, executionSource, keyReceiver, batchRows);
+                            resultBatches.put(insertBatch, batchRows);
+                        }
+                        shapeBatches.put(batchShape, insertBatch);
+                    }
                     insertBatch.add(insertAttributes.values().toArray());
-                    resultBatches.put(insertBatch, finalRow);
+                    resultBatches.computeIfAbsent(insertBatch, b -> new ArrayList<>()).add(finalRow);
+                    resultRows.add(finalRow);
                 }
             }
 
@@ -499,12 +1002,20 @@ public class WebSQLProcessor implements WebSessionProvider {
                         }
                     }
 
-                    DBSDataManipulator.ExecuteBatch deleteBatch = dataManipulator.deleteData(
-                        session,
-                        delKeyAttributes.keySet().toArray(new DBSAttributeBase[0]),
-                        executionSource);
+                    DBSAttributeBase[] deleteAttributeList = delKeyAttributes.keySet().toArray(new DBSAttributeBase[0]);
+                    String batchShape = "delete:" + makeBatchShape(deleteAttributeList);
+                    DBSDataManipulator.ExecuteBatch deleteBatch = shapeBatches.get(batchShape);
+                    if (deleteBatch == null) {
+                        deleteBatch = dataManipulator.deleteData(
+                            session,
+                            deleteAttributeList,
+                            executionSource);
+                        shapeBatches.put(batchShape, deleteBatch);
+                    }
                     deleteBatch.add(delKeyAttributes.values().toArray());
-                    resultBatches.put(deleteBatch, new Object[0]);
+                    Object[] finalRow = new Object[0];
+                    resultBatches.computeIfAbsent(deleteBatch, b -> new ArrayList<>()).add(finalRow);
+                    resultRows.add(finalRow);
                 }
             }
         }
@@ -512,6 +1023,18 @@ public class WebSQLProcessor implements WebSessionProvider {
         return dataManipulator;
     }
 
+    @NotNull
+    private static String makeBatchShape(@NotNull DBSAttributeBase[] attributes) {
+        StringBuilder shape = new StringBuilder();
+        for (DBSAttributeBase attribute : attributes) {
+            if (shape.length() > 0) {
+                shape.append(',');
+            }
+            shape.append(attribute.getName());
+        }
+        return shape.toString();
+    }
+
     @NotNull
     public DBDDocument makeDocumentInputValue(
         DBCSession session,
@@ -601,6 +1124,361 @@ public class WebSQLProcessor implements WebSessionProvider {
         return new WebSQLExecutionPlan(webSession, dbcPlan[0]);
     }
 
+    ////////////////////////////////////////////////
+    // Row count
+
+    /**
+     * Returns results row count without reading all rows.
+     * Returns previously calculated exact count if available, otherwise estimates it from
+     * the execution plan or table statistics.
+     */
+    @NotNull
+    public WebSQLResultsRowCount getRowCountEstimate(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String resultsId) throws DBWebException
+    {
+        WebSQLResultsInfo resultsInfo = contextInfo.getResults(resultsId);
+        DBSDataContainer dataContainer = resultsInfo.getDataContainer();
+        DBDDataFilter dataFilter = resultsInfo.getDataFilter();
+
+        Long exactCount = getCachedRowCount(dataContainer, dataFilter);
+        if (exactCount != null) {
+            return new WebSQLResultsRowCount(exactCount, true, WebSQLResultsRowCount.SOURCE_COUNT);
+        }
+
+        DBCExecutionContext executionContext = getExecutionContext(dataContainer);
+        DBPDataSource dataSource = executionContext.getDataSource();
+        DBCQueryPlanner planner = GeneralUtils.adapt(dataSource, DBCQueryPlanner.class);
+        if (planner != null) {
+            try {
+                Long planCount = estimateRowCountByPlan(monitor, executionContext, planner, dataContainer, dataFilter);
+                if (planCount != null) {
+                    return new WebSQLResultsRowCount(planCount, false, WebSQLResultsRowCount.SOURCE_EXECUTION_PLAN);
+                }
+            } catch (DBException e) {
+                log.debug("Error estimating row count by execution plan: " + e.getMessage());
+            }
+        }
+        if (dataContainer instanceof DBSEntity && (dataFilter == null || !dataFilter.hasConditions())) {
+            Long statCount = readRowCountStatistics(monitor, (DBSEntity) dataContainer);
+            if (statCount != null) {
+                return new WebSQLResultsRowCount(statCount, false, WebSQLResultsRowCount.SOURCE_STATISTICS);
+            }
+        }
+        return new WebSQLResultsRowCount(null, false, null);
+    }
+
+    /**
+     * Calculates exact results row count. May take a while so it is supposed to be run in a background task.
+     */
+    public long getRowDataCount(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String resultsId) throws DBException
+    {
+        WebSQLResultsInfo resultsInfo = contextInfo.getResults(resultsId);
+        DBSDataContainer dataContainer = resultsInfo.getDataContainer();
+        DBDDataFilter dataFilter = resultsInfo.getDataFilter();
+
+        Long cachedCount = getCachedRowCount(dataContainer, dataFilter);
+        if (cachedCount != null) {
+            return cachedCount;
+        }
+
+        DBCExecutionContext executionContext = getExecutionContext(dataContainer);
+        long[] rowCount = new long[1];
+        DBExecUtils.tryExecuteRecover(monitor, connection.getDataSource(), param -> {
+            try (DBCSession session = executionContext.openSession(monitor, DBCExecutionPurpose.USER, "Count rows")) {
+                rowCount[0] = dataContainer.countData(
+                    new WebExecutionSource(dataContainer, executionContext, this),
+                    session,
+                    dataFilter,
+                    DBSDataContainer.FLAG_NONE);
+            } catch (DBException e) {
+                throw new InvocationTargetException(e);
+            }
+        });
+        if (!monitor.isCanceled()) {
+            String cacheKey = makeRowCountKey(dataContainer, dataFilter);
+            synchronized (rowCountCache) {
+                rowCountCache.put(cacheKey, new long[] { rowCount[0], System.currentTimeMillis() });
+            }
+        }
+        return rowCount[0];
+    }
+
+    @Nullable
+    private Long estimateRowCountByPlan(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBCExecutionContext executionContext,
+        @NotNull DBCQueryPlanner planner,
+        @NotNull DBSDataContainer dataContainer,
+        @Nullable DBDDataFilter dataFilter) throws DBException
+    {
+        DBPDataSource dataSource = executionContext.getDataSource();
+        String query;
+        if (dataContainer instanceof DBSEntity) {
+            query = "SELECT * FROM " + DBUtils.getObjectFullName(dataContainer, DBPEvaluationContext.DML);
+        } else if (dataContainer instanceof WebSQLQueryDataContainer) {
+            query = dataContainer.getName();
+        } else {
+            return null;
+        }
+        if (dataFilter != null && dataFilter.hasConditions()) {
+            query = dataSource.getSQLDialect().addFiltersToQuery(monitor, dataSource, query, dataFilter);
+        }
+
+        DBCPlan plan;
+        try (DBCSession session = executionContext.openSession(monitor, DBCExecutionPurpose.UTIL, "Estimate row count")) {
+            plan = planner.planQueryExecution(session, query, new DBCQueryPlannerConfiguration());
+        }
+        List<? extends DBCPlanNode> planNodes = plan.getPlanNodes(Collections.emptyMap());
+        if (CommonUtils.isEmpty(planNodes) || !(planNodes.get(0) instanceof DBCPlanCostNode)) {
+            return null;
+        }
+        Number nodeRowCount = ((DBCPlanCostNode) planNodes.get(0)).getNodeRowCount();
+        return nodeRowCount == null ? null : nodeRowCount.longValue();
+    }
+
+    @Nullable
+    private Long readRowCountStatistics(@NotNull DBRProgressMonitor monitor, @NotNull DBSEntity entity) {
+        PropertyCollector propertyCollector = new PropertyCollector(entity, false);
+        propertyCollector.collectProperties();
+        for (String propId : ROW_COUNT_PROPERTIES) {
+            for (DBPPropertyDescriptor prop : propertyCollector.getProperties()) {
+                if (propId.equals(prop.getId())) {
+                    Object value = propertyCollector.getPropertyValue(monitor, propId);
+                    if (value instanceof Number) {
+                        return ((Number) value).longValue();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private Long getCachedRowCount(@NotNull DBSDataContainer dataContainer, @Nullable DBDDataFilter dataFilter) {
+        String cacheKey = makeRowCountKey(dataContainer, dataFilter);
+        synchronized (rowCountCache) {
+            long[] entry = rowCountCache.get(cacheKey);
+            if (entry == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - entry[1] > ROW_COUNT_CACHE_TTL) {
+                rowCountCache.remove(cacheKey);
+                return null;
+            }
+            return entry[0];
+        }
+    }
+
+    @NotNull
+    private String makeRowCountKey(@NotNull DBSDataContainer dataContainer, @Nullable DBDDataFilter dataFilter) {
+        StringBuilder key = new StringBuilder();
+        if (dataContainer instanceof DBSEntity) {
+            key.append(DBUtils.getObjectFullName(dataContainer, DBPEvaluationContext.DML));
+        } else {
+            key.append(dataContainer.getName());
+        }
+        if (dataFilter != null && dataFilter.hasConditions()) {
+            try {
+                key.append("\n");
+                SQLUtils.appendConditionString(dataFilter, dataContainer.getDataSource(), null, key, true);
+            } catch (DBException e) {
+                log.debug("Error making filter condition: " + e.getMessage());
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Drops cached results, retained rows and row counts after data modification
+     */
+    private void invalidateCachedResults() {
+        WebSQLResultCache.invalidateConnectionCache(connection);
+        synchronized (rowCountCache) {
+            rowCountCache.clear();
+        }
+        for (WebSQLContextInfo contextInfo : getContexts()) {
+            contextInfo.releaseRetainedRows();
+        }
+    }
+
+    /**
+     * Counts rows of fully fetched results grouped by the specified columns. Doesn't query the database.
+     */
+    @NotNull
+    public List<WebSQLResultsGroupCount> getResultsGroupCounts(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String resultsId,
+        @NotNull List<Integer> columnIndexes) throws DBException
+    {
+        return WebSQLResultsEvaluator.countGroups(monitor, contextInfo, contextInfo.getResults(resultsId), columnIndexes);
+    }
+
+    ////////////////////////////////////////////////
+    // Keyset pagination
+
+    /**
+     * Returns unique key attributes if container rows can be paged by key.
+     * Keyset pagination is possible only for entities with a unique key of NOT NULL columns (rows with null keys
+     * can't be compared with the last row key). If user specified ordering then it must be ascending ordering by
+     * all key columns, key columns must not have user conditions, otherwise offset pagination is used.
+     */
+    @Nullable
+    private List<DBSEntityAttribute> getKeysetAttributes(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBSDataContainer dataContainer,
+        @NotNull DBDDataFilter dataFilter) throws DBException
+    {
+        if (!(dataContainer instanceof DBSEntity) || !CommonUtils.isEmpty(dataFilter.getOrder())) {
+            return null;
+        }
+        List<DBSEntityAttribute> keyAttributes = DBUtils.getBestTableIdentifier(monitor, (DBSEntity) dataContainer);
+        if (CommonUtils.isEmpty(keyAttributes)) {
+            return null;
+        }
+        if (dataFilter.hasOrdering() && !isKeyOrdering(dataFilter, keyAttributes)) {
+            return null;
+        }
+        for (DBSEntityAttribute attribute : keyAttributes) {
+            if (!attribute.isRequired()) {
+                return null;
+            }
+            DBDAttributeConstraint constraint = findKeyConstraint(dataFilter, attribute);
+            if (constraint != null && constraint.hasCondition()) {
+                return null;
+            }
+            switch (attribute.getDataKind()) {
+                case NUMERIC:
+                case STRING:
+                    break;
+                case DATETIME:
+                    if (keyAttributes.size() > 1) {
+                        // Composite key condition uses SQL literals which may lose date/time precision
+                        return null;
+                    }
+                    break;
+                default:
+                    // Keys of other types can't be compared reliably
+                    return null;
+            }
+        }
+        return keyAttributes;
+    }
+
+    /**
+     * Checks that data is ordered by key columns in ascending order
+     */
+    private boolean isKeyOrdering(@NotNull DBDDataFilter dataFilter, @NotNull List<DBSEntityAttribute> keyAttributes) {
+        List<DBDAttributeConstraint> orderConstraints = dataFilter.getOrderConstraints();
+        if (orderConstraints.size() != keyAttributes.size()) {
+            return false;
+        }
+        for (int i = 0; i < orderConstraints.size(); i++) {
+            DBDAttributeConstraint constraint = orderConstraints.get(i);
+            DBSEntityAttribute keyAttribute = keyAttributes.get(i);
+            if (constraint.isOrderDescending() ||
+                !(keyAttribute.equals(constraint.getAttribute()) || keyAttribute.getName().equals(constraint.getAttributeName())))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @NotNull
+    private String makeKeysetFilter(@NotNull DBPDataSource dataSource, @NotNull DBDDataFilter dataFilter) throws DBException {
+        StringBuilder condition = new StringBuilder();
+        SQLUtils.appendConditionString(dataFilter, dataSource, null, condition, true);
+        return condition.toString();
+    }
+
+    private void addKeysetOrdering(@NotNull DBDDataFilter dataFilter, @NotNull List<DBSEntityAttribute> keyAttributes) {
+        for (int i = 0; i < keyAttributes.size(); i++) {
+            DBDAttributeConstraint constraint = getKeyConstraint(dataFilter, keyAttributes.get(i));
+            constraint.setOrderPosition(i + 1);
+            constraint.setOrderDescending(false);
+        }
+    }
+
+    /**
+     * Adds condition which selects rows following the specified key to the data filter.
+     * Single column key condition is added as attribute constraint, so key value is bound as a statement parameter.
+     * Composite key condition (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... (equivalent of (k1, k2, ...) > (v1, v2, ...))
+     * is added to the filter where clause.
+     */
+    private void addKeysetCondition(
+        @NotNull DBPDataSource dataSource,
+        @NotNull DBDDataFilter dataFilter,
+        @NotNull List<DBSEntityAttribute> keyAttributes,
+        @NotNull Object[] keyValues)
+    {
+        if (keyAttributes.size() == 1) {
+            DBDAttributeConstraint constraint = getKeyConstraint(dataFilter, keyAttributes.get(0));
+            constraint.setOperator(DBCLogicalOperator.GREATER);
+            constraint.setValue(keyValues[0]);
+            return;
+        }
+        StringBuilder condition = new StringBuilder();
+        for (int i = 0; i < keyAttributes.size(); i++) {
+            if (i > 0) {
+                condition.append(" OR ");
+            }
+            condition.append("(");
+            for (int k = 0; k <= i; k++) {
+                DBSEntityAttribute keyAttribute = keyAttributes.get(k);
+                if (k > 0) {
+                    condition.append(" AND ");
+                }
+                condition.append(DBUtils.getQuotedIdentifier(keyAttribute)).append(k == i ? " > " : " = ")
+                    .append(SQLUtils.convertValueToSQL(dataSource, keyAttribute, keyValues[k]));
+            }
+            condition.append(")");
+        }
+        String where = dataFilter.getWhere();
+        dataFilter.setWhere(CommonUtils.isEmpty(where) ? condition.toString() : "(" + where + ") AND (" + condition + ")");
+    }
+
+    @Nullable
+    private static DBDAttributeConstraint findKeyConstraint(@NotNull DBDDataFilter dataFilter, @NotNull DBSEntityAttribute keyAttribute) {
+        for (DBDAttributeConstraint constraint : dataFilter.getConstraints()) {
+            if (keyAttribute.equals(constraint.getAttribute()) || keyAttribute.getName().equals(constraint.getAttributeName())) {
+                return constraint;
+            }
+        }
+        return null;
+    }
+
+    @NotNull
+    private static DBDAttributeConstraint getKeyConstraint(@NotNull DBDDataFilter dataFilter, @NotNull DBSEntityAttribute keyAttribute) {
+        DBDAttributeConstraint constraint = findKeyConstraint(dataFilter, keyAttribute);
+        if (constraint == null) {
+            constraint = new DBDAttributeConstraint(keyAttribute, keyAttribute.getOrdinalPosition());
+            dataFilter.addConstraints(Collections.singletonList(constraint));
+        }
+        return constraint;
+    }
+
+    private void saveKeysetPosition(
+        @NotNull WebSQLQueryResultSet resultSet,
+        @Nullable WebSQLResultsInfo prevResults,
+        @NotNull String keysetFilter,
+        long offset,
+        @Nullable Object[] lastRowKey)
+    {
+        WebSQLResultsInfo resultsInfo = resultSet.getResultsInfo();
+        if (prevResults != null && prevResults.getDataContainer() == resultsInfo.getDataContainer()) {
+            resultsInfo.copyKeysetPositions(prevResults);
+        }
+        if (lastRowKey != null) {
+            resultsInfo.setKeysetPosition(keysetFilter, offset + resultSet.getRows().length, lastRowKey);
+        }
+    }
+
     ////////////////////////////////////////////////
     // Misc
 
@@ -652,9 +1530,23 @@ public class WebSQLProcessor implements WebSessionProvider {
                 if (resultSet == null) {
                     break;
                 }
+                boolean truncated;
                 try (WebSQLQueryDataReceiver dataReceiver = new WebSQLQueryDataReceiver(contextInfo, dataContainer, dataFormat)) {
+                    dataReceiver.setRetainRows(webDataFilter.getOffset() == 0);
                     readResultSet(dbStat.getSession(), resultSet, webDataFilter, dataReceiver);
                     results.setResultSet(dataReceiver.getResultSet());
+                    if (dataReceiver.getResultSet() != null && dataReceiver.getResultSet().getResultsInfo() != null) {
+                        dataReceiver.getResultSet().getResultsInfo().setDataFilter(dataFilter);
+                        dataReceiver.getResultSet().getResultsInfo().setRetainedRows(dataReceiver.getRetainedRows(), dataFilter);
+                    }
+                    truncated = dataReceiver.isTruncated();
+                } finally {
+                    resultSet.close();
+                }
+                if (truncated) {
+                    // Statement was canceled, no more results
+                    resultList.add(results);
+                    break;
                 }
             } else {
                 long updateRowCount = dbStat.getUpdateRowCount();
@@ -689,42 +1581,80 @@ public class WebSQLProcessor implements WebSessionProvider {
     private void readResultSet(@NotNull DBCSession session, @NotNull DBCResultSet dbResult, @NotNull WebSQLDataFilter filter, @NotNull WebSQLQueryDataReceiver dataReceiver) throws DBCException {
         dataReceiver.fetchStart(session, dbResult, filter.getOffset(), filter.getLimit());
         int rowCount = 0;
-        while (dbResult.nextRow()) {
-            if (rowCount > filter.getLimit()) {
+        while (rowCount < filter.getLimit() && dbResult.nextRow()) {
+            dataReceiver.fetchRow(session, dbResult);
+            if (dataReceiver.isTruncated()) {
+                cancelResultSetStatement(session, dbResult);
                 break;
             }
-
-            dataReceiver.fetchRow(session, dbResult);
             rowCount++;
         }
         dataReceiver.fetchEnd(session, dbResult);
     }
 
+    /**
+     * Cancels statement so database stops sending rows we are not going to read.
+     */
+    private void cancelResultSetStatement(@NotNull DBCSession session, @NotNull DBCResultSet dbResult) {
+        DBCStatement statement = dbResult.getSourceStatement();
+        if (statement == null) {
+            return;
+        }
+        DBCTransactionManager txnManager = DBUtils.getTransactionManager(session.getExecutionContext());
+        try {
+            if (txnManager != null && txnManager.isSupportsTransactions() && !txnManager.isAutoCommit()) {
+                // Cancel may abort the whole transaction in manual commit mode
+                return;
+            }
+            statement.cancelBlock(session.getProgressMonitor(), null);
+        } catch (DBException e) {
+            log.debug("Error canceling statement: " + e.getMessage());
+        }
+    }
+
     /**
      * Key data receiver
      */
     static class KeyDataReceiver implements DBDDataReceiver {
 
         private final WebSQLResultsInfo results;
-        private Object[] row;
+        // Generated key values of each fetched key row, by result column position
+        private final List<Map<Integer, Object>> keyRows = new ArrayList<>();
 
         public KeyDataReceiver(WebSQLResultsInfo results) {
             this.results = results;
         }
 
-        void setRow(Object[] row) {
-            this.row = row;
+        void reset() {
+            keyRows.clear();
+        }
+
+        /**
+         * Assigns fetched keys to the rows. Keys are assigned only if there is exactly one key row per row,
+         * otherwise they can't be matched to rows reliably.
+         */
+        boolean applyKeys(@NotNull List<Object[]> rows) {
+            if (keyRows.size() != rows.size()) {
+                return false;
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                Object[] row = rows.get(i);
+                for (Map.Entry<Integer, Object> key : keyRows.get(i).entrySet()) {
+                    row[key.getKey()] = key.getValue();
+                }
+            }
+            return true;
         }
 
         @Override
         public void fetchStart(DBCSession session, DBCResultSet resultSet, long offset, long maxRows) {
-
         }
 
         @Override
         public void fetchRow(DBCSession session, DBCResultSet resultSet)
             throws DBCException {
             DBDAttributeBinding[] resultsAttributes = results.getAttributes();
+            Map<Integer, Object> keyRow = new LinkedHashMap<>();
 
             DBCResultSetMetaData rsMeta = resultSet.getMeta();
             List<DBCAttributeMetaData> keyAttributes = rsMeta.getAttributes();
@@ -735,12 +1665,11 @@ public class WebSQLProcessor implements WebSessionProvider {
                 if (keyValue == null) {
                     continue;
                 }
-                boolean updated = false;
                 if (!CommonUtils.isEmpty(keyAttribute.getName())) {
                     DBDAttributeBinding binding = DBUtils.findObject(resultsAttributes, keyAttribute.getName());
                     if (binding != null) {
                         // Got it. Just update column oldValue
-                        row[binding.getOrdinalPosition()] = keyValue;
+                        keyRow.put(binding.getOrdinalPosition(), keyValue);
                         continue;
                     }
                 }
@@ -750,11 +1679,12 @@ public class WebSQLProcessor implements WebSessionProvider {
                     DBDAttributeBinding column = resultsAttributes[k];
                     if (column.isAutoGenerated()) {
                         // Got it
-                        row[k] = keyValue;
+                        keyRow.put(k, keyValue);
                         break;
                     }
                 }
             }
+            keyRows.add(keyRow);
         }
 
         @Override
@@ -767,6 +1697,81 @@ public class WebSQLProcessor implements WebSessionProvider {
         }
     }
 
+    /**
+     * Inserts rows which need generated keys.
+     * Rows are inserted by the data manipulator batch with keys receiver, so insert statement is generated by
+     * the container itself. Keys are assigned to the batch rows after execution. If driver doesn't return one
+     * key row per inserted row then keys are not assigned (rows are still inserted).
+     */
+    private static class KeyedInsertBatch implements DBSDataManipulator.ExecuteBatch {
+
+        private final DBSDataManipulator dataManipulator;
+        private final DBDAttributeBinding[] attributes;
+        private final DBCExecutionSource executionSource;
+        private final KeyDataReceiver keyReceiver;
+        private final List<Object[]> rows;
+        private final List<Object[]> values = new ArrayList<>();
+
+        KeyedInsertBatch(
+            @NotNull DBSDataManipulator dataManipulator,
+            @NotNull DBDAttributeBinding[] attributes,
+            @NotNull DBCExecutionSource executionSource,
+            @NotNull KeyDataReceiver keyReceiver,
+            @NotNull List<Object[]> rows)
+        {
+            this.dataManipulator = dataManipulator;
+            this.attributes = attributes;
+            this.executionSource = executionSource;
+            this.keyReceiver = keyReceiver;
+            this.rows = rows;
+        }
+
+        @Override
+        public void add(@NotNull Object[] attributeValues) {
+            values.add(attributeValues);
+        }
+
+        @NotNull
+        @Override
+        public DBCStatistics execute(@NotNull DBCSession session, Map<String, Object> options) throws DBCException {
+            keyReceiver.reset();
+            DBSDataManipulator.ExecuteBatch batch = dataManipulator.insertData(
+                session, attributes, keyReceiver, executionSource, Collections.emptyMap());
+            DBCStatistics statistics;
+            try {
+                for (Object[] rowValues : values) {
+                    batch.add(rowValues);
+                }
+                statistics = batch.execute(session, options);
+            } finally {
+                batch.close();
+            }
+            if (!keyReceiver.applyKeys(rows)) {
+                log.debug("Driver returned keys not for each inserted row, generated keys are not assigned");
+            }
+            return statistics;
+        }
+
+        @Override
+        public void generatePersistActions(@NotNull DBCSession session, @NotNull List<DBEPersistAction> actions, Map<String, Object> options) throws DBCException {
+            DBSDataManipulator.ExecuteBatch batch = dataManipulator.insertData(
+                session, attributes, null, executionSource, Collections.emptyMap());
+            try {
+                for (Object[] rowValues : values) {
+                    batch.add(rowValues);
+                }
+                batch.generatePersistActions(session, actions, options);
+            } finally {
+                batch.close();
+            }
+        }
+
+        @Override
+        public void close() {
+            values.clear();
+        }
+    }
+
     ///////////////////////////////////////////////////////
     // Utils
     private static int resolveMaxResultsCount(@Nullable DBPDataSource dataSource) {
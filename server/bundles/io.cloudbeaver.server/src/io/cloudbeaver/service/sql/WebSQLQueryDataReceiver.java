@@ -18,6 +18,8 @@ package io.cloudbeaver.service.sql;
 
 import io.cloudbeaver.model.session.WebSession;
 import io.cloudbeaver.server.CBApplication;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
 import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.model.DBUtils;
@@ -25,19 +27,24 @@ import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
 import org.jkiss.dbeaver.model.data.DBDAttributeBindingMeta;
 import org.jkiss.dbeaver.model.data.DBDAttributeBindingType;
 import org.jkiss.dbeaver.model.data.DBDDataReceiver;
+import org.jkiss.dbeaver.model.data.DBDValue;
 import org.jkiss.dbeaver.model.exec.*;
 import org.jkiss.dbeaver.model.impl.data.DBDValueError;
-import org.jkiss.dbeaver.model.sql.DBQuotaException;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
 import org.jkiss.dbeaver.model.struct.DBSDataContainer;
 import org.jkiss.dbeaver.model.struct.DBSEntity;
+import org.jkiss.dbeaver.model.struct.DBSEntityAttribute;
 import org.jkiss.utils.CommonUtils;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 class WebSQLQueryDataReceiver implements DBDDataReceiver {
     private static final Log log = Log.getLog(WebSQLQueryDataReceiver.class);
 
+    private static final int DEFAULT_RETAIN_MAX_ROWS = 100000;
+
     private final WebSQLContextInfo contextInfo;
     private final DBSDataContainer dataContainer;
     private final WebDataFormat dataFormat;
@@ -46,20 +53,76 @@ class WebSQLQueryDataReceiver implements DBDDataReceiver {
     private DBDAttributeBinding[] bindings;
     private List<Object[]> rows = new ArrayList<>();
     private final Number rowLimit;
+    // Set when rows quota is reached. All subsequent rows are ignored.
+    private boolean truncated;
+    private long maxRows;
+    // Keep copy of fully fetched rows for in-memory sorting and filtering.
+    // Rows are written to the buffer as they are fetched, buffer spills them to disk.
+    // Number of retained rows and buffer size are limited by quotas, results are not retained above them.
+    private boolean retainRows;
+    private WebSQLResultsBuffer retainedRows;
+    private final long retainMaxRows;
+
+    // Key attributes used for keyset pagination
+    private List<? extends DBSEntityAttribute> keyAttributes;
+    private Object[] lastRowKey;
 
     WebSQLQueryDataReceiver(WebSQLContextInfo contextInfo, DBSDataContainer dataContainer, WebDataFormat dataFormat) {
         this.contextInfo = contextInfo;
         this.dataContainer = dataContainer;
         this.dataFormat = dataFormat;
         rowLimit = CBApplication.getInstance().getAppConfiguration().getResourceQuota(WebSQLConstants.QUOTA_PROP_ROW_LIMIT);
+        Number maxRetainedRows = CBApplication.getInstance().getAppConfiguration().getResourceQuota(WebSQLConstants.QUOTA_PROP_RESULT_RETAIN_MAX_ROWS);
+        retainMaxRows = maxRetainedRows == null ? DEFAULT_RETAIN_MAX_ROWS : maxRetainedRows.longValue();
     }
 
     public WebSQLQueryResultSet getResultSet() {
         return webResultSet;
     }
 
+    /**
+     * Max number of rows which may be fetched (resource quota). Null if there is no limit.
+     */
+    @Nullable
+    Number getRowLimit() {
+        return rowLimit;
+    }
+
+    /**
+     * Returns true if result set has more rows than quota allows.
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    void setRetainRows(boolean retainRows) {
+        this.retainRows = retainRows;
+    }
+
+    /**
+     * Fully fetched rows in database format. Null if result set wasn't fully fetched or can't be retained.
+     * Buffer is released when receiver is closed, so results must retain it before that.
+     */
+    @Nullable
+    WebSQLResultsBuffer getRetainedRows() {
+        return retainedRows;
+    }
+
+    void setKeyAttributes(@Nullable List<? extends DBSEntityAttribute> keyAttributes) {
+        this.keyAttributes = keyAttributes;
+    }
+
+    /**
+     * Key values of the last fetched row. Available only if key attributes were specified.
+     */
+    @Nullable
+    Object[] getLastRowKey() {
+        return lastRowKey;
+    }
+
     @Override
     public void fetchStart(DBCSession session, DBCResultSet dbResult, long offset, long maxRows) throws DBCException {
+        this.maxRows = maxRows;
         DBCResultSetMetaData meta = dbResult.getMeta();
         List<DBCAttributeMetaData> attributes = meta.getAttributes();
         bindings = new DBDAttributeBindingMeta[attributes.size()];
@@ -67,10 +130,20 @@ class WebSQLQueryDataReceiver implements DBDDataReceiver {
             DBCAttributeMetaData attrMeta = attributes.get(i);
             bindings[i] = new DBDAttributeBindingMeta(dataContainer, dbResult.getSession(), attrMeta);
         }
+        if (retainRows && canRetainRows()) {
+            // Receiver holds its own reference until it is closed
+            retainedRows = new WebSQLResultsBuffer();
+            retainedRows.retain();
+        }
     }
 
     @Override
     public void fetchRow(DBCSession session, DBCResultSet resultSet) throws DBCException {
+        if (rowLimit != null && rows.size() >= rowLimit.longValue()) {
+            // Soft limit. Keep what we already have and skip the rest.
+            truncated = true;
+            return;
+        }
 
         Object[] row = new Object[bindings.length];
 
@@ -89,10 +162,8 @@ class WebSQLQueryDataReceiver implements DBDDataReceiver {
         }
 
         rows.add(row);
-
-        if (rowLimit != null && rows.size() > rowLimit.longValue()) {
-            throw new DBQuotaException(
-                "Result set rows quota exceeded", WebSQLConstants.QUOTA_PROP_ROW_LIMIT, rowLimit.longValue(), rows.size());
+        if (retainedRows != null) {
+            retainRow(session.getProgressMonitor(), row);
         }
     }
 
@@ -108,6 +179,8 @@ class WebSQLQueryDataReceiver implements DBDDataReceiver {
             log.error("Error binding attributes", e);
         }
 
+        readLastRowKey();
+
         if (dataFormat != WebDataFormat.document) {
             convertComplexValuesToRelationalView(session);
         }
@@ -123,6 +196,11 @@ class WebSQLQueryDataReceiver implements DBDDataReceiver {
             }
         }
 
+        if (retainedRows != null && (truncated || (maxRows > 0 && rows.size() >= maxRows))) {
+            // Not all rows were fetched
+            dropRetainedRows();
+        }
+
         // Convert row values
         for (Object[] row : rows) {
             for (int i = 0; i < bindings.length; i++) {
@@ -133,11 +211,83 @@ class WebSQLQueryDataReceiver implements DBDDataReceiver {
 
         webResultSet.setColumns(bindings);
         webResultSet.setRows(rows.toArray(new Object[0][]));
+        if (truncated) {
+            webResultSet.setHasMoreData(true);
+            webResultSet.setTruncationReason(
+                "Result set rows quota exceeded (" + WebSQLConstants.QUOTA_PROP_ROW_LIMIT + "=" + rowLimit + ")");
+        }
 
         WebSQLResultsInfo resultsInfo = contextInfo.saveResult(dataContainer, bindings);
         webResultSet.setResultsInfo(resultsInfo);
     }
 
+    private boolean canRetainRows() {
+        for (DBDAttributeBinding binding : bindings) {
+            switch (binding.getDataKind()) {
+                case NUMERIC:
+                case STRING:
+                case DATETIME:
+                case BOOLEAN:
+                    break;
+                default:
+                    // Complex values may depend on the session (e.g. LOBs)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private void retainRow(@NotNull DBRProgressMonitor monitor, @NotNull Object[] row) {
+        if (rows.size() > retainMaxRows) {
+            dropRetainedRows();
+            return;
+        }
+        for (Object value : row) {
+            if (value instanceof DBDValue || value instanceof DBDValueError) {
+                dropRetainedRows();
+                return;
+            }
+        }
+        try {
+            // Row values are converted into web format in place, so make a copy
+            retainedRows.addRow(monitor, row.clone());
+        } catch (IOException e) {
+            log.debug("Results can't be retained: " + e.getMessage());
+            dropRetainedRows();
+        }
+    }
+
+    private void dropRetainedRows() {
+        if (retainedRows != null) {
+            retainedRows.release();
+            retainedRows = null;
+        }
+    }
+
+    private void readLastRowKey() {
+        if (CommonUtils.isEmpty(keyAttributes) || rows.isEmpty()) {
+            return;
+        }
+        Object[] lastRow = rows.get(rows.size() - 1);
+        Object[] keyValues = new Object[keyAttributes.size()];
+        for (int i = 0; i < keyValues.length; i++) {
+            DBSEntityAttribute keyAttribute = keyAttributes.get(i);
+            Object keyValue = null;
+            for (int k = 0; k < bindings.length; k++) {
+                if (keyAttribute.equals(bindings[k].getEntityAttribute())) {
+                    keyValue = lastRow[k];
+                    break;
+                }
+            }
+            if (keyValue == null || keyValue instanceof DBDValue || keyValue instanceof DBDValueError) {
+                // Can't use this row as keyset position
+                return;
+            }
+            keyValues[i] = keyValue;
+        }
+        lastRowKey = keyValues;
+    }
+
     private void convertComplexValuesToRelationalView(DBCSession session) {
         // Here we get leaf attributes and refetch them into plain tabl structure
         List<DBDAttributeBinding> leafBindings = new ArrayList<>();
@@ -193,5 +343,6 @@ class WebSQLQueryDataReceiver implements DBDDataReceiver {
     @Override
     public void close() {
         rows.clear();
+        dropRetainedRows();
     }
 }
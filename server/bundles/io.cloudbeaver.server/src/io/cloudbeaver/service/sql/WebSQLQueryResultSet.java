@@ -30,6 +30,7 @@ public class WebSQLQueryResultSet {
     private WebSQLQueryResultColumn[] columns;
     private Object[][] rows;
     private boolean hasMoreData;
+    private String truncationReason;
     private WebSQLResultsInfo resultsInfo;
 
     @Property
@@ -72,6 +73,18 @@ public class WebSQLQueryResultSet {
         this.hasMoreData = hasMoreData;
     }
 
+    /**
+     * Reason why server returned less rows than requested (e.g. resource quota). Null if result set wasn't truncated.
+     */
+    @Property
+    public String getTruncationReason() {
+        return truncationReason;
+    }
+
+    public void setTruncationReason(String truncationReason) {
+        this.truncationReason = truncationReason;
+    }
+
     public void setResultsInfo(WebSQLResultsInfo resultsInfo) {
         this.resultsInfo = resultsInfo;
     }
@@ -0,0 +1,464 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import io.cloudbeaver.DBWebException;
+import io.cloudbeaver.model.WebConnectionInfo;
+import io.cloudbeaver.server.CBApplication;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
+import org.jkiss.dbeaver.model.data.DBDDataFilter;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+import org.jkiss.utils.CommonUtils;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Shared cache of read-only query results.
+ * Cache is enabled per connection (see {@link WebSQLConstants#CONN_PROP_RESULT_CACHE}) and is shared between
+ * all sessions which use the same connection. Concurrent executions of the same query are coalesced
+ * into a single database call.
+ */
+public class WebSQLResultCache {
+
+    private static final Log log = Log.getLog(WebSQLResultCache.class);
+
+    private static final long DEFAULT_TTL = 30000;
+    private static final int DEFAULT_MAX_ENTRIES = 100;
+    private static final int DEFAULT_MAX_ROWS = 10000;
+
+    private static final long WAIT_POLL_INTERVAL = 100;
+
+    private static final Map<String, WebSQLResultCache> connectionCaches = new HashMap<>();
+    // Number of SQL processors (one per session) which use connection. Cache is removed when the last one is disposed.
+    private static final Map<String, Integer> connectionUsers = new HashMap<>();
+
+    private final String connectionId;
+    private final Map<CacheKey, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<CacheKey, CompletableFuture<CacheEntry>> runningQueries = new HashMap<>();
+    // Incremented on each invalidation. Results of queries started before invalidation are not cached.
+    private long generation;
+
+    private WebSQLResultCache(@NotNull String connectionId) {
+        this.connectionId = connectionId;
+    }
+
+    @Nullable
+    static WebSQLResultCache getConnectionCache(@NotNull WebConnectionInfo connection) {
+        String cacheEnabled = connection.getDataSourceContainer().getConnectionConfiguration().getProviderProperty(
+            WebSQLConstants.CONN_PROP_RESULT_CACHE);
+        if (!CommonUtils.toBoolean(cacheEnabled)) {
+            return null;
+        }
+        synchronized (connectionCaches) {
+            return connectionCaches.computeIfAbsent(connection.getId(), WebSQLResultCache::new);
+        }
+    }
+
+    static void addConnectionUser(@NotNull WebConnectionInfo connection) {
+        synchronized (connectionCaches) {
+            connectionUsers.merge(connection.getId(), 1, Integer::sum);
+        }
+    }
+
+    static void removeConnectionUser(@NotNull WebConnectionInfo connection) {
+        WebSQLResultCache cache = null;
+        synchronized (connectionCaches) {
+            Integer users = connectionUsers.get(connection.getId());
+            if (users == null || users <= 1) {
+                connectionUsers.remove(connection.getId());
+                cache = connectionCaches.remove(connection.getId());
+            } else {
+                connectionUsers.put(connection.getId(), users - 1);
+            }
+        }
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * Drops cached results of connection. Must be called when connection is closed, deleted or its configuration is changed.
+     */
+    public static void evictConnectionCache(@NotNull String connectionId) {
+        WebSQLResultCache cache;
+        synchronized (connectionCaches) {
+            cache = connectionCaches.remove(connectionId);
+        }
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    static void invalidateConnectionCache(@NotNull WebConnectionInfo connection) {
+        WebSQLResultCache cache;
+        synchronized (connectionCaches) {
+            cache = connectionCaches.get(connection.getId());
+        }
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    @NotNull
+    static CacheKey makeKey(
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String sql,
+        @NotNull WebSQLDataFilter filter,
+        @Nullable WebDataFormat dataFormat)
+    {
+        WebConnectionInfo connection = contextInfo.getProcessor().getConnection();
+        return new CacheKey(
+            connection.getDataSourceContainer().getConnectionConfiguration().getUserName(),
+            contextInfo.getDefaultCatalog(),
+            contextInfo.getDefaultSchema(),
+            normalizeQuery(sql),
+            filter.getOffset(),
+            filter.getLimit(),
+            dataFormat == null ? WebDataFormat.resultset : dataFormat);
+    }
+
+    /**
+     * Returns cached results or executes query.
+     * If the same query is already running then waits for its results instead of running it again.
+     */
+    @NotNull
+    WebSQLExecuteInfo getOrExecute(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull CacheKey key,
+        @NotNull QueryExecutor executor) throws DBException
+    {
+        CompletableFuture<CacheEntry> queryFuture;
+        boolean ownQuery = false;
+        long queryGeneration;
+        synchronized (this) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (!entry.isExpired(getTTL())) {
+                    return entry.makeExecuteInfo(contextInfo);
+                }
+                entries.remove(key);
+            }
+            queryGeneration = generation;
+            queryFuture = runningQueries.get(key);
+            if (queryFuture == null) {
+                queryFuture = new CompletableFuture<>();
+                runningQueries.put(key, queryFuture);
+                ownQuery = true;
+            }
+        }
+
+        if (!ownQuery) {
+            CacheEntry entry = waitForResults(monitor, queryFuture);
+            if (entry == null) {
+                // Results are too big for cache - read them by ourselves
+                return executor.executeQuery();
+            }
+            return entry.makeExecuteInfo(contextInfo);
+        }
+
+        try {
+            WebSQLExecuteInfo executeInfo = executor.executeQuery();
+            CacheEntry entry = CacheEntry.create(executeInfo, getMaxRows());
+            synchronized (this) {
+                runningQueries.remove(key);
+                if (entry != null && queryGeneration == generation) {
+                    putEntry(key, entry);
+                }
+            }
+            queryFuture.complete(entry);
+            return executeInfo;
+        } catch (Throwable e) {
+            synchronized (this) {
+                runningQueries.remove(key);
+            }
+            queryFuture.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    synchronized void invalidate() {
+        generation++;
+        if (!entries.isEmpty()) {
+            log.debug("Invalidate " + entries.size() + " cached result(s) of connection '" + connectionId + "'");
+            entries.clear();
+        }
+    }
+
+    private void putEntry(@NotNull CacheKey key, @NotNull CacheEntry entry) {
+        long ttl = getTTL();
+        entries.values().removeIf(e -> e.isExpired(ttl));
+        entries.put(key, entry);
+        int maxEntries = getMaxEntries();
+        for (Iterator<CacheKey> iter = entries.keySet().iterator(); entries.size() > maxEntries && iter.hasNext(); ) {
+            // Access order - the eldest entry goes first
+            iter.next();
+            iter.remove();
+        }
+    }
+
+    @Nullable
+    private CacheEntry waitForResults(@NotNull DBRProgressMonitor monitor, @NotNull CompletableFuture<CacheEntry> queryFuture) throws DBException {
+        try {
+            while (true) {
+                if (monitor.isCanceled()) {
+                    throw new DBWebException("Query execution canceled");
+                }
+                try {
+                    return queryFuture.get(WAIT_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // Continue waiting
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DBWebException("Query execution interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DBException) {
+                throw (DBException) cause;
+            }
+            throw new DBWebException("Error executing query", cause);
+        }
+    }
+
+    private static long getTTL() {
+        Number ttl = CBApplication.getInstance().getAppConfiguration().getResourceQuota(WebSQLConstants.QUOTA_PROP_RESULT_CACHE_TTL);
+        return ttl == null ? DEFAULT_TTL : ttl.longValue();
+    }
+
+    private static int getMaxEntries() {
+        Number maxEntries = CBApplication.getInstance().getAppConfiguration().getResourceQuota(WebSQLConstants.QUOTA_PROP_RESULT_CACHE_MAX_ENTRIES);
+        return maxEntries == null ? DEFAULT_MAX_ENTRIES : maxEntries.intValue();
+    }
+
+    private static int getMaxRows() {
+        Number maxRows = CBApplication.getInstance().getAppConfiguration().getResourceQuota(WebSQLConstants.QUOTA_PROP_RESULT_CACHE_MAX_ROWS);
+        return maxRows == null ? DEFAULT_MAX_ROWS : maxRows.intValue();
+    }
+
+    /**
+     * Collapses whitespaces outside of string literals and quoted identifiers.
+     */
+    @NotNull
+    static String normalizeQuery(@NotNull String sql) {
+        StringBuilder result = new StringBuilder(sql.length());
+        char quoteChar = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quoteChar != 0) {
+                result.append(c);
+                if (c == quoteChar) {
+                    quoteChar = 0;
+                }
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = result.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                result.append(' ');
+                pendingSpace = false;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                quoteChar = c;
+            }
+            result.append(c);
+        }
+        while (result.length() > 0 && result.charAt(result.length() - 1) == ';') {
+            result.setLength(result.length() - 1);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Query executor
+     */
+    interface QueryExecutor {
+        @NotNull
+        WebSQLExecuteInfo executeQuery() throws DBException;
+    }
+
+    /**
+     * Cache key
+     */
+    static class CacheKey {
+        private final String userName;
+        private final String catalog;
+        private final String schema;
+        private final String query;
+        private final int offset;
+        private final int limit;
+        private final WebDataFormat dataFormat;
+
+        CacheKey(String userName, String catalog, String schema, String query, int offset, int limit, WebDataFormat dataFormat) {
+            this.userName = userName;
+            this.catalog = catalog;
+            this.schema = schema;
+            this.query = query;
+            this.offset = offset;
+            this.limit = limit;
+            this.dataFormat = dataFormat;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey key = (CacheKey) o;
+            return offset == key.offset &&
+                limit == key.limit &&
+                dataFormat == key.dataFormat &&
+                Objects.equals(userName, key.userName) &&
+                Objects.equals(catalog, key.catalog) &&
+                Objects.equals(schema, key.schema) &&
+                query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userName, catalog, schema, query, offset, limit, dataFormat);
+        }
+    }
+
+    /**
+     * Cached query results
+     */
+    private static class CacheEntry {
+        private final long createTime = System.currentTimeMillis();
+        private final String statusMessage;
+        private final String filterText;
+        private final List<CachedResults> results;
+
+        private CacheEntry(String statusMessage, String filterText, List<CachedResults> results) {
+            this.statusMessage = statusMessage;
+            this.filterText = filterText;
+            this.results = results;
+        }
+
+        /**
+         * Creates cache entry or returns null if results can't be cached
+         */
+        @Nullable
+        static CacheEntry create(@NotNull WebSQLExecuteInfo executeInfo, int maxRows) {
+            List<CachedResults> results = new ArrayList<>();
+            long totalRows = 0;
+            for (WebSQLQueryResults queryResults : executeInfo.getResults()) {
+                WebSQLQueryResultSet resultSet = queryResults.getResultSet();
+                if (resultSet != null) {
+                    if (resultSet.getResultsInfo() == null || resultSet.getRows() == null) {
+                        return null;
+                    }
+                    totalRows += resultSet.getRows().length;
+                    if (totalRows > maxRows) {
+                        return null;
+                    }
+                }
+                results.add(new CachedResults(queryResults));
+            }
+            return new CacheEntry(executeInfo.getStatusMessage(), executeInfo.getFilterText(), results);
+        }
+
+        boolean isExpired(long ttl) {
+            return System.currentTimeMillis() - createTime > ttl;
+        }
+
+        @NotNull
+        WebSQLExecuteInfo makeExecuteInfo(@NotNull WebSQLContextInfo contextInfo) throws DBException {
+            WebSQLExecuteInfo executeInfo = new WebSQLExecuteInfo();
+            executeInfo.setStatusMessage(statusMessage);
+            executeInfo.setFilterText(filterText);
+            List<WebSQLQueryResults> queryResults = new ArrayList<>(results.size());
+            for (CachedResults cachedResults : results) {
+                queryResults.add(cachedResults.makeResults(contextInfo));
+            }
+            executeInfo.setResults(queryResults.toArray(new WebSQLQueryResults[0]));
+            return executeInfo;
+        }
+    }
+
+    private static class CachedResults {
+        private final WebDataFormat dataFormat;
+        private final Long updateRowCount;
+        private final DBSDataContainer dataContainer;
+        private final DBDAttributeBinding[] attributes;
+        private final DBDDataFilter dataFilter;
+        private final Object[][] rows;
+        private final boolean hasMoreData;
+        private final String truncationReason;
+
+        CachedResults(@NotNull WebSQLQueryResults queryResults) {
+            this.dataFormat = queryResults.getDataFormat();
+            this.updateRowCount = queryResults.getUpdateRowCount();
+            WebSQLQueryResultSet resultSet = queryResults.getResultSet();
+            if (resultSet != null) {
+                this.dataContainer = resultSet.getResultsInfo().getDataContainer();
+                this.attributes = resultSet.getResultsInfo().getAttributes();
+                this.dataFilter = resultSet.getResultsInfo().getDataFilter();
+                this.rows = resultSet.getRows();
+                this.hasMoreData = resultSet.isHasMoreData();
+                this.truncationReason = resultSet.getTruncationReason();
+            } else {
+                this.dataContainer = null;
+                this.attributes = null;
+                this.dataFilter = null;
+                this.rows = null;
+                this.hasMoreData = false;
+                this.truncationReason = null;
+            }
+        }
+
+        @NotNull
+        WebSQLQueryResults makeResults(@NotNull WebSQLContextInfo contextInfo) throws DBException {
+            WebSQLQueryResults results = new WebSQLQueryResults(contextInfo.getWebSession(), dataFormat);
+            if (updateRowCount != null) {
+                results.setUpdateRowCount(updateRowCount);
+            }
+            if (dataContainer != null) {
+                DBSDataContainer resultsContainer = dataContainer;
+                DBPDataSource dataSource = contextInfo.getProcessor().getConnection().getDataSource();
+                if (dataContainer instanceof WebSQLQueryDataContainer && dataContainer.getDataSource() != dataSource) {
+                    // Results were read by another session. Bind them to our own connection.
+                    resultsContainer = new WebSQLQueryDataContainer(dataSource, dataContainer.getName());
+                }
+                WebSQLQueryResultSet resultSet = new WebSQLQueryResultSet();
+                resultSet.setColumns(attributes);
+                resultSet.setRows(rows);
+                resultSet.setHasMoreData(hasMoreData);
+                resultSet.setTruncationReason(truncationReason);
+                WebSQLResultsInfo resultsInfo = contextInfo.saveResult(resultsContainer, attributes);
+                resultsInfo.setDataFilter(dataFilter);
+                resultSet.setResultsInfo(resultsInfo);
+                results.setResultSet(resultSet);
+            }
+            return results;
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import io.cloudbeaver.DBWebException;
+import io.cloudbeaver.model.WebAsyncTaskInfo;
+import io.cloudbeaver.model.session.WebAsyncTaskProcessor;
+import io.cloudbeaver.model.session.WebSession;
+import io.cloudbeaver.server.CBApplication;
+import io.cloudbeaver.service.WebServiceServletBase;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.utils.CommonUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Executes query and streams its results to the response while they are being fetched.
+ * Request body: {connectionId, contextId, sql, filter, dataFormat}.
+ */
+public class WebSQLResultStreamServlet extends WebServiceServletBase {
+
+    private static final Log log = Log.getLog(WebSQLResultStreamServlet.class);
+
+    private static final Gson gson = new GsonBuilder().serializeNulls().create();
+
+    public WebSQLResultStreamServlet(CBApplication application) {
+        super(application);
+    }
+
+    @Override
+    protected void processServiceRequest(WebSession session, HttpServletRequest request, HttpServletResponse response) throws DBException, IOException {
+        if (!"POST".equals(request.getMethod())) {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "POST method is expected");
+            return;
+        }
+        Map<String, Object> params;
+        try (Reader reader = request.getReader()) {
+            params = gson.fromJson(reader, new TypeToken<Map<String, Object>>() {}.getType());
+        }
+        if (params == null) {
+            throw new DBWebException("Request parameters not specified");
+        }
+        String connectionId = CommonUtils.toString(params.get("connectionId"), null);
+        String contextId = CommonUtils.toString(params.get("contextId"), null);
+        String sql = CommonUtils.toString(params.get("sql"), null);
+        if (CommonUtils.isEmpty(connectionId) || CommonUtils.isEmpty(contextId) || CommonUtils.isEmpty(sql)) {
+            throw new DBWebException("Connection ID, context ID and query must be specified");
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> filterProps = (Map<String, Object>) params.get("filter");
+        WebSQLDataFilter filter = filterProps == null ? null : new WebSQLDataFilter(filterProps);
+        WebDataFormat dataFormat = CommonUtils.valueOf(
+            WebDataFormat.class, CommonUtils.toString(params.get("dataFormat"), null), WebDataFormat.resultset);
+
+        WebSQLProcessor sqlProcessor = WebServiceBindingSQL.getSQLProcessor(
+            WebServiceBindingSQL.getWebConnection(session, connectionId));
+        WebSQLContextInfo contextInfo = WebServiceBindingSQL.getSQLContext(sqlProcessor, contextId);
+
+        Number queueSize = CBApplication.getInstance().getAppConfiguration().getResourceQuota(
+            WebSQLConstants.QUOTA_PROP_RESULT_STREAM_QUEUE_SIZE);
+        WebSQLResultsStream stream = new WebSQLResultsStream(queueSize == null ? 0 : queueSize.intValue());
+
+        WebAsyncTaskProcessor<String> runnable = new WebAsyncTaskProcessor<String>() {
+            @Override
+            public void run(DBRProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+                Throwable error = null;
+                try {
+                    monitor.beginTask("Stream query results", 1);
+                    monitor.subTask("Process query " + sql);
+                    sqlProcessor.streamQuery(monitor, contextInfo, sql, filter, dataFormat, stream);
+                    this.result = "Success";
+                } catch (Throwable e) {
+                    error = e;
+                    throw new InvocationTargetException(e);
+                } finally {
+                    stream.finish(error);
+                    monitor.done();
+                }
+            }
+        };
+        WebAsyncTaskInfo taskInfo = session.createAndRunAsyncTask("SQL results stream", runnable);
+
+        boolean completed = false;
+        try {
+            response.setContentType("application/json");
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            JsonWriter jsonWriter = new JsonWriter(response.getWriter());
+            jsonWriter.setSerializeNulls(true);
+            jsonWriter.beginObject();
+            jsonWriter.name("taskId").value(taskInfo.getId());
+            stream.writeTo(gson, jsonWriter);
+            jsonWriter.endObject();
+            jsonWriter.flush();
+            completed = true;
+        } finally {
+            stream.close();
+            if (!completed) {
+                // Client went away - stop fetching
+                try {
+                    session.asyncTaskCancel(taskInfo.getId());
+                } catch (DBWebException e) {
+                    log.debug("Error canceling results stream task: " + e.getMessage());
+                }
+            }
+            // Results were sent in the response, nobody will read task status
+            session.removeAsyncTask(taskInfo);
+        }
+    }
+
+}
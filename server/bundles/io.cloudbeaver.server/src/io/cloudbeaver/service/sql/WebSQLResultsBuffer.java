@@ -0,0 +1,407 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import io.cloudbeaver.server.CBApplication;
+import io.cloudbeaver.server.CBPlatform;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Results rows buffer.
+ * Rows are kept in heap until buffer reaches the memory limit. Then rows are encoded in a compact binary form
+ * and appended to a spool file in the server temp folder, rows are read back with positional file reads.
+ * Spooled size is limited per buffer and in total for all buffers of the server.
+ * Buffer may be shared between several results, it is deleted when the last results release it.
+ */
+public class WebSQLResultsBuffer {
+
+    private static final Log log = Log.getLog(WebSQLResultsBuffer.class);
+
+    private static final String TEMP_FOLDER_NAME = "sql-results";
+    private static final long DEFAULT_MEMORY_LIMIT = 4 * 1024 * 1024;
+    private static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+    private static final long DEFAULT_DISK_LIMIT = 2048L * 1024 * 1024;
+    // Rough estimate of a single value heap size
+    private static final int VALUE_OVERHEAD = 16;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_BOOLEAN = 1;
+    private static final byte TYPE_BYTE = 2;
+    private static final byte TYPE_SHORT = 3;
+    private static final byte TYPE_INT = 4;
+    private static final byte TYPE_LONG = 5;
+    private static final byte TYPE_FLOAT = 6;
+    private static final byte TYPE_DOUBLE = 7;
+    private static final byte TYPE_BIG_DECIMAL = 8;
+    private static final byte TYPE_BIG_INTEGER = 9;
+    private static final byte TYPE_STRING = 10;
+    private static final byte TYPE_TIMESTAMP = 11;
+    private static final byte TYPE_SQL_DATE = 12;
+    private static final byte TYPE_SQL_TIME = 13;
+    private static final byte TYPE_DATE = 14;
+
+    private static boolean tempFolderCleaned;
+    // Spooled size of all open buffers
+    private static final AtomicLong totalSpoolSize = new AtomicLong();
+
+    private final long memoryLimit;
+    private final long maxSize;
+    private final long diskLimit;
+    private final List<Object[]> memoryRows = new ArrayList<>();
+    private long memorySize;
+
+    private Path spoolFile;
+    private FileChannel spoolChannel;
+    private long spoolSize;
+    // Spilled row offsets in the spool file
+    private long[] rowPositions = new long[0];
+    private int spilledRowCount;
+
+    private final ByteArrayOutputStream rowBytes = new ByteArrayOutputStream();
+    private final DataOutputStream rowOutput = new DataOutputStream(rowBytes);
+
+    private int refCount;
+    private boolean closed;
+
+    WebSQLResultsBuffer() {
+        Number limit = CBApplication.getInstance().getAppConfiguration().getResourceQuota(
+            WebSQLConstants.QUOTA_PROP_RESULT_BUFFER_MEMORY_LIMIT);
+        this.memoryLimit = limit == null ? DEFAULT_MEMORY_LIMIT : limit.longValue();
+        Number size = CBApplication.getInstance().getAppConfiguration().getResourceQuota(
+            WebSQLConstants.QUOTA_PROP_RESULT_BUFFER_MAX_SIZE);
+        this.maxSize = size == null ? DEFAULT_MAX_SIZE : size.longValue();
+        Number disk = CBApplication.getInstance().getAppConfiguration().getResourceQuota(
+            WebSQLConstants.QUOTA_PROP_RESULT_BUFFER_DISK_LIMIT);
+        this.diskLimit = disk == null ? DEFAULT_DISK_LIMIT : disk.longValue();
+    }
+
+    /**
+     * Adds row to the buffer.
+     * Throws IOException if row contains values which can't be spilled to disk or buffer size quota is exceeded.
+     */
+    synchronized void addRow(@NotNull DBRProgressMonitor monitor, @NotNull Object[] row) throws IOException {
+        if (closed) {
+            throw new IOException("Results buffer is closed");
+        }
+        if (spilledRowCount == 0 && memorySize < memoryLimit) {
+            memoryRows.add(row);
+            memorySize += estimateRowSize(row);
+            return;
+        }
+        rowBytes.reset();
+        writeRow(row);
+        int rowLength = rowBytes.size();
+        if (spoolSize + memorySize + rowLength > maxSize) {
+            throw new IOException("Results buffer size quota exceeded (" + WebSQLConstants.QUOTA_PROP_RESULT_BUFFER_MAX_SIZE + "=" + maxSize + ")");
+        }
+        if (totalSpoolSize.addAndGet(rowLength) > diskLimit) {
+            totalSpoolSize.addAndGet(-rowLength);
+            throw new IOException("Results buffers disk quota exceeded (" + WebSQLConstants.QUOTA_PROP_RESULT_BUFFER_DISK_LIMIT + "=" + diskLimit + ")");
+        }
+        try {
+            if (spoolChannel == null) {
+                openSpoolFile(monitor);
+            }
+            ByteBuffer rowBuffer = ByteBuffer.wrap(rowBytes.toByteArray(), 0, rowLength);
+            long offset = spoolSize;
+            while (rowBuffer.hasRemaining()) {
+                spoolChannel.write(rowBuffer, offset + rowBuffer.position());
+            }
+            spoolSize += rowLength;
+
+            if (spilledRowCount == rowPositions.length) {
+                rowPositions = Arrays.copyOf(rowPositions, Math.max(1024, rowPositions.length * 2));
+            }
+            rowPositions[spilledRowCount++] = offset;
+        } catch (IOException e) {
+            totalSpoolSize.addAndGet(-rowLength);
+            throw e;
+        }
+    }
+
+    public synchronized int getRowCount() {
+        return memoryRows.size() + spilledRowCount;
+    }
+
+    /**
+     * Returns true if some rows were written on disk
+     */
+    public synchronized boolean isSpilled() {
+        return spilledRowCount > 0;
+    }
+
+    @NotNull
+    public synchronized Object[] getRow(int index) {
+        if (closed) {
+            throw new IllegalStateException("Results buffer is closed");
+        }
+        if (index < memoryRows.size()) {
+            return memoryRows.get(index).clone();
+        }
+        int spilledIndex = index - memoryRows.size();
+        long position = rowPositions[spilledIndex];
+        long endPosition = spilledIndex + 1 < spilledRowCount ? rowPositions[spilledIndex + 1] : spoolSize;
+        ByteBuffer rowBuffer = ByteBuffer.allocate((int) (endPosition - position));
+        try {
+            while (rowBuffer.hasRemaining()) {
+                if (spoolChannel.read(rowBuffer, position + rowBuffer.position()) < 0) {
+                    throw new IOException("Unexpected end of results spool file");
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Error reading results buffer row", e);
+        }
+        rowBuffer.flip();
+        return readRow(rowBuffer);
+    }
+
+    synchronized void retain() {
+        refCount++;
+    }
+
+    /**
+     * Releases buffer. Spool file is deleted when buffer isn't used anymore.
+     */
+    synchronized void release() {
+        if (--refCount <= 0) {
+            close();
+        }
+    }
+
+    private void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        memoryRows.clear();
+        if (spoolChannel != null) {
+            try {
+                spoolChannel.close();
+            } catch (IOException e) {
+                log.debug("Error closing results spool file: " + e.getMessage());
+            }
+            try {
+                Files.deleteIfExists(spoolFile);
+            } catch (IOException e) {
+                log.debug("Error deleting results spool file " + spoolFile + ": " + e.getMessage());
+            }
+            spoolChannel = null;
+            spoolFile = null;
+        }
+        totalSpoolSize.addAndGet(-spoolSize);
+        spoolSize = 0;
+        rowPositions = new long[0];
+    }
+
+    ////////////////////////////////////////////
+    // Spool file
+
+    private void openSpoolFile(@NotNull DBRProgressMonitor monitor) throws IOException {
+        File tempFolder = getTempFolder(monitor);
+        Path file = Files.createTempFile(tempFolder.toPath(), "results-", ".spool");
+        try {
+            spoolChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        spoolFile = file;
+    }
+
+    @NotNull
+    private static File getTempFolder(@NotNull DBRProgressMonitor monitor) {
+        File folder = CBPlatform.getInstance().getTempFolder(monitor, TEMP_FOLDER_NAME);
+        synchronized (WebSQLResultsBuffer.class) {
+            if (!tempFolderCleaned) {
+                // Delete spool files left by the previous server run
+                File[] oldFiles = folder.listFiles();
+                if (oldFiles != null) {
+                    for (File file : oldFiles) {
+                        if (!file.delete()) {
+                            log.debug("Can't delete old results spool file " + file.getAbsolutePath());
+                        }
+                    }
+                }
+                tempFolderCleaned = true;
+            }
+        }
+        return folder;
+    }
+
+    ////////////////////////////////////////////
+    // Rows encoding
+
+    private static long estimateRowSize(@NotNull Object[] row) {
+        long size = VALUE_OVERHEAD;
+        for (Object value : row) {
+            size += VALUE_OVERHEAD;
+            if (value instanceof String) {
+                size += ((String) value).length() * 2L;
+            } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+                size += VALUE_OVERHEAD;
+            }
+        }
+        return size;
+    }
+
+    private void writeRow(@NotNull Object[] row) throws IOException {
+        rowOutput.writeInt(row.length);
+        for (Object value : row) {
+            writeValue(value);
+        }
+        rowOutput.flush();
+    }
+
+    private void writeValue(@Nullable Object value) throws IOException {
+        if (value == null) {
+            rowOutput.writeByte(TYPE_NULL);
+        } else if (value instanceof Boolean) {
+            rowOutput.writeByte(TYPE_BOOLEAN);
+            rowOutput.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            rowOutput.writeByte(TYPE_BYTE);
+            rowOutput.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            rowOutput.writeByte(TYPE_SHORT);
+            rowOutput.writeShort((Short) value);
+        } else if (value instanceof Integer) {
+            rowOutput.writeByte(TYPE_INT);
+            rowOutput.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            rowOutput.writeByte(TYPE_LONG);
+            rowOutput.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            rowOutput.writeByte(TYPE_FLOAT);
+            rowOutput.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            rowOutput.writeByte(TYPE_DOUBLE);
+            rowOutput.writeDouble((Double) value);
+        } else if (value instanceof BigDecimal) {
+            rowOutput.writeByte(TYPE_BIG_DECIMAL);
+            writeString(value.toString());
+        } else if (value instanceof BigInteger) {
+            rowOutput.writeByte(TYPE_BIG_INTEGER);
+            writeString(value.toString());
+        } else if (value instanceof String) {
+            rowOutput.writeByte(TYPE_STRING);
+            writeString((String) value);
+        } else if (value instanceof Timestamp) {
+            rowOutput.writeByte(TYPE_TIMESTAMP);
+            rowOutput.writeLong(((Timestamp) value).getTime());
+            rowOutput.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof java.sql.Date) {
+            rowOutput.writeByte(TYPE_SQL_DATE);
+            rowOutput.writeLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof Time) {
+            rowOutput.writeByte(TYPE_SQL_TIME);
+            rowOutput.writeLong(((Time) value).getTime());
+        } else if (value.getClass() == Date.class) {
+            rowOutput.writeByte(TYPE_DATE);
+            rowOutput.writeLong(((Date) value).getTime());
+        } else {
+            throw new IOException("Value type '" + value.getClass().getName() + "' is not supported by results buffer");
+        }
+    }
+
+    private void writeString(@NotNull String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        rowOutput.writeInt(bytes.length);
+        rowOutput.write(bytes);
+    }
+
+    @NotNull
+    private static Object[] readRow(@NotNull ByteBuffer buffer) {
+        Object[] row = new Object[buffer.getInt()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = readValue(buffer);
+        }
+        return row;
+    }
+
+    @Nullable
+    private static Object readValue(@NotNull ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_BOOLEAN:
+                return buffer.get() != 0;
+            case TYPE_BYTE:
+                return buffer.get();
+            case TYPE_SHORT:
+                return buffer.getShort();
+            case TYPE_INT:
+                return buffer.getInt();
+            case TYPE_LONG:
+                return buffer.getLong();
+            case TYPE_FLOAT:
+                return buffer.getFloat();
+            case TYPE_DOUBLE:
+                return buffer.getDouble();
+            case TYPE_BIG_DECIMAL:
+                return new BigDecimal(readString(buffer));
+            case TYPE_BIG_INTEGER:
+                return new BigInteger(readString(buffer));
+            case TYPE_STRING:
+                return readString(buffer);
+            case TYPE_TIMESTAMP: {
+                Timestamp timestamp = new Timestamp(buffer.getLong());
+                timestamp.setNanos(buffer.getInt());
+                return timestamp;
+            }
+            case TYPE_SQL_DATE:
+                return new java.sql.Date(buffer.getLong());
+            case TYPE_SQL_TIME:
+                return new Time(buffer.getLong());
+            case TYPE_DATE:
+                return new Date(buffer.getLong());
+            default:
+                throw new IllegalStateException("Bad results buffer value type: " + type);
+        }
+    }
+
+    @NotNull
+    private static String readString(@NotNull ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
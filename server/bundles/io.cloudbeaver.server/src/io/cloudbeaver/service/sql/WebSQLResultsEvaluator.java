@@ -0,0 +1,393 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import io.cloudbeaver.DBWebException;
+import io.cloudbeaver.model.session.WebSession;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
+import org.jkiss.dbeaver.model.data.DBDAttributeConstraint;
+import org.jkiss.dbeaver.model.data.DBDDataFilter;
+import org.jkiss.dbeaver.model.exec.DBCLogicalOperator;
+import org.jkiss.dbeaver.model.exec.DBCSession;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.utils.CommonUtils;
+
+import java.util.*;
+
+/**
+ * Evaluates sorting, filtering and grouping over fully fetched (retained) results
+ * without database round trip.
+ * Only conditions and ordering which have the same semantics in Java and in SQL are evaluated in memory:
+ * string comparison and ordering depend on database collation, null ordering depends on database,
+ * pattern operators depend on dialect case rules. Such filters are evaluated by the database.
+ */
+class WebSQLResultsEvaluator {
+
+    private final WebSQLResultsInfo baseResults;
+    private final DBDAttributeBinding[] bindings;
+    private final WebSQLResultsBuffer baseRows;
+
+    private WebSQLResultsEvaluator(@NotNull WebSQLResultsInfo baseResults) {
+        this.baseResults = baseResults;
+        this.bindings = baseResults.getAttributes();
+        this.baseRows = baseResults.getRetainedRows();
+    }
+
+    /**
+     * Reads new results page from retained rows of the previous results.
+     * Returns null if previous results weren't retained or filter can't be evaluated in memory.
+     * Also returns null if filter wasn't changed: it is a refresh and data must be read from the database.
+     */
+    @Nullable
+    static WebSQLExecuteInfo readResults(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull WebSQLResultsInfo prevResults,
+        @NotNull WebSQLDataFilter filter,
+        @NotNull DBDDataFilter dataFilter,
+        @Nullable WebDataFormat dataFormat) throws DBException
+    {
+        if (prevResults.getRetainedRows() == null || prevResults.getAttributes() == null) {
+            return null;
+        }
+        DBDDataFilter prevFilter = prevResults.getDataFilter();
+        if ((prevFilter == null ? new DBDDataFilter() : prevFilter).equalFilters(dataFilter, true)) {
+            return null;
+        }
+        long startTime = System.currentTimeMillis();
+        WebSQLResultsEvaluator evaluator = new WebSQLResultsEvaluator(prevResults);
+        List<Integer> rows = evaluator.filterRows(monitor, dataFilter);
+        if (rows == null) {
+            return null;
+        }
+        rows = evaluator.sortRows(rows, dataFilter);
+        if (rows == null) {
+            return null;
+        }
+
+        WebSession webSession = contextInfo.getWebSession();
+        int fromRow = Math.min(filter.getOffset(), rows.size());
+        int toRow = (int) Math.min((long) fromRow + filter.getLimit(), rows.size());
+        Object[][] pageRows = new Object[toRow - fromRow][];
+        for (int i = fromRow; i < toRow; i++) {
+            Object[] row = evaluator.baseRows.getRow(rows.get(i));
+            Object[] webRow = new Object[row.length];
+            for (int k = 0; k < row.length; k++) {
+                webRow[k] = WebSQLUtils.makeWebCellValue(webSession, evaluator.bindings[k], row[k], dataFormat);
+            }
+            pageRows[i - fromRow] = webRow;
+        }
+
+        WebSQLResultsInfo resultsInfo = contextInfo.saveResult(prevResults.getDataContainer(), evaluator.bindings);
+        resultsInfo.setDataFilter(dataFilter);
+        resultsInfo.setRetainedRows(evaluator.baseRows, prevResults.getRetainedRowsFilter());
+
+        WebSQLQueryResultSet resultSet = new WebSQLQueryResultSet();
+        resultSet.setColumns(evaluator.bindings);
+        resultSet.setRows(pageRows);
+        resultSet.setHasMoreData(toRow < rows.size());
+        resultSet.setResultsInfo(resultsInfo);
+
+        WebSQLQueryResults results = new WebSQLQueryResults(webSession, dataFormat);
+        results.setResultSet(resultSet);
+
+        WebSQLExecuteInfo executeInfo = new WebSQLExecuteInfo();
+        executeInfo.setResults(new WebSQLQueryResults[]{results});
+        executeInfo.setDuration(System.currentTimeMillis() - startTime);
+        executeInfo.setStatusMessage(pageRows.length + " row(s) fetched (from memory)");
+        return executeInfo;
+    }
+
+    /**
+     * Returns indexes of retained rows which match filter, in filter order.
+     * Returns null if results weren't retained or filter can't be evaluated in memory.
+     */
+    @Nullable
+    static List<Integer> selectRows(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull WebSQLResultsInfo resultsInfo,
+        @NotNull DBDDataFilter dataFilter) throws DBException
+    {
+        if (resultsInfo.getRetainedRows() == null || resultsInfo.getAttributes() == null) {
+            return null;
+        }
+        WebSQLResultsEvaluator evaluator = new WebSQLResultsEvaluator(resultsInfo);
+        List<Integer> rows = evaluator.filterRows(monitor, dataFilter);
+        return rows == null ? null : evaluator.sortRows(rows, dataFilter);
+    }
+
+    /**
+     * Counts rows of retained results grouped by the specified columns.
+     * Groups are ordered by row count (descending).
+     */
+    @NotNull
+    static List<WebSQLResultsGroupCount> countGroups(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull WebSQLResultsInfo resultsInfo,
+        @NotNull List<Integer> columnIndexes) throws DBException
+    {
+        if (resultsInfo.getRetainedRows() == null || resultsInfo.getAttributes() == null) {
+            throw new DBWebException("Results '" + resultsInfo.getId() + "' were not fully fetched. Group counts are not available.");
+        }
+        WebSQLResultsEvaluator evaluator = new WebSQLResultsEvaluator(resultsInfo);
+        for (Integer index : columnIndexes) {
+            if (index == null || index < 0 || index >= evaluator.bindings.length) {
+                throw new DBWebException("Bad column index: " + index);
+            }
+        }
+        List<Integer> rows = evaluator.filterRows(
+            monitor, resultsInfo.getDataFilter() == null ? new DBDDataFilter() : resultsInfo.getDataFilter());
+        if (rows == null) {
+            throw new DBWebException("Results filter can't be evaluated in memory");
+        }
+
+        Map<List<Object>, long[]> groups = new LinkedHashMap<>();
+        for (Integer rowIndex : rows) {
+            Object[] row = evaluator.baseRows.getRow(rowIndex);
+            List<Object> groupValues = new ArrayList<>(columnIndexes.size());
+            for (Integer index : columnIndexes) {
+                groupValues.add(row[index]);
+            }
+            groups.computeIfAbsent(groupValues, k -> new long[1])[0]++;
+        }
+
+        WebSession webSession = contextInfo.getWebSession();
+        List<WebSQLResultsGroupCount> result = new ArrayList<>(groups.size());
+        for (Map.Entry<List<Object>, long[]> group : groups.entrySet()) {
+            Object[] webValues = new Object[columnIndexes.size()];
+            for (int i = 0; i < webValues.length; i++) {
+                webValues[i] = WebSQLUtils.makeWebCellValue(
+                    webSession, evaluator.bindings[columnIndexes.get(i)], group.getKey().get(i), WebDataFormat.resultset);
+            }
+            result.add(new WebSQLResultsGroupCount(webValues, group.getValue()[0]));
+        }
+        result.sort((o1, o2) -> Long.compare(o2.getCount(), o1.getCount()));
+        return result;
+    }
+
+    /**
+     * Returns indexes of rows which match filter conditions or null if filter can't be evaluated in memory.
+     */
+    @Nullable
+    private List<Integer> filterRows(@NotNull DBRProgressMonitor monitor, @NotNull DBDDataFilter dataFilter) throws DBException {
+        DBDDataFilter baseFilter = baseResults.getRetainedRowsFilter();
+        if (!CommonUtils.equalObjects(
+            baseFilter == null ? null : CommonUtils.nullIfEmpty(baseFilter.getWhere()),
+            CommonUtils.nullIfEmpty(dataFilter.getWhere())))
+        {
+            // Custom conditions can be evaluated only by the database
+            return null;
+        }
+        if (baseFilter != null) {
+            for (DBDAttributeConstraint constraint : baseFilter.getConstraints()) {
+                if (hasCondition(constraint)) {
+                    // Retained rows are already filtered, we can't extend them
+                    return null;
+                }
+            }
+        }
+
+        List<DBDAttributeConstraint> conditions = new ArrayList<>();
+        List<Integer> conditionColumns = new ArrayList<>();
+        for (DBDAttributeConstraint constraint : dataFilter.getConstraints()) {
+            if (!hasCondition(constraint)) {
+                continue;
+            }
+            int columnIndex = findColumn(constraint);
+            if (!CommonUtils.isEmpty(constraint.getCriteria()) || columnIndex < 0 ||
+                !isSupportedCondition(bindings[columnIndex], constraint.getOperator()))
+            {
+                return null;
+            }
+            conditions.add(constraint);
+            conditionColumns.add(columnIndex);
+        }
+        int rowCount = baseRows.getRowCount();
+        if (conditions.isEmpty()) {
+            List<Integer> result = new ArrayList<>(rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                result.add(i);
+            }
+            return result;
+        }
+
+        // Convert condition values into the column types
+        Object[][] conditionArguments = new Object[conditions.size()][];
+        try (DBCSession session = DBUtils.openUtilSession(monitor, baseResults.getDataContainer(), "Evaluate results filter")) {
+            for (int i = 0; i < conditions.size(); i++) {
+                DBDAttributeConstraint constraint = conditions.get(i);
+                DBDAttributeBinding binding = bindings[conditionColumns.get(i)];
+                Object value = constraint.getValue();
+                Object[] arguments = value instanceof Object[] ? ((Object[]) value).clone() : new Object[] { value };
+                for (int k = 0; k < arguments.length; k++) {
+                    arguments[k] = binding.getValueHandler().getValueFromObject(session, binding, arguments[k], false, false);
+                    if (arguments[k] == null && constraint.getOperator().getArgumentCount() != 0) {
+                        // Comparison with NULL is never true in SQL
+                        return null;
+                    }
+                }
+                conditionArguments[i] = arguments;
+            }
+        }
+
+        List<Integer> result = new ArrayList<>();
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            Object[] row = baseRows.getRow(rowIndex);
+            boolean matches = true;
+            for (int i = 0; i < conditions.size() && matches; i++) {
+                DBDAttributeConstraint constraint = conditions.get(i);
+                DBCLogicalOperator operator = constraint.getOperator();
+                Object value = row[conditionColumns.get(i)];
+                if (value == null && operator.getArgumentCount() != 0) {
+                    // Comparison with NULL is unknown, row doesn't match both condition and its negation
+                    matches = false;
+                    break;
+                }
+                boolean conditionMatches = operator.evaluate(value, conditionArguments[i]);
+                matches = constraint.isReverseOperator() != conditionMatches;
+            }
+            if (matches) {
+                result.add(rowIndex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sorts row indexes. Only values of order columns are loaded in memory.
+     * Returns null if ordering can't be evaluated in memory: order column is a string (collation) or
+     * contains nulls (null ordering).
+     */
+    @Nullable
+    private List<Integer> sortRows(@NotNull List<Integer> rows, @NotNull DBDDataFilter dataFilter) {
+        List<DBDAttributeConstraint> orderConstraints = new ArrayList<>();
+        for (DBDAttributeConstraint constraint : dataFilter.getConstraints()) {
+            if (constraint.getOrderPosition() > 0) {
+                int columnIndex = findColumn(constraint);
+                if (columnIndex < 0 || !isSupportedOrdering(bindings[columnIndex])) {
+                    return null;
+                }
+                orderConstraints.add(constraint);
+            }
+        }
+        if (orderConstraints.isEmpty()) {
+            return rows;
+        }
+        orderConstraints.sort(Comparator.comparingInt(DBDAttributeConstraint::getOrderPosition));
+        int[] columns = new int[orderConstraints.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = findColumn(orderConstraints.get(i));
+        }
+        // Sort keys: row index followed by order column values
+        List<Object[]> sortKeys = new ArrayList<>(rows.size());
+        for (Integer rowIndex : rows) {
+            Object[] row = baseRows.getRow(rowIndex);
+            Object[] key = new Object[columns.length + 1];
+            key[0] = rowIndex;
+            for (int i = 0; i < columns.length; i++) {
+                key[i + 1] = row[columns[i]];
+                if (key[i + 1] == null) {
+                    return null;
+                }
+            }
+            sortKeys.add(key);
+        }
+        sortKeys.sort((key1, key2) -> {
+            for (int i = 0; i < columns.length; i++) {
+                int result = DBUtils.compareDataValues(key1[i + 1], key2[i + 1]);
+                if (result != 0) {
+                    return orderConstraints.get(i).isOrderDescending() ? -result : result;
+                }
+            }
+            return 0;
+        });
+        List<Integer> result = new ArrayList<>(sortKeys.size());
+        for (Object[] key : sortKeys) {
+            result.add((Integer) key[0]);
+        }
+        return result;
+    }
+
+    private int findColumn(@NotNull DBDAttributeConstraint constraint) {
+        for (int i = 0; i < bindings.length; i++) {
+            DBDAttributeBinding binding = bindings[i];
+            if (constraint.getAttribute() != null &&
+                (constraint.getAttribute() == binding || constraint.getAttribute() == binding.getEntityAttribute()))
+            {
+                return i;
+            }
+        }
+        String attributeName = constraint.getAttributeName();
+        for (int i = 0; i < bindings.length; i++) {
+            if (attributeName.equals(bindings[i].getLabel()) || attributeName.equals(bindings[i].getName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks that condition has the same result in Java and in SQL.
+     * String values support only null checks because comparison depends on database collation.
+     */
+    private static boolean isSupportedCondition(@NotNull DBDAttributeBinding binding, @NotNull DBCLogicalOperator operator) {
+        switch (operator) {
+            case IS_NULL:
+            case IS_NOT_NULL:
+                return true;
+            case EQUALS:
+            case NOT_EQUALS:
+            case GREATER:
+            case GREATER_EQUALS:
+            case LESS:
+            case LESS_EQUALS:
+            case IN:
+                switch (binding.getDataKind()) {
+                    case NUMERIC:
+                    case DATETIME:
+                    case BOOLEAN:
+                        return true;
+                    default:
+                        return false;
+                }
+            default:
+                // Pattern and other operators depend on dialect
+                return false;
+        }
+    }
+
+    private static boolean isSupportedOrdering(@NotNull DBDAttributeBinding binding) {
+        switch (binding.getDataKind()) {
+            case NUMERIC:
+            case DATETIME:
+            case BOOLEAN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean hasCondition(@NotNull DBDAttributeConstraint constraint) {
+        return constraint.getOperator() != null || !CommonUtils.isEmpty(constraint.getCriteria());
+    }
+
+}
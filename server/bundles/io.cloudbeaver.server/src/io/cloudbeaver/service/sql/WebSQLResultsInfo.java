@@ -21,12 +21,15 @@ import org.jkiss.code.Nullable;
 import org.jkiss.dbeaver.model.DBPDataSource;
 import org.jkiss.dbeaver.model.DBUtils;
 import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
+import org.jkiss.dbeaver.model.data.DBDDataFilter;
 import org.jkiss.dbeaver.model.data.DBDRowIdentifier;
 import org.jkiss.dbeaver.model.struct.DBSAttributeBase;
 import org.jkiss.dbeaver.model.struct.DBSDataContainer;
 import org.jkiss.dbeaver.model.struct.DBSTypedObject;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Web query results info.
@@ -38,6 +41,16 @@ public class WebSQLResultsInfo {
     @NotNull
     private final String id;
     private DBDAttributeBinding[] attributes;
+    private DBDDataFilter dataFilter;
+
+    // Fully fetched rows (in database format). They can be sorted and filtered without database round trip.
+    private WebSQLResultsBuffer retainedRows;
+    // Filter which was used to read retained rows
+    private DBDDataFilter retainedRowsFilter;
+
+    // Keyset pagination state. Key values of the last row of each read page, mapped by the next page offset.
+    private String keysetFilter;
+    private final Map<Long, Object[]> keysetPositions = new HashMap<>();
 
     public WebSQLResultsInfo(@NotNull DBSDataContainer dataContainer, @NotNull String id) {
         this.dataContainer = dataContainer;
@@ -62,6 +75,46 @@ public class WebSQLResultsInfo {
         this.attributes = attributes;
     }
 
+    /**
+     * Filter which was used to read results
+     */
+    @Nullable
+    public DBDDataFilter getDataFilter() {
+        return dataFilter;
+    }
+
+    public void setDataFilter(@Nullable DBDDataFilter dataFilter) {
+        this.dataFilter = dataFilter;
+    }
+
+    @Nullable
+    public WebSQLResultsBuffer getRetainedRows() {
+        return retainedRows;
+    }
+
+    @Nullable
+    public DBDDataFilter getRetainedRowsFilter() {
+        return retainedRowsFilter;
+    }
+
+    public synchronized void setRetainedRows(@Nullable WebSQLResultsBuffer retainedRows, @Nullable DBDDataFilter retainedRowsFilter) {
+        if (retainedRows != null) {
+            retainedRows.retain();
+        }
+        if (this.retainedRows != null) {
+            this.retainedRows.release();
+        }
+        this.retainedRows = retainedRows;
+        this.retainedRowsFilter = retainedRowsFilter;
+    }
+
+    /**
+     * Releases retained rows
+     */
+    public void dispose() {
+        setRetainedRows(null, null);
+    }
+
     @Nullable
     public DBDRowIdentifier getDefaultRowIdentifier() {
         for (DBDAttributeBinding column : attributes) {
@@ -94,6 +147,41 @@ public class WebSQLResultsInfo {
         return binding == null ? null : binding.getAttribute();
     }
 
+    /**
+     * Returns key values of the row which precedes specified offset.
+     * Positions are valid only for the same filter and ordering.
+     */
+    @Nullable
+    public synchronized Object[] getKeysetPosition(@NotNull String filter, long offset) {
+        if (!filter.equals(keysetFilter)) {
+            return null;
+        }
+        return keysetPositions.get(offset);
+    }
+
+    public synchronized void setKeysetPosition(@NotNull String filter, long offset, @NotNull Object[] keyValues) {
+        if (!filter.equals(keysetFilter)) {
+            keysetFilter = filter;
+            keysetPositions.clear();
+        }
+        keysetPositions.put(offset, keyValues);
+    }
+
+    public void copyKeysetPositions(@NotNull WebSQLResultsInfo source) {
+        String filter;
+        Map<Long, Object[]> positions;
+        synchronized (source) {
+            filter = source.keysetFilter;
+            positions = new HashMap<>(source.keysetPositions);
+        }
+        if (filter != null) {
+            synchronized (this) {
+                keysetFilter = filter;
+                keysetPositions.putAll(positions);
+            }
+        }
+    }
+
     public DBSTypedObject getAttributeByPosition(int pos) {
         for (DBDAttributeBinding attr : attributes) {
             if (attr.getOrdinalPosition() == pos) {
@@ -0,0 +1,55 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+/**
+ * Results row count.
+ * May be either exact (previously calculated) or estimated from statistics or execution plan.
+ */
+public class WebSQLResultsRowCount {
+
+    public static final String SOURCE_COUNT = "count";
+    public static final String SOURCE_STATISTICS = "statistics";
+    public static final String SOURCE_EXECUTION_PLAN = "executionPlan";
+
+    private final Long rowCount;
+    private final boolean exact;
+    private final String source;
+
+    public WebSQLResultsRowCount(Long rowCount, boolean exact, String source) {
+        this.rowCount = rowCount;
+        this.exact = exact;
+        this.source = source;
+    }
+
+    @Property
+    public Long getRowCount() {
+        return rowCount;
+    }
+
+    @Property
+    public boolean isExact() {
+        return exact;
+    }
+
+    @Property
+    public String getSource() {
+        return source;
+    }
+}
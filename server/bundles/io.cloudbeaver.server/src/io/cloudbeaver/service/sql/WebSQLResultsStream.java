@@ -0,0 +1,195 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import io.cloudbeaver.model.WebServerError;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.model.exec.DBCException;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded handoff between the fetch thread and the response writer.
+ * Fetch thread puts row batches, writer serializes them as soon as they arrive.
+ * Fetch is blocked when writer can't keep up with it.
+ */
+public class WebSQLResultsStream {
+
+    static final int DEFAULT_QUEUE_SIZE = 8;
+
+    private static final long POLL_TIMEOUT_MS = 500;
+
+    private static final Object END_OF_STREAM = new Object();
+
+    private static class ResultsStart {
+        final WebSQLQueryResultColumn[] columns;
+
+        ResultsStart(WebSQLQueryResultColumn[] columns) {
+            this.columns = columns;
+        }
+    }
+
+    private static class ResultsEnd {
+        final Long updateRowCount;
+        final String truncationReason;
+
+        ResultsEnd(Long updateRowCount, String truncationReason) {
+            this.updateRowCount = updateRowCount;
+            this.truncationReason = truncationReason;
+        }
+    }
+
+    private final BlockingQueue<Object> queue;
+    private volatile boolean closed;
+    private volatile Throwable error;
+
+    public WebSQLResultsStream(int queueSize) {
+        this.queue = new ArrayBlockingQueue<>(queueSize <= 0 ? DEFAULT_QUEUE_SIZE : queueSize);
+    }
+
+    ///////////////////////////////////////////////////////
+    // Producer
+
+    void startResults(@NotNull DBRProgressMonitor monitor, @NotNull WebSQLQueryResultColumn[] columns) throws DBCException {
+        put(monitor, new ResultsStart(columns));
+    }
+
+    void addRows(@NotNull DBRProgressMonitor monitor, @NotNull List<Object[]> rows) throws DBCException {
+        put(monitor, rows);
+    }
+
+    void endResults(@NotNull DBRProgressMonitor monitor, @Nullable Long updateRowCount, @Nullable String truncationReason) throws DBCException {
+        put(monitor, new ResultsEnd(updateRowCount, truncationReason));
+    }
+
+    /**
+     * Finishes stream. Must be called by producer in any case.
+     * Waits until writer takes the batches which are still in the queue, unless writer is gone.
+     */
+    public void finish(@Nullable Throwable error) {
+        this.error = error;
+        try {
+            while (!closed && !queue.offer(END_OF_STREAM, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                // Wait for writer
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes stream. Producer stops at the next batch. Called when writer is gone.
+     */
+    public void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    private void put(@NotNull DBRProgressMonitor monitor, @NotNull Object item) throws DBCException {
+        try {
+            while (!queue.offer(item, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                if (closed || monitor.isCanceled()) {
+                    throw new DBCException("Results stream was closed");
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new DBCException("Results stream was interrupted", e);
+        }
+    }
+
+    ///////////////////////////////////////////////////////
+    // Consumer
+
+    /**
+     * Writes results as JSON array while producer is running. Each batch is flushed as soon as it is written.
+     */
+    @SuppressWarnings("unchecked")
+    public void writeTo(@NotNull Gson gson, @NotNull JsonWriter writer) throws IOException {
+        try {
+            writer.name("results").beginArray();
+            boolean inResults = false;
+            for (;;) {
+                Object item;
+                try {
+                    item = queue.take();
+                } catch (InterruptedException e) {
+                    throw new IOException("Results stream was interrupted", e);
+                }
+                if (item == END_OF_STREAM) {
+                    break;
+                }
+                if (item instanceof ResultsStart) {
+                    writer.beginObject();
+                    writer.name("columns").beginArray();
+                    for (WebSQLQueryResultColumn column : ((ResultsStart) item).columns) {
+                        writer.beginObject();
+                        writer.name("position").value(column.getPosition());
+                        writer.name("name").value(column.getName());
+                        writer.name("label").value(column.getLabel());
+                        writer.name("dataKind").value(column.getDataKind());
+                        writer.name("typeName").value(column.getTypeName());
+                        writer.name("fullTypeName").value(column.getFullTypeName());
+                        writer.endObject();
+                    }
+                    writer.endArray();
+                    writer.name("rows").beginArray();
+                    inResults = true;
+                } else if (item instanceof ResultsEnd) {
+                    ResultsEnd resultsEnd = (ResultsEnd) item;
+                    if (inResults) {
+                        writer.endArray();
+                    } else {
+                        writer.beginObject();
+                    }
+                    writer.name("updateRowCount").value(resultsEnd.updateRowCount);
+                    writer.name("truncationReason").value(resultsEnd.truncationReason);
+                    writer.endObject();
+                    inResults = false;
+                } else {
+                    for (Object[] row : (List<Object[]>) item) {
+                        gson.toJson(row, Object[].class, writer);
+                    }
+                }
+                writer.flush();
+            }
+            if (inResults) {
+                writer.endArray().endObject();
+            }
+            writer.endArray();
+            writer.name("error");
+            if (error == null) {
+                writer.nullValue();
+            } else {
+                gson.toJson(new WebServerError(error), WebServerError.class, writer);
+            }
+        } finally {
+            close();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPContextProvider;
+import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
+import org.jkiss.dbeaver.model.data.DBDDataFilter;
+import org.jkiss.dbeaver.model.data.DBDDataReceiver;
+import org.jkiss.dbeaver.model.data.DBDValueMeta;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+import org.jkiss.dbeaver.model.struct.DBSObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data container which reads retained (fully fetched) results rows instead of querying the database.
+ * Rows are filtered and sorted in memory when container is created, data filter passed to readData is ignored.
+ * Container keeps retained rows until it is disposed.
+ */
+public class WebSQLRetainedRowsContainer implements DBSDataContainer, DBPContextProvider {
+
+    private static final Log log = Log.getLog(WebSQLRetainedRowsContainer.class);
+
+    private final DBSDataContainer dataContainer;
+    private final DBDAttributeBinding[] attributes;
+    private final WebSQLResultsBuffer buffer;
+    private final List<Integer> rows;
+    private boolean disposed;
+
+    private WebSQLRetainedRowsContainer(
+        @NotNull DBSDataContainer dataContainer,
+        @NotNull DBDAttributeBinding[] attributes,
+        @NotNull WebSQLResultsBuffer buffer,
+        @NotNull List<Integer> rows)
+    {
+        this.dataContainer = dataContainer;
+        this.attributes = attributes;
+        this.buffer = buffer;
+        this.rows = rows;
+    }
+
+    /**
+     * Creates container for results rows matching data filter.
+     * Returns null if results weren't fully fetched or filter can't be evaluated in memory.
+     */
+    @Nullable
+    public static WebSQLRetainedRowsContainer create(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull WebSQLResultsInfo resultsInfo,
+        @NotNull DBDDataFilter dataFilter) throws DBException
+    {
+        WebSQLResultsBuffer buffer;
+        DBDAttributeBinding[] attributes = resultsInfo.getAttributes();
+        synchronized (resultsInfo) {
+            buffer = resultsInfo.getRetainedRows();
+            if (buffer == null || attributes == null) {
+                return null;
+            }
+            buffer.retain();
+        }
+        boolean success = false;
+        try {
+            for (DBDAttributeBinding attribute : attributes) {
+                if (attribute.getMetaAttribute() == null) {
+                    // Virtual attributes can't be read from retained rows
+                    return null;
+                }
+            }
+            List<Integer> rows = WebSQLResultsEvaluator.selectRows(monitor, resultsInfo, dataFilter);
+            if (rows == null || resultsInfo.getRetainedRows() != buffer) {
+                return null;
+            }
+            success = true;
+            return new WebSQLRetainedRowsContainer(resultsInfo.getDataContainer(), attributes, buffer, rows);
+        } finally {
+            if (!success) {
+                buffer.release();
+            }
+        }
+    }
+
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    /**
+     * Releases retained rows
+     */
+    public synchronized void dispose() {
+        if (!disposed) {
+            disposed = true;
+            buffer.release();
+        }
+    }
+
+    @Nullable
+    @Override
+    public DBSObject getParentObject() {
+        return dataContainer.getParentObject();
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return dataContainer.getName();
+    }
+
+    @Nullable
+    @Override
+    public String getDescription() {
+        return dataContainer.getDescription();
+    }
+
+    @Override
+    public boolean isPersisted() {
+        return false;
+    }
+
+    @Nullable
+    @Override
+    public DBPDataSource getDataSource() {
+        return dataContainer.getDataSource();
+    }
+
+    @Override
+    public String[] getSupportedFeatures() {
+        return new String[] { FEATURE_DATA_SELECT, FEATURE_DATA_COUNT };
+    }
+
+    @NotNull
+    @Override
+    public DBCStatistics readData(
+        @NotNull DBCExecutionSource source,
+        @NotNull DBCSession session,
+        @NotNull DBDDataReceiver dataReceiver,
+        @Nullable DBDDataFilter dataFilter,
+        long firstRow,
+        long maxRows,
+        long flags,
+        int fetchSize) throws DBCException
+    {
+        DBCStatistics statistics = new DBCStatistics();
+        long startTime = System.currentTimeMillis();
+        long rowCount = 0;
+        RetainedResultSet resultSet = new RetainedResultSet(session);
+        try {
+            dataReceiver.fetchStart(session, resultSet, firstRow, maxRows);
+            try {
+                int fromRow = (int) Math.min(Math.max(firstRow, 0), rows.size());
+                int toRow = maxRows > 0 ? (int) Math.min(fromRow + maxRows, rows.size()) : rows.size();
+                for (int i = fromRow; i < toRow; i++) {
+                    if (session.getProgressMonitor().isCanceled()) {
+                        break;
+                    }
+                    synchronized (this) {
+                        if (disposed) {
+                            throw new DBCException("Retained results were disposed");
+                        }
+                        resultSet.row = buffer.getRow(rows.get(i));
+                    }
+                    dataReceiver.fetchRow(session, resultSet);
+                    rowCount++;
+                }
+            } finally {
+                try {
+                    dataReceiver.fetchEnd(session, resultSet);
+                } catch (DBCException e) {
+                    log.error("Error finishing retained rows fetch", e);
+                }
+            }
+        } finally {
+            dataReceiver.close();
+        }
+        statistics.setRowsFetched(rowCount);
+        statistics.addFetchTime(System.currentTimeMillis() - startTime);
+        return statistics;
+    }
+
+    @Override
+    public long countData(@NotNull DBCExecutionSource source, @NotNull DBCSession session, @Nullable DBDDataFilter dataFilter, long flags) {
+        return rows.size();
+    }
+
+    @Nullable
+    @Override
+    public DBCExecutionContext getExecutionContext() {
+        return DBUtils.getDefaultContext(getDataSource(), false);
+    }
+
+    /**
+     * Result set over the current retained row. Value handlers read values with getAttributeValue.
+     */
+    private class RetainedResultSet implements DBCResultSet, DBCResultSetMetaData {
+
+        private final DBCSession session;
+        private Object[] row;
+
+        RetainedResultSet(DBCSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public DBCSession getSession() {
+            return session;
+        }
+
+        @Override
+        public DBCStatement getSourceStatement() {
+            return null;
+        }
+
+        @Override
+        public Object getAttributeValue(int index) throws DBCException {
+            if (row == null || index < 0 || index >= row.length) {
+                throw new DBCException("Bad attribute index: " + index);
+            }
+            return row[index];
+        }
+
+        @Override
+        public Object getAttributeValue(String name) throws DBCException {
+            for (int i = 0; i < attributes.length; i++) {
+                if (name.equals(attributes[i].getLabel()) || name.equals(attributes[i].getName())) {
+                    return getAttributeValue(attributes[i].getOrdinalPosition());
+                }
+            }
+            throw new DBCException("Attribute '" + name + "' not found");
+        }
+
+        @Override
+        public DBDValueMeta getAttributeValueMeta(int index) {
+            return null;
+        }
+
+        @Override
+        public DBDValueMeta getRowMeta() {
+            return null;
+        }
+
+        @Override
+        public boolean nextRow() {
+            return false;
+        }
+
+        @Override
+        public boolean moveTo(int position) {
+            return false;
+        }
+
+        @NotNull
+        @Override
+        public DBCResultSetMetaData getMeta() {
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public List<DBCAttributeMetaData> getAttributes() {
+            List<DBCAttributeMetaData> metaAttributes = new ArrayList<>(attributes.length);
+            for (DBDAttributeBinding attribute : attributes) {
+                metaAttributes.add(attribute.getMetaAttribute());
+            }
+            return metaAttributes;
+        }
+
+        @Override
+        public String getResultSetName() {
+            return null;
+        }
+
+        @Override
+        public Object getFeature(String name) {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            row = null;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import io.cloudbeaver.model.WebAsyncTaskInfo;
+import io.cloudbeaver.model.WebServerError;
+import io.cloudbeaver.server.CBApplication;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.exec.DBCException;
+import org.jkiss.dbeaver.model.exec.DBCExecutionContext;
+import org.jkiss.dbeaver.model.exec.DBCTransactionManager;
+import org.jkiss.dbeaver.model.runtime.DBRBlockingObject;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.ProxyProgressMonitor;
+import org.jkiss.dbeaver.model.sql.SQLQuery;
+import org.jkiss.dbeaver.model.sql.SQLScriptElement;
+import org.jkiss.dbeaver.model.sql.parser.SQLScriptParser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * SQL script executor.
+ * Queries are executed in the main context in the script order. If parallel execution is requested and script
+ * consists of plain selects only then queries are executed in parallel in isolated execution contexts.
+ * Results of each query are available as soon as the query finishes.
+ */
+public class WebSQLScriptExecutor {
+
+    private static final Log log = Log.getLog(WebSQLScriptExecutor.class);
+
+    private static final int DEFAULT_MAX_PARALLEL_QUERIES = 4;
+
+    // Shared by all scripts. Number of queries of each script is limited by sqlScriptMaxParallelQueries quota
+    private static final ExecutorService QUERY_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "SQL script query");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final WebSQLContextInfo contextInfo;
+    private final String script;
+    private final WebSQLDataFilter filter;
+    private final WebDataFormat dataFormat;
+    private final boolean parallel;
+    // Query results in completion order
+    private final List<WebSQLScriptQueryResults> results = new ArrayList<>();
+    private volatile WebAsyncTaskInfo taskInfo;
+    private volatile int queryCount = -1;
+
+    public WebSQLScriptExecutor(
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String script,
+        @Nullable WebSQLDataFilter filter,
+        @Nullable WebDataFormat dataFormat,
+        boolean parallel)
+    {
+        this.contextInfo = contextInfo;
+        this.script = script;
+        this.filter = filter;
+        this.dataFormat = dataFormat;
+        this.parallel = parallel;
+    }
+
+    /**
+     * Sets task which runs this script. Statements of parallel queries are registered in the task
+     * so they can be canceled with the task.
+     */
+    public void setTaskInfo(@NotNull WebAsyncTaskInfo taskInfo) {
+        this.taskInfo = taskInfo;
+    }
+
+    /**
+     * Total number of script queries or -1 if script wasn't parsed yet.
+     */
+    public int getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * Returns results of finished queries starting from the specified position (in completion order).
+     */
+    @NotNull
+    public List<WebSQLScriptQueryResults> getResults(int fromIndex) {
+        synchronized (results) {
+            if (fromIndex >= results.size()) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(results.subList(Math.max(fromIndex, 0), results.size()));
+        }
+    }
+
+    /**
+     * Executes script. Execution stops after the first failed data modification query.
+     */
+    public void execute(@NotNull DBRProgressMonitor monitor) throws DBException, InterruptedException {
+        WebSQLProcessor processor = contextInfo.getProcessor();
+        DBPDataSource dataSource = processor.getConnection().getDataSource();
+        List<SQLScriptElement> queries = SQLScriptParser.parseScript(dataSource, script);
+        queryCount = queries.size();
+
+        DBCExecutionContext mainContext = processor.getExecutionContext();
+        int maxParallelQueries = getMaxParallelQueries();
+        // Isolated contexts do not see uncommitted changes and session state (temp tables, current schema, etc)
+        // of the main context, so only scripts which consist of plain selects are executed in parallel
+        boolean parallel = this.parallel && maxParallelQueries > 1 && queries.size() > 1 &&
+            isAutoCommit(mainContext) && isReadOnlyScript(queries);
+        WebSQLIsolatedContextPool isolatedContexts = contextInfo.getIsolatedContexts();
+        if (parallel && !isolatedContexts.open(monitor)) {
+            // Isolated contexts are not supported - execute all queries sequentially
+            parallel = false;
+        }
+
+        monitor.beginTask("Execute script", queries.size());
+        List<Future<?>> parallelQueries = new ArrayList<>();
+        try {
+            if (parallel) {
+                // Limits number of queries of this script which are running or waiting for a context
+                Semaphore querySlots = new Semaphore(maxParallelQueries);
+                for (int i = 0; i < queries.size() && !monitor.isCanceled(); i++) {
+                    SQLScriptElement query = queries.get(i);
+                    int queryIndex = i;
+                    querySlots.acquire();
+                    try {
+                        parallelQueries.add(QUERY_EXECUTOR.submit(() -> {
+                            try {
+                                executeIsolated(monitor, isolatedContexts, maxParallelQueries, queryIndex, query);
+                            } finally {
+                                querySlots.release();
+                            }
+                        }));
+                    } catch (RuntimeException e) {
+                        querySlots.release();
+                        throw e;
+                    }
+                }
+                waitForQueries(monitor, parallelQueries);
+            } else {
+                for (int i = 0; i < queries.size() && !monitor.isCanceled(); i++) {
+                    SQLScriptElement query = queries.get(i);
+                    monitor.subTask("Execute query " + (i + 1));
+                    WebSQLScriptQueryResults queryResults = executeQuery(monitor, i, query, mainContext, false);
+                    monitor.worked(1);
+                    if (queryResults.getError() != null && !isReadOnly(query)) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            // Interrupt queries which are still running after cancel or error
+            for (Future<?> query : parallelQueries) {
+                query.cancel(true);
+            }
+            if (parallel) {
+                isolatedContexts.finish();
+            }
+            monitor.done();
+        }
+    }
+
+    private void executeIsolated(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull WebSQLIsolatedContextPool isolatedContexts,
+        int maxContexts,
+        int queryIndex,
+        @NotNull SQLScriptElement query)
+    {
+        if (monitor.isCanceled()) {
+            return;
+        }
+        QueryProgressMonitor queryMonitor = new QueryProgressMonitor(monitor);
+        DBCExecutionContext context;
+        try {
+            context = isolatedContexts.acquire(queryMonitor, maxContexts);
+        } catch (InterruptedException e) {
+            // Script was canceled
+            return;
+        }
+        try {
+            executeQuery(queryMonitor, queryIndex, query, context, true);
+        } finally {
+            isolatedContexts.release(context);
+        }
+    }
+
+    @NotNull
+    private WebSQLScriptQueryResults executeQuery(
+        @NotNull DBRProgressMonitor monitor,
+        int queryIndex,
+        @NotNull SQLScriptElement query,
+        @NotNull DBCExecutionContext context,
+        boolean parallel)
+    {
+        WebSQLScriptQueryResults queryResults = new WebSQLScriptQueryResults(
+            queryIndex, query.getOffset(), query.getOffset() + query.getText().length(), parallel);
+        try {
+            if (!(query instanceof SQLQuery)) {
+                throw new DBException("Script command '" + query.getText() + "' is not supported");
+            }
+            queryResults.setExecuteInfo(contextInfo.getProcessor().processQuery(
+                monitor, contextInfo, query.getText(), null, filter, dataFormat, context));
+        } catch (Throwable e) {
+            log.debug("Error executing script query " + (queryIndex + 1), e);
+            queryResults.setError(new WebServerError(e));
+        }
+        synchronized (results) {
+            results.add(queryResults);
+        }
+        return queryResults;
+    }
+
+    private void waitForQueries(@NotNull DBRProgressMonitor monitor, @NotNull List<Future<?>> queries) throws InterruptedException {
+        for (Future<?> query : queries) {
+            try {
+                query.get();
+            } catch (ExecutionException e) {
+                log.error("Script query execution failed", e.getCause());
+            }
+            monitor.worked(1);
+        }
+        queries.clear();
+    }
+
+    private static boolean isReadOnly(@NotNull SQLScriptElement query) {
+        return query instanceof SQLQuery && ((SQLQuery) query).isPlainSelect();
+    }
+
+    private static boolean isReadOnlyScript(@NotNull List<SQLScriptElement> queries) {
+        for (SQLScriptElement query : queries) {
+            if (!isReadOnly(query)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAutoCommit(@NotNull DBCExecutionContext context) {
+        DBCTransactionManager txnManager = DBUtils.getTransactionManager(context);
+        try {
+            return txnManager == null || !txnManager.isSupportsTransactions() || txnManager.isAutoCommit();
+        } catch (DBCException e) {
+            log.debug("Can't read auto-commit mode", e);
+            return false;
+        }
+    }
+
+    private static int getMaxParallelQueries() {
+        Number maxQueries = CBApplication.getInstance().getAppConfiguration().getResourceQuota(
+            WebSQLConstants.QUOTA_PROP_SCRIPT_MAX_PARALLEL_QUERIES);
+        return maxQueries == null ? DEFAULT_MAX_PARALLEL_QUERIES : maxQueries.intValue();
+    }
+
+    /**
+     * Monitor of a parallel query. Progress is not reported to the script monitor because it is not thread safe,
+     * statement blocks are registered in the task directly.
+     */
+    private class QueryProgressMonitor extends ProxyProgressMonitor {
+
+        private final Deque<DBRBlockingObject> blocks = new ArrayDeque<>();
+
+        QueryProgressMonitor(DBRProgressMonitor original) {
+            super(original);
+        }
+
+        @Override
+        public void beginTask(String name, int totalWork) {
+        }
+
+        @Override
+        public void subTask(String name) {
+        }
+
+        @Override
+        public void worked(int work) {
+        }
+
+        @Override
+        public void done() {
+        }
+
+        @Override
+        public void startBlock(DBRBlockingObject object, String taskName) {
+            blocks.push(object);
+            WebAsyncTaskInfo task = taskInfo;
+            if (task != null) {
+                task.addActiveBlock(object);
+            }
+        }
+
+        @Override
+        public void endBlock() {
+            DBRBlockingObject object = blocks.poll();
+            WebAsyncTaskInfo task = taskInfo;
+            if (object != null && task != null) {
+                task.removeActiveBlock(object);
+            }
+        }
+    }
+}
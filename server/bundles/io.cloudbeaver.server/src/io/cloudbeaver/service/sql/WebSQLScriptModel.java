@@ -0,0 +1,198 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import io.cloudbeaver.DBWebException;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.sql.SQLQuery;
+import org.jkiss.dbeaver.model.sql.SQLScriptElement;
+import org.jkiss.dbeaver.model.sql.parser.SQLParserContext;
+import org.jkiss.dbeaver.model.sql.parser.SQLScriptParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Script of SQL context which is updated incrementally with text changes.
+ * Keeps statements index and re-parses only the region affected by a change.
+ */
+public class WebSQLScriptModel {
+
+    private final WebSQLContextInfo contextInfo;
+    private final Document document = new Document();
+    // Statements bounds ({offset, length}) sorted by offset
+    private final List<int[]> queries = new ArrayList<>();
+    private int version;
+
+    WebSQLScriptModel(@NotNull WebSQLContextInfo contextInfo) {
+        this.contextInfo = contextInfo;
+    }
+
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    /**
+     * Replaces the whole script text.
+     */
+    public synchronized void setScript(@NotNull String script) {
+        document.set(script);
+        queries.clear();
+        queries.addAll(parseRegion(0, document.getLength()));
+        version++;
+    }
+
+    /**
+     * Applies text changes in the specified order.
+     */
+    public synchronized void applyChanges(@NotNull List<WebSQLScriptChange> changes) throws DBWebException {
+        for (WebSQLScriptChange change : changes) {
+            applyChange(change);
+        }
+        version++;
+    }
+
+    @NotNull
+    public synchronized WebSQLScriptState getState() {
+        List<WebSQLQueryInfo> queriesInfo = new ArrayList<>(queries.size());
+        for (int[] query : queries) {
+            queriesInfo.add(new WebSQLQueryInfo(query[0], query[0] + query[1]));
+        }
+        return new WebSQLScriptState(version, queriesInfo);
+    }
+
+    /**
+     * Returns query at the specified position or null if position is outside of any query.
+     */
+    @Nullable
+    public synchronized WebSQLQueryInfo getQueryAt(int position) {
+        int[] query = findQuery(position);
+        return query == null ? null : new WebSQLQueryInfo(query[0], query[0] + query[1]);
+    }
+
+    /**
+     * Runs action with script document and query at the specified position. Document must not be modified.
+     */
+    public synchronized <T> T readScript(int position, @NotNull ScriptReader<T> reader) throws DBWebException {
+        int[] query = findQuery(position);
+        SQLScriptElement activeQuery = null;
+        if (query != null) {
+            try {
+                activeQuery = new SQLQuery(getDataSource(), document.get(query[0], query[1]), query[0], query[1]);
+            } catch (BadLocationException e) {
+                throw new DBWebException("Bad query location", e);
+            }
+        }
+        return reader.read(document, activeQuery);
+    }
+
+    public interface ScriptReader<T> {
+        T read(@NotNull Document document, @Nullable SQLScriptElement activeQuery) throws DBWebException;
+    }
+
+    private void applyChange(@NotNull WebSQLScriptChange change) throws DBWebException {
+        int offset = change.getOffset();
+        int oldEnd = offset + change.getLength();
+        int delta = change.getText().length() - change.getLength();
+        try {
+            document.replace(offset, change.getLength(), change.getText());
+        } catch (BadLocationException e) {
+            throw new DBWebException("Bad script change location (" + offset + ":" + change.getLength() + ")", e);
+        }
+
+        // Previous statement is re-parsed too: change may remove a delimiter
+        int prev = findQueryIndex(offset) - 1;
+        int first = Math.max(0, prev);
+        int regionStart = prev >= 0 ? queries.get(prev)[0] : 0;
+        int anchor = findQueryIndex(oldEnd) + 1;
+        for (int step = 1; ; step *= 2) {
+            // Re-parse up to the anchor statement. If the anchor is parsed the same way as before
+            // then statements after it are not affected by the change
+            int regionEnd = anchor < queries.size() ? queries.get(anchor)[0] + delta + queries.get(anchor)[1] : document.getLength();
+            List<int[]> parsed = parseRegion(regionStart, regionEnd - regionStart);
+            if (anchor < queries.size()) {
+                int[] lastParsed = parsed.isEmpty() ? null : parsed.get(parsed.size() - 1);
+                int[] anchorQuery = queries.get(anchor);
+                if (lastParsed == null || lastParsed[0] != anchorQuery[0] + delta || lastParsed[1] != anchorQuery[1]) {
+                    anchor = Math.min(queries.size(), anchor + step);
+                    continue;
+                }
+            }
+            List<int[]> tail = anchor < queries.size() ? queries.subList(anchor + 1, queries.size()) : new ArrayList<>();
+            for (int[] query : tail) {
+                query[0] += delta;
+            }
+            queries.subList(first, Math.min(anchor + 1, queries.size())).clear();
+            queries.addAll(first, parsed);
+            break;
+        }
+    }
+
+    @NotNull
+    private List<int[]> parseRegion(int offset, int length) {
+        List<int[]> result = new ArrayList<>();
+        if (length <= 0) {
+            return result;
+        }
+        WebSQLProcessor processor = contextInfo.getProcessor();
+        SQLParserContext parserContext = new SQLParserContext(
+            getDataSource(), processor.getSyntaxManager(), processor.getRuleManager(), document);
+        List<SQLScriptElement> elements = SQLScriptParser.extractScriptQueries(parserContext, offset, length, true, false, false);
+        if (elements != null) {
+            for (SQLScriptElement element : elements) {
+                result.add(new int[] { element.getOffset(), element.getLength() });
+            }
+        }
+        return result;
+    }
+
+    @Nullable
+    private int[] findQuery(int position) {
+        int index = findQueryIndex(position);
+        if (index < 0 || index >= queries.size()) {
+            return null;
+        }
+        int[] query = queries.get(index);
+        return position <= query[0] + query[1] ? query : null;
+    }
+
+    /**
+     * Index of the last query which starts at or before the position. -1 if there is no such query.
+     */
+    private int findQueryIndex(int position) {
+        int low = 0, high = queries.size() - 1, result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (queries.get(mid)[0] <= position) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    private DBPDataSource getDataSource() {
+        return contextInfo.getProcessor().getConnection().getDataSource();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import io.cloudbeaver.model.WebServerError;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.model.meta.Property;
+
+/**
+ * Results of a single script query.
+ */
+public class WebSQLScriptQueryResults {
+
+    private final int queryIndex;
+    private final int start;
+    private final int end;
+    private final boolean parallel;
+    private WebSQLExecuteInfo executeInfo;
+    private WebServerError error;
+
+    public WebSQLScriptQueryResults(int queryIndex, int start, int end, boolean parallel) {
+        this.queryIndex = queryIndex;
+        this.start = start;
+        this.end = end;
+        this.parallel = parallel;
+    }
+
+    @Property
+    public int getQueryIndex() {
+        return queryIndex;
+    }
+
+    @Property
+    public int getStart() {
+        return start;
+    }
+
+    @Property
+    public int getEnd() {
+        return end;
+    }
+
+    @Property
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    @Nullable
+    @Property
+    public WebSQLExecuteInfo getExecuteInfo() {
+        return executeInfo;
+    }
+
+    void setExecuteInfo(WebSQLExecuteInfo executeInfo) {
+        this.executeInfo = executeInfo;
+    }
+
+    @Nullable
+    @Property
+    public WebServerError getError() {
+        return error;
+    }
+
+    void setError(WebServerError error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+import java.util.List;
+
+/**
+ * Parsed state of SQL context script.
+ */
+public class WebSQLScriptState {
+
+    private final int version;
+    private final List<WebSQLQueryInfo> queries;
+
+    public WebSQLScriptState(int version, List<WebSQLQueryInfo> queries) {
+        this.version = version;
+        this.queries = queries;
+    }
+
+    @Property
+    public int getVersion() {
+        return version;
+    }
+
+    @Property
+    public List<WebSQLQueryInfo> getQueries() {
+        return queries;
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.runtime.DBRBlockingObject;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.ProxyProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.VoidProgressMonitor;
+
+import java.util.*;
+
+/**
+ * LRU cache of prepared statements of SQL context.
+ * Statements are keyed by normalized query text. Each cached statement keeps its own session open,
+ * result sets are closed after each execution. Statements are closed when cache is cleared
+ * (context defaults change or context is destroyed with its session).
+ */
+class WebSQLStatementCache {
+
+    private static final Log log = Log.getLog(WebSQLStatementCache.class);
+
+    static final int DEFAULT_MAX_SIZE = 20;
+
+    interface StatementExecutor {
+        void execute(@NotNull DBCSession session, @NotNull DBCStatement statement) throws DBException;
+    }
+
+    private final int maxSize;
+    @NotNull
+    private final WebSQLStatementCacheInfo statistics;
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    WebSQLStatementCache(int maxSize, @NotNull WebSQLStatementCacheInfo statistics) {
+        this.maxSize = maxSize;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Executes query with cached statement. Prepares and caches statement if there is no one.
+     * Read-only queries are re-prepared and executed again if cached statement fails
+     * (it may become invalid after reconnect or schema change).
+     */
+    void execute(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBCExecutionContext context,
+        @NotNull NamedQuery query,
+        boolean readOnly,
+        @NotNull StatementExecutor executor) throws DBException
+    {
+        List<CachedStatement> evicted = new ArrayList<>();
+        CachedStatement statement;
+        boolean cached;
+        synchronized (statements) {
+            statement = statements.get(query.getNormalizedText());
+            cached = statement != null;
+            if (cached) {
+                statistics.addHit();
+            } else {
+                statistics.addMiss();
+                statement = new CachedStatement(context, query);
+                statements.put(query.getNormalizedText(), statement);
+                for (Iterator<CachedStatement> iter = statements.values().iterator(); statements.size() > maxSize && iter.hasNext(); ) {
+                    evicted.add(iter.next());
+                    iter.remove();
+                    statistics.addEviction();
+                }
+            }
+        }
+        closeStatements(evicted);
+
+        try {
+            statement.execute(monitor, executor);
+        } catch (DBException e) {
+            removeStatement(query, statement);
+            if (!cached || !readOnly) {
+                throw e;
+            }
+            log.debug("Cached statement failed, prepare it again: " + e.getMessage());
+            execute(monitor, context, query, true, executor);
+        }
+    }
+
+    void clear() {
+        List<CachedStatement> evicted;
+        synchronized (statements) {
+            evicted = new ArrayList<>(statements.values());
+            statements.clear();
+        }
+        closeStatements(evicted);
+    }
+
+    private void removeStatement(@NotNull NamedQuery query, @NotNull CachedStatement statement) {
+        synchronized (statements) {
+            statements.remove(query.getNormalizedText(), statement);
+        }
+        statement.close();
+    }
+
+    private static void closeStatements(@NotNull List<CachedStatement> evicted) {
+        for (CachedStatement statement : evicted) {
+            statement.close();
+        }
+    }
+
+    /**
+     * Parses named parameters (:name) and normalizes query text.
+     * Parameters are replaced with positional placeholders. String literals, quoted identifiers,
+     * comments and casts (::type) are kept as is.
+     */
+    @NotNull
+    static NamedQuery parseQuery(@NotNull String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        StringBuilder prepared = new StringBuilder(sql.length());
+        List<String> parameterNames = new ArrayList<>();
+        int length = sql.length();
+        int pos = 0;
+        while (pos < length) {
+            char c = sql.charAt(pos);
+            int end = pos + 1;
+            if (c == '\'' || c == '"' || c == '`') {
+                end = sql.indexOf(c, pos + 1);
+                end = end < 0 ? length : end + 1;
+            } else if (c == '-' && sql.startsWith("--", pos)) {
+                end = sql.indexOf('\n', pos);
+                end = end < 0 ? length : end + 1;
+            } else if (c == '/' && sql.startsWith("/*", pos)) {
+                end = sql.indexOf("*/", pos + 2);
+                end = end < 0 ? length : end + 2;
+            } else if (Character.isWhitespace(c)) {
+                while (end < length && Character.isWhitespace(sql.charAt(end))) {
+                    end++;
+                }
+                if (normalized.length() > 0 && end < length) {
+                    normalized.append(' ');
+                    prepared.append(' ');
+                }
+                pos = end;
+                continue;
+            } else if (c == ':' && end < length && Character.isJavaIdentifierStart(sql.charAt(end)) &&
+                (pos == 0 || sql.charAt(pos - 1) != ':'))
+            {
+                while (end < length && Character.isJavaIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+                parameterNames.add(sql.substring(pos + 1, end));
+                normalized.append(sql, pos, end);
+                prepared.append('?');
+                pos = end;
+                continue;
+            }
+            normalized.append(sql, pos, end);
+            prepared.append(sql, pos, end);
+            pos = end;
+        }
+        return new NamedQuery(normalized.toString(), prepared.toString(), parameterNames);
+    }
+
+    /**
+     * Query with named parameters.
+     */
+    static class NamedQuery {
+        private final String normalizedText;
+        private final String preparedText;
+        private final List<String> parameterNames;
+
+        NamedQuery(@NotNull String normalizedText, @NotNull String preparedText, @NotNull List<String> parameterNames) {
+            this.normalizedText = normalizedText;
+            this.preparedText = preparedText;
+            this.parameterNames = parameterNames;
+        }
+
+        @NotNull
+        String getNormalizedText() {
+            return normalizedText;
+        }
+
+        // Query text with positional placeholders
+        @NotNull
+        String getPreparedText() {
+            return preparedText;
+        }
+
+        // Parameter names in placeholders order (the same name may appear several times)
+        @NotNull
+        List<String> getParameterNames() {
+            return parameterNames;
+        }
+    }
+
+    /**
+     * Cached statement. Execution is serialized.
+     */
+    private static class CachedStatement {
+        private final DBCExecutionContext context;
+        private final NamedQuery query;
+        private final StatementMonitor monitor = new StatementMonitor();
+        private DBCSession session;
+        private DBCStatement statement;
+        private boolean closed;
+
+        CachedStatement(@NotNull DBCExecutionContext context, @NotNull NamedQuery query) {
+            this.context = context;
+            this.query = query;
+        }
+
+        synchronized void execute(@NotNull DBRProgressMonitor monitor, @NotNull StatementExecutor executor) throws DBException {
+            if (closed) {
+                throw new DBCException("Statement is closed");
+            }
+            this.monitor.setTarget(monitor);
+            try {
+                if (statement == null) {
+                    session = context.openSession(this.monitor, DBCExecutionPurpose.USER, "Prepared statement");
+                    statement = session.prepareStatement(DBCStatementType.QUERY, query.getPreparedText(), false, false, false);
+                }
+                executor.execute(session, statement);
+            } finally {
+                this.monitor.setTarget(null);
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            if (statement != null) {
+                statement.close();
+                statement = null;
+            }
+            if (session != null) {
+                session.close();
+                session = null;
+            }
+        }
+    }
+
+    /**
+     * Session monitor of cached statement. Delegates to the monitor of current execution.
+     */
+    private static class StatementMonitor extends ProxyProgressMonitor {
+
+        private final DBRProgressMonitor idleMonitor = new VoidProgressMonitor();
+        private volatile DBRProgressMonitor target;
+
+        StatementMonitor() {
+            super(new VoidProgressMonitor());
+        }
+
+        void setTarget(DBRProgressMonitor target) {
+            this.target = target;
+        }
+
+        private DBRProgressMonitor getTarget() {
+            DBRProgressMonitor monitor = target;
+            return monitor == null ? idleMonitor : monitor;
+        }
+
+        @Override
+        public void beginTask(String name, int totalWork) {
+            getTarget().beginTask(name, totalWork);
+        }
+
+        @Override
+        public void done() {
+            getTarget().done();
+        }
+
+        @Override
+        public void subTask(String name) {
+            getTarget().subTask(name);
+        }
+
+        @Override
+        public void worked(int work) {
+            getTarget().worked(work);
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return getTarget().isCanceled();
+        }
+
+        @Override
+        public void startBlock(DBRBlockingObject object, String taskName) {
+            getTarget().startBlock(object, taskName);
+        }
+
+        @Override
+        public void endBlock() {
+            getTarget().endBlock();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepared statements cache statistics of a connection.
+ */
+public class WebSQLStatementCacheInfo {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Property
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Property
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Property
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Property
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    void addHit() {
+        hits.incrementAndGet();
+    }
+
+    void addMiss() {
+        misses.incrementAndGet();
+    }
+
+    void addEviction() {
+        evictions.incrementAndGet();
+    }
+}
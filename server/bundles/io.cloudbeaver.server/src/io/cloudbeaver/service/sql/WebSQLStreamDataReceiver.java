@@ -0,0 +1,146 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import io.cloudbeaver.model.session.WebSession;
+import io.cloudbeaver.server.CBApplication;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
+import org.jkiss.dbeaver.model.data.DBDAttributeBindingMeta;
+import org.jkiss.dbeaver.model.data.DBDDataReceiver;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.impl.data.DBDValueError;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data receiver which converts rows into web format in batches and hands them over to results stream.
+ */
+class WebSQLStreamDataReceiver implements DBDDataReceiver {
+
+    private static final Log log = Log.getLog(WebSQLStreamDataReceiver.class);
+
+    static final int BATCH_SIZE = 200;
+
+    private final WebSQLContextInfo contextInfo;
+    private final DBSDataContainer dataContainer;
+    private final WebDataFormat dataFormat;
+    private final WebSQLResultsStream stream;
+    private final Number rowLimit;
+
+    private DBDAttributeBinding[] bindings;
+    private List<Object[]> batch = new ArrayList<>();
+    private boolean started;
+    private long rowCount;
+    private boolean truncated;
+
+    WebSQLStreamDataReceiver(
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull DBSDataContainer dataContainer,
+        @Nullable WebDataFormat dataFormat,
+        @NotNull WebSQLResultsStream stream)
+    {
+        this.contextInfo = contextInfo;
+        this.dataContainer = dataContainer;
+        this.dataFormat = dataFormat;
+        this.stream = stream;
+        this.rowLimit = CBApplication.getInstance().getAppConfiguration().getResourceQuota(WebSQLConstants.QUOTA_PROP_ROW_LIMIT);
+    }
+
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public void fetchStart(DBCSession session, DBCResultSet dbResult, long offset, long maxRows) throws DBCException {
+        List<DBCAttributeMetaData> attributes = dbResult.getMeta().getAttributes();
+        bindings = new DBDAttributeBindingMeta[attributes.size()];
+        for (int i = 0; i < attributes.size(); i++) {
+            bindings[i] = new DBDAttributeBindingMeta(dataContainer, dbResult.getSession(), attributes.get(i));
+        }
+    }
+
+    @Override
+    public void fetchRow(DBCSession session, DBCResultSet resultSet) throws DBCException {
+        if (rowLimit != null && rowCount >= rowLimit.longValue()) {
+            truncated = true;
+            return;
+        }
+        Object[] row = new Object[bindings.length];
+        for (int i = 0; i < bindings.length; i++) {
+            DBDAttributeBinding binding = bindings[i];
+            try {
+                row[i] = binding.getValueHandler().fetchValueObject(session, resultSet, binding.getMetaAttribute(), i);
+            } catch (Throwable e) {
+                row[i] = new DBDValueError(e);
+            }
+        }
+        batch.add(row);
+        rowCount++;
+        if (batch.size() >= BATCH_SIZE) {
+            flushBatch(session, resultSet);
+        }
+    }
+
+    @Override
+    public void fetchEnd(DBCSession session, DBCResultSet resultSet) throws DBCException {
+        flushBatch(session, resultSet);
+        stream.endResults(
+            session.getProgressMonitor(),
+            null,
+            truncated ? "Result set rows quota exceeded (" + WebSQLConstants.QUOTA_PROP_ROW_LIMIT + "=" + rowLimit + ")" : null);
+    }
+
+    private void flushBatch(@NotNull DBCSession session, @NotNull DBCResultSet resultSet) throws DBCException {
+        if (!started) {
+            // Bind attributes using the first batch, it is needed to resolve dynamic types
+            try {
+                DBExecUtils.bindAttributes(session, null, resultSet, bindings, batch);
+            } catch (DBException e) {
+                log.error("Error binding attributes", e);
+            }
+            WebSQLQueryResultColumn[] columns = new WebSQLQueryResultColumn[bindings.length];
+            for (int i = 0; i < bindings.length; i++) {
+                columns[i] = new WebSQLQueryResultColumn(bindings[i]);
+            }
+            stream.startResults(session.getProgressMonitor(), columns);
+            started = true;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Values are converted by fetch thread because they may refer to the open result set (e.g. LOBs)
+        WebSession webSession = contextInfo.getWebSession();
+        for (Object[] row : batch) {
+            for (int i = 0; i < bindings.length; i++) {
+                row[i] = WebSQLUtils.makeWebCellValue(webSession, bindings[i], row[i], dataFormat);
+            }
+        }
+        stream.addRows(session.getProgressMonitor(), batch);
+        batch = new ArrayList<>(BATCH_SIZE);
+    }
+
+    @Override
+    public void close() {
+        batch.clear();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.sql;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.DBPEvaluationContext;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.struct.DBSEntity;
+import org.jkiss.utils.CommonUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds table sample queries (TABLESAMPLE or equivalent) for databases which support block sampling.
+ */
+final class WebSQLTableSample {
+
+    // Block sampling returns uneven number of rows, so we sample more than requested
+    private static final int OVERSAMPLING_FACTOR = 3;
+    // Sampling of a large part of table is not cheaper than a plain scan
+    private static final double MAX_SAMPLE_PERCENT = 50;
+    private static final double MIN_SAMPLE_PERCENT = 0.000001;
+
+    // Sample clauses by driver provider ID
+    private static final Map<String, String> SAMPLE_CLAUSES = Map.of(
+        "postgresql", "TABLESAMPLE SYSTEM ({percent})",
+        "db2", "TABLESAMPLE SYSTEM ({percent})",
+        "sqlserver", "TABLESAMPLE ({percent} PERCENT)",
+        "oracle", "SAMPLE BLOCK ({percent})",
+        "snowflake", "SAMPLE SYSTEM ({percent})");
+
+    private WebSQLTableSample() {
+    }
+
+    /**
+     * Returns sample query or null if database doesn't support sampling or table is too small to sample.
+     */
+    @Nullable
+    static String makeSampleQuery(@NotNull DBPDataSource dataSource, @NotNull DBSEntity entity, long tableRowCount, int maxRows) {
+        if (tableRowCount <= 0 || maxRows <= 0) {
+            return null;
+        }
+        double percent = Math.max(MIN_SAMPLE_PERCENT, (double) maxRows * OVERSAMPLING_FACTOR * 100 / tableRowCount);
+        if (percent >= MAX_SAMPLE_PERCENT) {
+            return null;
+        }
+        String sampleClause = getSampleClause(dataSource, BigDecimal.valueOf(percent)
+            .setScale(6, RoundingMode.UP)
+            .stripTrailingZeros()
+            .toPlainString());
+        if (sampleClause == null) {
+            return null;
+        }
+        return "SELECT * FROM " + DBUtils.getObjectFullName(entity, DBPEvaluationContext.DML) + " " + sampleClause;
+    }
+
+    @Nullable
+    private static String getSampleClause(@NotNull DBPDataSource dataSource, @NotNull String percent) {
+        String providerId = dataSource.getContainer().getDriver().getProviderId();
+        String clauseFormat = SAMPLE_CLAUSES.get(CommonUtils.notEmpty(providerId).toLowerCase(Locale.ENGLISH));
+        return clauseFormat == null ? null : clauseFormat.replace("{percent}", percent);
+    }
+}
@@ -63,7 +63,8 @@ public class WebServiceBindingSQL extends WebServiceBindingBase<DBWServiceSQL> i
                     env.getArgument("query"),
                     env.getArgument("position"),
                     env.getArgument("maxResults"),
-                    env.getArgument("simpleMode")
+                    env.getArgument("simpleMode"),
+                    env.getArgument("scriptVersion")
                 )
             )
             .dataFetcher("sqlFormatQuery", env ->
@@ -92,6 +93,21 @@ public class WebServiceBindingSQL extends WebServiceBindingBase<DBWServiceSQL> i
             ).dataFetcher("sqlParseScript", env ->
                 getService(env).parseSqlScript(getSQLProcessor(env), env.getArgument("script"))
             )
+            .dataFetcher("sqlScriptQueryAt", env ->
+                getService(env).getScriptQueryAt(getSQLContext(env), env.getArgument("position"))
+            )
+            .dataFetcher("sqlStatementCacheInfo", env ->
+                getService(env).getStatementCacheInfo(getSQLProcessor(env))
+            )
+            .dataFetcher("sqlResultRowCountEstimate", env ->
+                getService(env).getResultsRowCountEstimate(getSQLContext(env), env.getArgument("resultsId"))
+            )
+            .dataFetcher("sqlResultGroupCounts", env ->
+                getService(env).getResultsGroupCounts(
+                    getSQLContext(env),
+                    env.getArgument("resultsId"),
+                    env.getArgument("columnIndexes"))
+            )
         ;
 
         model.getMutationType()
@@ -130,6 +146,13 @@ public class WebServiceBindingSQL extends WebServiceBindingBase<DBWServiceSQL> i
                     getResultsRow(env, "addedRows"),
                     getDataFormat(env)))
 
+            .dataFetcher("sqlScriptUpdate", env ->
+                getService(env).updateScript(
+                    getSQLContext(env),
+                    env.getArgument("version"),
+                    env.getArgument("script"),
+                    getScriptChanges(env)))
+
             .dataFetcher("asyncSqlExecuteQuery", env ->
                 getService(env).asyncExecuteQuery(
                     getSQLContext(env),
@@ -149,6 +172,26 @@ public class WebServiceBindingSQL extends WebServiceBindingBase<DBWServiceSQL> i
                 getService(env).asyncGetQueryResults(
                     getWebSession(env), env.getArgument("taskId")
                 ))
+            .dataFetcher("asyncSqlExecutePreparedQuery", env ->
+                getService(env).asyncExecutePreparedQuery(
+                    getSQLContext(env),
+                    env.getArgument("sql"),
+                    env.getArgument("parameters"),
+                    getDataFilter(env),
+                    getDataFormat(env)))
+            .dataFetcher("asyncSqlExecuteScript", env ->
+                getService(env).asyncExecuteScript(
+                    getSQLContext(env),
+                    env.getArgument("script"),
+                    getDataFilter(env),
+                    getDataFormat(env),
+                    CommonUtils.toBoolean(env.getArgument("parallel"))))
+            .dataFetcher("asyncSqlExecuteScriptResults", env ->
+                getService(env).asyncGetScriptResults(
+                    getWebSession(env),
+                    env.getArgument("taskId"),
+                    env.getArgument("fromIndex")
+                ))
             .dataFetcher("asyncSqlExplainExecutionPlan", env ->
                 getService(env).asyncSqlExplainExecutionPlan(
                     getSQLContext(env),
@@ -158,6 +201,15 @@ public class WebServiceBindingSQL extends WebServiceBindingBase<DBWServiceSQL> i
             .dataFetcher("asyncSqlExplainExecutionPlanResult", env ->
                 getService(env).asyncSqlExplainExecutionPlanResult(
                     getWebSession(env), env.getArgument("taskId")
+                ))
+            .dataFetcher("asyncSqlRowDataCount", env ->
+                getService(env).asyncSqlRowDataCount(
+                    getSQLContext(env),
+                    env.getArgument("resultsId")
+                ))
+            .dataFetcher("asyncSqlRowDataCountResult", env ->
+                getService(env).asyncSqlRowDataCountResult(
+                    getWebSession(env), env.getArgument("taskId")
                 ));
     }
 
@@ -188,6 +240,14 @@ public class WebServiceBindingSQL extends WebServiceBindingBase<DBWServiceSQL> i
         return getSQLConfiguration(connectionInfo.getSession()).getSQLProcessor(connectionInfo, connect);
     }
 
+    /**
+     * Returns existing SQL processor of connection or null.
+     */
+    @Nullable
+    public static WebSQLProcessor findSQLProcessor(WebConnectionInfo connectionInfo) {
+        return getSQLConfiguration(connectionInfo.getSession()).findSQLProcessor(connectionInfo);
+    }
+
     @NotNull
     public static WebSQLContextInfo getSQLContext(DataFetchingEnvironment env) throws DBWebException {
         WebSQLProcessor processor = getSQLProcessor(env);
@@ -209,6 +269,12 @@ public class WebServiceBindingSQL extends WebServiceBindingBase<DBWServiceSQL> i
         servletContextHandler.addServlet(
             new ServletHolder("sqlResultValueViewer", new WebSQLResultServlet(application, getServiceImpl())),
             application.getServicesURI() + "sql-result-value/*");
+        servletContextHandler.addServlet(
+            new ServletHolder("sqlDialectInfo", new WebSQLDialectServlet(application)),
+            application.getServicesURI() + "sql-dialect/*");
+        servletContextHandler.addServlet(
+            new ServletHolder("sqlResultStream", new WebSQLResultStreamServlet(application)),
+            application.getServicesURI() + "sql-result-stream/*");
     }
 
     private static class WebSQLConfiguration {
@@ -239,6 +305,12 @@ public class WebServiceBindingSQL extends WebServiceBindingBase<DBWServiceSQL> i
             }
         }
 
+        WebSQLProcessor findSQLProcessor(WebConnectionInfo connectionInfo) {
+            synchronized (processors) {
+                return processors.get(connectionInfo);
+            }
+        }
+
         public WebSQLConfiguration dispose() {
             synchronized (processors) {
                 processors.forEach((connectionInfo, processor) -> processor.dispose());
@@ -256,6 +328,14 @@ public class WebServiceBindingSQL extends WebServiceBindingBase<DBWServiceSQL> i
         return filterProps == null ? null : new WebSQLDataFilter(filterProps);
     }
 
+    private static List<WebSQLScriptChange> getScriptChanges(DataFetchingEnvironment env) {
+        List<Map<String, Object>> mapList = env.getArgument("changes");
+        if (mapList == null) {
+            return null;
+        }
+        return mapList.stream().map(WebSQLScriptChange::new).collect(Collectors.toList());
+    }
+
     private static List<WebSQLResultsRow> getResultsRow(DataFetchingEnvironment env, String param) {
         List<Map<String, Object>> mapList = env.getArgument(param);
         if (CommonUtils.isEmpty(mapList)) {
@@ -24,21 +24,23 @@ import io.cloudbeaver.model.session.WebAsyncTaskProcessor;
 import io.cloudbeaver.model.session.WebSession;
 import io.cloudbeaver.service.WebServiceBindingBase;
 import io.cloudbeaver.service.sql.*;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
 import org.jkiss.code.NotNull;
 import org.jkiss.code.Nullable;
 import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.model.DBPDataSource;
+import org.jkiss.dbeaver.model.DBPKeywordType;
+import org.jkiss.dbeaver.model.DBUtils;
 import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
 import org.jkiss.dbeaver.model.exec.DBCException;
 import org.jkiss.dbeaver.model.exec.DBCLogicalOperator;
 import org.jkiss.dbeaver.model.exec.DBExecUtils;
 import org.jkiss.dbeaver.model.navigator.DBNNode;
 import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
-import org.jkiss.dbeaver.model.sql.SQLDialect;
 import org.jkiss.dbeaver.model.sql.SQLQuery;
 import org.jkiss.dbeaver.model.sql.SQLScriptElement;
-import org.jkiss.dbeaver.model.sql.SQLUtils;
 import org.jkiss.dbeaver.model.sql.completion.SQLCompletionAnalyzer;
 import org.jkiss.dbeaver.model.sql.completion.SQLCompletionProposalBase;
 import org.jkiss.dbeaver.model.sql.completion.SQLCompletionRequest;
@@ -54,10 +56,7 @@ import org.jkiss.dbeaver.model.struct.DBSWrapper;
 import org.jkiss.utils.CommonUtils;
 
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -93,44 +92,79 @@ public class WebServiceSQL implements DBWServiceSQL {
     @NotNull
     public WebSQLDialectInfo getDialectInfo(@NotNull WebSQLProcessor processor) throws DBWebException {
         DBPDataSource dataSource = processor.getConnection().getDataSourceContainer().getDataSource();
-        SQLDialect dialect = SQLUtils.getDialectFromDataSource(dataSource);
-        return new WebSQLDialectInfo(dataSource, dialect);
+        if (dataSource == null) {
+            throw new DBWebException("Data source was not found");
+        }
+        return WebSQLDialectInfo.getDialectInfo(dataSource);
     }
 
     @NotNull
     public WebSQLCompletionProposal[] getCompletionProposals(
         @NotNull WebSQLContextInfo sqlContext,
-        @NotNull String query,
+        @Nullable String query,
         Integer position,
         Integer maxResults,
-        Boolean simpleMode) throws DBWebException
+        Boolean simpleMode,
+        @Nullable Integer scriptVersion) throws DBWebException
     {
-        try {
-            DBPDataSource dataSource = sqlContext.getProcessor().getConnection().getDataSourceContainer().getDataSource();
+        if (scriptVersion != null) {
+            // Use context script which is already parsed
+            WebSQLScriptModel scriptModel = sqlContext.getScriptModel();
+            int offset = position == null ? 0 : position;
+            return scriptModel.readScript(offset, (document, activeQuery) -> {
+                if (scriptModel.getVersion() != scriptVersion) {
+                    throw new DBWebException("Script version " + scriptVersion + " doesn't match server version " + scriptModel.getVersion());
+                }
+                return getCompletionProposals(sqlContext, document, offset, activeQuery, maxResults, simpleMode);
+            });
+        }
+        if (query == null) {
+            throw new DBWebException("Query or script version must be specified");
+        }
+        DBPDataSource dataSource = sqlContext.getProcessor().getConnection().getDataSourceContainer().getDataSource();
 
-            Document document = new Document();
-            document.set(query);
+        Document document = new Document();
+        document.set(query);
 
-            WebSQLCompletionContext completionContext = new WebSQLCompletionContext(sqlContext);
+        SQLScriptElement activeQuery;
 
-            SQLScriptElement activeQuery;
-
-            if (position != null) {
-                SQLParserContext parserContext = new SQLParserContext(
-                    sqlContext.getProcessor().getConnection().getDataSource(),
-                    completionContext.getSyntaxManager(),
-                    completionContext.getRuleManager(),
-                    document);
-                activeQuery = SQLScriptParser.extractActiveQuery(parserContext, position, 0);
-            } else {
-                activeQuery = new SQLQuery(dataSource, query);
-            }
+        if (position != null) {
+            WebSQLCompletionContext completionContext = new WebSQLCompletionContext(sqlContext);
+            SQLParserContext parserContext = new SQLParserContext(
+                sqlContext.getProcessor().getConnection().getDataSource(),
+                completionContext.getSyntaxManager(),
+                completionContext.getRuleManager(),
+                document);
+            activeQuery = SQLScriptParser.extractActiveQuery(parserContext, position, 0);
+        } else {
+            activeQuery = new SQLQuery(dataSource, query);
+        }
+        return getCompletionProposals(sqlContext, document, position == null ? 0 : position, activeQuery, maxResults, simpleMode);
+    }
 
+    @NotNull
+    private WebSQLCompletionProposal[] getCompletionProposals(
+        @NotNull WebSQLContextInfo sqlContext,
+        @NotNull Document document,
+        int position,
+        @Nullable SQLScriptElement activeQuery,
+        Integer maxResults,
+        Boolean simpleMode) throws DBWebException
+    {
+        if (maxResults == null) maxResults = 200;
+        // Names of database objects are answered from the connection index.
+        // Analyzer is used for context dependent positions only (aliases, keywords, unknown qualifiers)
+        WebSQLCompletionProposal[] indexProposals = getIndexProposals(sqlContext, document, position, maxResults);
+        if (indexProposals != null) {
+            return indexProposals;
+        }
+        try {
+            WebSQLCompletionContext completionContext = new WebSQLCompletionContext(sqlContext);
 
             SQLCompletionRequest request = new SQLCompletionRequest(
                 completionContext,
                 document,
-                position == null ? 0 : position,
+                position,
                 activeQuery,
                 CommonUtils.getBoolean(simpleMode, false)
             );
@@ -138,21 +172,96 @@ public class WebServiceSQL implements DBWServiceSQL {
             SQLCompletionAnalyzer analyzer = new SQLCompletionAnalyzer(request);
             analyzer.runAnalyzer(sqlContext.getProcessor().getWebSession().getProgressMonitor());
             List<SQLCompletionProposalBase> proposals = analyzer.getProposals();
-            if (maxResults == null) maxResults = 200;
-            if (proposals.size() > maxResults) {
-                proposals = proposals.subList(0, maxResults);
-            }
 
-            WebSQLCompletionProposal[] result = new WebSQLCompletionProposal[proposals.size()];
-            for (int i = 0; i < proposals.size(); i++) {
-                result[i] = new WebSQLCompletionProposal(proposals.get(i));
+            List<WebSQLCompletionProposal> result = new ArrayList<>();
+            for (SQLCompletionProposalBase proposal : proposals) {
+                if (result.size() >= maxResults) {
+                    break;
+                }
+                result.add(new WebSQLCompletionProposal(proposal));
             }
-            return result;
+            return result.toArray(new WebSQLCompletionProposal[0]);
         } catch (DBException e) {
             throw new DBWebException("Error processing SQL proposals", e);
         }
     }
 
+    /**
+     * Completes identifier at position using connection names index. Unqualified names are completed with dialect keywords too.
+     * Returns null if position depends on the query context: index isn't ready, there is no identifier at position,
+     * its qualifier is unknown (e.g. table alias) or index has no matching names.
+     */
+    @Nullable
+    private WebSQLCompletionProposal[] getIndexProposals(
+        @NotNull WebSQLContextInfo sqlContext,
+        @NotNull Document document,
+        int position,
+        int maxResults)
+    {
+        WebSQLIdentifierIndex index = sqlContext.getProcessor().getIdentifierIndex();
+        if (!index.isReady()) {
+            return null;
+        }
+        try {
+            int wordStart = position;
+            while (wordStart > 0 && isIdentifierPart(document.getChar(wordStart - 1))) {
+                wordStart--;
+            }
+            String prefix = document.get(wordStart, position - wordStart);
+            String qualifier = null;
+            DBPDataSource dataSource = sqlContext.getProcessor().getConnection().getDataSource();
+            if (wordStart > 0 && document.getChar(wordStart - 1) == '.') {
+                int qualifierStart = wordStart - 1;
+                while (qualifierStart > 0 && (isIdentifierPart(document.getChar(qualifierStart - 1)) || document.getChar(qualifierStart - 1) == '"')) {
+                    qualifierStart--;
+                }
+                if (qualifierStart == wordStart - 1) {
+                    return null;
+                }
+                qualifier = DBUtils.getUnQuotedIdentifier(dataSource, document.get(qualifierStart, wordStart - 1 - qualifierStart));
+            } else if (prefix.isEmpty()) {
+                // Proposals for an empty word depend on the query clause
+                return null;
+            }
+            List<WebSQLIdentifierIndex.Match> matches = index.search(qualifier, prefix, maxResults);
+            if (CommonUtils.isEmpty(matches)) {
+                return null;
+            }
+            List<WebSQLCompletionProposal> result = new ArrayList<>();
+            for (WebSQLIdentifierIndex.Match match : matches) {
+                result.add(new WebSQLCompletionProposal(
+                    match.getName(),
+                    match.getType(),
+                    DBUtils.getQuotedIdentifier(dataSource, match.getName()),
+                    wordStart,
+                    position - wordStart,
+                    match.getScore(),
+                    match.getIcon()));
+            }
+            if (qualifier == null) {
+                boolean lowerCase = prefix.equals(prefix.toLowerCase(Locale.ENGLISH));
+                for (String keyword : dataSource.getSQLDialect().getMatchedKeywords(prefix)) {
+                    int score = WebSQLIdentifierIndex.getMatchScore(keyword.toLowerCase(Locale.ENGLISH), prefix.toLowerCase(Locale.ENGLISH));
+                    if (score > 0) {
+                        String keywordText = lowerCase ? keyword.toLowerCase(Locale.ENGLISH) : keyword.toUpperCase(Locale.ENGLISH);
+                        result.add(new WebSQLCompletionProposal(
+                            keywordText, DBPKeywordType.KEYWORD, keywordText, wordStart, position - wordStart, score, null));
+                    }
+                }
+                result.sort((p1, p2) -> Integer.compare(p2.getScore(), p1.getScore()));
+            }
+            return result.size() > maxResults ?
+                result.subList(0, maxResults).toArray(new WebSQLCompletionProposal[0]) :
+                result.toArray(new WebSQLCompletionProposal[0]);
+        } catch (BadLocationException e) {
+            return null;
+        }
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
     @NotNull
     public String formatQuery(@NotNull WebSQLContextInfo sqlContext, @NotNull String query) throws DBWebException {
         DBPDataSource dataSource = sqlContext.getProcessor().getConnection().getDataSourceContainer().getDataSource();
@@ -321,7 +430,9 @@ public class WebServiceSQL implements DBWServiceSQL {
                 }
             }
         };
-        return contextInfo.getProcessor().getWebSession().createAndRunAsyncTask("SQL execute", runnable);
+        WebAsyncTaskInfo taskInfo = contextInfo.getProcessor().getWebSession().createAndRunAsyncTask("SQL execute", runnable);
+        setTaskTimeout(contextInfo, taskInfo);
+        return taskInfo;
     }
 
     @Override
@@ -357,7 +468,20 @@ public class WebServiceSQL implements DBWServiceSQL {
                 }
             }
         };
-        return contextInfo.getProcessor().getWebSession().createAndRunAsyncTask("Read data from container " + nodePath, runnable);
+        WebAsyncTaskInfo taskInfo = contextInfo.getProcessor().getWebSession().createAndRunAsyncTask("Read data from container " + nodePath, runnable);
+        setTaskTimeout(contextInfo, taskInfo);
+        return taskInfo;
+    }
+
+    /**
+     * Cancels task if it exceeds statement timeout.
+     * Statement timeout is also set on the statement level but not all drivers support it.
+     */
+    private void setTaskTimeout(@NotNull WebSQLContextInfo contextInfo, @NotNull WebAsyncTaskInfo taskInfo) {
+        int statementTimeout = contextInfo.getProcessor().getStatementTimeout();
+        if (statementTimeout > 0) {
+            contextInfo.getProcessor().getWebSession().setAsyncTaskTimeout(taskInfo, statementTimeout * 1000L);
+        }
     }
 
     @Override
@@ -369,6 +493,83 @@ public class WebServiceSQL implements DBWServiceSQL {
         return null;
     }
 
+    @NotNull
+    @Override
+    public WebAsyncTaskInfo asyncExecutePreparedQuery(
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String sql,
+        @Nullable Map<String, Object> parameters,
+        @Nullable WebSQLDataFilter filter,
+        @Nullable WebDataFormat dataFormat)
+    {
+        WebAsyncTaskProcessor<String> runnable = new WebAsyncTaskProcessor<String>() {
+            @Override
+            public void run(DBRProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+                try {
+                    monitor.beginTask("Execute query", 1);
+                    monitor.subTask("Process prepared query " + sql);
+                    WebSQLExecuteInfo executeResults = contextInfo.getProcessor().processPreparedQuery(
+                        monitor, contextInfo, sql, parameters, filter, dataFormat);
+                    this.result = executeResults.getStatusMessage();
+                    this.extendedResults = executeResults;
+                } catch (Throwable e) {
+                    throw new InvocationTargetException(e);
+                } finally {
+                    monitor.done();
+                }
+            }
+        };
+        WebAsyncTaskInfo taskInfo = contextInfo.getProcessor().getWebSession().createAndRunAsyncTask("SQL execute", runnable);
+        setTaskTimeout(contextInfo, taskInfo);
+        return taskInfo;
+    }
+
+    @Override
+    public WebSQLStatementCacheInfo getStatementCacheInfo(@NotNull WebSQLProcessor processor) {
+        return processor.getStatementCacheInfo();
+    }
+
+    ////////////////////////////////////////////////////
+    // Script execution
+
+    @Override
+    public WebAsyncTaskInfo asyncExecuteScript(
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String script,
+        @Nullable WebSQLDataFilter filter,
+        @Nullable WebDataFormat dataFormat,
+        boolean parallel)
+    {
+        WebSQLScriptExecutor scriptExecutor = new WebSQLScriptExecutor(contextInfo, script, filter, dataFormat, parallel);
+        WebAsyncTaskProcessor<String> runnable = new WebAsyncTaskProcessor<String>() {
+            @Override
+            public void run(DBRProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+                try {
+                    scriptExecutor.execute(monitor);
+                    this.result = scriptExecutor.getResults(0).size() + " of " + scriptExecutor.getQueryCount() + " queries executed";
+                } catch (DBException e) {
+                    throw new InvocationTargetException(e);
+                }
+            }
+        };
+        runnable.setExtendedResults(scriptExecutor);
+        WebAsyncTaskInfo taskInfo = contextInfo.getProcessor().getWebSession().createAndRunAsyncTask("SQL script execute", runnable);
+        // Make results of finished queries available while the script is running
+        taskInfo.setExtendedResult(scriptExecutor);
+        scriptExecutor.setTaskInfo(taskInfo);
+        setTaskTimeout(contextInfo, taskInfo);
+        return taskInfo;
+    }
+
+    @Override
+    public List<WebSQLScriptQueryResults> asyncGetScriptResults(@NotNull WebSession webSession, @NotNull String taskId, @Nullable Integer fromIndex) throws DBWebException {
+        WebAsyncTaskInfo taskStatus = webSession.asyncTaskStatus(taskId, false);
+        if (!(taskStatus.getExtendedResult() instanceof WebSQLScriptExecutor)) {
+            throw new DBWebException("Task '" + taskId + "' is not a script execution task");
+        }
+        return ((WebSQLScriptExecutor) taskStatus.getExtendedResult()).getResults(fromIndex == null ? 0 : fromIndex);
+    }
+
     ////////////////////////////////////////////////////
     // Explain plan
 
@@ -402,6 +603,86 @@ public class WebServiceSQL implements DBWServiceSQL {
         return null;
     }
 
+    ////////////////////////////////////////////////////
+    // Row count
+
+    @Override
+    public WebSQLResultsRowCount getResultsRowCountEstimate(@NotNull WebSQLContextInfo contextInfo, @NotNull String resultsId) throws DBWebException {
+        WebSQLProcessor processor = contextInfo.getProcessor();
+        return processor.getRowCountEstimate(processor.getWebSession().getProgressMonitor(), contextInfo, resultsId);
+    }
+
+    @Override
+    public List<WebSQLResultsGroupCount> getResultsGroupCounts(
+        @NotNull WebSQLContextInfo contextInfo,
+        @NotNull String resultsId,
+        @NotNull List<Integer> columnIndexes) throws DBWebException
+    {
+        WebSQLProcessor processor = contextInfo.getProcessor();
+        try {
+            return processor.getResultsGroupCounts(processor.getWebSession().getProgressMonitor(), contextInfo, resultsId, columnIndexes);
+        } catch (DBException e) {
+            throw new DBWebException("Error counting results groups", e);
+        }
+    }
+
+    @Override
+    public WebAsyncTaskInfo asyncSqlRowDataCount(@NotNull WebSQLContextInfo contextInfo, @NotNull String resultsId) throws DBWebException {
+        WebAsyncTaskProcessor<Long> runnable = new WebAsyncTaskProcessor<Long>() {
+            @Override
+            public void run(DBRProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+                try {
+                    monitor.beginTask("Count rows", 1);
+                    this.result = contextInfo.getProcessor().getRowDataCount(monitor, contextInfo, resultsId);
+                } catch (Throwable e) {
+                    throw new InvocationTargetException(e);
+                } finally {
+                    monitor.done();
+                }
+            }
+        };
+        // Counting may scan the whole table so let interactive queries go first
+        WebAsyncTaskInfo taskInfo = contextInfo.getProcessor().getWebSession().createAndRunAsyncTask("Count rows", runnable, Job.DECAF);
+        setTaskTimeout(contextInfo, taskInfo);
+        return taskInfo;
+    }
+
+    @Override
+    public Long asyncSqlRowDataCountResult(@NotNull WebSession webSession, @NotNull String taskId) throws DBWebException {
+        WebAsyncTaskInfo taskStatus = webSession.asyncTaskStatus(taskId, false);
+        if (taskStatus != null) {
+            return (Long) taskStatus.getResult();
+        }
+        return null;
+    }
+
+    @Override
+    public WebSQLScriptState updateScript(
+        @NotNull WebSQLContextInfo contextInfo,
+        @Nullable Integer version,
+        @Nullable String script,
+        @Nullable List<WebSQLScriptChange> changes) throws DBWebException
+    {
+        WebSQLScriptModel scriptModel = contextInfo.getScriptModel();
+        synchronized (scriptModel) {
+            if (script != null) {
+                scriptModel.setScript(script);
+            } else if (changes != null) {
+                if (version == null || version != scriptModel.getVersion()) {
+                    // Client must resend the whole script
+                    throw new DBWebException("Script version " + version + " doesn't match server version " + scriptModel.getVersion());
+                }
+                scriptModel.applyChanges(changes);
+            }
+            return scriptModel.getState();
+        }
+    }
+
+    @Override
+    public WebSQLQueryInfo getScriptQueryAt(@NotNull WebSQLContextInfo contextInfo, int position) {
+        return contextInfo.getScriptModel().getQueryAt(position);
+    }
+
     @Override
     public WebSQLScriptInfo parseSqlScript(@NotNull WebSQLProcessor processor, @NotNull String sqlScript) throws DBWebException {
         DBPDataSource dataSource = processor.getConnection().getDataSourceContainer().getDataSource();
@@ -21,8 +21,14 @@ import io.cloudbeaver.DBWebException;
 import io.cloudbeaver.WebAction;
 import io.cloudbeaver.model.WebAsyncTaskInfo;
 import io.cloudbeaver.model.session.WebSession;
+import io.cloudbeaver.service.data.transfer.impl.WebDataTransferCopyParameters;
+import io.cloudbeaver.service.data.transfer.impl.WebDataTransferImportParameters;
+import io.cloudbeaver.service.data.transfer.impl.WebDataTransferImportProgress;
+import io.cloudbeaver.service.data.transfer.impl.WebDataTransferLoadProgress;
 import io.cloudbeaver.service.data.transfer.impl.WebDataTransferParameters;
+import io.cloudbeaver.service.data.transfer.impl.WebDataTransferStoreInfo;
 import io.cloudbeaver.service.data.transfer.impl.WebDataTransferStreamProcessor;
+import io.cloudbeaver.service.data.transfer.impl.WebDataTransferTableProgress;
 import io.cloudbeaver.service.sql.WebSQLContextInfo;
 import io.cloudbeaver.service.sql.WebSQLProcessor;
 
@@ -42,12 +48,46 @@ public interface DBWServiceDataTransfer extends DBWService {
         String containerNodePath,
         WebDataTransferParameters parameters) throws DBWebException;
 
+    @WebAction
+    WebAsyncTaskInfo dataTransferExportDataFromContainers(
+        WebSQLProcessor sqlProcessor,
+        List<String> containerNodePaths,
+        WebDataTransferParameters parameters,
+        Integer parallelism) throws DBWebException;
+
+    @WebAction
+    List<WebDataTransferTableProgress> dataTransferExportProgress(WebSession session, String taskId) throws DBWebException;
+
     @WebAction
     WebAsyncTaskInfo dataTransferExportDataFromResults(
         WebSQLContextInfo sqlContextInfo,
         String resultsId,
         WebDataTransferParameters parameters) throws DBWebException;
 
+    @WebAction
+    WebAsyncTaskInfo dataTransferImportData(
+        WebSQLProcessor sqlProcessor,
+        String containerNodePath,
+        String fileId,
+        WebDataTransferImportParameters parameters) throws DBWebException;
+
+    @WebAction
+    WebDataTransferImportProgress dataTransferImportProgress(WebSession session, String taskId) throws DBWebException;
+
+    @WebAction
+    WebAsyncTaskInfo dataTransferCopyTable(
+        WebSQLProcessor sqlProcessor,
+        String containerNodePath,
+        WebSQLProcessor targetSqlProcessor,
+        String targetContainerNodePath,
+        WebDataTransferCopyParameters parameters) throws DBWebException;
+
+    @WebAction
+    WebDataTransferLoadProgress dataTransferCopyProgress(WebSession session, String taskId) throws DBWebException;
+
+    @WebAction
+    WebDataTransferStoreInfo dataTransferStoreInfo(WebSession session) throws DBWebException;
+
     @WebAction
     Boolean dataTransferRemoveDataFile(WebSession session, String dataFileId) throws DBWebException;
 
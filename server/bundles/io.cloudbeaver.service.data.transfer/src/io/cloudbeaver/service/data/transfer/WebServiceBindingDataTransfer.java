@@ -20,8 +20,12 @@ import io.cloudbeaver.server.CBApplication;
 import io.cloudbeaver.service.DBWBindingContext;
 import io.cloudbeaver.service.DBWServiceBindingServlet;
 import io.cloudbeaver.service.WebServiceBindingBase;
+import io.cloudbeaver.service.data.transfer.impl.WebDataTransferCopyParameters;
+import io.cloudbeaver.service.data.transfer.impl.WebDataTransferImportParameters;
+import io.cloudbeaver.service.data.transfer.impl.WebDataTransferImportServlet;
 import io.cloudbeaver.service.data.transfer.impl.WebDataTransferParameters;
 import io.cloudbeaver.service.data.transfer.impl.WebDataTransferServlet;
+import io.cloudbeaver.service.data.transfer.impl.WebDataTransferStreamServlet;
 import io.cloudbeaver.service.data.transfer.impl.WebServiceDataTransfer;
 import io.cloudbeaver.service.sql.WebServiceBindingSQL;
 import org.eclipse.jetty.servlet.ServletContextHandler;
@@ -47,23 +51,64 @@ public class WebServiceBindingDataTransfer extends WebServiceBindingBase<DBWServ
                 env.getArgument("containerNodePath"),
                 new WebDataTransferParameters(env.getArgument("parameters"))
             ))
+            .dataFetcher("dataTransferExportDataFromContainers", env -> getService(env).dataTransferExportDataFromContainers(
+                WebServiceBindingSQL.getSQLProcessor(env),
+                env.getArgument("containerNodePaths"),
+                new WebDataTransferParameters(env.getArgument("parameters")),
+                env.getArgument("parallelism")
+            ))
+            .dataFetcher("dataTransferExportProgress", env -> getService(env).dataTransferExportProgress(
+                getWebSession(env),
+                env.getArgument("taskId")
+            ))
             .dataFetcher("dataTransferExportDataFromResults", env -> getService(env).dataTransferExportDataFromResults(
                 WebServiceBindingSQL.getSQLContext(env),
                 env.getArgument("resultsId"),
                 new WebDataTransferParameters(env.getArgument("parameters"))
             ))
+            .dataFetcher("dataTransferStoreInfo", env -> getService(env).dataTransferStoreInfo(getWebSession(env)))
             .dataFetcher("dataTransferRemoveDataFile", env -> getService(env).dataTransferRemoveDataFile(
                 getWebSession(env),
                 env.getArgument("dataFileId")
             ))
         ;
 
+        model.getMutationType()
+            .dataFetcher("dataTransferImportData", env -> getService(env).dataTransferImportData(
+                WebServiceBindingSQL.getSQLProcessor(env),
+                env.getArgument("containerNodePath"),
+                env.getArgument("fileId"),
+                new WebDataTransferImportParameters(env.getArgument("parameters"))
+            ))
+            .dataFetcher("dataTransferCopyTable", env -> getService(env).dataTransferCopyTable(
+                WebServiceBindingSQL.getSQLProcessor(env),
+                env.getArgument("containerNodePath"),
+                WebServiceBindingSQL.getSQLProcessor(getWebConnection(getWebSession(env), env.getArgument("targetConnectionId"))),
+                env.getArgument("targetContainerNodePath"),
+                new WebDataTransferCopyParameters(env.getArgument("parameters"))
+            ));
+        model.getQueryType()
+            .dataFetcher("dataTransferImportProgress", env -> getService(env).dataTransferImportProgress(
+                getWebSession(env),
+                env.getArgument("taskId")
+            ))
+            .dataFetcher("dataTransferCopyProgress", env -> getService(env).dataTransferCopyProgress(
+                getWebSession(env),
+                env.getArgument("taskId")
+            ));
     }
 
     @Override
     public void addServlets(CBApplication application, ServletContextHandler servletContextHandler) {
+        ServletHolder dataTransferServlet = new ServletHolder("dataTransfer", new WebDataTransferServlet(application, (WebServiceDataTransfer) getServiceImpl()));
+        // Data files are sent asynchronously
+        dataTransferServlet.setAsyncSupported(true);
+        servletContextHandler.addServlet(dataTransferServlet, application.getServicesURI() + "data/*");
+        servletContextHandler.addServlet(
+            new ServletHolder("dataTransferStream", new WebDataTransferStreamServlet(application, (WebServiceDataTransfer) getServiceImpl())),
+            application.getServicesURI() + "data-stream/*");
         servletContextHandler.addServlet(
-            new ServletHolder("dataTransfer", new WebDataTransferServlet(application, getServiceImpl())),
-            application.getServicesURI() + "data/*");
+            new ServletHolder("dataTransferImport", new WebDataTransferImportServlet(application, (WebServiceDataTransfer) getServiceImpl())),
+            application.getServicesURI() + "data-import/*");
     }
 }
@@ -0,0 +1,408 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.exporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Arrow IPC streaming format writer.
+ * Each batch is written as a record batch. String columns with repeating values in the first batch are
+ * dictionary encoded: new values are sent as delta dictionary batches, dictionary which grows bigger than
+ * the limit is replaced with the dictionary of the current batch.
+ */
+class ArrowStreamWriter {
+
+    private static final int METADATA_VERSION_V5 = 4;
+
+    private static final int HEADER_SCHEMA = 1;
+    private static final int HEADER_DICTIONARY_BATCH = 2;
+    private static final int HEADER_RECORD_BATCH = 3;
+
+    private static final int TYPE_INT = 2;
+    private static final int TYPE_FLOATING_POINT = 3;
+    private static final int TYPE_BINARY = 4;
+    private static final int TYPE_UTF8 = 5;
+    private static final int TYPE_BOOL = 6;
+    private static final int TYPE_DECIMAL = 7;
+    private static final int TYPE_DATE = 8;
+    private static final int TYPE_TIMESTAMP = 10;
+
+    private static final int PRECISION_SINGLE = 1;
+    private static final int PRECISION_DOUBLE = 2;
+    private static final int DATE_UNIT_DAY = 0;
+    private static final int TIME_UNIT_MICROSECOND = 2;
+    private static final String TIME_ZONE_UTC = "UTC";
+
+    private final OutputStream out;
+    private final List<ColumnarColumn> columns;
+    private final long maxDictionarySize;
+    // Dictionary of each dictionary encoded column (others are null)
+    private ArrowDictionary[] dictionaries;
+
+    ArrowStreamWriter(OutputStream out, List<ColumnarColumn> columns, long maxDictionarySize) {
+        this.out = out;
+        this.columns = columns;
+        this.maxDictionarySize = maxDictionarySize;
+    }
+
+    void writeBatch(ColumnarBatch batch) throws IOException {
+        if (dictionaries == null) {
+            // Encoding of columns is chosen by the first batch
+            dictionaries = new ArrowDictionary[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).buildDictionary(maxDictionarySize) != null) {
+                    dictionaries[i] = new ArrowDictionary();
+                }
+            }
+            writeSchema();
+        }
+
+        int[][] dictionaryIndexes = new int[columns.size()][];
+        for (int i = 0; i < columns.size(); i++) {
+            if (dictionaries[i] != null) {
+                dictionaryIndexes[i] = updateDictionary(i, dictionaries[i], columns.get(i));
+            }
+        }
+
+        ArrowBody body = new ArrowBody();
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnarColumn column = columns.get(i);
+            body.addNode(column.getRowCount(), column.getNullCount());
+            body.addValidity(column);
+            if (dictionaryIndexes[i] != null) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(column.getRowCount() * 4);
+                for (int index : dictionaryIndexes[i]) {
+                    writeIntLE(buffer, index);
+                }
+                body.addBuffer(buffer);
+            } else {
+                body.addValues(column);
+            }
+        }
+        writeMessage(HEADER_RECORD_BATCH, body.makeRecordBatch(batch.getRowCount()), body.data);
+    }
+
+    /**
+     * Writes end of stream marker. Doesn't close the underlying stream.
+     */
+    void finish() throws IOException {
+        if (dictionaries == null) {
+            dictionaries = new ArrowDictionary[columns.size()];
+            writeSchema();
+        }
+        writeIntLE(out, -1);
+        writeIntLE(out, 0);
+        out.flush();
+    }
+
+    private void writeSchema() throws IOException {
+        List<FlatBufferWriter.Table> fields = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnarColumn column = columns.get(i);
+            FlatBufferWriter.Table field = new FlatBufferWriter.Table()
+                .addString(0, column.getName())
+                .addBool(1, true)
+                .addTables(5, Collections.emptyList());
+            addFieldType(field, column);
+            if (dictionaries[i] != null) {
+                field.addTable(4, new FlatBufferWriter.Table()
+                    .addLong(0, i)
+                    .addTable(1, new FlatBufferWriter.Table().addInt(0, 32).addBool(1, true))
+                    .addBool(2, false));
+            }
+            fields.add(field);
+        }
+        FlatBufferWriter.Table schema = new FlatBufferWriter.Table()
+            .addShort(0, 0)
+            .addTables(1, fields);
+        writeMessage(HEADER_SCHEMA, schema, new byte[0]);
+    }
+
+    private static void addFieldType(FlatBufferWriter.Table field, ColumnarColumn column) {
+        int typeId;
+        FlatBufferWriter.Table type = new FlatBufferWriter.Table();
+        switch (column.getType()) {
+            case BOOLEAN:
+                typeId = TYPE_BOOL;
+                break;
+            case INT32:
+                typeId = TYPE_INT;
+                type.addInt(0, 32).addBool(1, true);
+                break;
+            case INT64:
+                typeId = TYPE_INT;
+                type.addInt(0, 64).addBool(1, true);
+                break;
+            case FLOAT:
+                typeId = TYPE_FLOATING_POINT;
+                type.addShort(0, PRECISION_SINGLE);
+                break;
+            case DOUBLE:
+                typeId = TYPE_FLOATING_POINT;
+                type.addShort(0, PRECISION_DOUBLE);
+                break;
+            case DECIMAL:
+                typeId = TYPE_DECIMAL;
+                type.addInt(0, column.getPrecision()).addInt(1, column.getScale()).addInt(2, 128);
+                break;
+            case DATE:
+                typeId = TYPE_DATE;
+                type.addShort(0, DATE_UNIT_DAY);
+                break;
+            case TIMESTAMP:
+                // Timestamp without time zone is a wall clock time
+                typeId = TYPE_TIMESTAMP;
+                type.addShort(0, TIME_UNIT_MICROSECOND);
+                break;
+            case TIMESTAMP_TZ:
+                typeId = TYPE_TIMESTAMP;
+                type.addShort(0, TIME_UNIT_MICROSECOND).addString(1, TIME_ZONE_UTC);
+                break;
+            case BINARY:
+                typeId = TYPE_BINARY;
+                break;
+            default:
+                typeId = TYPE_UTF8;
+                break;
+        }
+        field.addByte(2, typeId).addTable(3, type);
+    }
+
+    /**
+     * Adds batch values to the column dictionary and writes dictionary batch with new values.
+     * Returns dictionary indexes of batch rows.
+     */
+    private int[] updateDictionary(int columnIndex, ArrowDictionary dictionary, ColumnarColumn column) throws IOException {
+        int rowCount = column.getRowCount();
+        int[] indexes = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            if (!column.isNull(i)) {
+                indexes[i] = dictionary.values.addValue(column.getBytes(i));
+            }
+        }
+        boolean replace = false;
+        if (dictionary.values.getDataSize() > maxDictionarySize && dictionary.sentCount > 0) {
+            // Replace dictionary instead of growing it
+            dictionary.values.clear();
+            dictionary.sentCount = 0;
+            replace = true;
+            for (int i = 0; i < rowCount; i++) {
+                if (!column.isNull(i)) {
+                    indexes[i] = dictionary.values.addValue(column.getBytes(i));
+                }
+            }
+        }
+        int newCount = dictionary.values.getSize() - dictionary.sentCount;
+        if (newCount == 0 && dictionary.written) {
+            return indexes;
+        }
+        ArrowBody body = new ArrowBody();
+        body.addNode(newCount, 0);
+        body.addBuffer(new ByteArrayOutputStream());
+        ByteArrayOutputStream offsets = new ByteArrayOutputStream((newCount + 1) * 4);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        writeIntLE(offsets, 0);
+        for (int i = dictionary.sentCount; i < dictionary.values.getSize(); i++) {
+            byte[] value = dictionary.values.getValue(i);
+            data.write(value, 0, value.length);
+            writeIntLE(offsets, data.size());
+        }
+        body.addBuffer(offsets);
+        body.addBuffer(data);
+        FlatBufferWriter.Table dictionaryBatch = new FlatBufferWriter.Table()
+            .addLong(0, columnIndex)
+            .addTable(1, body.makeRecordBatch(newCount))
+            .addBool(2, dictionary.written && !replace);
+        writeMessage(HEADER_DICTIONARY_BATCH, dictionaryBatch, body.data);
+        dictionary.sentCount = dictionary.values.getSize();
+        dictionary.written = true;
+        return indexes;
+    }
+
+    private void writeMessage(int headerType, FlatBufferWriter.Table header, byte[] body) throws IOException {
+        FlatBufferWriter.Table message = new FlatBufferWriter.Table()
+            .addShort(0, METADATA_VERSION_V5)
+            .addByte(1, headerType)
+            .addTable(2, header)
+            .addLong(3, body.length);
+        // Metadata size is a multiple of 8
+        byte[] metadata = FlatBufferWriter.serialize(message);
+        writeIntLE(out, -1);
+        writeIntLE(out, metadata.length);
+        out.write(metadata);
+        out.write(body);
+    }
+
+    private static void writeIntLE(OutputStream out, int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        out.write((value >>> 16) & 0xFF);
+        out.write((value >>> 24) & 0xFF);
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        out.write((value >>> 16) & 0xFF);
+        out.write((value >>> 24) & 0xFF);
+    }
+
+    private static void writeLongLE(ByteArrayOutputStream out, long value) {
+        writeIntLE(out, (int) value);
+        writeIntLE(out, (int) (value >>> 32));
+    }
+
+    private static class ArrowDictionary {
+        private final ColumnarColumn.ColumnarDictionary values = new ColumnarColumn.ColumnarDictionary();
+        private int sentCount;
+        private boolean written;
+    }
+
+    /**
+     * Record batch body: field nodes and 8-byte aligned buffers
+     */
+    private static class ArrowBody {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final List<Long> nodes = new ArrayList<>();
+        private final List<Long> buffers = new ArrayList<>();
+        private byte[] data;
+
+        void addNode(long length, long nullCount) {
+            nodes.add(length);
+            nodes.add(nullCount);
+        }
+
+        void addBuffer(ByteArrayOutputStream value) {
+            buffers.add((long) buffer.size());
+            buffers.add((long) value.size());
+            buffer.write(value.toByteArray(), 0, value.size());
+            while (buffer.size() % 8 != 0) {
+                buffer.write(0);
+            }
+        }
+
+        void addValidity(ColumnarColumn column) {
+            ByteArrayOutputStream bitmap = new ByteArrayOutputStream();
+            // Validity bitmap may be omitted if there are no nulls
+            if (column.getNullCount() > 0) {
+                writeBitmap(bitmap, column, true);
+            }
+            addBuffer(bitmap);
+        }
+
+        void addValues(ColumnarColumn column) {
+            int rowCount = column.getRowCount();
+            switch (column.getType()) {
+                case BOOLEAN: {
+                    ByteArrayOutputStream bitmap = new ByteArrayOutputStream((rowCount + 7) / 8);
+                    writeBitmap(bitmap, column, false);
+                    addBuffer(bitmap);
+                    break;
+                }
+                case INT32:
+                case DATE:
+                case FLOAT: {
+                    ByteArrayOutputStream values = new ByteArrayOutputStream(rowCount * 4);
+                    for (int i = 0; i < rowCount; i++) {
+                        writeIntLE(values, column.getType() == ColumnarType.FLOAT ?
+                            Float.floatToIntBits((float) column.getDouble(i)) : (int) column.getLong(i));
+                    }
+                    addBuffer(values);
+                    break;
+                }
+                case INT64:
+                case TIMESTAMP:
+                case TIMESTAMP_TZ:
+                case DOUBLE: {
+                    ByteArrayOutputStream values = new ByteArrayOutputStream(rowCount * 8);
+                    for (int i = 0; i < rowCount; i++) {
+                        writeLongLE(values, column.getType() == ColumnarType.DOUBLE ?
+                            Double.doubleToLongBits(column.getDouble(i)) : column.getLong(i));
+                    }
+                    addBuffer(values);
+                    break;
+                }
+                case DECIMAL: {
+                    ByteArrayOutputStream values = new ByteArrayOutputStream(rowCount * ColumnarColumn.DECIMAL_BYTES);
+                    for (int i = 0; i < rowCount; i++) {
+                        byte[] value = column.getBytes(i);
+                        // Little-endian two's complement
+                        for (int b = ColumnarColumn.DECIMAL_BYTES - 1; b >= 0; b--) {
+                            values.write(value == null ? 0 : value[b]);
+                        }
+                    }
+                    addBuffer(values);
+                    break;
+                }
+                default: {
+                    ByteArrayOutputStream offsets = new ByteArrayOutputStream((rowCount + 1) * 4);
+                    ByteArrayOutputStream data = new ByteArrayOutputStream();
+                    writeIntLE(offsets, 0);
+                    for (int i = 0; i < rowCount; i++) {
+                        byte[] value = column.getBytes(i);
+                        if (value != null) {
+                            data.write(value, 0, value.length);
+                        }
+                        writeIntLE(offsets, data.size());
+                    }
+                    addBuffer(offsets);
+                    addBuffer(data);
+                    break;
+                }
+            }
+        }
+
+        FlatBufferWriter.Table makeRecordBatch(long length) {
+            data = buffer.toByteArray();
+            return new FlatBufferWriter.Table()
+                .addLong(0, length)
+                .addLongPairs(1, toArray(nodes))
+                .addLongPairs(2, toArray(buffers));
+        }
+
+        private static void writeBitmap(ByteArrayOutputStream bitmap, ColumnarColumn column, boolean validity) {
+            int bits = 0;
+            int rowCount = column.getRowCount();
+            for (int i = 0; i < rowCount; i++) {
+                boolean set = validity ? !column.isNull(i) : column.getLong(i) != 0;
+                if (set) {
+                    bits |= 1 << (i % 8);
+                }
+                if (i % 8 == 7) {
+                    bitmap.write(bits);
+                    bits = 0;
+                }
+            }
+            if (rowCount % 8 != 0) {
+                bitmap.write(bits);
+            }
+        }
+
+        private static long[] toArray(List<Long> values) {
+            long[] result = new long[values.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = values.get(i);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.exporter;
+
+import java.util.List;
+
+/**
+ * Rows buffered by columnar exporter (Parquet row group or Arrow record batch)
+ */
+class ColumnarBatch {
+
+    private final List<ColumnarColumn> columns;
+    private int rowCount;
+
+    ColumnarBatch(List<ColumnarColumn> columns) {
+        this.columns = columns;
+    }
+
+    List<ColumnarColumn> getColumns() {
+        return columns;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    void addRow(Object[] values) {
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).add(values[i]);
+        }
+        rowCount++;
+    }
+
+    long getEstimatedSize() {
+        long size = 0;
+        for (ColumnarColumn column : columns) {
+            size += column.getEstimatedSize();
+        }
+        return size;
+    }
+
+    void clear() {
+        for (ColumnarColumn column : columns) {
+            column.clear();
+        }
+        rowCount = 0;
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.exporter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.*;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.*;
+
+/**
+ * Typed values of a single column of columnar export batch.
+ * Values are kept in primitive arrays, null values are kept as zeroes (or null byte arrays).
+ */
+class ColumnarColumn {
+
+    static final int DECIMAL_BYTES = 16;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final String name;
+    private final ColumnarType type;
+    private final int precision;
+    private final int scale;
+
+    private int rowCount;
+    private int nullCount;
+    private boolean[] nulls = new boolean[INITIAL_CAPACITY];
+    private long[] longs;
+    private double[] doubles;
+    private byte[][] bytes;
+    private long bytesSize;
+
+    ColumnarColumn(String name, ColumnarType type, int precision, int scale) {
+        this.name = name;
+        this.type = type;
+        this.precision = precision;
+        this.scale = scale;
+        switch (type) {
+            case FLOAT:
+            case DOUBLE:
+                doubles = new double[INITIAL_CAPACITY];
+                break;
+            case DECIMAL:
+            case STRING:
+            case BINARY:
+                bytes = new byte[INITIAL_CAPACITY][];
+                break;
+            default:
+                longs = new long[INITIAL_CAPACITY];
+                break;
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    ColumnarType getType() {
+        return type;
+    }
+
+    int getPrecision() {
+        return precision;
+    }
+
+    int getScale() {
+        return scale;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    int getNullCount() {
+        return nullCount;
+    }
+
+    boolean isNull(int row) {
+        return nulls[row];
+    }
+
+    long getLong(int row) {
+        return longs[row];
+    }
+
+    double getDouble(int row) {
+        return doubles[row];
+    }
+
+    /**
+     * UTF-8 string, binary value or big-endian two's complement decimal unscaled value (16 bytes)
+     */
+    byte[] getBytes(int row) {
+        return bytes[row];
+    }
+
+    /**
+     * Approximate memory used by column values
+     */
+    long getEstimatedSize() {
+        return rowCount * 9L + bytesSize;
+    }
+
+    void clear() {
+        if (bytes != null) {
+            Arrays.fill(bytes, 0, rowCount, null);
+        }
+        rowCount = 0;
+        nullCount = 0;
+        bytesSize = 0;
+    }
+
+    /**
+     * Adds value converted to the column type.
+     * @throws IllegalArgumentException if value can't be converted
+     */
+    void add(Object value) {
+        ensureCapacity();
+        if (value == null) {
+            nulls[rowCount] = true;
+            nullCount++;
+            if (longs != null) {
+                longs[rowCount] = 0;
+            } else if (doubles != null) {
+                doubles[rowCount] = 0;
+            }
+            rowCount++;
+            return;
+        }
+        nulls[rowCount] = false;
+        switch (type) {
+            case BOOLEAN:
+                longs[rowCount] = toBoolean(value) ? 1 : 0;
+                break;
+            case INT32: {
+                long longValue = toLong(value);
+                if (longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Value " + longValue + " of column '" + name + "' is out of 32-bit integer range");
+                }
+                longs[rowCount] = longValue;
+                break;
+            }
+            case INT64:
+                longs[rowCount] = toLong(value);
+                break;
+            case FLOAT:
+            case DOUBLE:
+                doubles[rowCount] = value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+                break;
+            case DECIMAL:
+                setBytes(toDecimal(value));
+                break;
+            case DATE:
+                longs[rowCount] = toLocalDateTime(value).toLocalDate().toEpochDay();
+                break;
+            case TIMESTAMP:
+                // Wall clock time is written as is, as if it was UTC time
+                longs[rowCount] = toEpochMicros(toLocalDateTime(value).toInstant(ZoneOffset.UTC));
+                break;
+            case TIMESTAMP_TZ:
+                longs[rowCount] = toEpochMicros(toInstant(value));
+                break;
+            case BINARY:
+                setBytes(value instanceof byte[] ? (byte[]) value : value.toString().getBytes(StandardCharsets.UTF_8));
+                break;
+            default:
+                setBytes(value.toString().getBytes(StandardCharsets.UTF_8));
+                break;
+        }
+        rowCount++;
+    }
+
+    /**
+     * Builds dictionary of column values. Returns null if column has too many distinct values.
+     */
+    ColumnarDictionary buildDictionary(long maxDictionarySize) {
+        if (type != ColumnarType.STRING) {
+            return null;
+        }
+        int valueCount = rowCount - nullCount;
+        ColumnarDictionary dictionary = new ColumnarDictionary();
+        int[] indexes = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            if (nulls[i]) {
+                continue;
+            }
+            indexes[i] = dictionary.addValue(bytes[i]);
+            // Dictionary is not worth it if most values are unique
+            if (dictionary.getSize() > valueCount / 2 + 1 || dictionary.getDataSize() > maxDictionarySize) {
+                return null;
+            }
+        }
+        dictionary.setIndexes(indexes);
+        return dictionary;
+    }
+
+    private void setBytes(byte[] value) {
+        bytes[rowCount] = value;
+        bytesSize += value.length + 16;
+    }
+
+    private void ensureCapacity() {
+        if (rowCount < nulls.length) {
+            return;
+        }
+        int newCapacity = nulls.length * 2;
+        nulls = Arrays.copyOf(nulls, newCapacity);
+        if (longs != null) {
+            longs = Arrays.copyOf(longs, newCapacity);
+        }
+        if (doubles != null) {
+            doubles = Arrays.copyOf(doubles, newCapacity);
+        }
+        if (bytes != null) {
+            bytes = Arrays.copyOf(bytes, newCapacity);
+        }
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof Number) {
+            return ((Number) value).intValue() != 0;
+        }
+        String strValue = value.toString().trim();
+        return strValue.equalsIgnoreCase("true") || strValue.equals("1") || strValue.equalsIgnoreCase("yes");
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        } else if (value instanceof BigInteger) {
+            return ((BigInteger) value).longValueExact();
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).longValueExact();
+        } else if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.parseLong(value.toString().trim());
+    }
+
+    private byte[] toDecimal(Object value) {
+        BigDecimal decimal;
+        if (value instanceof BigDecimal) {
+            decimal = (BigDecimal) value;
+        } else if (value instanceof BigInteger) {
+            decimal = new BigDecimal((BigInteger) value);
+        } else {
+            decimal = new BigDecimal(value.toString().trim());
+        }
+        BigInteger unscaled = decimal.setScale(scale, RoundingMode.HALF_UP).unscaledValue();
+        if (unscaled.bitLength() >= DECIMAL_BYTES * 8) {
+            throw new IllegalArgumentException("Value " + decimal + " of column '" + name + "' is out of decimal range");
+        }
+        byte[] valueBytes = unscaled.toByteArray();
+        byte[] result = new byte[DECIMAL_BYTES];
+        // Sign extension
+        if (unscaled.signum() < 0) {
+            Arrays.fill(result, (byte) 0xFF);
+        }
+        System.arraycopy(valueBytes, 0, result, DECIMAL_BYTES - valueBytes.length, valueBytes.length);
+        return result;
+    }
+
+    static long toEpochMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1000);
+    }
+
+    /**
+     * Returns point in time of time zone aware value.
+     * Values without time zone (local date times and strings) are treated as local time of the server time zone,
+     * the same way JDBC drivers convert them to timestamps.
+     */
+    static Instant toInstant(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toInstant();
+        } else if (value instanceof Date && !(value instanceof java.sql.Date) && !(value instanceof java.sql.Time)) {
+            return ((Date) value).toInstant();
+        } else if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toInstant();
+        } else if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toInstant();
+        } else if (value instanceof Instant) {
+            return (Instant) value;
+        } else if (value instanceof TemporalAccessor && ((TemporalAccessor) value).isSupported(ChronoField.INSTANT_SECONDS)) {
+            return Instant.from((TemporalAccessor) value);
+        } else if (value instanceof CharSequence) {
+            try {
+                return OffsetDateTime.parse(value.toString().trim().replace(' ', 'T')).toInstant();
+            } catch (DateTimeParseException e) {
+                // No offset in string value
+            }
+        }
+        return toLocalDateTime(value).atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    /**
+     * Returns wall clock time of time zone naive value.
+     * Time zone aware values keep their own local time, instants are converted to the server time zone.
+     */
+    static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        } else if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate().atStartOfDay();
+        } else if (value instanceof java.sql.Time) {
+            return ((java.sql.Time) value).toLocalTime().atDate(LocalDate.ofEpochDay(0));
+        } else if (value instanceof Date) {
+            return new Timestamp(((Date) value).getTime()).toLocalDateTime();
+        } else if (value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        } else if (value instanceof LocalDate) {
+            return ((LocalDate) value).atStartOfDay();
+        } else if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toLocalDateTime();
+        } else if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toLocalDateTime();
+        } else if (value instanceof Instant) {
+            return LocalDateTime.ofInstant((Instant) value, ZoneId.systemDefault());
+        } else if (value instanceof TemporalAccessor) {
+            return LocalDateTime.from((TemporalAccessor) value);
+        }
+        String strValue = value.toString().trim();
+        if (strValue.length() <= 10) {
+            return LocalDate.parse(strValue).atStartOfDay();
+        }
+        try {
+            // Parsed directly, conversion through timestamp would shift times in DST gaps of the server time zone
+            return LocalDateTime.parse(strValue.replace(' ', 'T'));
+        } catch (DateTimeParseException e) {
+            return Timestamp.valueOf(strValue).toLocalDateTime();
+        }
+    }
+
+    /**
+     * Distinct values of string column
+     */
+    static class ColumnarDictionary {
+        private final Map<ByteBuffer, Integer> valueIndexes = new HashMap<>();
+        private final List<byte[]> values = new ArrayList<>();
+        private long dataSize;
+        private int[] indexes;
+
+        int addValue(byte[] value) {
+            Integer index = valueIndexes.get(ByteBuffer.wrap(value));
+            if (index == null) {
+                index = values.size();
+                valueIndexes.put(ByteBuffer.wrap(value), index);
+                values.add(value);
+                dataSize += value.length;
+            }
+            return index;
+        }
+
+        int getSize() {
+            return values.size();
+        }
+
+        long getDataSize() {
+            return dataSize;
+        }
+
+        byte[] getValue(int index) {
+            return values.get(index);
+        }
+
+        /**
+         * Dictionary index of each column row (0 for null values)
+         */
+        int[] getIndexes() {
+            return indexes;
+        }
+
+        void setIndexes(int[] indexes) {
+            this.indexes = indexes;
+        }
+
+        void clear() {
+            valueIndexes.clear();
+            values.clear();
+            dataSize = 0;
+            indexes = null;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.exporter;
+
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
+import org.jkiss.dbeaver.model.data.DBDContent;
+import org.jkiss.dbeaver.model.data.DBDContentStorage;
+import org.jkiss.dbeaver.model.data.DBDValue;
+import org.jkiss.dbeaver.model.exec.DBCResultSet;
+import org.jkiss.dbeaver.model.exec.DBCSession;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.tools.transfer.stream.IStreamDataExporterSite;
+import org.jkiss.dbeaver.tools.transfer.stream.exporter.StreamExporterAbstract;
+import org.jkiss.utils.CommonUtils;
+import org.jkiss.utils.IOUtils;
+
+import java.io.*;
+import java.sql.Types;
+import java.time.DateTimeException;
+import java.util.*;
+
+/**
+ * Base class of columnar exporters.
+ * Rows are buffered in typed column vectors and written by batches of limited size,
+ * so exporter memory doesn't depend on the number of exported rows.
+ */
+abstract class ColumnarDataExporter extends StreamExporterAbstract {
+
+    // Max memory used by buffered rows (MB)
+    static final String PROP_BATCH_SIZE = "batchSize";
+
+    private static final int DEFAULT_BATCH_SIZE = 16;
+    private static final int MAX_BATCH_SIZE = 256;
+    static final long MAX_DICTIONARY_SIZE = 1024 * 1024;
+
+    private DBDAttributeBinding[] attributes;
+    private ColumnarBatch batch;
+    private long maxBatchSize;
+    private OutputStream outputStream;
+
+    @Override
+    public void init(IStreamDataExporterSite site) throws DBException {
+        super.init(site);
+        int batchSize = CommonUtils.toInt(site.getProperties().get(PROP_BATCH_SIZE), DEFAULT_BATCH_SIZE);
+        maxBatchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE)) * 1024L * 1024L;
+    }
+
+    @Override
+    public void exportHeader(DBCSession session) throws DBException, IOException {
+        attributes = getSite().getAttributes();
+        List<ColumnarColumn> columns = new ArrayList<>(attributes.length);
+        Set<String> columnNames = new HashSet<>();
+        for (DBDAttributeBinding attribute : attributes) {
+            // Column names must be unique
+            String name = attribute.getLabel();
+            if (CommonUtils.isEmpty(name)) {
+                name = attribute.getName();
+            }
+            String uniqueName = name;
+            for (int i = 1; !columnNames.add(uniqueName); i++) {
+                uniqueName = name + "_" + i;
+            }
+            ColumnarType type = getColumnType(attribute);
+            columns.add(new ColumnarColumn(
+                uniqueName,
+                type,
+                CommonUtils.toInt(attribute.getPrecision()),
+                CommonUtils.toInt(attribute.getScale())));
+        }
+        batch = new ColumnarBatch(columns);
+        outputStream = new BufferedOutputStream(getSite().getOutputStream(), 64 * 1024);
+        startExport(outputStream, columns);
+    }
+
+    @Override
+    public void exportRow(DBCSession session, DBCResultSet resultSet, Object[] row) throws DBException, IOException {
+        List<ColumnarColumn> columns = batch.getColumns();
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getColumnValue(session, attributes[i], columns.get(i).getType(), row[i]);
+        }
+        try {
+            batch.addRow(values);
+        } catch (IllegalArgumentException | ArithmeticException | DateTimeException e) {
+            throw new DBException("Error converting row value: " + e.getMessage(), e);
+        }
+        if (batch.getEstimatedSize() >= maxBatchSize) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    @Override
+    public void exportFooter(DBRProgressMonitor monitor) throws DBException, IOException {
+        if (batch == null) {
+            return;
+        }
+        if (batch.getRowCount() > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+        finishExport();
+        outputStream.flush();
+    }
+
+    protected abstract void startExport(OutputStream stream, List<ColumnarColumn> columns) throws IOException;
+
+    protected abstract void writeBatch(ColumnarBatch batch) throws IOException;
+
+    protected abstract void finishExport() throws IOException;
+
+    private Object getColumnValue(DBCSession session, DBDAttributeBinding attribute, ColumnarType type, Object value) throws DBException, IOException {
+        if (value instanceof DBDContent) {
+            DBDContent content = (DBDContent) value;
+            try {
+                DBDContentStorage storage = content.isNull() ? null : content.getContents(session.getProgressMonitor());
+                if (storage == null) {
+                    return null;
+                }
+                if (type == ColumnarType.BINARY) {
+                    try (InputStream contentStream = storage.getContentStream()) {
+                        return contentStream.readAllBytes();
+                    }
+                }
+                try (Reader contentReader = storage.getContentReader()) {
+                    return IOUtils.readToString(contentReader);
+                }
+            } finally {
+                content.release();
+            }
+        }
+        if (value instanceof DBDValue && ((DBDValue) value).isNull()) {
+            return null;
+        }
+        if (type == ColumnarType.STRING && value != null && !(value instanceof String)) {
+            return getValueDisplayString(attribute, value);
+        }
+        return value;
+    }
+
+    /**
+     * Numbers without exact precision (e.g. unconstrained NUMBER) are exported as strings to avoid precision loss.
+     */
+    private static ColumnarType getColumnType(DBDAttributeBinding attribute) {
+        String typeName = CommonUtils.notEmpty(attribute.getTypeName()).toLowerCase(Locale.ENGLISH);
+        boolean unsigned = typeName.contains("unsigned");
+        switch (attribute.getTypeID()) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return ColumnarType.BOOLEAN;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+                return ColumnarType.INT32;
+            case Types.INTEGER:
+                return unsigned ? ColumnarType.INT64 : ColumnarType.INT32;
+            case Types.BIGINT:
+                return unsigned ? ColumnarType.STRING : ColumnarType.INT64;
+            case Types.REAL:
+                return ColumnarType.FLOAT;
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return ColumnarType.DOUBLE;
+            case Types.NUMERIC:
+            case Types.DECIMAL: {
+                int precision = CommonUtils.toInt(attribute.getPrecision());
+                int scale = CommonUtils.toInt(attribute.getScale());
+                return precision > 0 && precision <= 38 && scale >= 0 && scale <= precision ?
+                    ColumnarType.DECIMAL : ColumnarType.STRING;
+            }
+            case Types.DATE:
+                return ColumnarType.DATE;
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return ColumnarType.TIMESTAMP_TZ;
+            case Types.TIMESTAMP:
+                // Some drivers report time zone aware types (timestamptz, datetimeoffset) as plain timestamps
+                return typeName.contains("tz") || typeName.contains("time zone") || typeName.contains("offset") ?
+                    ColumnarType.TIMESTAMP_TZ : ColumnarType.TIMESTAMP;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return ColumnarType.BINARY;
+            default:
+                return ColumnarType.STRING;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.exporter;
+
+/**
+ * Physical type of columnar export column
+ */
+enum ColumnarType {
+    BOOLEAN,
+    INT32,
+    INT64,
+    FLOAT,
+    DOUBLE,
+    // 128-bit decimal with column precision and scale
+    DECIMAL,
+    // Days since epoch
+    DATE,
+    // Microseconds since epoch of local date time (wall clock time, not adjusted to UTC)
+    TIMESTAMP,
+    // Microseconds since epoch of UTC instant (time zone aware timestamp)
+    TIMESTAMP_TZ,
+    STRING,
+    BINARY
+}
@@ -0,0 +1,44 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.exporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Arrow IPC stream exporter. Each batch of rows is written as a record batch.
+ */
+public class DataExporterArrow extends ColumnarDataExporter {
+
+    private ArrowStreamWriter writer;
+
+    @Override
+    protected void startExport(OutputStream stream, List<ColumnarColumn> columns) {
+        writer = new ArrowStreamWriter(stream, columns, MAX_DICTIONARY_SIZE);
+    }
+
+    @Override
+    protected void writeBatch(ColumnarBatch batch) throws IOException {
+        writer.writeBatch(batch);
+    }
+
+    @Override
+    protected void finishExport() throws IOException {
+        writer.finish();
+    }
+}
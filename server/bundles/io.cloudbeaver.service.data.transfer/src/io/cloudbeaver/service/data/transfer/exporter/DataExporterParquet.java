@@ -0,0 +1,57 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.exporter;
+
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.tools.transfer.stream.IStreamDataExporterSite;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Parquet exporter. Each batch of rows is written as a row group.
+ */
+public class DataExporterParquet extends ColumnarDataExporter {
+
+    private static final String PROP_COMPRESSION = "compression";
+
+    private boolean compress;
+    private ParquetFileWriter writer;
+
+    @Override
+    public void init(IStreamDataExporterSite site) throws DBException {
+        super.init(site);
+        compress = !"none".equalsIgnoreCase(CommonUtils.toString(site.getProperties().get(PROP_COMPRESSION), "gzip"));
+    }
+
+    @Override
+    protected void startExport(OutputStream stream, List<ColumnarColumn> columns) throws IOException {
+        writer = new ParquetFileWriter(stream, columns, compress, MAX_DICTIONARY_SIZE, "CloudBeaver");
+    }
+
+    @Override
+    protected void writeBatch(ColumnarBatch batch) throws IOException {
+        writer.writeRowGroup(batch);
+    }
+
+    @Override
+    protected void finishExport() throws IOException {
+        writer.finish();
+    }
+}
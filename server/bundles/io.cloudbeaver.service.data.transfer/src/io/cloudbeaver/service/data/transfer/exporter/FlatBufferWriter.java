@@ -0,0 +1,253 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.exporter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Minimal FlatBuffers serializer (used for Arrow IPC metadata).
+ * Buffer is written front to back: each table is preceded by its vtable and followed by its children,
+ * so all offsets point forward. All positions are aligned relative to the buffer start.
+ */
+class FlatBufferWriter {
+
+    private byte[] data = new byte[256];
+    private int size;
+
+    /**
+     * Serializes root table
+     */
+    static byte[] serialize(Table root) {
+        FlatBufferWriter writer = new FlatBufferWriter();
+        writer.putInt(0);
+        int rootPosition = writer.writeTable(root);
+        writer.patchOffset(0, rootPosition);
+        writer.align(8);
+        return Arrays.copyOf(writer.data, writer.size);
+    }
+
+    private int writeTable(Table table) {
+        List<Field> fields = new ArrayList<>(table.fields);
+        fields.sort(Comparator.comparingInt(f -> f.id));
+        int fieldCount = fields.isEmpty() ? 0 : fields.get(fields.size() - 1).id + 1;
+
+        // Inline layout. Table start is 8-aligned so field alignment may be computed relative to table start.
+        int[] fieldOffsets = new int[fields.size()];
+        int inlineSize = 4;
+        for (int i = 0; i < fields.size(); i++) {
+            int fieldSize = fields.get(i).size;
+            inlineSize = (inlineSize + fieldSize - 1) / fieldSize * fieldSize;
+            fieldOffsets[i] = inlineSize;
+            inlineSize += fieldSize;
+        }
+
+        align(2);
+        int vtablePosition = size;
+        putShort(4 + 2 * fieldCount);
+        putShort(inlineSize);
+        short[] vtable = new short[fieldCount];
+        for (int i = 0; i < fields.size(); i++) {
+            vtable[fields.get(i).id] = (short) fieldOffsets[i];
+        }
+        for (short offset : vtable) {
+            putShort(offset);
+        }
+
+        align(8);
+        int tablePosition = size;
+        putInt(tablePosition - vtablePosition);
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            align(field.size);
+            switch (field.size) {
+                case 1:
+                    putByte((int) field.value);
+                    break;
+                case 2:
+                    putShort((int) field.value);
+                    break;
+                case 4:
+                    // Scalar value or placeholder of child offset
+                    putInt((int) field.value);
+                    break;
+                default:
+                    putLong(field.value);
+                    break;
+            }
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            if (field.child != null) {
+                int childPosition = writeChild(field.child);
+                patchOffset(tablePosition + fieldOffsets[i], childPosition);
+            }
+        }
+        return tablePosition;
+    }
+
+    private int writeChild(Object child) {
+        if (child instanceof Table) {
+            return writeTable((Table) child);
+        } else if (child instanceof String) {
+            byte[] bytes = ((String) child).getBytes(StandardCharsets.UTF_8);
+            align(4);
+            int position = size;
+            putInt(bytes.length);
+            for (byte b : bytes) {
+                putByte(b);
+            }
+            putByte(0);
+            return position;
+        } else if (child instanceof long[]) {
+            // Vector of structs which consist of longs pairs
+            long[] values = (long[]) child;
+            // Struct elements must be 8-aligned
+            while (size % 8 != 4) {
+                putByte(0);
+            }
+            int position = size;
+            putInt(values.length / 2);
+            for (long value : values) {
+                putLong(value);
+            }
+            return position;
+        } else {
+            @SuppressWarnings("unchecked")
+            List<Table> tables = (List<Table>) child;
+            align(4);
+            int position = size;
+            putInt(tables.size());
+            int elementsPosition = size;
+            for (int i = 0; i < tables.size(); i++) {
+                putInt(0);
+            }
+            for (int i = 0; i < tables.size(); i++) {
+                int tablePosition = writeTable(tables.get(i));
+                patchOffset(elementsPosition + i * 4, tablePosition);
+            }
+            return position;
+        }
+    }
+
+    private void patchOffset(int position, int target) {
+        int offset = target - position;
+        data[position] = (byte) offset;
+        data[position + 1] = (byte) (offset >>> 8);
+        data[position + 2] = (byte) (offset >>> 16);
+        data[position + 3] = (byte) (offset >>> 24);
+    }
+
+    private void align(int alignment) {
+        while (size % alignment != 0) {
+            putByte(0);
+        }
+    }
+
+    private void putByte(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[size++] = (byte) value;
+    }
+
+    private void putShort(int value) {
+        putByte(value);
+        putByte(value >>> 8);
+    }
+
+    private void putInt(int value) {
+        putShort(value);
+        putShort(value >>> 16);
+    }
+
+    private void putLong(long value) {
+        putInt((int) value);
+        putInt((int) (value >>> 32));
+    }
+
+    /**
+     * FlatBuffers table. Fields are identified by their schema ids.
+     */
+    static class Table {
+        private final List<Field> fields = new ArrayList<>();
+
+        Table addByte(int id, int value) {
+            fields.add(new Field(id, 1, value, null));
+            return this;
+        }
+
+        Table addBool(int id, boolean value) {
+            return addByte(id, value ? 1 : 0);
+        }
+
+        Table addShort(int id, int value) {
+            fields.add(new Field(id, 2, value, null));
+            return this;
+        }
+
+        Table addInt(int id, int value) {
+            fields.add(new Field(id, 4, value, null));
+            return this;
+        }
+
+        Table addLong(int id, long value) {
+            fields.add(new Field(id, 8, value, null));
+            return this;
+        }
+
+        Table addTable(int id, Table value) {
+            fields.add(new Field(id, 4, 0, value));
+            return this;
+        }
+
+        Table addString(int id, String value) {
+            fields.add(new Field(id, 4, 0, value));
+            return this;
+        }
+
+        Table addTables(int id, List<Table> value) {
+            fields.add(new Field(id, 4, 0, value));
+            return this;
+        }
+
+        /**
+         * Vector of structs of two longs (stored as pairs of flat array values)
+         */
+        Table addLongPairs(int id, long[] value) {
+            fields.add(new Field(id, 4, 0, value));
+            return this;
+        }
+    }
+
+    private static class Field {
+        private final int id;
+        private final int size;
+        private final long value;
+        private final Object child;
+
+        Field(int id, int size, long value, Object child) {
+            this.id = id;
+            this.size = size;
+            this.value = value;
+            this.child = child;
+        }
+    }
+}
@@ -0,0 +1,480 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.exporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Parquet file writer.
+ * Each batch is written as a row group with one data page per column chunk.
+ * String columns with repeating values are dictionary encoded.
+ * All columns are optional (nullable), nested types are not supported.
+ */
+class ParquetFileWriter {
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+    // Parquet format enums
+    private static final int TYPE_BOOLEAN = 0;
+    private static final int TYPE_INT32 = 1;
+    private static final int TYPE_INT64 = 2;
+    private static final int TYPE_FLOAT = 4;
+    private static final int TYPE_DOUBLE = 5;
+    private static final int TYPE_BYTE_ARRAY = 6;
+    private static final int TYPE_FIXED_LEN_BYTE_ARRAY = 7;
+
+    private static final int CONVERTED_UTF8 = 0;
+    private static final int CONVERTED_DECIMAL = 5;
+    private static final int CONVERTED_DATE = 6;
+    private static final int CONVERTED_TIMESTAMP_MICROS = 10;
+
+    private static final int LOGICAL_TYPE_TIMESTAMP = 8;
+    private static final int TIME_UNIT_MICROS = 2;
+
+    private static final int REPETITION_OPTIONAL = 1;
+
+    private static final int ENCODING_PLAIN = 0;
+    private static final int ENCODING_RLE = 3;
+    private static final int ENCODING_RLE_DICTIONARY = 8;
+
+    private static final int CODEC_UNCOMPRESSED = 0;
+    private static final int CODEC_GZIP = 2;
+
+    private static final int PAGE_DATA = 0;
+    private static final int PAGE_DICTIONARY = 2;
+
+    private final PositionOutputStream out;
+    private final List<ColumnarColumn> columns;
+    private final boolean compress;
+    private final long maxDictionarySize;
+    private final String createdBy;
+    private final List<RowGroupInfo> rowGroups = new ArrayList<>();
+    private long totalRows;
+
+    ParquetFileWriter(OutputStream out, List<ColumnarColumn> columns, boolean compress, long maxDictionarySize, String createdBy) throws IOException {
+        this.out = new PositionOutputStream(out);
+        this.columns = columns;
+        this.compress = compress;
+        this.maxDictionarySize = maxDictionarySize;
+        this.createdBy = createdBy;
+        this.out.write(MAGIC);
+    }
+
+    void writeRowGroup(ColumnarBatch batch) throws IOException {
+        RowGroupInfo rowGroup = new RowGroupInfo();
+        rowGroup.rowCount = batch.getRowCount();
+        for (ColumnarColumn column : batch.getColumns()) {
+            rowGroup.chunks.add(writeColumnChunk(column));
+        }
+        rowGroups.add(rowGroup);
+        totalRows += rowGroup.rowCount;
+    }
+
+    /**
+     * Writes file footer. Doesn't close the underlying stream.
+     */
+    void finish() throws IOException {
+        byte[] footer = makeFileMetaData();
+        out.write(footer);
+        writeIntLE(out, footer.length);
+        out.write(MAGIC);
+        out.flush();
+    }
+
+    private ColumnChunkInfo writeColumnChunk(ColumnarColumn column) throws IOException {
+        ColumnChunkInfo chunk = new ColumnChunkInfo();
+        chunk.column = column;
+        chunk.valueCount = column.getRowCount();
+
+        ColumnarColumn.ColumnarDictionary dictionary = column.buildDictionary(maxDictionarySize);
+        if (dictionary != null) {
+            ByteArrayOutputStream dictionaryPage = new ByteArrayOutputStream();
+            for (int i = 0; i < dictionary.getSize(); i++) {
+                byte[] value = dictionary.getValue(i);
+                writeIntLE(dictionaryPage, value.length);
+                dictionaryPage.write(value);
+            }
+            chunk.dictionaryPageOffset = out.getPosition();
+            writePage(chunk, PAGE_DICTIONARY, dictionaryPage.toByteArray(), dictionary.getSize(), ENCODING_PLAIN);
+        }
+
+        ByteArrayOutputStream dataPage = new ByteArrayOutputStream();
+        // Definition levels (1 - value is present, 0 - null) with 4-byte length prefix
+        int rowCount = column.getRowCount();
+        int[] definitionLevels = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            definitionLevels[i] = column.isNull(i) ? 0 : 1;
+        }
+        byte[] levelsData = encodeHybrid(definitionLevels, rowCount, 1);
+        writeIntLE(dataPage, levelsData.length);
+        dataPage.write(levelsData);
+        if (dictionary != null) {
+            int[] indexes = new int[rowCount - column.getNullCount()];
+            int valueCount = 0;
+            for (int i = 0; i < rowCount; i++) {
+                if (!column.isNull(i)) {
+                    indexes[valueCount++] = dictionary.getIndexes()[i];
+                }
+            }
+            int bitWidth = Math.max(1, 32 - Integer.numberOfLeadingZeros(dictionary.getSize() - 1));
+            dataPage.write(bitWidth);
+            dataPage.write(encodeHybrid(indexes, valueCount, bitWidth));
+        } else {
+            writePlainValues(dataPage, column);
+        }
+        chunk.dataPageOffset = out.getPosition();
+        writePage(chunk, PAGE_DATA, dataPage.toByteArray(), rowCount, dictionary != null ? ENCODING_RLE_DICTIONARY : ENCODING_PLAIN);
+        chunk.encodings = dictionary != null ?
+            new int[] { ENCODING_PLAIN, ENCODING_RLE, ENCODING_RLE_DICTIONARY } :
+            new int[] { ENCODING_PLAIN, ENCODING_RLE };
+        return chunk;
+    }
+
+    private void writePage(ColumnChunkInfo chunk, int pageType, byte[] pageData, int valueCount, int encoding) throws IOException {
+        byte[] compressedData = pageData;
+        if (compress) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(pageData.length / 2 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                gzip.write(pageData);
+            }
+            compressedData = buffer.toByteArray();
+        }
+        ThriftCompactWriter header = new ThriftCompactWriter();
+        header.writeI32(1, pageType);
+        header.writeI32(2, pageData.length);
+        header.writeI32(3, compressedData.length);
+        if (pageType == PAGE_DICTIONARY) {
+            header.beginStruct(7);
+            header.writeI32(1, valueCount);
+            header.writeI32(2, encoding);
+            header.endStruct();
+        } else {
+            header.beginStruct(5);
+            header.writeI32(1, valueCount);
+            header.writeI32(2, encoding);
+            header.writeI32(3, ENCODING_RLE);
+            header.writeI32(4, ENCODING_RLE);
+            header.endStruct();
+        }
+        byte[] headerData = header.finish();
+        out.write(headerData);
+        out.write(compressedData);
+        chunk.uncompressedSize += headerData.length + pageData.length;
+        chunk.compressedSize += headerData.length + compressedData.length;
+    }
+
+    private static void writePlainValues(ByteArrayOutputStream buffer, ColumnarColumn column) {
+        int rowCount = column.getRowCount();
+        if (column.getType() == ColumnarType.BOOLEAN) {
+            int bits = 0, bitCount = 0;
+            for (int i = 0; i < rowCount; i++) {
+                if (column.isNull(i)) {
+                    continue;
+                }
+                if (column.getLong(i) != 0) {
+                    bits |= 1 << bitCount;
+                }
+                if (++bitCount == 8) {
+                    buffer.write(bits);
+                    bits = 0;
+                    bitCount = 0;
+                }
+            }
+            if (bitCount > 0) {
+                buffer.write(bits);
+            }
+            return;
+        }
+        for (int i = 0; i < rowCount; i++) {
+            if (column.isNull(i)) {
+                continue;
+            }
+            switch (column.getType()) {
+                case INT32:
+                case DATE:
+                    writeIntLE(buffer, (int) column.getLong(i));
+                    break;
+                case INT64:
+                case TIMESTAMP:
+                case TIMESTAMP_TZ:
+                    writeLongLE(buffer, column.getLong(i));
+                    break;
+                case FLOAT:
+                    writeIntLE(buffer, Float.floatToIntBits((float) column.getDouble(i)));
+                    break;
+                case DOUBLE:
+                    writeLongLE(buffer, Double.doubleToLongBits(column.getDouble(i)));
+                    break;
+                case DECIMAL:
+                    // Fixed length big-endian two's complement
+                    buffer.write(column.getBytes(i), 0, ColumnarColumn.DECIMAL_BYTES);
+                    break;
+                default: {
+                    byte[] value = column.getBytes(i);
+                    writeIntLE(buffer, value.length);
+                    buffer.write(value, 0, value.length);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * RLE/bit-packing hybrid encoding. Runs of 8+ equal values are RLE encoded, other values are bit-packed by groups of 8.
+     */
+    static byte[] encodeHybrid(int[] values, int count, int bitWidth) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        int packedGroups = 0;
+        int i = 0;
+        while (i < count) {
+            int runEnd = i + 1;
+            while (runEnd < count && values[runEnd] == values[i]) {
+                runEnd++;
+            }
+            if (runEnd - i >= 8) {
+                if (packedGroups > 0) {
+                    writeBitPackedRun(buffer, packed, packedGroups);
+                    packed.reset();
+                    packedGroups = 0;
+                }
+                writeUnsignedVarInt(buffer, (runEnd - i) << 1);
+                int value = values[i];
+                for (int b = 0; b < (bitWidth + 7) / 8; b++) {
+                    buffer.write((value >>> (b * 8)) & 0xFF);
+                }
+                i = runEnd;
+            } else {
+                // Group of 8 values. The last group is padded with zeroes.
+                long bits = 0;
+                int bitPos = 0;
+                for (int k = 0; k < 8; k++) {
+                    long value = i + k < count ? values[i + k] & 0xFFFFFFFFL : 0;
+                    bits |= value << bitPos;
+                    bitPos += bitWidth;
+                    while (bitPos >= 8) {
+                        packed.write((int) (bits & 0xFF));
+                        bits >>>= 8;
+                        bitPos -= 8;
+                    }
+                }
+                packedGroups++;
+                i += 8;
+            }
+        }
+        if (packedGroups > 0) {
+            writeBitPackedRun(buffer, packed, packedGroups);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void writeBitPackedRun(ByteArrayOutputStream buffer, ByteArrayOutputStream packed, int groupCount) {
+        writeUnsignedVarInt(buffer, (groupCount << 1) | 1);
+        buffer.write(packed.toByteArray(), 0, packed.size());
+    }
+
+    private byte[] makeFileMetaData() {
+        ThriftCompactWriter writer = new ThriftCompactWriter();
+        writer.writeI32(1, 1);
+        // Schema: root element and one element per column
+        writer.beginList(2, ThriftCompactWriter.TYPE_STRUCT, columns.size() + 1);
+        writer.beginListStruct();
+        writer.writeString(4, "schema");
+        writer.writeI32(5, columns.size());
+        writer.endStruct();
+        for (ColumnarColumn column : columns) {
+            writer.beginListStruct();
+            writer.writeI32(1, getPhysicalType(column.getType()));
+            if (column.getType() == ColumnarType.DECIMAL) {
+                writer.writeI32(2, ColumnarColumn.DECIMAL_BYTES);
+            }
+            writer.writeI32(3, REPETITION_OPTIONAL);
+            writer.writeString(4, column.getName());
+            switch (column.getType()) {
+                case STRING:
+                    writer.writeI32(6, CONVERTED_UTF8);
+                    break;
+                case DATE:
+                    writer.writeI32(6, CONVERTED_DATE);
+                    break;
+                case TIMESTAMP:
+                    // Converted type TIMESTAMP_MICROS means UTC adjusted timestamp, so only logical type is written
+                    writeTimestampLogicalType(writer, false);
+                    break;
+                case TIMESTAMP_TZ:
+                    writer.writeI32(6, CONVERTED_TIMESTAMP_MICROS);
+                    writeTimestampLogicalType(writer, true);
+                    break;
+                case DECIMAL:
+                    writer.writeI32(6, CONVERTED_DECIMAL);
+                    writer.writeI32(7, column.getScale());
+                    writer.writeI32(8, column.getPrecision());
+                    break;
+                default:
+                    break;
+            }
+            writer.endStruct();
+        }
+        writer.writeI64(3, totalRows);
+        writer.beginList(4, ThriftCompactWriter.TYPE_STRUCT, rowGroups.size());
+        for (RowGroupInfo rowGroup : rowGroups) {
+            writer.beginListStruct();
+            writer.beginList(1, ThriftCompactWriter.TYPE_STRUCT, rowGroup.chunks.size());
+            long totalSize = 0;
+            for (ColumnChunkInfo chunk : rowGroup.chunks) {
+                long chunkOffset = chunk.dictionaryPageOffset >= 0 ? chunk.dictionaryPageOffset : chunk.dataPageOffset;
+                writer.beginListStruct();
+                writer.writeI64(2, chunkOffset);
+                writer.beginStruct(3);
+                writer.writeI32(1, getPhysicalType(chunk.column.getType()));
+                writer.beginList(2, ThriftCompactWriter.TYPE_I32, chunk.encodings.length);
+                for (int encoding : chunk.encodings) {
+                    writer.writeListI32(encoding);
+                }
+                writer.beginList(3, ThriftCompactWriter.TYPE_BINARY, 1);
+                writer.writeListString(chunk.column.getName());
+                writer.writeI32(4, compress ? CODEC_GZIP : CODEC_UNCOMPRESSED);
+                writer.writeI64(5, chunk.valueCount);
+                writer.writeI64(6, chunk.uncompressedSize);
+                writer.writeI64(7, chunk.compressedSize);
+                writer.writeI64(9, chunk.dataPageOffset);
+                if (chunk.dictionaryPageOffset >= 0) {
+                    writer.writeI64(11, chunk.dictionaryPageOffset);
+                }
+                writer.endStruct();
+                writer.endStruct();
+                totalSize += chunk.uncompressedSize;
+            }
+            writer.writeI64(2, totalSize);
+            writer.writeI64(3, rowGroup.rowCount);
+            writer.endStruct();
+        }
+        writer.writeString(6, createdBy);
+        return writer.finish();
+    }
+
+    /**
+     * Writes LogicalType union (SchemaElement field 10) with TimestampType of microseconds unit.
+     */
+    private static void writeTimestampLogicalType(ThriftCompactWriter writer, boolean adjustedToUTC) {
+        writer.beginStruct(10);
+        writer.beginStruct(LOGICAL_TYPE_TIMESTAMP);
+        writer.writeBool(1, adjustedToUTC);
+        writer.beginStruct(2);
+        // TimeUnit union, MicroSeconds is an empty struct
+        writer.beginStruct(TIME_UNIT_MICROS);
+        writer.endStruct();
+        writer.endStruct();
+        writer.endStruct();
+        writer.endStruct();
+    }
+
+    private static int getPhysicalType(ColumnarType type) {
+        switch (type) {
+            case BOOLEAN:
+                return TYPE_BOOLEAN;
+            case INT32:
+            case DATE:
+                return TYPE_INT32;
+            case INT64:
+            case TIMESTAMP:
+            case TIMESTAMP_TZ:
+                return TYPE_INT64;
+            case FLOAT:
+                return TYPE_FLOAT;
+            case DOUBLE:
+                return TYPE_DOUBLE;
+            case DECIMAL:
+                return TYPE_FIXED_LEN_BYTE_ARRAY;
+            default:
+                return TYPE_BYTE_ARRAY;
+        }
+    }
+
+    private static void writeUnsignedVarInt(ByteArrayOutputStream buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer.write(value);
+    }
+
+    private static void writeIntLE(OutputStream out, int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        out.write((value >>> 16) & 0xFF);
+        out.write((value >>> 24) & 0xFF);
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        out.write((value >>> 16) & 0xFF);
+        out.write((value >>> 24) & 0xFF);
+    }
+
+    private static void writeLongLE(ByteArrayOutputStream out, long value) {
+        writeIntLE(out, (int) value);
+        writeIntLE(out, (int) (value >>> 32));
+    }
+
+    private static class RowGroupInfo {
+        private final List<ColumnChunkInfo> chunks = new ArrayList<>();
+        private long rowCount;
+    }
+
+    private static class ColumnChunkInfo {
+        private ColumnarColumn column;
+        private long valueCount;
+        private long dictionaryPageOffset = -1;
+        private long dataPageOffset;
+        private long uncompressedSize;
+        private long compressedSize;
+        private int[] encodings;
+    }
+
+    private static class PositionOutputStream extends FilterOutputStream {
+        private long position;
+
+        PositionOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        long getPosition() {
+            return position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.exporter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal Thrift compact protocol writer (used for Parquet metadata)
+ */
+class ThriftCompactWriter {
+
+    static final byte TYPE_BOOLEAN_TRUE = 1;
+    static final byte TYPE_BOOLEAN_FALSE = 2;
+    static final byte TYPE_I32 = 5;
+    static final byte TYPE_I64 = 6;
+    static final byte TYPE_BINARY = 8;
+    static final byte TYPE_LIST = 9;
+    static final byte TYPE_STRUCT = 12;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private int[] fieldIdStack = new int[16];
+    private int stackDepth;
+    private int lastFieldId;
+
+    void writeI32(int fieldId, int value) {
+        writeFieldHeader(fieldId, TYPE_I32);
+        writeVarInt(zigzag(value));
+    }
+
+    void writeI64(int fieldId, long value) {
+        writeFieldHeader(fieldId, TYPE_I64);
+        writeVarInt((value << 1) ^ (value >> 63));
+    }
+
+    void writeBool(int fieldId, boolean value) {
+        writeFieldHeader(fieldId, value ? TYPE_BOOLEAN_TRUE : TYPE_BOOLEAN_FALSE);
+    }
+
+    void writeString(int fieldId, String value) {
+        writeFieldHeader(fieldId, TYPE_BINARY);
+        writeBinaryValue(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void beginStruct(int fieldId) {
+        writeFieldHeader(fieldId, TYPE_STRUCT);
+        pushStruct();
+    }
+
+    /**
+     * Starts struct which is an element of list
+     */
+    void beginListStruct() {
+        pushStruct();
+    }
+
+    void endStruct() {
+        buffer.write(0);
+        lastFieldId = fieldIdStack[--stackDepth];
+    }
+
+    void beginList(int fieldId, byte elementType, int size) {
+        writeFieldHeader(fieldId, TYPE_LIST);
+        if (size < 15) {
+            buffer.write((size << 4) | elementType);
+        } else {
+            buffer.write(0xF0 | elementType);
+            writeVarInt(size);
+        }
+    }
+
+    void writeListI32(int value) {
+        writeVarInt(zigzag(value));
+    }
+
+    void writeListString(String value) {
+        writeBinaryValue(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Finishes top level struct and returns serialized data
+     */
+    byte[] finish() {
+        buffer.write(0);
+        return buffer.toByteArray();
+    }
+
+    private void pushStruct() {
+        if (stackDepth == fieldIdStack.length) {
+            fieldIdStack = Arrays.copyOf(fieldIdStack, stackDepth * 2);
+        }
+        fieldIdStack[stackDepth++] = lastFieldId;
+        lastFieldId = 0;
+    }
+
+    private void writeFieldHeader(int fieldId, byte type) {
+        int delta = fieldId - lastFieldId;
+        if (delta > 0 && delta <= 15) {
+            buffer.write((delta << 4) | type);
+        } else {
+            buffer.write(type);
+            writeVarInt(zigzag(fieldId));
+        }
+        lastFieldId = fieldId;
+    }
+
+    private void writeBinaryValue(byte[] value) {
+        writeVarInt(value.length);
+        buffer.write(value, 0, value.length);
+    }
+
+    private static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    private void writeVarInt(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.write((int) value);
+    }
+}
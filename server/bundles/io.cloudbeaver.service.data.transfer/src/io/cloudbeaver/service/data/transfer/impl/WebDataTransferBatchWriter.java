@@ -0,0 +1,373 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import io.cloudbeaver.model.WebAsyncTaskInfo;
+import io.cloudbeaver.server.CBApplication;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDValueHandler;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.impl.AbstractExecutionSource;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.sql.SQLDialect;
+import org.jkiss.dbeaver.model.struct.DBSDataManipulator;
+import org.jkiss.dbeaver.model.struct.DBSEntity;
+import org.jkiss.dbeaver.model.struct.DBSEntityAttribute;
+import org.jkiss.utils.CommonUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Inserts rows into a table in batches.
+ * Batches are added by reader threads into a bounded queue (readers wait while it is full)
+ * and inserted by writer threads, each writer uses its own connection.
+ * Each writer commits its own batches, so load is atomic only with a single writer and commit at the end.
+ */
+class WebDataTransferBatchWriter {
+
+    private static final Log log = Log.getLog(WebDataTransferBatchWriter.class);
+
+    // Max number of writer threads
+    public static final String QUOTA_PROP_MAX_PARALLELISM = "dataImportMaxParallelism";
+
+    private static final int DEFAULT_MAX_PARALLELISM = 4;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 100_000;
+    private static final int MULTI_INSERT_BATCH_SIZE = 100;
+
+    // Marks end of data for writers
+    private static final RowBatch END_OF_DATA = new RowBatch(-1, Collections.emptyList());
+
+    private final DBSEntity entity;
+    private final DBSEntityAttribute[] attributes;
+    private final int batchSize;
+    private final int parallelism;
+    // Number of batches per commit. Zero means commit at the end
+    private final int commitInterval;
+    private final String statusVerb;
+    private final WebDataTransferLoadProgress progress;
+    private final Supplier<WebAsyncTaskInfo> taskInfo;
+    private final BlockingQueue<RowBatch> queue;
+    private final AtomicReference<Throwable> writeError = new AtomicReference<>();
+    private final List<Future<?>> writerResults = new ArrayList<>();
+    private ExecutorService writers;
+
+    WebDataTransferBatchWriter(
+        @NotNull DBSEntity entity,
+        @NotNull DBSEntityAttribute[] attributes,
+        int batchSize,
+        int parallelism,
+        int commitInterval,
+        @NotNull String statusVerb,
+        @NotNull WebDataTransferLoadProgress progress,
+        @NotNull Supplier<WebAsyncTaskInfo> taskInfo) throws DBException
+    {
+        if (!(entity instanceof DBSDataManipulator) ||
+            (((DBSDataManipulator) entity).getSupportedFeatures() & DBSDataManipulator.DATA_INSERT) == 0)
+        {
+            throw new DBException("Table '" + entity.getName() + "' doesn't support data insert");
+        }
+        this.entity = entity;
+        this.attributes = attributes;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.commitInterval = Math.max(0, commitInterval);
+        this.statusVerb = statusVerb;
+        this.progress = progress;
+        this.taskInfo = taskInfo;
+        this.queue = new ArrayBlockingQueue<>(parallelism * 2);
+    }
+
+    static int getBatchSize(@Nullable Integer batchSize) {
+        return batchSize == null || batchSize <= 0 ? DEFAULT_BATCH_SIZE : Math.min(batchSize, MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Requested number of writers limited by quota. Single writer is used by default.
+     */
+    static int getParallelism(@Nullable Integer parallelism) {
+        Number maxParallelism = CBApplication.getInstance().getAppConfiguration().getResourceQuota(QUOTA_PROP_MAX_PARALLELISM);
+        int maxThreads = maxParallelism == null ? DEFAULT_MAX_PARALLELISM : maxParallelism.intValue();
+        return parallelism == null || parallelism <= 0 ? 1 : Math.max(1, Math.min(maxThreads, parallelism));
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    void start(@NotNull DBRProgressMonitor monitor) {
+        writers = Executors.newFixedThreadPool(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            writerResults.add(writers.submit(() -> {
+                try {
+                    writeBatches(new WebDataTransferWorkerMonitor(monitor, taskInfo));
+                } catch (Throwable e) {
+                    writeError.compareAndSet(null, e);
+                    // Unblock readers
+                    queue.clear();
+                }
+            }));
+        }
+    }
+
+    /**
+     * Adds batch of rows. Waits while batch queue is full.
+     * Returns false if load was canceled or failed, in this case reader must stop.
+     */
+    boolean addBatch(@NotNull DBRProgressMonitor monitor, @NotNull List<Object[]> rows) throws InterruptedException {
+        RowBatch batch = new RowBatch(progress.addRowsRead(rows.size()) - rows.size() + 1, rows);
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            if (isStopped(monitor)) {
+                return false;
+            }
+        }
+        return !isStopped(monitor);
+    }
+
+    /**
+     * Stops load because of a reader error. Writers roll back their uncommitted batches.
+     */
+    void fail(@NotNull Throwable error) {
+        writeError.compareAndSet(null, error);
+        queue.clear();
+    }
+
+    boolean isStopped(@NotNull DBRProgressMonitor monitor) {
+        return monitor.isCanceled() || writeError.get() != null;
+    }
+
+    /**
+     * Waits until all added batches are inserted. Throws first writer error.
+     */
+    void finish(@NotNull DBRProgressMonitor monitor) throws DBException, InterruptedException {
+        for (int i = 0; i < parallelism; i++) {
+            while (!queue.offer(END_OF_DATA, 100, TimeUnit.MILLISECONDS)) {
+                if (isStopped(monitor)) {
+                    // Writers check error and cancel state themselves
+                    break;
+                }
+            }
+        }
+        for (Future<?> writerResult : writerResults) {
+            try {
+                writerResult.get();
+            } catch (ExecutionException e) {
+                writeError.compareAndSet(null, e.getCause());
+            }
+        }
+        if (monitor.isCanceled()) {
+            throw new InterruptedException("Data load was canceled");
+        }
+        Throwable error = writeError.get();
+        if (error != null) {
+            if (error instanceof DBException) {
+                throw (DBException) error;
+            }
+            throw new DBException("Error inserting data into '" + entity.getName() + "'", error);
+        }
+    }
+
+    /**
+     * Stops writers. Uncommitted batches are rolled back.
+     */
+    void close() {
+        if (writers != null) {
+            writers.shutdownNow();
+        }
+    }
+
+    /**
+     * Maps source columns to table attributes using explicit mapping or case insensitive name match.
+     * Unmapped source columns are skipped. Fills indexes of mapped source columns.
+     */
+    @NotNull
+    static DBSEntityAttribute[] mapColumns(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBSEntity entity,
+        @NotNull List<String> sourceColumns,
+        @Nullable Map<String, Object> mapping,
+        @NotNull int[] sourceIndexes) throws DBException
+    {
+        Collection<? extends DBSEntityAttribute> attributes = CommonUtils.safeCollection(entity.getAttributes(monitor));
+        List<DBSEntityAttribute> targetAttributes = new ArrayList<>();
+        for (int i = 0; i < sourceColumns.size(); i++) {
+            String sourceColumn = sourceColumns.get(i);
+            String targetName = sourceColumn;
+            if (!CommonUtils.isEmpty(mapping)) {
+                targetName = CommonUtils.toString(mapping.get(sourceColumn), null);
+                if (targetName == null) {
+                    continue;
+                }
+            }
+            DBSEntityAttribute attribute = findAttribute(attributes, targetName);
+            if (attribute == null) {
+                if (!CommonUtils.isEmpty(mapping)) {
+                    throw new DBException("Column '" + targetName + "' not found in table '" + entity.getName() + "'");
+                }
+                continue;
+            }
+            if (targetAttributes.contains(attribute)) {
+                throw new DBException("Column '" + attribute.getName() + "' is mapped more than once");
+            }
+            sourceIndexes[targetAttributes.size()] = i;
+            targetAttributes.add(attribute);
+        }
+        if (targetAttributes.isEmpty()) {
+            throw new DBException("No source columns match columns of table '" + entity.getName() + "'");
+        }
+        return targetAttributes.toArray(new DBSEntityAttribute[0]);
+    }
+
+    @Nullable
+    static <T extends DBSEntityAttribute> T findAttribute(@NotNull Collection<T> attributes, @NotNull String name) {
+        for (T attribute : attributes) {
+            if (attribute.getName().equals(name)) {
+                return attribute;
+            }
+        }
+        for (T attribute : attributes) {
+            if (attribute.getName().equalsIgnoreCase(name)) {
+                return attribute;
+            }
+        }
+        return null;
+    }
+
+    private void writeBatches(@NotNull DBRProgressMonitor monitor) throws Exception {
+        DBSDataManipulator dataManipulator = (DBSDataManipulator) entity;
+        DBCExecutionContext mainContext = DBUtils.getDefaultContext(entity, false);
+        if (mainContext == null) {
+            throw new DBException("No connection to '" + entity.getDataSource().getName() + "'");
+        }
+        DBCExecutionContext context = mainContext.getOwnerInstance().openIsolatedContext(monitor, "Data load", mainContext);
+        try (DBCSession session = context.openSession(monitor, DBCExecutionPurpose.USER, "Insert data")) {
+            DBCTransactionManager txnManager = DBUtils.getTransactionManager(context);
+            boolean transactional = txnManager != null && txnManager.isSupportsTransactions();
+            if (transactional && txnManager.isAutoCommit()) {
+                txnManager.setAutoCommit(monitor, false);
+            }
+            DBDValueHandler[] valueHandlers = new DBDValueHandler[attributes.length];
+            for (int i = 0; i < attributes.length; i++) {
+                valueHandlers[i] = DBUtils.findValueHandler(session, attributes[i]);
+            }
+            AbstractExecutionSource executionSource = new AbstractExecutionSource(dataManipulator, context, this);
+            Map<String, Object> options = new LinkedHashMap<>();
+            if (session.getDataSource().getSQLDialect().getDefaultMultiValueInsertMode() != SQLDialect.MultiValueInsertMode.NOT_SUPPORTED) {
+                // Generated keys are not needed, so rows may be inserted with multi-row INSERT ... VALUES statements
+                options.put(DBSDataManipulator.OPTION_USE_MULTI_INSERT, true);
+                options.put(DBSDataManipulator.OPTION_MULTI_INSERT_BATCH_SIZE, Math.min(batchSize, MULTI_INSERT_BATCH_SIZE));
+            }
+            int uncommittedBatches = 0;
+            try {
+                for (;;) {
+                    RowBatch rowBatch = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (isStopped(monitor)) {
+                        throw new InterruptedException("Data load was canceled");
+                    }
+                    if (rowBatch == null) {
+                        continue;
+                    }
+                    if (rowBatch == END_OF_DATA) {
+                        break;
+                    }
+                    insertBatch(session, dataManipulator, executionSource, options, valueHandlers, rowBatch);
+                    uncommittedBatches++;
+                    if (transactional && commitInterval > 0 && uncommittedBatches >= commitInterval) {
+                        txnManager.commit(session);
+                        uncommittedBatches = 0;
+                        progress.addCommit();
+                    }
+                    progress.addBatch(rowBatch.rows.size());
+                    updateStatus();
+                }
+                if (transactional && uncommittedBatches > 0) {
+                    txnManager.commit(session);
+                    progress.addCommit();
+                }
+            } catch (Exception e) {
+                if (transactional) {
+                    try {
+                        txnManager.rollback(session, null);
+                    } catch (DBCException e1) {
+                        log.debug("Error rolling back data load transaction", e1);
+                    }
+                }
+                throw e;
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private void insertBatch(
+        @NotNull DBCSession session,
+        @NotNull DBSDataManipulator dataManipulator,
+        @NotNull AbstractExecutionSource executionSource,
+        @NotNull Map<String, Object> options,
+        @NotNull DBDValueHandler[] valueHandlers,
+        @NotNull RowBatch rowBatch) throws DBException
+    {
+        DBSDataManipulator.ExecuteBatch batch = dataManipulator.insertData(session, attributes, null, executionSource, options);
+        try {
+            for (int r = 0; r < rowBatch.rows.size(); r++) {
+                Object[] row = rowBatch.rows.get(r);
+                for (int i = 0; i < row.length; i++) {
+                    try {
+                        row[i] = valueHandlers[i].getValueFromObject(session, attributes[i], row[i], false, true);
+                    } catch (DBCException e) {
+                        throw new DBException(
+                            "Error converting value of column '" + attributes[i].getName() + "' in row " + (rowBatch.firstRow + r), e);
+                    }
+                }
+                batch.add(row);
+            }
+            try {
+                batch.execute(session, options);
+            } catch (DBException e) {
+                throw new DBException("Error inserting rows " + rowBatch.firstRow + "-" +
+                    (rowBatch.firstRow + rowBatch.rows.size() - 1) + ": " + e.getMessage(), e);
+            }
+        } finally {
+            batch.close();
+        }
+    }
+
+    private void updateStatus() {
+        WebAsyncTaskInfo task = taskInfo.get();
+        if (task != null) {
+            task.setStatus(statusVerb + " " + progress.getRowsWritten() + " rows (" + progress.getRowsPerSecond() + " rows/s)");
+        }
+    }
+
+    private static class RowBatch {
+        // One-based number of the first batch row
+        final long firstRow;
+        final List<Object[]> rows;
+
+        RowBatch(long firstRow, List<Object[]> rows) {
+            this.firstRow = firstRow;
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPNamedObject;
+import org.jkiss.dbeaver.model.data.DBDAttributeBinding;
+import org.jkiss.dbeaver.model.data.DBDContentStorage;
+import org.jkiss.dbeaver.model.data.DBDDisplayFormat;
+import org.jkiss.dbeaver.model.exec.DBCResultSet;
+import org.jkiss.dbeaver.model.exec.DBCSession;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.tools.transfer.stream.IStreamDataExporter;
+import org.jkiss.dbeaver.tools.transfer.stream.IStreamDataExporterSite;
+import org.jkiss.utils.IOUtils;
+
+import java.io.*;
+import java.util.Map;
+
+/**
+ * Exporter wrapper which compresses exporter output on the fly.
+ * Exporter writes into compressor instead of the consumer output, so only compressed data is written to disk.
+ */
+class WebDataTransferCompressedExporter implements IStreamDataExporter {
+
+    private static final Log log = Log.getLog(WebDataTransferCompressedExporter.class);
+
+    private static final int COMPRESS_BUFFER_SIZE = 64 * 1024;
+
+    private final IStreamDataExporter exporter;
+    private final WebDataTransferCompression compression;
+    private final File outputFile;
+
+    private CountingOutputStream fileStream;
+    private OutputStream compressedStream;
+    private Writer writer;
+
+    WebDataTransferCompressedExporter(
+        @NotNull IStreamDataExporter exporter,
+        @NotNull WebDataTransferCompression compression,
+        @NotNull File outputFile)
+    {
+        this.exporter = exporter;
+        this.compression = compression;
+        this.outputFile = outputFile;
+    }
+
+    /**
+     * Number of compressed bytes written to the output file
+     */
+    long getBytesWritten() {
+        return fileStream == null ? 0 : fileStream.count;
+    }
+
+    @Override
+    public void init(IStreamDataExporterSite site) throws DBException {
+        try {
+            fileStream = new CountingOutputStream(new FileOutputStream(outputFile));
+            compressedStream = compression.openStream(fileStream);
+            writer = new BufferedWriter(new OutputStreamWriter(compressedStream, site.getOutputEncoding()), COMPRESS_BUFFER_SIZE);
+        } catch (IOException e) {
+            close();
+            throw new DBException("Error opening compressed output", e);
+        }
+        exporter.init(new CompressedSite(site));
+    }
+
+    @Override
+    public void exportHeader(DBCSession session) throws DBException, IOException {
+        exporter.exportHeader(session);
+    }
+
+    @Override
+    public void exportRow(DBCSession session, DBCResultSet resultSet, Object[] row) throws DBException, IOException {
+        exporter.exportRow(session, resultSet, row);
+    }
+
+    @Override
+    public void exportFooter(DBRProgressMonitor monitor) throws DBException, IOException {
+        exporter.exportFooter(monitor);
+        writer.flush();
+    }
+
+    @Override
+    public void dispose() {
+        exporter.dispose();
+    }
+
+    /**
+     * Finishes compressed stream and closes output file. Must be called after transfer is finished.
+     */
+    void close() {
+        try {
+            if (writer != null) {
+                // Closes the whole streams chain and writes compression trailer
+                writer.close();
+            } else if (fileStream != null) {
+                fileStream.close();
+            }
+        } catch (IOException e) {
+            log.error("Error closing compressed output", e);
+        } finally {
+            writer = null;
+            compressedStream = null;
+        }
+    }
+
+    private class CompressedSite implements IStreamDataExporterSite {
+
+        private final IStreamDataExporterSite site;
+
+        CompressedSite(IStreamDataExporterSite site) {
+            this.site = site;
+        }
+
+        @Override
+        public DBPNamedObject getSource() {
+            return site.getSource();
+        }
+
+        @Override
+        public DBDDisplayFormat getExportFormat() {
+            return site.getExportFormat();
+        }
+
+        @Override
+        public Map<String, Object> getProperties() {
+            return site.getProperties();
+        }
+
+        @Override
+        public DBDAttributeBinding[] getAttributes() {
+            return site.getAttributes();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return compressedStream;
+        }
+
+        @Override
+        public Writer getWriter() {
+            return writer;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void writeBinaryData(@NotNull DBDContentStorage cs) throws IOException {
+            writer.flush();
+            try (InputStream stream = cs.getContentStream()) {
+                IOUtils.copyStream(stream, compressedStream);
+            }
+        }
+
+        @Override
+        public String getOutputEncoding() {
+            return site.getOutputEncoding();
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private volatile long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(@NotNull byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export output compression (see "compression" setting of DataTransferParameters)
+ */
+public enum WebDataTransferCompression {
+
+    gzip("gzip", "gz");
+
+    public static final String SETTING_COMPRESSION = "compression";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String contentEncoding;
+    private final String fileExtension;
+
+    WebDataTransferCompression(String contentEncoding, String fileExtension) {
+        this.contentEncoding = contentEncoding;
+        this.fileExtension = fileExtension;
+    }
+
+    /**
+     * HTTP Content-Encoding of compressed data
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    @NotNull
+    OutputStream openStream(@NotNull OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+
+    /**
+     * Returns compression specified in transfer settings or null if output must not be compressed.
+     */
+    @Nullable
+    public static WebDataTransferCompression fromSettings(@Nullable Map<String, Object> settings) throws DBException {
+        String name = settings == null ? null : CommonUtils.toString(settings.get(SETTING_COMPRESSION), null);
+        if (CommonUtils.isEmpty(name) || name.equalsIgnoreCase("none")) {
+            return null;
+        }
+        for (WebDataTransferCompression compression : values()) {
+            if (compression.name().equalsIgnoreCase(name)) {
+                return compression;
+            }
+        }
+        throw new DBException("Unknown compression '" + name + "'");
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import io.cloudbeaver.service.sql.WebSQLDataFilter;
+import org.jkiss.dbeaver.model.data.json.JSONUtils;
+import org.jkiss.utils.CommonUtils;
+
+import java.util.Map;
+
+public class WebDataTransferCopyParameters {
+
+    private final Map<String, Object> columnMapping;
+    private final Integer batchSize;
+    private final Integer commitInterval;
+    private final Integer parallelism;
+    private final Integer partitions;
+    private final String partitionColumn;
+    private final WebSQLDataFilter filter;
+
+    public WebDataTransferCopyParameters(Map<String, Object> params) {
+        this.columnMapping = JSONUtils.getObject(params, "columnMapping");
+        this.batchSize = params.get("batchSize") == null ? null : CommonUtils.toInt(params.get("batchSize"));
+        this.commitInterval = params.get("commitInterval") == null ? null : CommonUtils.toInt(params.get("commitInterval"));
+        this.parallelism = params.get("parallelism") == null ? null : CommonUtils.toInt(params.get("parallelism"));
+        this.partitions = params.get("partitions") == null ? null : CommonUtils.toInt(params.get("partitions"));
+        this.partitionColumn = JSONUtils.getString(params, "partitionColumn");
+        this.filter = new WebSQLDataFilter(JSONUtils.getObject(params, "filter"));
+    }
+
+    /**
+     * Source column name to target column name. Columns are matched by name if mapping is empty.
+     */
+    public Map<String, Object> getColumnMapping() {
+        return columnMapping;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Number of batches per commit. Zero means that each writer commits at the end of copy.
+     */
+    public int getCommitInterval() {
+        return commitInterval == null || commitInterval < 0 ? 1 : commitInterval;
+    }
+
+    /**
+     * Number of writer threads
+     */
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Number of source table partitions read in parallel
+     */
+    public int getPartitions() {
+        return partitions == null || partitions < 1 ? 1 : Math.min(partitions, WebDataTransferPartitionedExport.MAX_PARTITIONS);
+    }
+
+    public String getPartitionColumn() {
+        return partitionColumn;
+    }
+
+    public WebSQLDataFilter getFilter() {
+        return filter;
+    }
+}
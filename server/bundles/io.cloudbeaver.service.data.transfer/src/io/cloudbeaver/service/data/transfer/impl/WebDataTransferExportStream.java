@@ -0,0 +1,193 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.exec.DBCException;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+import java.io.*;
+
+/**
+ * Export which is sent to the client while it is being written.
+ * Exporter writes into a spool file, response writer follows it and sends new bytes as soon as they appear.
+ * Exporter is paused when it gets too far ahead of the client. This bounds the lag between exporter and client,
+ * not the spool file: it is append-only and grows to the full export size, so like other export files it is
+ * checked against the export store quotas while it is written. It is deleted when both sides are done.
+ */
+public class WebDataTransferExportStream {
+
+    private static final Log log = Log.getLog(WebDataTransferExportStream.class);
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final long POLL_TIMEOUT_MS = 50;
+
+    private final File spoolFile;
+    private final long bufferSize;
+    private final Object lock = new Object();
+
+    private volatile long bytesSent;
+    private volatile boolean finished;
+    private volatile boolean closed;
+    private volatile Throwable error;
+    private String taskId;
+    private String fileName;
+    private String contentType;
+    private String contentEncoding;
+
+    WebDataTransferExportStream(@NotNull File spoolFile, long bufferSize) {
+        this.spoolFile = spoolFile;
+        this.bufferSize = bufferSize;
+    }
+
+    @NotNull
+    File getSpoolFile() {
+        return spoolFile;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    void setTaskId(String taskId) {
+        this.taskId = taskId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    void setContentEncoding(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    ///////////////////////////////////////////////////////
+    // Exporter side
+
+    /**
+     * Blocks exporter while client is more than buffer size behind.
+     */
+    void waitForClient(@NotNull DBRProgressMonitor monitor, long bytesWritten) throws DBCException {
+        synchronized (lock) {
+            while (bytesWritten - bytesSent > bufferSize) {
+                if (closed || monitor.isCanceled()) {
+                    break;
+                }
+                try {
+                    lock.wait(POLL_TIMEOUT_MS);
+                } catch (InterruptedException e) {
+                    throw new DBCException("Data export was interrupted", e);
+                }
+            }
+        }
+        if (closed) {
+            throw new DBCException("Data export stream was closed by client");
+        }
+    }
+
+    void finish(@Nullable Throwable error) {
+        this.error = error;
+        this.finished = true;
+        deleteSpoolFileIfDone();
+    }
+
+    ///////////////////////////////////////////////////////
+    // Client side
+
+    /**
+     * Copies export to the output stream while it is being written. Returns when export is finished.
+     * Throws error if export fails. Nothing is written to the output stream if export fails before the first byte.
+     */
+    public void copyTo(@NotNull OutputStream out) throws IOException {
+        try {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            InputStream in = null;
+            try {
+                for (;;) {
+                    // Read finish flag before data, so we don't miss the tail of the file
+                    boolean exportFinished = finished;
+                    if (in == null && spoolFile.exists()) {
+                        in = new FileInputStream(spoolFile);
+                    }
+                    int count = in == null ? -1 : in.read(buffer);
+                    if (count > 0) {
+                        out.write(buffer, 0, count);
+                        out.flush();
+                        synchronized (lock) {
+                            bytesSent += count;
+                            lock.notifyAll();
+                        }
+                        continue;
+                    }
+                    if (exportFinished) {
+                        break;
+                    }
+                    synchronized (lock) {
+                        lock.wait(POLL_TIMEOUT_MS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new IOException("Data export stream was interrupted", e);
+            } finally {
+                if (in != null) {
+                    in.close();
+                }
+            }
+            if (error != null) {
+                throw new IOException("Error exporting data: " + error.getMessage(), error);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        deleteSpoolFileIfDone();
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    private synchronized void deleteSpoolFileIfDone() {
+        if (finished && closed && spoolFile.exists() && !spoolFile.delete()) {
+            log.error("Error deleting export spool file " + spoolFile.getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import io.cloudbeaver.model.session.WebSession;
+import io.cloudbeaver.server.CBApplication;
+import io.cloudbeaver.server.CBPlatform;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.sql.DBQuotaException;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Export files of all sessions.
+ * Applies global and per-user size quotas (the oldest files are evicted to free space for new exports),
+ * evicts files after their TTL and shortly after they were completely downloaded.
+ * Quotas also count files which are not registered yet (running exports, spool and part files, import uploads),
+ * such files and files being downloaded are never evicted.
+ */
+public class WebDataTransferFileStore {
+
+    private static final Log log = Log.getLog(WebDataTransferFileStore.class);
+
+    // Max total size of export files
+    public static final String QUOTA_PROP_STORE_SIZE_LIMIT = "dataExportStoreSizeLimit";
+    // Max total size of export files of a single user
+    public static final String QUOTA_PROP_USER_STORE_SIZE_LIMIT = "dataExportUserStoreSizeLimit";
+    // Time (ms) export file is kept after export
+    public static final String QUOTA_PROP_FILE_TTL = "dataExportFileTTL";
+    // Time (ms) export file is kept after it was completely downloaded (download may be repeated or resumed)
+    public static final String QUOTA_PROP_DOWNLOADED_FILE_TTL = "dataExportDownloadedFileTTL";
+
+    private static final long DEFAULT_FILE_TTL = 24 * 60 * 60 * 1000L;
+    private static final long DEFAULT_DOWNLOADED_FILE_TTL = 5 * 60 * 1000L;
+
+    private final File folder;
+    // In order of creation
+    private final Map<String, StoreEntry> entries = new LinkedHashMap<>();
+    private long totalSize;
+    private long evictedFiles;
+    private long evictedBytes;
+    private long rejectedFiles;
+    private long reclaimedFiles;
+    private long reclaimedBytes;
+
+    WebDataTransferFileStore(@NotNull File folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * Deletes files which don't belong to any session (left by previous server run). Folders are kept.
+     */
+    void reclaimOrphanFiles() {
+        Set<String> knownFiles;
+        synchronized (this) {
+            knownFiles = new HashSet<>(entries.keySet());
+        }
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(folder.toPath())) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            log.error("Error reading data transfer folder " + folder.getAbsolutePath(), e);
+            return;
+        }
+        long fileCount = 0, byteCount = 0;
+        for (Path file : files) {
+            if (knownFiles.contains(file.getFileName().toString())) {
+                continue;
+            }
+            try {
+                long size = Files.size(file);
+                Files.delete(file);
+                fileCount++;
+                byteCount += size;
+            } catch (IOException e) {
+                log.error("Error deleting orphaned data transfer file " + file, e);
+            }
+        }
+        synchronized (this) {
+            reclaimedFiles += fileCount;
+            reclaimedBytes += byteCount;
+        }
+        if (fileCount > 0) {
+            log.info("Reclaimed " + fileCount + " orphaned data transfer file(s), " + byteCount + " bytes");
+        }
+    }
+
+    /**
+     * Registers finished export file. The oldest files are evicted if quota is exceeded.
+     * File is deleted and exception is thrown if it is bigger than quota.
+     * Files are also checked while they are written, see {@link #checkFileSize(File, long)}.
+     */
+    void addFile(
+        @NotNull WebDataTransferSessionConfig sessionConfig,
+        @NotNull WebDataTransferTaskConfig taskConfig,
+        @NotNull String ownerId) throws DBQuotaException
+    {
+        File dataFile = taskConfig.getDataFile();
+        long size = dataFile.length();
+        long now = System.currentTimeMillis();
+        Long storeLimit = getQuota(QUOTA_PROP_STORE_SIZE_LIMIT);
+        Long userLimit = getQuota(QUOTA_PROP_USER_STORE_SIZE_LIMIT);
+        DiskUsage unregisteredSize = storeLimit == null && userLimit == null ?
+            new DiskUsage() : getUnregisteredSize(ownerId, dataFile);
+        List<StoreEntry> victims = new ArrayList<>();
+        try {
+            synchronized (this) {
+                if (userLimit != null && size > userLimit) {
+                    rejectedFiles++;
+                    throw new DBQuotaException("Export storage quota exceeded", QUOTA_PROP_USER_STORE_SIZE_LIMIT, userLimit, size);
+                }
+                if (storeLimit != null && size > storeLimit) {
+                    rejectedFiles++;
+                    throw new DBQuotaException("Export storage quota exceeded", QUOTA_PROP_STORE_SIZE_LIMIT, storeLimit, size);
+                }
+                collectExpiredEntries(now, victims);
+                victims.forEach(this::removeEntry);
+                // Check that space can be freed before any file is evicted
+                long userRequired = size + unregisteredSize.ownerSize;
+                long storeRequired = size + unregisteredSize.totalSize;
+                if (userLimit != null && userRequired + getPinnedSize(ownerId) > userLimit) {
+                    rejectedFiles++;
+                    throw new DBQuotaException(
+                        "Export storage quota exceeded", QUOTA_PROP_USER_STORE_SIZE_LIMIT, userLimit, userRequired + getPinnedSize(ownerId));
+                }
+                if (storeLimit != null && storeRequired + getPinnedSize(null) > storeLimit) {
+                    rejectedFiles++;
+                    throw new DBQuotaException(
+                        "Export storage quota exceeded", QUOTA_PROP_STORE_SIZE_LIMIT, storeLimit, storeRequired + getPinnedSize(null));
+                }
+                if (userLimit != null) {
+                    selectVictims(ownerId, userLimit - userRequired, victims);
+                }
+                if (storeLimit != null) {
+                    selectVictims(null, storeLimit - storeRequired, victims);
+                }
+                StoreEntry entry = new StoreEntry(sessionConfig, taskConfig, ownerId, size, now + getTTL(QUOTA_PROP_FILE_TTL, DEFAULT_FILE_TTL));
+                entries.put(taskConfig.getDataFileId(), entry);
+                totalSize += size;
+                taskConfig.setFileStore(this);
+            }
+        } catch (DBQuotaException e) {
+            taskConfig.deleteFile();
+            throw e;
+        } finally {
+            // Files are deleted outside of store lock because session config is locked during deletion
+            evict(victims);
+        }
+    }
+
+    /**
+     * Checks that file which is being written still fits the store quotas if all evictable files are evicted.
+     * Other unregistered files and files being downloaded are counted. File owner is detected by the file name.
+     */
+    void checkFileSize(@NotNull File file, long size) throws DBQuotaException {
+        Long storeLimit = getQuota(QUOTA_PROP_STORE_SIZE_LIMIT);
+        Long userLimit = getQuota(QUOTA_PROP_USER_STORE_SIZE_LIMIT);
+        if (storeLimit == null && userLimit == null) {
+            return;
+        }
+        String ownerId = getFileOwnerId(file.getName(), new HashMap<>());
+        DiskUsage unregisteredSize = getUnregisteredSize(CommonUtils.notEmpty(ownerId), file);
+        synchronized (this) {
+            if (userLimit != null && ownerId != null) {
+                long userRequired = size + unregisteredSize.ownerSize + getPinnedSize(ownerId);
+                if (userRequired > userLimit) {
+                    rejectedFiles++;
+                    throw new DBQuotaException("Export storage quota exceeded", QUOTA_PROP_USER_STORE_SIZE_LIMIT, userLimit, userRequired);
+                }
+            }
+            long storeRequired = size + unregisteredSize.totalSize + getPinnedSize(null);
+            if (storeLimit != null && storeRequired > storeLimit) {
+                rejectedFiles++;
+                throw new DBQuotaException("Export storage quota exceeded", QUOTA_PROP_STORE_SIZE_LIMIT, storeLimit, storeRequired);
+            }
+        }
+    }
+
+    /**
+     * Evicts files (downloaded files first, then the oldest) until size of owner files (or all files) fits the limit.
+     * Files being downloaded are skipped.
+     */
+    private void selectVictims(@Nullable String ownerId, long sizeLimit, List<StoreEntry> victims) {
+        List<StoreEntry> candidates = new ArrayList<>();
+        long size = 0;
+        for (StoreEntry entry : entries.values()) {
+            if (ownerId == null || ownerId.equals(entry.ownerId)) {
+                if (entry.downloadCount == 0) {
+                    candidates.add(entry);
+                }
+                size += entry.size;
+            }
+        }
+        candidates.sort(Comparator.comparing((StoreEntry entry) -> !entry.downloaded));
+        for (Iterator<StoreEntry> iter = candidates.iterator(); size > sizeLimit && iter.hasNext(); ) {
+            StoreEntry entry = iter.next();
+            removeEntry(entry);
+            victims.add(entry);
+            size -= entry.size;
+        }
+    }
+
+    /**
+     * File was completely sent to the client, it will be evicted soon
+     */
+    synchronized void markDownloaded(@NotNull String fileId) {
+        StoreEntry entry = entries.get(fileId);
+        if (entry != null) {
+            entry.downloaded = true;
+            entry.expireTime = Math.min(entry.expireTime, System.currentTimeMillis() + getTTL(QUOTA_PROP_DOWNLOADED_FILE_TTL, DEFAULT_DOWNLOADED_FILE_TTL));
+        }
+    }
+
+    /**
+     * File download is started. File is not evicted until download is finished.
+     */
+    synchronized void pinFile(@NotNull String fileId) {
+        StoreEntry entry = entries.get(fileId);
+        if (entry != null) {
+            entry.downloadCount++;
+        }
+    }
+
+    synchronized void unpinFile(@NotNull String fileId) {
+        StoreEntry entry = entries.get(fileId);
+        if (entry != null && entry.downloadCount > 0) {
+            entry.downloadCount--;
+        }
+    }
+
+    /**
+     * File was deleted by its session
+     */
+    synchronized void removeFile(@NotNull String fileId) {
+        StoreEntry entry = entries.get(fileId);
+        if (entry != null) {
+            removeEntry(entry);
+        }
+    }
+
+    void evictExpiredFiles() {
+        long now = System.currentTimeMillis();
+        List<StoreEntry> victims = new ArrayList<>();
+        synchronized (this) {
+            collectExpiredEntries(now, victims);
+            victims.forEach(this::removeEntry);
+        }
+        evict(victims);
+    }
+
+    /**
+     * Store usage including files which are not registered yet
+     */
+    @NotNull
+    WebDataTransferStoreInfo getStoreInfo(@NotNull String ownerId) {
+        DiskUsage unregisteredSize = getUnregisteredSize(ownerId, null);
+        synchronized (this) {
+            return makeStoreInfo(ownerId, unregisteredSize);
+        }
+    }
+
+    @NotNull
+    private WebDataTransferStoreInfo makeStoreInfo(@NotNull String ownerId, @NotNull DiskUsage unregisteredSize) {
+        int userFileCount = unregisteredSize.ownerFileCount;
+        long userSize = unregisteredSize.ownerSize;
+        for (StoreEntry entry : entries.values()) {
+            if (ownerId.equals(entry.ownerId)) {
+                userFileCount++;
+                userSize += entry.size;
+            }
+        }
+        WebDataTransferStoreInfo info = new WebDataTransferStoreInfo();
+        info.fileCount = entries.size() + unregisteredSize.fileCount;
+        info.totalSize = totalSize + unregisteredSize.totalSize;
+        info.sizeLimit = getQuota(QUOTA_PROP_STORE_SIZE_LIMIT);
+        info.userFileCount = userFileCount;
+        info.userSize = userSize;
+        info.userSizeLimit = getQuota(QUOTA_PROP_USER_STORE_SIZE_LIMIT);
+        info.evictedFiles = evictedFiles;
+        info.evictedBytes = evictedBytes;
+        info.rejectedFiles = rejectedFiles;
+        info.reclaimedFiles = reclaimedFiles;
+        info.reclaimedBytes = reclaimedBytes;
+        return info;
+    }
+
+    private void collectExpiredEntries(long now, List<StoreEntry> victims) {
+        for (StoreEntry entry : entries.values()) {
+            if (entry.expireTime <= now && entry.downloadCount == 0) {
+                victims.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Size of files which can't be evicted (being downloaded)
+     */
+    private long getPinnedSize(@Nullable String ownerId) {
+        long size = 0;
+        for (StoreEntry entry : entries.values()) {
+            if (entry.downloadCount > 0 && (ownerId == null || ownerId.equals(entry.ownerId))) {
+                size += entry.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Size of files in the store folders which are not registered in the store.
+     * Data transfer file names start with session ID, so files are attributed to the owner of their session.
+     */
+    @NotNull
+    private DiskUsage getUnregisteredSize(@NotNull String ownerId, @Nullable File excludeFile) {
+        Set<String> knownFiles;
+        synchronized (this) {
+            knownFiles = new HashSet<>(entries.keySet());
+        }
+        if (excludeFile != null) {
+            knownFiles.add(excludeFile.getName());
+        }
+        DiskUsage usage = new DiskUsage();
+        Map<String, String> sessionOwners = new HashMap<>();
+        try (Stream<Path> stream = Files.walk(folder.toPath())) {
+            for (Iterator<Path> iter = stream.iterator(); iter.hasNext(); ) {
+                Path file = iter.next();
+                String fileName = file.getFileName().toString();
+                if (knownFiles.contains(fileName) || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                long size;
+                try {
+                    size = Files.size(file);
+                } catch (IOException e) {
+                    // Deleted by finished task
+                    continue;
+                }
+                usage.fileCount++;
+                usage.totalSize += size;
+                if (ownerId.equals(getFileOwnerId(fileName, sessionOwners))) {
+                    usage.ownerFileCount++;
+                    usage.ownerSize += size;
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Error reading data transfer folder " + folder.getAbsolutePath(), e);
+        }
+        return usage;
+    }
+
+    /**
+     * Data transfer file names start with session ID
+     */
+    @Nullable
+    private static String getFileOwnerId(@NotNull String fileName, @NotNull Map<String, String> sessionOwners) {
+        int divPos = fileName.lastIndexOf('_');
+        String sessionId = divPos <= 0 ? null : fileName.substring(0, divPos);
+        return sessionId == null ? null : sessionOwners.computeIfAbsent(sessionId, WebDataTransferFileStore::getSessionOwnerId);
+    }
+
+    @Nullable
+    private static String getSessionOwnerId(@NotNull String sessionId) {
+        WebSession session = CBPlatform.getInstance().getSessionManager().getWebSession(sessionId);
+        return session == null ? null : WebDataTransferUtils.getSessionOwnerId(session);
+    }
+
+    private void removeEntry(StoreEntry entry) {
+        if (entries.remove(entry.taskConfig.getDataFileId()) == entry) {
+            totalSize -= entry.size;
+        }
+    }
+
+    private void evict(List<StoreEntry> victims) {
+        for (StoreEntry entry : victims) {
+            log.debug("Evict export file " + entry.taskConfig.getDataFileId());
+            entry.sessionConfig.removeTask(entry.taskConfig);
+            synchronized (this) {
+                evictedFiles++;
+                evictedBytes += entry.size;
+            }
+        }
+    }
+
+    @Nullable
+    private static Long getQuota(String name) {
+        Number value = CBApplication.getInstance().getAppConfiguration().getResourceQuota(name);
+        return value == null ? null : value.longValue();
+    }
+
+    private static long getTTL(String name, long defaultValue) {
+        Long ttl = getQuota(name);
+        return ttl == null ? defaultValue : ttl;
+    }
+
+    private static class DiskUsage {
+        int fileCount;
+        long totalSize;
+        int ownerFileCount;
+        long ownerSize;
+    }
+
+    private static class StoreEntry {
+        final WebDataTransferSessionConfig sessionConfig;
+        final WebDataTransferTaskConfig taskConfig;
+        final String ownerId;
+        final long size;
+        volatile long expireTime;
+        volatile boolean downloaded;
+        // Number of running downloads, guarded by store lock
+        int downloadCount;
+
+        StoreEntry(WebDataTransferSessionConfig sessionConfig, WebDataTransferTaskConfig taskConfig, String ownerId, long size, long expireTime) {
+            this.sessionConfig = sessionConfig;
+            this.taskConfig = taskConfig;
+            this.ownerId = ownerId;
+            this.size = size;
+            this.expireTime = expireTime;
+        }
+    }
+}
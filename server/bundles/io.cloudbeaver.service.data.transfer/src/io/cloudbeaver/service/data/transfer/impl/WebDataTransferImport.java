@@ -0,0 +1,124 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import io.cloudbeaver.model.WebAsyncTaskInfo;
+import io.cloudbeaver.service.data.transfer.importer.DataImportFormat;
+import io.cloudbeaver.service.data.transfer.importer.DataImportReader;
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.struct.DBSEntity;
+import org.jkiss.dbeaver.model.struct.DBSEntityAttribute;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads uploaded file into a table.
+ * File is read by the task thread, rows are inserted in batches by writer threads (each in its own connection).
+ * With several writers each writer commits its own batches, so import is atomic only with a single writer and commit at the end.
+ */
+public class WebDataTransferImport {
+
+    private final DBSEntity entity;
+    private final File importFile;
+    private final DataImportFormat format;
+    private final WebDataTransferImportParameters parameters;
+    private final int batchSize;
+    private final int parallelism;
+    private final WebDataTransferImportProgress progress;
+    private volatile WebAsyncTaskInfo taskInfo;
+
+    WebDataTransferImport(
+        @NotNull DBSEntity entity,
+        @NotNull File importFile,
+        @NotNull DataImportFormat format,
+        @NotNull WebDataTransferImportParameters parameters)
+    {
+        this.entity = entity;
+        this.importFile = importFile;
+        this.format = format;
+        this.parameters = parameters;
+        this.batchSize = WebDataTransferBatchWriter.getBatchSize(parameters.getBatchSize());
+        this.parallelism = WebDataTransferBatchWriter.getParallelism(parameters.getParallelism());
+        this.progress = new WebDataTransferImportProgress(this.parallelism);
+    }
+
+    void setTaskInfo(WebAsyncTaskInfo taskInfo) {
+        this.taskInfo = taskInfo;
+    }
+
+    @NotNull
+    public WebDataTransferImportProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Imports all file rows. Returns number of imported rows.
+     */
+    long execute(@NotNull DBRProgressMonitor monitor) throws DBException, InterruptedException {
+        monitor.beginTask("Import data into " + entity.getName(), 1);
+        progress.setStarted();
+        WebDataTransferBatchWriter writer = null;
+        try (DataImportReader reader = format.openReader(importFile, parameters.getSettings())) {
+            List<String> sourceColumns = reader.getColumnNames();
+            int[] sourceIndexes = new int[sourceColumns.size()];
+            DBSEntityAttribute[] targetAttributes = WebDataTransferBatchWriter.mapColumns(
+                monitor, entity, sourceColumns, parameters.getColumnMapping(), sourceIndexes);
+
+            writer = new WebDataTransferBatchWriter(
+                entity, targetAttributes, batchSize, parallelism, parameters.isCommitEachBatch() ? 1 : 0,
+                "Imported", progress, () -> taskInfo);
+            writer.start(monitor);
+
+            List<Object[]> rows = new ArrayList<>(batchSize);
+            for (Object[] row; (row = reader.readRow()) != null; ) {
+                if (writer.isStopped(monitor)) {
+                    break;
+                }
+                Object[] values = new Object[targetAttributes.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = row[sourceIndexes[i]];
+                }
+                rows.add(values);
+                if (rows.size() >= batchSize) {
+                    if (!writer.addBatch(monitor, rows)) {
+                        break;
+                    }
+                    rows = new ArrayList<>(batchSize);
+                }
+            }
+            if (!rows.isEmpty() && !writer.isStopped(monitor)) {
+                writer.addBatch(monitor, rows);
+            }
+            writer.finish(monitor);
+        } catch (IOException e) {
+            throw new DBException("Error reading import file: " + e.getMessage(), e);
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+            progress.setFinished();
+            monitor.done();
+        }
+        return progress.getRowsWritten();
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import org.jkiss.dbeaver.model.data.json.JSONUtils;
+import org.jkiss.utils.CommonUtils;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class WebDataTransferImportParameters {
+
+    private final String format;
+    private final Map<String, Object> columnMapping;
+    private final Integer batchSize;
+    private final Integer parallelism;
+    private final boolean commitEachBatch;
+    private final Map<String, Object> settings;
+
+    public WebDataTransferImportParameters(Map<String, Object> params) {
+        this.format = JSONUtils.getString(params, "format");
+        this.columnMapping = JSONUtils.getObject(params, "columnMapping");
+        this.batchSize = params.get("batchSize") == null ? null : CommonUtils.toInt(params.get("batchSize"));
+        this.parallelism = params.get("parallelism") == null ? null : CommonUtils.toInt(params.get("parallelism"));
+        this.commitEachBatch = CommonUtils.getBoolean(params.get("commitEachBatch"), true);
+        Map<String, Object> settings = JSONUtils.getObject(params, "settings");
+        this.settings = settings == null ? Collections.emptyMap() : settings;
+    }
+
+    /**
+     * File format (csv, jsonl or parquet). Detected by file extension if not specified.
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Source column name to target attribute name. Columns are matched by name if mapping is empty.
+     */
+    public Map<String, Object> getColumnMapping() {
+        return columnMapping;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    public boolean isCommitEachBatch() {
+        return commitEachBatch;
+    }
+
+    /**
+     * Format reader settings
+     */
+    public Map<String, Object> getSettings() {
+        return settings;
+    }
+}
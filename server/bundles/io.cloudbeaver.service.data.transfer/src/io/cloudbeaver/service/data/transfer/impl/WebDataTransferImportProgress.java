@@ -0,0 +1,34 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+/**
+ * Data import progress. Keeps import API field names on top of the shared load progress.
+ */
+public class WebDataTransferImportProgress extends WebDataTransferLoadProgress {
+
+    WebDataTransferImportProgress(int parallelism) {
+        super(parallelism);
+    }
+
+    @Property
+    public long getRowsImported() {
+        return getRowsWritten();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.cloudbeaver.model.session.WebSession;
+import io.cloudbeaver.server.CBApplication;
+import io.cloudbeaver.service.WebServiceServletBase;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.sql.DBQuotaException;
+import org.jkiss.utils.CommonUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Receives import file upload. Request body is the file content, optional fileName parameter is used for format detection.
+ * Response: {fileId, size}. Uploaded file is kept until it is imported or session ends.
+ */
+public class WebDataTransferImportServlet extends WebServiceServletBase {
+
+    private static final Log log = Log.getLog(WebDataTransferImportServlet.class);
+
+    private static final Gson gson = new GsonBuilder().create();
+
+    private final WebServiceDataTransfer dtManager;
+
+    public WebDataTransferImportServlet(CBApplication application, WebServiceDataTransfer dtManager) {
+        super(application);
+        this.dtManager = dtManager;
+    }
+
+    @Override
+    protected void processServiceRequest(WebSession session, HttpServletRequest request, HttpServletResponse response) throws DBException, IOException {
+        if (!"POST".equals(request.getMethod())) {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "POST method is expected");
+            return;
+        }
+        String fileName = request.getParameter("fileName");
+        String extension = CommonUtils.isEmpty(fileName) || fileName.lastIndexOf('.') < 0 ?
+            "" : fileName.substring(fileName.lastIndexOf('.') + 1).replaceAll("[^A-Za-z0-9]", "");
+        if (CommonUtils.isEmpty(extension)) {
+            extension = "data";
+        }
+        File importFile = new File(
+            dtManager.getDataImportFolder(),
+            session.getSessionId() + "_" + UUID.randomUUID() + "." + CommonUtils.truncateString(extension, 16).toLowerCase());
+
+        Number fileSizeLimit = CBApplication.getInstance().getAppConfiguration().getResourceQuota(WebServiceDataTransfer.QUOTA_PROP_IMPORT_FILE_LIMIT);
+        long bytesRead = 0;
+        boolean completed = false;
+        try (InputStream in = request.getInputStream(); OutputStream out = new FileOutputStream(importFile)) {
+            byte[] buffer = new byte[64 * 1024];
+            for (int count; (count = in.read(buffer)) > 0; ) {
+                bytesRead += count;
+                if (fileSizeLimit != null && bytesRead > fileSizeLimit.longValue()) {
+                    throw new DBQuotaException(
+                        "Data import quota exceeded", WebServiceDataTransfer.QUOTA_PROP_IMPORT_FILE_LIMIT, fileSizeLimit.longValue(), bytesRead);
+                }
+                out.write(buffer, 0, count);
+            }
+            completed = true;
+        } finally {
+            if (!completed && importFile.exists() && !importFile.delete()) {
+                log.error("Error deleting import file " + importFile.getAbsolutePath());
+            }
+        }
+        WebDataTransferUtils.getSessionDataTransferConfig(session).addImportFile(importFile);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("fileId", importFile.getName());
+        result.put("size", bytesRead);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        try (Writer writer = response.getWriter()) {
+            gson.toJson(result, writer);
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of data load (import or table copy). Updated by reader and writer threads while load is running.
+ */
+public class WebDataTransferLoadProgress {
+
+    private final int parallelism;
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong commitCount = new AtomicLong();
+    private volatile long startTime;
+    private volatile long endTime;
+
+    WebDataTransferLoadProgress(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @Property
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    @Property
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    /**
+     * Number of executed batches
+     */
+    @Property
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    @Property
+    public long getCommitCount() {
+        return commitCount.get();
+    }
+
+    /**
+     * Number of writer threads
+     */
+    @Property
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Load duration (ms)
+     */
+    @Property
+    public long getDuration() {
+        if (startTime == 0) {
+            return 0;
+        }
+        return (endTime == 0 ? System.currentTimeMillis() : endTime) - startTime;
+    }
+
+    @Property
+    public long getRowsPerSecond() {
+        return rowsWritten.get() * 1000 / Math.max(getDuration(), 1);
+    }
+
+    void setStarted() {
+        startTime = System.currentTimeMillis();
+    }
+
+    void setFinished() {
+        endTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns total number of read rows
+     */
+    long addRowsRead(long count) {
+        return rowsRead.addAndGet(count);
+    }
+
+    void addBatch(long rowCount) {
+        rowsWritten.addAndGet(rowCount);
+        batchCount.incrementAndGet();
+    }
+
+    void addCommit() {
+        commitCount.incrementAndGet();
+    }
+}
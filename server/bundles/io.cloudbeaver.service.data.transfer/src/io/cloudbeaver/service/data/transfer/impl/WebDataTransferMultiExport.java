@@ -0,0 +1,244 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import io.cloudbeaver.model.WebAsyncTaskInfo;
+import io.cloudbeaver.server.CBApplication;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.sql.DBQuotaException;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+import org.jkiss.dbeaver.tools.transfer.registry.DataTransferProcessorDescriptor;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports several data containers into a single ZIP archive.
+ * Containers are exported concurrently (each in its own connection) and added to the archive as soon as they are finished.
+ */
+public class WebDataTransferMultiExport {
+
+    private static final Log log = Log.getLog(WebDataTransferMultiExport.class);
+
+    // Max number of containers exported in parallel
+    public static final String QUOTA_PROP_MAX_PARALLELISM = "dataExportMaxParallelism";
+
+    private static final int DEFAULT_MAX_PARALLELISM = 4;
+
+    private final WebServiceDataTransfer dtManager;
+    private final DataTransferProcessorDescriptor processor;
+    private final WebDataTransferParameters parameters;
+    private final List<DBSDataContainer> containers;
+    private final List<WebDataTransferTableProgress> progress = new ArrayList<>();
+    private final int parallelism;
+    private volatile WebAsyncTaskInfo taskInfo;
+
+    WebDataTransferMultiExport(
+        @NotNull WebServiceDataTransfer dtManager,
+        @NotNull DataTransferProcessorDescriptor processor,
+        @NotNull WebDataTransferParameters parameters,
+        @NotNull List<DBSDataContainer> containers,
+        Integer parallelism)
+    {
+        this.dtManager = dtManager;
+        this.processor = processor;
+        this.parameters = parameters;
+        this.containers = containers;
+
+        int maxThreads = getMaxParallelism();
+        if (parallelism != null && parallelism > 0) {
+            maxThreads = Math.min(maxThreads, parallelism);
+        }
+        if (!CommonUtils.getOption(parameters.getSettings(), "openNewConnection")) {
+            // Exports would share the same connection
+            maxThreads = 1;
+        }
+        this.parallelism = Math.max(1, Math.min(maxThreads, containers.size()));
+
+        String fileExtension = WebDataTransferUtils.getProcessorFileExtension(processor);
+        WebDataTransferCompression compression;
+        try {
+            compression = WebDataTransferCompression.fromSettings(parameters.getSettings());
+        } catch (DBException e) {
+            compression = null;
+        }
+        if (compression != null) {
+            fileExtension += "." + compression.getFileExtension();
+        }
+        Set<String> entryNames = new HashSet<>();
+        for (DBSDataContainer container : containers) {
+            String baseName = CommonUtils.escapeFileName(CommonUtils.truncateString(container.getName(), 64));
+            String entryName = baseName + "." + fileExtension;
+            for (int i = 2; !entryNames.add(entryName); i++) {
+                entryName = baseName + "_" + i + "." + fileExtension;
+            }
+            progress.add(new WebDataTransferTableProgress(container.getName(), entryName));
+        }
+    }
+
+    static int getMaxParallelism() {
+        Number maxParallelism = CBApplication.getInstance().getAppConfiguration().getResourceQuota(QUOTA_PROP_MAX_PARALLELISM);
+        return maxParallelism == null ? DEFAULT_MAX_PARALLELISM : maxParallelism.intValue();
+    }
+
+    void setTaskInfo(WebAsyncTaskInfo taskInfo) {
+        this.taskInfo = taskInfo;
+    }
+
+    @NotNull
+    public List<WebDataTransferTableProgress> getProgress() {
+        return progress;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Comma separated names of failed containers
+     */
+    @NotNull
+    String getFailedNames() {
+        StringJoiner names = new StringJoiner(", ");
+        for (WebDataTransferTableProgress tableProgress : progress) {
+            if (WebDataTransferTableProgress.STATUS_FAILED.equals(tableProgress.getStatus())) {
+                names.add(tableProgress.getName());
+            }
+        }
+        return names.toString();
+    }
+
+    /**
+     * Exports all containers into archive file. Failed containers are skipped, so archive contains only finished exports
+     * and must not be published if any container failed.
+     * Export file size quota is applied to the whole archive, export is aborted once archive exceeds it.
+     * Returns number of failed containers.
+     */
+    int execute(@NotNull DBRProgressMonitor monitor, @NotNull File archiveFile) throws DBException, InterruptedException {
+        monitor.beginTask("Export " + containers.size() + " containers", containers.size());
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        WebDataTransferSizeQuota sizeQuota = WebDataTransferSizeQuota.fromConfiguration();
+        int failedCount = 0;
+        try (OutputStream out = new FileOutputStream(archiveFile);
+             ZipOutputStream archive = new ZipOutputStream(new BufferedOutputStream(sizeQuota == null ? out : sizeQuota.countOutput(out))))
+        {
+            List<Future<?>> exports = new ArrayList<>();
+            for (int i = 0; i < containers.size(); i++) {
+                DBSDataContainer container = containers.get(i);
+                WebDataTransferTableProgress tableProgress = progress.get(i);
+                exports.add(workers.submit(() -> exportContainer(monitor, container, tableProgress, archiveFile, archive, sizeQuota)));
+            }
+            for (int i = 0; i < exports.size(); i++) {
+                try {
+                    exports.get(i).get();
+                } catch (ExecutionException e) {
+                    log.error("Container export failed", e.getCause());
+                }
+                if (WebDataTransferTableProgress.STATUS_FAILED.equals(progress.get(i).getStatus())) {
+                    failedCount++;
+                }
+                monitor.worked(1);
+            }
+            if (sizeQuota != null && sizeQuota.getError() != null) {
+                // Archive is incomplete
+                throw sizeQuota.getError();
+            }
+            if (monitor.isCanceled()) {
+                throw new InterruptedException("Data export was canceled");
+            }
+        } catch (IOException e) {
+            throw new DBException("Error writing export archive", e);
+        } finally {
+            workers.shutdownNow();
+            monitor.done();
+        }
+        return failedCount;
+    }
+
+    private void exportContainer(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBSDataContainer container,
+        @NotNull WebDataTransferTableProgress tableProgress,
+        @NotNull File archiveFile,
+        @NotNull ZipOutputStream archive,
+        @Nullable WebDataTransferSizeQuota sizeQuota)
+    {
+        if (monitor.isCanceled()) {
+            tableProgress.setFailed(new InterruptedException("Data export was canceled"));
+            return;
+        }
+        if (sizeQuota != null && sizeQuota.getError() != null) {
+            tableProgress.setFailed(sizeQuota.getError());
+            return;
+        }
+        tableProgress.setStarted();
+        updateStatus();
+        File exportFile = new File(archiveFile.getParentFile(), archiveFile.getName() + "." + UUID.randomUUID() + ".part");
+        try {
+            dtManager.exportData(new WebDataTransferWorkerMonitor(monitor, () -> taskInfo), processor, container, parameters, exportFile, null);
+            long fileLength = exportFile.length();
+            synchronized (archive) {
+                if (sizeQuota != null && sizeQuota.getError() != null) {
+                    throw sizeQuota.getError();
+                }
+                archive.putNextEntry(new ZipEntry(tableProgress.getEntryName()));
+                Files.copy(exportFile.toPath(), archive);
+                archive.closeEntry();
+                archive.flush();
+            }
+            tableProgress.setFinished(fileLength);
+        } catch (Throwable e) {
+            log.debug("Error exporting '" + container.getName() + "'", e);
+            tableProgress.setFailed(e.getCause() instanceof DBQuotaException ? e.getCause() : e);
+        } finally {
+            if (exportFile.exists() && !exportFile.delete()) {
+                log.error("Error deleting export file " + exportFile.getAbsolutePath());
+            }
+            updateStatus();
+        }
+    }
+
+    private void updateStatus() {
+        WebAsyncTaskInfo task = taskInfo;
+        if (task == null) {
+            return;
+        }
+        int finished = 0, running = 0, failed = 0;
+        for (WebDataTransferTableProgress tableProgress : progress) {
+            switch (tableProgress.getStatus()) {
+                case WebDataTransferTableProgress.STATUS_FINISHED: finished++; break;
+                case WebDataTransferTableProgress.STATUS_RUNNING: running++; break;
+                case WebDataTransferTableProgress.STATUS_FAILED: failed++; break;
+            }
+        }
+        task.setStatus("Exported " + finished + " of " + progress.size() + " containers" +
+            (running > 0 ? ", " + running + " running" : "") +
+            (failed > 0 ? ", " + failed + " failed" : ""));
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import io.cloudbeaver.model.WebAsyncTaskInfo;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPDataKind;
+import org.jkiss.dbeaver.model.DBPEvaluationContext;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDDataFilter;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.sql.SQLUtils;
+import org.jkiss.dbeaver.model.struct.DBSEntity;
+import org.jkiss.dbeaver.model.struct.DBSEntityAttribute;
+import org.jkiss.dbeaver.tools.transfer.registry.DataTransferProcessorDescriptor;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports a single table by ranges of numeric key column.
+ * Partitions are read concurrently (each in its own connection) and either concatenated in key order
+ * or written as separate part files of ZIP archive.
+ */
+public class WebDataTransferPartitionedExport {
+
+    private static final Log log = Log.getLog(WebDataTransferPartitionedExport.class);
+
+    // Number of partitions. Table is exported with a single query if it is not specified
+    public static final String SETTING_PARTITIONS = "partitions";
+    // Numeric column used for partitioning. Primary key is used by default
+    public static final String SETTING_PARTITION_COLUMN = "partitionColumn";
+    // Output mode: concat or parts
+    public static final String SETTING_PARTITION_OUTPUT = "partitionOutput";
+
+    public static final String OUTPUT_CONCAT = "concat";
+    public static final String OUTPUT_PARTS = "parts";
+
+    // Processors which output may be concatenated. CSV header is written only by the first partition
+    private static final String PROCESSOR_CSV = "csv";
+    private static final String PROCESSOR_SQL = "sql";
+    private static final String CSV_PROP_HEADER = "header";
+
+    static final int MAX_PARTITIONS = 256;
+
+    private final WebServiceDataTransfer dtManager;
+    private final DataTransferProcessorDescriptor processor;
+    private final WebDataTransferParameters parameters;
+    private final DBSEntity entity;
+    private volatile WebAsyncTaskInfo taskInfo;
+
+    WebDataTransferPartitionedExport(
+        @NotNull WebServiceDataTransfer dtManager,
+        @NotNull DataTransferProcessorDescriptor processor,
+        @NotNull WebDataTransferParameters parameters,
+        @NotNull DBSEntity entity)
+    {
+        this.dtManager = dtManager;
+        this.processor = processor;
+        this.parameters = parameters;
+        this.entity = entity;
+    }
+
+    static boolean isPartitioned(@NotNull WebDataTransferParameters parameters, @NotNull Object dataContainer) {
+        return dataContainer instanceof DBSEntity &&
+            parameters.getSettings() != null &&
+            CommonUtils.toInt(parameters.getSettings().get(SETTING_PARTITIONS)) > 1;
+    }
+
+    void setTaskInfo(WebAsyncTaskInfo taskInfo) {
+        this.taskInfo = taskInfo;
+    }
+
+    /**
+     * Exports table into the output file. Falls back to a single query export if table can't be partitioned.
+     * Export file size quota is applied to the running total of all partitions.
+     * Returns true if output is a ZIP archive of part files.
+     */
+    boolean execute(@NotNull DBRProgressMonitor monitor, @NotNull File outputFile) throws DBException, IOException, InterruptedException {
+        Map<String, Object> settings = parameters.getSettings();
+        DBDDataFilter dataFilter = parameters.getFilter() == null ?
+            new DBDDataFilter() : parameters.getFilter().makeDataFilter(monitor, null, entity);
+
+        boolean concat = isConcatenationSupported();
+        String outputMode = CommonUtils.toString(settings.get(SETTING_PARTITION_OUTPUT), concat ? OUTPUT_CONCAT : OUTPUT_PARTS);
+        if (OUTPUT_CONCAT.equals(outputMode) && !concat) {
+            throw new DBException("Output of '" + processor.getName() + "' can't be concatenated, use '" + OUTPUT_PARTS + "' partition output");
+        }
+
+        DBSEntityAttribute partitionAttribute = findPartitionAttribute(monitor, entity, CommonUtils.toString(settings.get(SETTING_PARTITION_COLUMN), null));
+        List<String> partitionConditions = partitionAttribute == null ?
+            null : makePartitionConditions(monitor, entity, partitionAttribute, dataFilter, Math.min(CommonUtils.toInt(settings.get(SETTING_PARTITIONS)), MAX_PARTITIONS));
+        if (partitionConditions == null || partitionConditions.size() < 2) {
+            log.debug("Table '" + entity.getName() + "' can't be partitioned, export with a single query");
+            dtManager.exportData(monitor, processor, entity, parameters, dataFilter, Collections.emptyMap(), outputFile, null, null);
+            return false;
+        }
+
+        int partitionCount = partitionConditions.size();
+        int parallelism = CommonUtils.getOption(settings, "openNewConnection") ?
+            Math.max(1, Math.min(WebDataTransferMultiExport.getMaxParallelism(), partitionCount)) : 1;
+        monitor.beginTask("Export " + partitionCount + " partitions of " + entity.getName(), partitionCount);
+
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        WebDataTransferSizeQuota sizeQuota = WebDataTransferSizeQuota.fromConfiguration();
+        List<File> partFiles = new ArrayList<>();
+        List<Future<?>> partExports = new ArrayList<>();
+        try {
+            for (int i = 0; i < partitionCount; i++) {
+                DBDDataFilter partFilter = makePartitionFilter(dataFilter, partitionConditions.get(i));
+                Map<String, Object> propertyOverrides = i > 0 && PROCESSOR_CSV.equals(processor.getId()) && OUTPUT_CONCAT.equals(outputMode) ?
+                    Collections.singletonMap(CSV_PROP_HEADER, "none") : Collections.emptyMap();
+                File partFile = new File(outputFile.getParentFile(), outputFile.getName() + ".part" + (i + 1));
+                partFiles.add(partFile);
+                partExports.add(workers.submit(() -> {
+                    if (sizeQuota != null && sizeQuota.getError() != null) {
+                        throw sizeQuota.getError();
+                    }
+                    dtManager.exportData(
+                        new WebDataTransferWorkerMonitor(monitor, () -> taskInfo),
+                        processor, entity, parameters, partFilter, propertyOverrides, partFile, null, sizeQuota);
+                    return null;
+                }));
+            }
+
+            // Parts are written in key order as soon as they are ready
+            try (OutputStream out = Files.newOutputStream(outputFile.toPath())) {
+                ZipOutputStream archive = OUTPUT_PARTS.equals(outputMode) ? new ZipOutputStream(new BufferedOutputStream(out)) : null;
+                String partExtension = getPartFileExtension();
+                String baseName = CommonUtils.escapeFileName(CommonUtils.truncateString(entity.getName(), 64));
+                for (int i = 0; i < partitionCount; i++) {
+                    try {
+                        partExports.get(i).get();
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (sizeQuota != null && sizeQuota.getError() != null) {
+                            // Other partitions are canceled on shutdown
+                            throw sizeQuota.getError();
+                        }
+                        throw new DBException("Error exporting partition " + (i + 1) + " of " + entity.getName(), cause);
+                    }
+                    File partFile = partFiles.get(i);
+                    if (archive != null) {
+                        archive.putNextEntry(new ZipEntry(baseName + "_part" + (i + 1) + "." + partExtension));
+                        Files.copy(partFile.toPath(), archive);
+                        archive.closeEntry();
+                    } else {
+                        Files.copy(partFile.toPath(), out);
+                    }
+                    deletePartFile(partFile);
+                    monitor.worked(1);
+                    WebAsyncTaskInfo task = taskInfo;
+                    if (task != null) {
+                        task.setStatus("Exported " + (i + 1) + " of " + partitionCount + " partitions");
+                    }
+                }
+                if (archive != null) {
+                    archive.finish();
+                    archive.flush();
+                }
+            }
+            return OUTPUT_PARTS.equals(outputMode);
+        } finally {
+            workers.shutdownNow();
+            for (File partFile : partFiles) {
+                deletePartFile(partFile);
+            }
+            monitor.done();
+        }
+    }
+
+    private boolean isConcatenationSupported() {
+        return PROCESSOR_CSV.equals(processor.getId()) || PROCESSOR_SQL.equals(processor.getId());
+    }
+
+    @NotNull
+    private String getPartFileExtension() throws DBException {
+        String extension = WebDataTransferUtils.getProcessorFileExtension(processor);
+        WebDataTransferCompression compression = WebDataTransferCompression.fromSettings(parameters.getSettings());
+        return compression == null ? extension : extension + "." + compression.getFileExtension();
+    }
+
+    /**
+     * Returns specified column or leading column of the table key. Only numeric columns may be used for partitioning.
+     */
+    @Nullable
+    static DBSEntityAttribute findPartitionAttribute(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBSEntity entity,
+        @Nullable String columnName) throws DBException
+    {
+        DBSEntityAttribute attribute;
+        if (!CommonUtils.isEmpty(columnName)) {
+            attribute = entity.getAttribute(monitor, columnName);
+            if (attribute == null) {
+                throw new DBException("Partition column '" + columnName + "' not found in '" + entity.getName() + "'");
+            }
+        } else {
+            List<DBSEntityAttribute> keyAttributes = DBUtils.getBestTableIdentifier(monitor, entity);
+            if (keyAttributes == null || keyAttributes.isEmpty()) {
+                return null;
+            }
+            // Leading key column has the best selectivity for range scans
+            attribute = keyAttributes.get(0);
+        }
+        return attribute.getDataKind() == DBPDataKind.NUMERIC ? attribute : null;
+    }
+
+    /**
+     * Splits [min, max] range of column values into equal ranges. Nulls go to the first partition.
+     * Returns null if column values are not integral or table is empty.
+     */
+    @Nullable
+    static List<String> makePartitionConditions(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBSEntity entity,
+        @NotNull DBSEntityAttribute attribute,
+        @NotNull DBDDataFilter dataFilter,
+        int partitionCount) throws DBException
+    {
+        DBCExecutionContext context = DBUtils.getDefaultContext(entity, false);
+        String columnName = DBUtils.getQuotedIdentifier(attribute);
+        StringBuilder query = new StringBuilder()
+            .append("SELECT MIN(").append(columnName).append("), MAX(").append(columnName).append(") FROM ")
+            .append(DBUtils.getObjectFullName(entity, DBPEvaluationContext.DML));
+        if (dataFilter.hasConditions() || !CommonUtils.isEmpty(dataFilter.getWhere())) {
+            query.append(" WHERE ");
+            SQLUtils.appendConditionString(dataFilter, context.getDataSource(), null, query, true);
+        }
+
+        Long minValue, maxValue;
+        try (DBCSession session = context.openSession(monitor, DBCExecutionPurpose.UTIL, "Read partition bounds");
+             DBCStatement dbStat = session.prepareStatement(DBCStatementType.QUERY, query.toString(), false, false, false))
+        {
+            if (!dbStat.executeStatement()) {
+                return null;
+            }
+            try (DBCResultSet resultSet = dbStat.openResultSet()) {
+                if (resultSet == null || !resultSet.nextRow()) {
+                    return null;
+                }
+                minValue = toIntegralValue(resultSet.getAttributeValue(0));
+                maxValue = toIntegralValue(resultSet.getAttributeValue(1));
+            }
+        }
+        if (minValue == null || maxValue == null) {
+            return null;
+        }
+        BigInteger min = BigInteger.valueOf(minValue);
+        BigInteger span = BigInteger.valueOf(maxValue).subtract(min).add(BigInteger.ONE);
+        int count = span.min(BigInteger.valueOf(partitionCount)).intValue();
+        BigInteger step = span.add(BigInteger.valueOf(count - 1)).divide(BigInteger.valueOf(count));
+
+        List<String> conditions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BigInteger lowerBound = min.add(step.multiply(BigInteger.valueOf(i)));
+            String condition;
+            if (i == count - 1) {
+                condition = columnName + " >= " + lowerBound;
+            } else {
+                condition = columnName + " >= " + lowerBound + " AND " + columnName + " < " + lowerBound.add(step);
+            }
+            if (i == 0) {
+                condition = "(" + condition + " OR " + columnName + " IS NULL)";
+            }
+            conditions.add(condition);
+        }
+        return conditions;
+    }
+
+    @NotNull
+    static DBDDataFilter makePartitionFilter(@NotNull DBDDataFilter dataFilter, @NotNull String partitionCondition) {
+        DBDDataFilter partFilter = new DBDDataFilter(dataFilter);
+        partFilter.setWhere(CommonUtils.isEmpty(dataFilter.getWhere()) ?
+            partitionCondition : "(" + dataFilter.getWhere() + ") AND " + partitionCondition);
+        return partFilter;
+    }
+
+    @Nullable
+    private static Long toIntegralValue(@Nullable Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        try {
+            if (value instanceof BigInteger) {
+                return ((BigInteger) value).longValueExact();
+            }
+            if (value instanceof BigDecimal) {
+                return ((BigDecimal) value).longValueExact();
+            }
+        } catch (ArithmeticException e) {
+            // Fractional or too big value
+        }
+        return null;
+    }
+
+    private static void deletePartFile(@NotNull File partFile) {
+        if (partFile.exists() && !partFile.delete()) {
+            log.error("Error deleting export part file " + partFile.getAbsolutePath());
+        }
+    }
+}
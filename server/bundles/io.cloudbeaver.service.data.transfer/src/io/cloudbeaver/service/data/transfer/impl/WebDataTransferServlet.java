@@ -4,28 +4,34 @@ import io.cloudbeaver.DBWebException;
 import io.cloudbeaver.model.session.WebSession;
 import io.cloudbeaver.server.CBApplication;
 import io.cloudbeaver.service.WebServiceServletBase;
-import io.cloudbeaver.service.data.transfer.DBWServiceDataTransfer;
 import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.tools.transfer.registry.DataTransferProcessorDescriptor;
 import org.jkiss.dbeaver.tools.transfer.registry.DataTransferRegistry;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.util.Callback;
 import org.jkiss.utils.CommonUtils;
-import org.jkiss.utils.IOUtils;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
 
 public class WebDataTransferServlet extends WebServiceServletBase {
 
     private static final Log log = Log.getLog(WebDataTransferServlet.class);
 
-    private final DBWServiceDataTransfer dtManager;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
 
-    public WebDataTransferServlet(CBApplication application, DBWServiceDataTransfer dtManager) {
+    private final WebServiceDataTransfer dtManager;
+
+    public WebDataTransferServlet(CBApplication application, WebServiceDataTransfer dtManager) {
         super(application);
         this.dtManager = dtManager;
     }
@@ -43,7 +49,8 @@ public class WebDataTransferServlet extends WebServiceServletBase {
         WebDataTransferSessionConfig dtConfig = WebDataTransferUtils.getSessionDataTransferConfig(session);
         WebDataTransferTaskConfig taskInfo = dtConfig.getTask(dataFileId);
         if (taskInfo == null) {
-            throw new DBWebException("Session task '" + dataFileId + "' not found");
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Session task '" + dataFileId + "' not found");
+            return;
         }
         DataTransferProcessorDescriptor processor = DataTransferRegistry.getInstance().getProcessor(taskInfo.getParameters().getProcessorId());
         if (processor == null) {
@@ -51,25 +58,265 @@ public class WebDataTransferServlet extends WebServiceServletBase {
         }
         String fileName = taskInfo.getExportFileName();
         if (!CommonUtils.isEmpty(fileName)) {
-            fileName += "." + WebDataTransferUtils.getProcessorFileExtension(processor);
+            fileName += "." + (taskInfo.isArchive() ? "zip" : WebDataTransferUtils.getProcessorFileExtension(processor));
         } else {
             fileName = taskInfo.getDataFileId();
         }
 
+        // File is not evicted while it is being sent
+        WebDataTransferFileStore fileStore = dtManager.getFileStore();
+        String pinnedFileId = dataFileId;
+        fileStore.pinFile(pinnedFileId);
+        boolean async = false;
+        try {
+            async = sendDataFile(request, response, taskInfo, processor, fileName, () -> fileStore.unpinFile(pinnedFileId));
+        } finally {
+            if (!async) {
+                fileStore.unpinFile(pinnedFileId);
+            }
+        }
+    }
+
+    /**
+     * Sends data file (or its range). Returns true if file is sent asynchronously, in this case
+     * onComplete is called when sending is finished.
+     */
+    private boolean sendDataFile(
+        HttpServletRequest request,
+        HttpServletResponse response,
+        WebDataTransferTaskConfig taskInfo,
+        DataTransferProcessorDescriptor processor,
+        String fileName,
+        Runnable onComplete) throws DBException, IOException
+    {
+        String dataFileId = taskInfo.getDataFileId();
         File dataFile = taskInfo.getDataFile();
+        if (!dataFile.exists()) {
+            // File was evicted from the export storage or deleted
+            response.sendError(HttpServletResponse.SC_GONE, "Data file '" + dataFileId + "' is not available anymore");
+            return false;
+        }
+        long fileLength = dataFile.length();
+        long lastModified = dataFile.lastModified();
+        // Data file is never modified after export, but the same ID may be reused after server restart
+        String etag = "\"" + Long.toHexString(fileLength) + "-" + Long.toHexString(lastModified) + "\"";
 
-        response.setHeader("Content-Type", processor.getContentType());
+        response.setHeader("Content-Type", taskInfo.isArchive() ? "application/zip" : processor.getContentType());
         response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
-        response.setHeader("Content-Length", String.valueOf(dataFile.length()));
+        // Archive entries are compressed separately
+        WebDataTransferCompression compression = taskInfo.isArchive() ?
+            null : WebDataTransferCompression.fromSettings(taskInfo.getParameters().getSettings());
+        if (compression != null) {
+            // Data file is compressed. Content length and ranges refer to the compressed data
+            response.setHeader("Content-Encoding", compression.getContentEncoding());
+        }
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", lastModified);
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null && (ifNoneMatch.equals(etag) || ifNoneMatch.equals("*"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+
+        long start = 0, end = fileLength - 1;
+        String range = request.getHeader("Range");
+        if (range != null && isRangeApplicable(request, etag, lastModified)) {
+            long[] byteRange = parseByteRange(range, fileLength);
+            if (byteRange == null) {
+                // Multiple or malformed ranges - send the whole file
+                log.debug("Unsupported range '" + range + "' ignored");
+            } else if (byteRange.length == 0) {
+                response.setHeader("Content-Range", "bytes */" + fileLength);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return false;
+            } else {
+                start = byteRange[0];
+                end = byteRange[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + fileLength);
+            }
+        }
+        long contentLength = end - start + 1;
+        response.setHeader("Content-Length", String.valueOf(contentLength));
+
+        boolean lastPart = end == fileLength - 1;
+        FileChannel fileChannel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ);
+        try {
+            fileChannel.position(start);
+            ServletOutputStream out = response.getOutputStream();
+            if (out instanceof HttpOutput && request.isAsyncSupported()) {
+                // Jetty writes file content asynchronously, servlet thread is released right away
+                AsyncContext asyncContext = request.startAsync();
+                asyncContext.setTimeout(0);
+                FileChannel sendChannel = fileChannel;
+                fileChannel = null;
+                ((HttpOutput) out).sendContent(new RangeChannel(sendChannel, contentLength), new Callback() {
+                    @Override
+                    public void succeeded() {
+                        if (lastPart) {
+                            markDownloaded(dataFileId);
+                        }
+                        finishAsyncSend(sendChannel, asyncContext, onComplete);
+                    }
+
+                    @Override
+                    public void failed(Throwable x) {
+                        log.debug("Error sending data file '" + dataFileId + "': " + x.getMessage());
+                        finishAsyncSend(sendChannel, asyncContext, onComplete);
+                    }
+                });
+                return true;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+            long remaining = contentLength;
+            while (remaining > 0) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                int count = fileChannel.read(buffer);
+                if (count <= 0) {
+                    throw new IOException("Data file '" + dataFile.getName() + "' was truncated");
+                }
+                out.write(buffer.array(), 0, count);
+                remaining -= count;
+            }
+        } finally {
+            if (fileChannel != null) {
+                fileChannel.close();
+            }
+        }
+
+        if (lastPart) {
+            markDownloaded(dataFileId);
+        }
+        return false;
+    }
+
+    /**
+     * The whole file (or its last part) was sent. File is kept for a while in case download is repeated or resumed
+     */
+    private void markDownloaded(String dataFileId) {
+        dtManager.getFileStore().markDownloaded(dataFileId);
+    }
+
+    private static void finishAsyncSend(FileChannel fileChannel, AsyncContext asyncContext, Runnable onComplete) {
+        try {
+            fileChannel.close();
+        } catch (IOException e) {
+            log.debug("Error closing data file: " + e.getMessage());
+        }
+        try {
+            onComplete.run();
+        } finally {
+            asyncContext.complete();
+        }
+    }
+
+    /**
+     * If-Range allows to resume download only if file wasn't changed since the first part was received.
+     */
+    private static boolean isRangeApplicable(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Weak tags can't be used for ranges
+            return ifRange.equals(etag);
+        }
+        try {
+            long ifRangeDate = request.getDateHeader("If-Range");
+            return ifRangeDate >= 0 && lastModified / 1000 <= ifRangeDate / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parses single byte range (bytes=start-end, bytes=start- or bytes=-suffixLength).
+     * Returns [start, end], empty array if range is not satisfiable or null if range is not supported.
+     */
+    private static long[] parseByteRange(String range, long fileLength) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') != -1) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int divPos = spec.indexOf('-');
+        if (divPos == -1) {
+            return null;
+        }
+        try {
+            String startStr = spec.substring(0, divPos).trim();
+            String endStr = spec.substring(divPos + 1).trim();
+            long start, end;
+            if (startStr.isEmpty()) {
+                long suffixLength = Long.parseLong(endStr);
+                if (suffixLength <= 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, fileLength - suffixLength);
+                end = fileLength - 1;
+            } else {
+                start = Long.parseLong(startStr);
+                end = endStr.isEmpty() ? fileLength - 1 : Long.parseLong(endStr);
+                if (end < start) {
+                    // Invalid range must be ignored
+                    return null;
+                }
+                end = Math.min(end, fileLength - 1);
+            }
+            if (start >= fileLength) {
+                return new long[0];
+            }
+            return new long[] { start, end };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the specified number of bytes from the current position of file channel
+     */
+    private static class RangeChannel implements ReadableByteChannel {
+        private final FileChannel channel;
+        private long remaining;
+
+        RangeChannel(FileChannel channel, long length) {
+            this.channel = channel;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int limit = dst.limit();
+            if (dst.remaining() > remaining) {
+                dst.limit(dst.position() + (int) remaining);
+            }
+            try {
+                int count = channel.read(dst);
+                if (count < 0) {
+                    throw new IOException("Data file was truncated");
+                }
+                remaining -= count;
+                return count;
+            } finally {
+                dst.limit(limit);
+            }
+        }
 
-        try (InputStream is = new FileInputStream(dataFile)) {
-            IOUtils.copyStream(is, response.getOutputStream());
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
         }
 
-        // TODO: cleanup export files ASAP?
-        if (false) {
-            dtConfig.removeTask(taskInfo);
+        @Override
+        public void close() {
+            // File channel is closed when sending is finished
         }
     }
 
-}
\ No newline at end of file
+}
@@ -1,11 +1,18 @@
 package io.cloudbeaver.service.data.transfer.impl;
 
+import org.jkiss.dbeaver.Log;
+
+import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
 public class WebDataTransferSessionConfig {
 
+    private static final Log log = Log.getLog(WebDataTransferSessionConfig.class);
+
     private final Map<String, WebDataTransferTaskConfig> tasks = new HashMap<>();
+    // Uploaded import files
+    private final Map<String, File> importFiles = new HashMap<>();
 
     public WebDataTransferSessionConfig() {
     }
@@ -27,11 +34,41 @@ public class WebDataTransferSessionConfig {
         }
     }
 
+    public File getImportFile(String fileId) {
+        synchronized (importFiles) {
+            return importFiles.get(fileId);
+        }
+    }
+
+    public void addImportFile(File file) {
+        synchronized (importFiles) {
+            importFiles.put(file.getName(), file);
+        }
+    }
+
+    public void removeImportFile(String fileId) {
+        File file;
+        synchronized (importFiles) {
+            file = importFiles.remove(fileId);
+        }
+        if (file != null && !file.delete()) {
+            log.error("Error deleting import file " + file.getAbsolutePath());
+        }
+    }
+
     public WebDataTransferSessionConfig deleteExportFiles() {
         synchronized (tasks) {
             tasks.values().forEach(WebDataTransferTaskConfig::deleteFile);
             tasks.clear();
         }
+        synchronized (importFiles) {
+            for (File file : importFiles.values()) {
+                if (file.exists() && !file.delete()) {
+                    log.error("Error deleting import file " + file.getAbsolutePath());
+                }
+            }
+            importFiles.clear();
+        }
         return this;
     }
 
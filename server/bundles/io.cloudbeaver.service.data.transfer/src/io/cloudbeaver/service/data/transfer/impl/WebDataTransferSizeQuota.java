@@ -0,0 +1,103 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import io.cloudbeaver.server.CBApplication;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.dbeaver.model.sql.DBQuotaException;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Export file size quota shared by several parts of the same output file (archive entries or table partitions).
+ */
+class WebDataTransferSizeQuota {
+
+    private final long limit;
+    private final AtomicLong totalBytes = new AtomicLong();
+    private volatile DBQuotaException error;
+
+    private WebDataTransferSizeQuota(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Returns quota of a single export file or null if export file size is not limited.
+     */
+    @Nullable
+    static WebDataTransferSizeQuota fromConfiguration() {
+        Number fileSizeLimit = CBApplication.getInstance().getAppConfiguration().getResourceQuota(WebServiceDataTransfer.QUOTA_PROP_FILE_LIMIT);
+        return fileSizeLimit == null ? null : new WebDataTransferSizeQuota(fileSizeLimit.longValue());
+    }
+
+    long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * Returns quota error if quota was exceeded by any part.
+     */
+    @Nullable
+    DBQuotaException getError() {
+        return error;
+    }
+
+    void addBytes(long count) throws DBQuotaException {
+        long total = totalBytes.addAndGet(count);
+        if (total > limit) {
+            DBQuotaException quotaError = error;
+            if (quotaError == null) {
+                quotaError = new DBQuotaException("Data export quota exceeded", WebServiceDataTransfer.QUOTA_PROP_FILE_LIMIT, limit, total);
+                error = quotaError;
+            }
+            throw quotaError;
+        }
+    }
+
+    /**
+     * Wraps output stream so all written bytes are counted by this quota.
+     * Quota errors are reported as IO errors caused by {@link DBQuotaException}.
+     */
+    @NotNull
+    OutputStream countOutput(@NotNull OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                countBytes(1);
+            }
+
+            @Override
+            public void write(@NotNull byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                countBytes(len);
+            }
+
+            private void countBytes(long count) throws IOException {
+                try {
+                    addBytes(count);
+                } catch (DBQuotaException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import org.jkiss.dbeaver.model.meta.Property;
+
+/**
+ * Export files storage usage
+ */
+public class WebDataTransferStoreInfo {
+
+    int fileCount;
+    long totalSize;
+    Long sizeLimit;
+    int userFileCount;
+    long userSize;
+    Long userSizeLimit;
+    long evictedFiles;
+    long evictedBytes;
+    long rejectedFiles;
+    long reclaimedFiles;
+    long reclaimedBytes;
+
+    @Property
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    @Property
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    @Property
+    public Long getSizeLimit() {
+        return sizeLimit;
+    }
+
+    /**
+     * Number of files of the current user
+     */
+    @Property
+    public int getUserFileCount() {
+        return userFileCount;
+    }
+
+    @Property
+    public long getUserSize() {
+        return userSize;
+    }
+
+    @Property
+    public Long getUserSizeLimit() {
+        return userSizeLimit;
+    }
+
+    /**
+     * Number of files evicted by TTL, after download or to free space for new exports
+     */
+    @Property
+    public long getEvictedFiles() {
+        return evictedFiles;
+    }
+
+    @Property
+    public long getEvictedBytes() {
+        return evictedBytes;
+    }
+
+    /**
+     * Number of exports rejected because they were bigger than quota
+     */
+    @Property
+    public long getRejectedFiles() {
+        return rejectedFiles;
+    }
+
+    /**
+     * Number of orphaned files deleted on server startup
+     */
+    @Property
+    public long getReclaimedFiles() {
+        return reclaimedFiles;
+    }
+
+    @Property
+    public long getReclaimedBytes() {
+        return reclaimedBytes;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import io.cloudbeaver.server.CBPlatform;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.jkiss.dbeaver.model.runtime.AbstractJob;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+
+/**
+ * Evicts expired export files
+ */
+class WebDataTransferStoreMonitorJob extends AbstractJob {
+    private static final int MONITOR_INTERVAL = 60000; // once per minute
+
+    private final WebDataTransferFileStore fileStore;
+
+    WebDataTransferStoreMonitorJob(WebDataTransferFileStore fileStore) {
+        super("Data transfer files monitor");
+        setUser(false);
+        setSystem(true);
+        this.fileStore = fileStore;
+    }
+
+    @Override
+    protected IStatus run(DBRProgressMonitor monitor) {
+        if (CBPlatform.getInstance().isShuttingDown()) {
+            return Status.OK_STATUS;
+        }
+
+        fileStore.evictExpiredFiles();
+
+        if (!CBPlatform.getInstance().isShuttingDown()) {
+            scheduleMonitor();
+        }
+        return Status.OK_STATUS;
+    }
+
+    void scheduleMonitor() {
+        schedule(MONITOR_INTERVAL);
+    }
+
+}
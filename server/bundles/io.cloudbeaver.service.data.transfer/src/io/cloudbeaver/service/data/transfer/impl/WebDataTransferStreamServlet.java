@@ -0,0 +1,125 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import io.cloudbeaver.DBWebException;
+import io.cloudbeaver.model.WebAsyncTaskInfo;
+import io.cloudbeaver.model.session.WebSession;
+import io.cloudbeaver.server.CBApplication;
+import io.cloudbeaver.service.WebServiceServletBase;
+import io.cloudbeaver.service.sql.WebSQLProcessor;
+import io.cloudbeaver.service.sql.WebServiceBindingSQL;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.data.json.JSONUtils;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+import org.jkiss.utils.CommonUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+
+/**
+ * Exports data directly to the response.
+ * Request body: {connectionId, containerNodePath | contextId + resultsId, parameters}.
+ * Response has no content length (chunked) and export is canceled if client disconnects.
+ */
+public class WebDataTransferStreamServlet extends WebServiceServletBase {
+
+    private static final Log log = Log.getLog(WebDataTransferStreamServlet.class);
+
+    private static final Gson gson = new GsonBuilder().create();
+
+    private final WebServiceDataTransfer dtManager;
+
+    public WebDataTransferStreamServlet(CBApplication application, WebServiceDataTransfer dtManager) {
+        super(application);
+        this.dtManager = dtManager;
+    }
+
+    @Override
+    protected void processServiceRequest(WebSession session, HttpServletRequest request, HttpServletResponse response) throws DBException, IOException {
+        if (!"POST".equals(request.getMethod())) {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "POST method is expected");
+            return;
+        }
+        Map<String, Object> params;
+        try (Reader reader = request.getReader()) {
+            params = gson.fromJson(reader, new TypeToken<Map<String, Object>>() {}.getType());
+        }
+        if (params == null) {
+            throw new DBWebException("Request parameters not specified");
+        }
+        String connectionId = JSONUtils.getString(params, "connectionId");
+        if (CommonUtils.isEmpty(connectionId)) {
+            throw new DBWebException("Connection ID not specified");
+        }
+        WebSQLProcessor sqlProcessor = WebServiceBindingSQL.getSQLProcessor(
+            WebServiceBindingSQL.getWebConnection(session, connectionId));
+
+        DBSDataContainer dataContainer;
+        String containerNodePath = JSONUtils.getString(params, "containerNodePath");
+        if (!CommonUtils.isEmpty(containerNodePath)) {
+            dataContainer = sqlProcessor.getDataContainerByNodePath(session.getProgressMonitor(), containerNodePath, DBSDataContainer.class);
+        } else {
+            String contextId = JSONUtils.getString(params, "contextId");
+            String resultsId = JSONUtils.getString(params, "resultsId");
+            if (CommonUtils.isEmpty(contextId) || CommonUtils.isEmpty(resultsId)) {
+                throw new DBWebException("Either container node path or results ID must be specified");
+            }
+            dataContainer = WebServiceBindingSQL.getSQLContext(sqlProcessor, contextId).getResults(resultsId).getDataContainer();
+        }
+
+        WebDataTransferExportStream exportStream = dtManager.streamExportFromDataContainer(
+            sqlProcessor,
+            dataContainer,
+            new WebDataTransferParameters(JSONUtils.getObject(params, "parameters")));
+
+        boolean completed = false;
+        try {
+            response.setHeader("Content-Type", exportStream.getContentType());
+            response.setHeader("Content-Disposition", "attachment; filename=\"" + exportStream.getFileName() + "\"");
+            if (exportStream.getContentEncoding() != null) {
+                response.setHeader("Content-Encoding", exportStream.getContentEncoding());
+            }
+            exportStream.copyTo(response.getOutputStream());
+            completed = true;
+        } finally {
+            // Spool file is deleted when both sides are done
+            exportStream.close();
+            if (!completed) {
+                // Client went away or export failed - make sure export task doesn't keep running
+                try {
+                    session.asyncTaskCancel(exportStream.getTaskId());
+                } catch (DBWebException e) {
+                    log.debug("Error canceling data export task: " + e.getMessage());
+                }
+            }
+            // Export was sent in the response, nobody will read task status
+            WebAsyncTaskInfo taskInfo = session.getAsyncTask(exportStream.getTaskId(), null, false);
+            if (taskInfo != null) {
+                session.removeAsyncTask(taskInfo);
+            }
+        }
+    }
+
+}
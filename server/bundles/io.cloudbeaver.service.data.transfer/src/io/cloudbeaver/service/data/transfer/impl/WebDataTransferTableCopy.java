@@ -0,0 +1,337 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import io.cloudbeaver.model.WebAsyncTaskInfo;
+import io.cloudbeaver.server.CBApplication;
+import org.jkiss.code.NotNull;
+import org.jkiss.dbeaver.DBException;
+import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.DBPDataKind;
+import org.jkiss.dbeaver.model.DBUtils;
+import org.jkiss.dbeaver.model.data.DBDDataFilter;
+import org.jkiss.dbeaver.model.data.DBDDataReceiver;
+import org.jkiss.dbeaver.model.exec.*;
+import org.jkiss.dbeaver.model.impl.AbstractExecutionSource;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.sql.DBQuotaException;
+import org.jkiss.dbeaver.model.struct.DBSDataContainer;
+import org.jkiss.dbeaver.model.struct.DBSEntity;
+import org.jkiss.dbeaver.model.struct.DBSEntityAttribute;
+import org.jkiss.utils.CommonUtils;
+
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Copies table data into a table of another (or the same) connection.
+ * Source table is read by reader threads (one per partition, each in its own connection),
+ * rows are passed in batches through a bounded queue to writer threads, so source cursor is read only as fast as rows are inserted.
+ */
+public class WebDataTransferTableCopy {
+
+    private static final Log log = Log.getLog(WebDataTransferTableCopy.class);
+
+    // Max size (bytes or characters) of a single LOB value. LOB values are read into memory
+    public static final String QUOTA_PROP_MAX_LOB_SIZE = "dataCopyMaxLobSize";
+
+    private static final long DEFAULT_MAX_LOB_SIZE = 64 * 1024 * 1024;
+    // Max number of rows per batch if table has LOB columns
+    private static final int MAX_LOB_BATCH_SIZE = 100;
+    // Batch is passed to writers once its LOB values reach this size
+    private static final long MAX_BATCH_LOB_SIZE = 64 * 1024 * 1024;
+
+    private final DBSEntity source;
+    private final DBSEntity target;
+    private final WebDataTransferCopyParameters parameters;
+    private final int batchSize;
+    private final int parallelism;
+    private final WebDataTransferLoadProgress progress;
+    private volatile WebAsyncTaskInfo taskInfo;
+
+    WebDataTransferTableCopy(
+        @NotNull DBSEntity source,
+        @NotNull DBSEntity target,
+        @NotNull WebDataTransferCopyParameters parameters) throws DBException
+    {
+        if (!(source instanceof DBSDataContainer)) {
+            throw new DBException("Data can't be read from '" + source.getName() + "'");
+        }
+        this.source = source;
+        this.target = target;
+        this.parameters = parameters;
+        this.batchSize = WebDataTransferBatchWriter.getBatchSize(parameters.getBatchSize());
+        this.parallelism = WebDataTransferBatchWriter.getParallelism(parameters.getParallelism());
+        this.progress = new WebDataTransferLoadProgress(this.parallelism);
+    }
+
+    void setTaskInfo(WebAsyncTaskInfo taskInfo) {
+        this.taskInfo = taskInfo;
+    }
+
+    @NotNull
+    public WebDataTransferLoadProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Copies all source rows. Returns number of copied rows.
+     */
+    long execute(@NotNull DBRProgressMonitor monitor) throws DBException, InterruptedException {
+        monitor.beginTask("Copy " + source.getName() + " to " + target.getName(), 1);
+        progress.setStarted();
+        WebDataTransferBatchWriter writer = null;
+        ExecutorService readers = null;
+        try {
+            List<String> sourceColumns = new ArrayList<>();
+            boolean hasLobColumns = false;
+            for (DBSEntityAttribute attribute : CommonUtils.safeCollection(source.getAttributes(monitor))) {
+                if (!DBUtils.isPseudoAttribute(attribute)) {
+                    sourceColumns.add(attribute.getName());
+                    hasLobColumns |= attribute.getDataKind() == DBPDataKind.LOB || attribute.getDataKind() == DBPDataKind.CONTENT;
+                }
+            }
+            // Batches are kept in memory by readers, queue and writers
+            int rowBatchSize = hasLobColumns ? Math.min(batchSize, MAX_LOB_BATCH_SIZE) : batchSize;
+            int[] sourceIndexes = new int[sourceColumns.size()];
+            DBSEntityAttribute[] targetAttributes = WebDataTransferBatchWriter.mapColumns(
+                monitor, target, sourceColumns, parameters.getColumnMapping(), sourceIndexes);
+            String[] readColumns = new String[targetAttributes.length];
+            for (int i = 0; i < readColumns.length; i++) {
+                readColumns[i] = sourceColumns.get(sourceIndexes[i]);
+            }
+
+            List<DBDDataFilter> partitionFilters = makePartitionFilters(monitor);
+            writer = new WebDataTransferBatchWriter(
+                target, targetAttributes, rowBatchSize, parallelism, parameters.getCommitInterval(),
+                "Copied", progress, () -> taskInfo);
+            writer.start(monitor);
+
+            int readerCount = Math.max(1, Math.min(WebDataTransferMultiExport.getMaxParallelism(), partitionFilters.size()));
+            readers = Executors.newFixedThreadPool(readerCount);
+            List<Future<?>> readResults = new ArrayList<>();
+            WebDataTransferBatchWriter partitionWriter = writer;
+            for (DBDDataFilter partitionFilter : partitionFilters) {
+                readResults.add(readers.submit(() -> {
+                    readPartition(new WebDataTransferWorkerMonitor(monitor, () -> taskInfo), partitionFilter, readColumns, rowBatchSize, partitionWriter);
+                    return null;
+                }));
+            }
+            for (Future<?> readResult : readResults) {
+                try {
+                    readResult.get();
+                } catch (ExecutionException e) {
+                    // Stop other readers and writers. The first error (if writer failed before) is reported
+                    writer.fail(new DBException("Error reading '" + source.getName() + "': " + e.getCause().getMessage(), e.getCause()));
+                }
+            }
+            writer.finish(monitor);
+        } finally {
+            if (readers != null) {
+                readers.shutdownNow();
+            }
+            if (writer != null) {
+                writer.close();
+            }
+            progress.setFinished();
+            monitor.done();
+        }
+        return progress.getRowsWritten();
+    }
+
+    /**
+     * Splits source table by ranges of numeric key column if more than one partition requested.
+     */
+    @NotNull
+    private List<DBDDataFilter> makePartitionFilters(@NotNull DBRProgressMonitor monitor) throws DBException {
+        DBDDataFilter dataFilter = parameters.getFilter() == null ?
+            new DBDDataFilter() : parameters.getFilter().makeDataFilter(monitor, null, (DBSDataContainer) source);
+        if (parameters.getPartitions() < 2) {
+            return Collections.singletonList(dataFilter);
+        }
+        DBSEntityAttribute partitionAttribute = WebDataTransferPartitionedExport.findPartitionAttribute(
+            monitor, source, parameters.getPartitionColumn());
+        List<String> partitionConditions = partitionAttribute == null ?
+            null : WebDataTransferPartitionedExport.makePartitionConditions(monitor, source, partitionAttribute, dataFilter, parameters.getPartitions());
+        if (partitionConditions == null || partitionConditions.size() < 2) {
+            log.debug("Table '" + source.getName() + "' can't be partitioned, copy with a single query");
+            return Collections.singletonList(dataFilter);
+        }
+        List<DBDDataFilter> filters = new ArrayList<>(partitionConditions.size());
+        for (String condition : partitionConditions) {
+            filters.add(WebDataTransferPartitionedExport.makePartitionFilter(dataFilter, condition));
+        }
+        return filters;
+    }
+
+    private void readPartition(
+        @NotNull DBRProgressMonitor monitor,
+        @NotNull DBDDataFilter dataFilter,
+        @NotNull String[] columns,
+        int rowBatchSize,
+        @NotNull WebDataTransferBatchWriter writer) throws DBException
+    {
+        DBCExecutionContext mainContext = DBUtils.getDefaultContext(source, false);
+        if (mainContext == null) {
+            throw new DBException("No connection to '" + source.getDataSource().getName() + "'");
+        }
+        DBCExecutionContext context = mainContext.getOwnerInstance().openIsolatedContext(monitor, "Table copy", mainContext);
+        try (DBCSession session = context.openSession(monitor, DBCExecutionPurpose.USER, "Read table data")) {
+            DBSDataContainer dataContainer = (DBSDataContainer) source;
+            try (CopyDataReceiver receiver = new CopyDataReceiver(monitor, columns, rowBatchSize, writer)) {
+                dataContainer.readData(
+                    new AbstractExecutionSource(dataContainer, context, this),
+                    session,
+                    receiver,
+                    dataFilter,
+                    0,
+                    -1,
+                    DBSDataContainer.FLAG_NONE,
+                    rowBatchSize);
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static long getMaxLobSize() {
+        Number maxLobSize = CBApplication.getInstance().getAppConfiguration().getResourceQuota(QUOTA_PROP_MAX_LOB_SIZE);
+        // Values are read into arrays
+        return Math.min(maxLobSize == null ? DEFAULT_MAX_LOB_SIZE : maxLobSize.longValue(), Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * Collects fetched rows into batches and passes them to the writer. Waits while writers are busy.
+     * Batch is passed earlier if its LOB values are too big.
+     */
+    private class CopyDataReceiver implements DBDDataReceiver {
+
+        private final DBRProgressMonitor monitor;
+        private final String[] columns;
+        private final int batchSize;
+        private final WebDataTransferBatchWriter writer;
+        private final long maxLobSize = getMaxLobSize();
+        private int[] columnIndexes;
+        private List<Object[]> rows = new ArrayList<>();
+        private long lobSize;
+
+        CopyDataReceiver(@NotNull DBRProgressMonitor monitor, @NotNull String[] columns, int batchSize, @NotNull WebDataTransferBatchWriter writer) {
+            this.monitor = monitor;
+            this.columns = columns;
+            this.batchSize = batchSize;
+            this.writer = writer;
+        }
+
+        @Override
+        public void fetchStart(DBCSession session, DBCResultSet resultSet, long offset, long maxRows) throws DBCException {
+            List<DBCAttributeMetaData> attributes = resultSet.getMeta().getAttributes();
+            columnIndexes = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                columnIndexes[i] = -1;
+                for (int k = 0; k < attributes.size(); k++) {
+                    DBCAttributeMetaData attribute = attributes.get(k);
+                    if (columns[i].equalsIgnoreCase(attribute.getName()) || columns[i].equalsIgnoreCase(attribute.getLabel())) {
+                        columnIndexes[i] = k;
+                        break;
+                    }
+                }
+                if (columnIndexes[i] < 0) {
+                    throw new DBCException("Column '" + columns[i] + "' not found in '" + source.getName() + "' query results");
+                }
+            }
+        }
+
+        @Override
+        public void fetchRow(DBCSession session, DBCResultSet resultSet) throws DBCException {
+            Object[] row = new Object[columnIndexes.length];
+            for (int i = 0; i < columnIndexes.length; i++) {
+                row[i] = getTransferableValue(columns[i], resultSet.getAttributeValue(columnIndexes[i]));
+            }
+            rows.add(row);
+            if (rows.size() >= batchSize || lobSize >= MAX_BATCH_LOB_SIZE) {
+                flushRows();
+            }
+        }
+
+        @Override
+        public void fetchEnd(DBCSession session, DBCResultSet resultSet) throws DBCException {
+            if (!rows.isEmpty()) {
+                flushRows();
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void flushRows() throws DBCException {
+            try {
+                if (!writer.addBatch(monitor, rows)) {
+                    throw new DBCException("Table copy was stopped");
+                }
+            } catch (InterruptedException e) {
+                throw new DBCException("Table copy was interrupted", e);
+            }
+            rows = new ArrayList<>(batchSize);
+            lobSize = 0;
+        }
+
+        /**
+         * LOB values are bound to the source connection, so they are read before rows are passed to writers.
+         * Values bigger than LOB size quota are rejected.
+         */
+        private Object getTransferableValue(@NotNull String column, Object value) throws DBCException {
+            try {
+                if (value instanceof Clob) {
+                    Clob clob = (Clob) value;
+                    int length = checkLobSize(column, clob.length());
+                    String text = length == 0 ? "" : clob.getSubString(1, length);
+                    clob.free();
+                    lobSize += length * 2L;
+                    return text;
+                }
+                if (value instanceof Blob) {
+                    Blob blob = (Blob) value;
+                    int length = checkLobSize(column, blob.length());
+                    byte[] bytes = length == 0 ? new byte[0] : blob.getBytes(1, length);
+                    blob.free();
+                    lobSize += length;
+                    return bytes;
+                }
+            } catch (SQLException e) {
+                throw new DBCException("Error reading LOB value", e);
+            }
+            return value;
+        }
+
+        private int checkLobSize(@NotNull String column, long length) throws DBQuotaException {
+            if (length > maxLobSize) {
+                throw new DBQuotaException(
+                    "Value of LOB column '" + column + "' is too big to copy (" + length + ")", QUOTA_PROP_MAX_LOB_SIZE, maxLobSize, length);
+            }
+            return (int) length;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import io.cloudbeaver.model.WebServerError;
+import org.jkiss.dbeaver.model.meta.Property;
+
+/**
+ * Export progress of a single table of multi-table export.
+ */
+public class WebDataTransferTableProgress {
+
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_FINISHED = "finished";
+    public static final String STATUS_FAILED = "failed";
+
+    private final String name;
+    private final String entryName;
+    private volatile String status = STATUS_PENDING;
+    private volatile long bytesWritten;
+    private volatile long startTime;
+    private volatile long duration;
+    private volatile WebServerError error;
+
+    WebDataTransferTableProgress(String name, String entryName) {
+        this.name = name;
+        this.entryName = entryName;
+    }
+
+    @Property
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Archive entry name
+     */
+    @Property
+    public String getEntryName() {
+        return entryName;
+    }
+
+    @Property
+    public String getStatus() {
+        return status;
+    }
+
+    @Property
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Export duration (ms). Zero if export wasn't finished.
+     */
+    @Property
+    public long getDuration() {
+        return duration;
+    }
+
+    @Property
+    public WebServerError getError() {
+        return error;
+    }
+
+    void setStarted() {
+        startTime = System.currentTimeMillis();
+        status = STATUS_RUNNING;
+    }
+
+    void setFinished(long bytesWritten) {
+        this.bytesWritten = bytesWritten;
+        this.duration = System.currentTimeMillis() - startTime;
+        this.status = STATUS_FINISHED;
+    }
+
+    void setFailed(Throwable error) {
+        this.error = new WebServerError(error);
+        this.duration = startTime == 0 ? 0 : System.currentTimeMillis() - startTime;
+        this.status = STATUS_FAILED;
+    }
+}
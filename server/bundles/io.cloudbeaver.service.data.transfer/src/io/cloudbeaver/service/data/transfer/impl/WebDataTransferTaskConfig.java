@@ -11,6 +11,8 @@ public class WebDataTransferTaskConfig {
     private File dataFile;
     private WebDataTransferParameters parameters;
     private String exportFileName;
+    private boolean archive;
+    private WebDataTransferFileStore fileStore;
 
     public WebDataTransferTaskConfig(File dataFile, WebDataTransferParameters parameters) {
         this.dataFile = dataFile;
@@ -37,9 +39,27 @@ public class WebDataTransferTaskConfig {
         this.exportFileName = exportFileName;
     }
 
+    /**
+     * Data file is a ZIP archive of several exports
+     */
+    public boolean isArchive() {
+        return archive;
+    }
+
+    public void setArchive(boolean archive) {
+        this.archive = archive;
+    }
+
+    void setFileStore(WebDataTransferFileStore fileStore) {
+        this.fileStore = fileStore;
+    }
+
     public void deleteFile() {
-        if (!dataFile.delete()) {
+        if (dataFile.exists() && !dataFile.delete()) {
             log.error("Error deleting export file " + dataFile.getAbsolutePath());
         }
+        if (fileStore != null) {
+            fileStore.removeFile(getDataFileId());
+        }
     }
 }
\ No newline at end of file
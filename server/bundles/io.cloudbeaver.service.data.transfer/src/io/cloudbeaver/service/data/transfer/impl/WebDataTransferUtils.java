@@ -1,6 +1,7 @@
 package io.cloudbeaver.service.data.transfer.impl;
 
 import io.cloudbeaver.model.session.WebSession;
+import io.cloudbeaver.model.user.WebUser;
 import org.jkiss.dbeaver.Log;
 import org.jkiss.dbeaver.model.preferences.DBPPropertyDescriptor;
 import org.jkiss.dbeaver.tools.transfer.registry.DataTransferProcessorDescriptor;
@@ -17,6 +18,14 @@ class WebDataTransferUtils {
         return CommonUtils.isEmpty(ext) ? "data" : ext;
     }
 
+    /**
+     * User ID or session ID for anonymous sessions. Used for per-user export storage quota.
+     */
+    public static String getSessionOwnerId(WebSession session) {
+        WebUser user = session.getUser();
+        return user == null ? "session:" + session.getSessionId() : user.getUserId();
+    }
+
     public static WebDataTransferSessionConfig getSessionDataTransferConfig(WebSession session) {
         return session.getAttribute("dataTransfer", x -> new WebDataTransferSessionConfig(), WebDataTransferSessionConfig::deleteExportFiles);
     }
@@ -0,0 +1,75 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.impl;
+
+import io.cloudbeaver.model.WebAsyncTaskInfo;
+import org.jkiss.dbeaver.model.runtime.DBRBlockingObject;
+import org.jkiss.dbeaver.model.runtime.DBRProgressMonitor;
+import org.jkiss.dbeaver.model.runtime.ProxyProgressMonitor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+
+/**
+ * Monitor of an export running in a worker thread. Progress is not reported to the task monitor because it is not thread safe,
+ * blocks are registered in the task directly so they are canceled with the task.
+ */
+class WebDataTransferWorkerMonitor extends ProxyProgressMonitor {
+
+    private final Supplier<WebAsyncTaskInfo> taskInfo;
+    private final Deque<DBRBlockingObject> blocks = new ArrayDeque<>();
+
+    WebDataTransferWorkerMonitor(DBRProgressMonitor original, Supplier<WebAsyncTaskInfo> taskInfo) {
+        super(original);
+        this.taskInfo = taskInfo;
+    }
+
+    @Override
+    public void beginTask(String name, int totalWork) {
+    }
+
+    @Override
+    public void subTask(String name) {
+    }
+
+    @Override
+    public void worked(int work) {
+    }
+
+    @Override
+    public void done() {
+    }
+
+    @Override
+    public void startBlock(DBRBlockingObject object, String taskName) {
+        blocks.push(object);
+        WebAsyncTaskInfo task = taskInfo.get();
+        if (task != null) {
+            task.addActiveBlock(object);
+        }
+    }
+
+    @Override
+    public void endBlock() {
+        DBRBlockingObject object = blocks.poll();
+        WebAsyncTaskInfo task = taskInfo.get();
+        if (object != null && task != null) {
+            task.removeActiveBlock(object);
+        }
+    }
+}
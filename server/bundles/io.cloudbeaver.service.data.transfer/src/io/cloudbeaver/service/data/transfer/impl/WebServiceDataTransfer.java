@@ -23,12 +23,16 @@ import io.cloudbeaver.model.session.WebSession;
 import io.cloudbeaver.server.CBApplication;
 import io.cloudbeaver.server.CBPlatform;
 import io.cloudbeaver.service.data.transfer.DBWServiceDataTransfer;
+import io.cloudbeaver.service.data.transfer.importer.DataImportFormat;
 import io.cloudbeaver.service.sql.WebSQLContextInfo;
 import io.cloudbeaver.service.sql.WebSQLProcessor;
 import io.cloudbeaver.service.sql.WebSQLResultsInfo;
+import io.cloudbeaver.service.sql.WebSQLRetainedRowsContainer;
 import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
 import org.jkiss.dbeaver.DBException;
 import org.jkiss.dbeaver.Log;
+import org.jkiss.dbeaver.model.data.DBDDataFilter;
 import org.jkiss.dbeaver.model.exec.DBCException;
 import org.jkiss.dbeaver.model.exec.DBCResultSet;
 import org.jkiss.dbeaver.model.exec.DBCSession;
@@ -47,7 +51,6 @@ import org.jkiss.dbeaver.tools.transfer.registry.DataTransferRegistry;
 import org.jkiss.dbeaver.tools.transfer.stream.IStreamDataExporter;
 import org.jkiss.dbeaver.tools.transfer.stream.StreamConsumerSettings;
 import org.jkiss.dbeaver.tools.transfer.stream.StreamTransferConsumer;
-import org.jkiss.dbeaver.utils.ContentUtils;
 import org.jkiss.utils.CommonUtils;
 
 import java.io.File;
@@ -62,24 +65,62 @@ import java.util.stream.Collectors;
 public class WebServiceDataTransfer implements DBWServiceDataTransfer {
 
     public static final String QUOTA_PROP_FILE_LIMIT = "dataExportFileSizeLimit";
+    public static final String QUOTA_PROP_IMPORT_FILE_LIMIT = "dataImportFileSizeLimit";
+    // Max number of bytes streamed export may be ahead of the client. Spool file size is limited by store quotas.
+    public static final String QUOTA_PROP_STREAM_BUFFER_SIZE = "dataExportStreamBufferSize";
+
+    private static final long DEFAULT_STREAM_BUFFER_SIZE = 8 * 1024 * 1024;
+    // Export store quotas are checked each time export file grows by this number of bytes
+    private static final long STORE_QUOTA_CHECK_INTERVAL = 1024 * 1024;
+
+    // Export task names. Export from results task name shows whether results were re-queried.
+    private static final String TASK_NAME_EXPORT = "Data export";
+    private static final String TASK_NAME_EXPORT_RETAINED = "Data export (fetched results)";
+    private static final String TASK_NAME_EXPORT_QUERY = "Data export (query)";
 
     private static final Log log = Log.getLog(WebServiceDataTransfer.class);
 
     private final File dataExportFolder;
+    private final File dataImportFolder;
+    private final WebDataTransferFileStore fileStore;
 
     public WebServiceDataTransfer() {
         dataExportFolder = CBPlatform.getInstance().getTempFolder(new VoidProgressMonitor(), "data-transfer");
 
-        ContentUtils.deleteFileRecursive(dataExportFolder);
-        if (!dataExportFolder.mkdirs()) {
-            log.error("Error re-creating temporary folder");
+        if (!dataExportFolder.exists() && !dataExportFolder.mkdirs()) {
+            log.error("Error creating temporary folder");
+        }
+        dataImportFolder = new File(dataExportFolder, "import");
+        if (!dataImportFolder.exists() && !dataImportFolder.mkdirs()) {
+            log.error("Error creating import folder");
         }
+        // Folder itself is kept (it may be a mount point or have specific permissions)
+        fileStore = new WebDataTransferFileStore(dataExportFolder);
+        fileStore.reclaimOrphanFiles();
+        new WebDataTransferStoreMonitorJob(fileStore).scheduleMonitor();
     }
 
     public File getDataExportFolder() {
         return dataExportFolder;
     }
 
+    public File getDataImportFolder() {
+        return dataImportFolder;
+    }
+
+    public WebDataTransferFileStore getFileStore() {
+        return fileStore;
+    }
+
+    /**
+     * Makes export file available for download. Other files may be evicted to fit storage quota.
+     */
+    private void registerExportFile(@NotNull WebSession session, @NotNull WebDataTransferTaskConfig taskConfig) throws DBQuotaException {
+        WebDataTransferSessionConfig dtConfig = WebDataTransferUtils.getSessionDataTransferConfig(session);
+        fileStore.addFile(dtConfig, taskConfig, WebDataTransferUtils.getSessionOwnerId(session));
+        dtConfig.addTask(taskConfig);
+    }
+
     @Override
     public List<WebDataTransferStreamProcessor> getAvailableStreamProcessors(WebSession session) {
         List<DataTransferProcessorDescriptor> processors = DataTransferRegistry.getInstance().getAvailableProcessors(StreamTransferConsumer.class, DBSEntity.class);
@@ -103,7 +144,193 @@ public class WebServiceDataTransfer implements DBWServiceDataTransfer {
             throw new DBWebException("Invalid node path: " + containerNodePath, e);
         }
 
-        return asyncExportFromDataContainer(sqlProcessor, parameters, dataContainer);
+        return asyncExportFromDataContainer(sqlProcessor, parameters, dataContainer, TASK_NAME_EXPORT);
+    }
+
+    @Override
+    public WebAsyncTaskInfo dataTransferExportDataFromContainers(
+        WebSQLProcessor sqlProcessor,
+        List<String> containerNodePaths,
+        WebDataTransferParameters parameters,
+        Integer parallelism) throws DBWebException
+    {
+        if (CommonUtils.isEmpty(containerNodePaths)) {
+            throw new DBWebException("No containers specified");
+        }
+        DataTransferProcessorDescriptor processor = DataTransferRegistry.getInstance().getProcessor(parameters.getProcessorId());
+        if (processor == null) {
+            throw new DBWebException("Wrong data processor '" + parameters.getProcessorId() + "'");
+        }
+        List<DBSDataContainer> containers = new ArrayList<>();
+        for (String containerNodePath : containerNodePaths) {
+            try {
+                containers.add(sqlProcessor.getDataContainerByNodePath(sqlProcessor.getWebSession().getProgressMonitor(), containerNodePath, DBSDataContainer.class));
+            } catch (DBException e) {
+                throw new DBWebException("Invalid node path: " + containerNodePath, e);
+            }
+        }
+
+        WebDataTransferMultiExport multiExport = new WebDataTransferMultiExport(this, processor, parameters, containers, parallelism);
+        WebAsyncTaskProcessor<String> runnable = new WebAsyncTaskProcessor<String>() {
+            @Override
+            public void run(DBRProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+                File archiveFile = new File(dataExportFolder, sqlProcessor.getWebSession().getSessionId() + "_" + UUID.randomUUID() + ".zip");
+                try {
+                    int failedCount = multiExport.execute(monitor, archiveFile);
+                    if (failedCount > 0) {
+                        // Incomplete archive is not registered, failed containers are reported by export progress
+                        throw new DBException("Export of " + failedCount + " of " + containers.size() +
+                            " containers failed: " + multiExport.getFailedNames());
+                    }
+                } catch (Exception e) {
+                    if (archiveFile.exists() && !archiveFile.delete()) {
+                        log.error("Error deleting export archive " + archiveFile.getAbsolutePath());
+                    }
+                    if (e instanceof InterruptedException) {
+                        throw (InterruptedException) e;
+                    }
+                    throw new InvocationTargetException(e);
+                }
+                WebDataTransferTaskConfig taskConfig = new WebDataTransferTaskConfig(archiveFile, parameters);
+                taskConfig.setExportFileName(containers.size() == 1 ?
+                    CommonUtils.escapeFileName(CommonUtils.truncateString(containers.get(0).getName(), 32)) :
+                    "export_" + containers.size() + "_tables");
+                taskConfig.setArchive(true);
+                try {
+                    registerExportFile(sqlProcessor.getWebSession(), taskConfig);
+                } catch (DBQuotaException e) {
+                    throw new InvocationTargetException(e);
+                }
+
+                result = archiveFile.getName();
+            }
+        };
+        runnable.setExtendedResults(multiExport);
+        WebAsyncTaskInfo taskInfo = sqlProcessor.getWebSession().createAndRunAsyncTask("Data export (" + containers.size() + " containers)", runnable);
+        // Make per container progress available while export is running
+        taskInfo.setExtendedResult(multiExport);
+        multiExport.setTaskInfo(taskInfo);
+        return taskInfo;
+    }
+
+    @Override
+    public List<WebDataTransferTableProgress> dataTransferExportProgress(WebSession session, String taskId) throws DBWebException {
+        WebAsyncTaskInfo taskStatus = session.asyncTaskStatus(taskId, false);
+        if (!(taskStatus.getExtendedResult() instanceof WebDataTransferMultiExport)) {
+            throw new DBWebException("Task '" + taskId + "' is not a multi-container export task");
+        }
+        return ((WebDataTransferMultiExport) taskStatus.getExtendedResult()).getProgress();
+    }
+
+    @Override
+    public WebAsyncTaskInfo dataTransferImportData(
+        WebSQLProcessor sqlProcessor,
+        String containerNodePath,
+        String fileId,
+        WebDataTransferImportParameters parameters) throws DBWebException
+    {
+        WebDataTransferSessionConfig dtConfig = WebDataTransferUtils.getSessionDataTransferConfig(sqlProcessor.getWebSession());
+        File importFile = dtConfig.getImportFile(fileId);
+        if (importFile == null) {
+            throw new DBWebException("Import file '" + fileId + "' not found");
+        }
+        DataImportFormat format = CommonUtils.isEmpty(parameters.getFormat()) ?
+            DataImportFormat.getByFileName(importFile.getName()) : DataImportFormat.getById(parameters.getFormat());
+        if (format == null) {
+            throw new DBWebException("Unknown import file format. Supported formats: " + DataImportFormat.getSupportedFormats());
+        }
+        DBSEntity entity;
+        try {
+            entity = sqlProcessor.getDataContainerByNodePath(sqlProcessor.getWebSession().getProgressMonitor(), containerNodePath, DBSEntity.class);
+        } catch (DBException e) {
+            throw new DBWebException("Invalid node path: " + containerNodePath, e);
+        }
+
+        WebDataTransferImport dataImport = new WebDataTransferImport(entity, importFile, format, parameters);
+        WebAsyncTaskProcessor<Long> runnable = new WebAsyncTaskProcessor<Long>() {
+            @Override
+            public void run(DBRProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+                try {
+                    result = dataImport.execute(monitor);
+                } catch (DBException e) {
+                    throw new InvocationTargetException(e);
+                }
+                // File is kept after failed import, so import may be retried
+                dtConfig.removeImportFile(fileId);
+            }
+        };
+        runnable.setExtendedResults(dataImport);
+        WebAsyncTaskInfo taskInfo = sqlProcessor.getWebSession().createAndRunAsyncTask("Data import", runnable);
+        // Make progress available while import is running
+        taskInfo.setExtendedResult(dataImport);
+        dataImport.setTaskInfo(taskInfo);
+        return taskInfo;
+    }
+
+    @Override
+    public WebDataTransferImportProgress dataTransferImportProgress(WebSession session, String taskId) throws DBWebException {
+        WebAsyncTaskInfo taskStatus = session.asyncTaskStatus(taskId, false);
+        if (!(taskStatus.getExtendedResult() instanceof WebDataTransferImport)) {
+            throw new DBWebException("Task '" + taskId + "' is not a data import task");
+        }
+        return ((WebDataTransferImport) taskStatus.getExtendedResult()).getProgress();
+    }
+
+    @Override
+    public WebAsyncTaskInfo dataTransferCopyTable(
+        WebSQLProcessor sqlProcessor,
+        String containerNodePath,
+        WebSQLProcessor targetSqlProcessor,
+        String targetContainerNodePath,
+        WebDataTransferCopyParameters parameters) throws DBWebException
+    {
+        DBRProgressMonitor monitor = sqlProcessor.getWebSession().getProgressMonitor();
+        DBSEntity source, target;
+        try {
+            source = sqlProcessor.getDataContainerByNodePath(monitor, containerNodePath, DBSEntity.class);
+        } catch (DBException e) {
+            throw new DBWebException("Invalid node path: " + containerNodePath, e);
+        }
+        try {
+            target = targetSqlProcessor.getDataContainerByNodePath(monitor, targetContainerNodePath, DBSEntity.class);
+        } catch (DBException e) {
+            throw new DBWebException("Invalid target node path: " + targetContainerNodePath, e);
+        }
+        if (source == target) {
+            throw new DBWebException("Table can't be copied into itself");
+        }
+
+        WebDataTransferTableCopy tableCopy;
+        try {
+            tableCopy = new WebDataTransferTableCopy(source, target, parameters);
+        } catch (DBException e) {
+            throw new DBWebException("Error preparing table copy", e);
+        }
+        WebAsyncTaskProcessor<Long> runnable = new WebAsyncTaskProcessor<Long>() {
+            @Override
+            public void run(DBRProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+                try {
+                    result = tableCopy.execute(monitor);
+                } catch (DBException e) {
+                    throw new InvocationTargetException(e);
+                }
+            }
+        };
+        runnable.setExtendedResults(tableCopy);
+        WebAsyncTaskInfo taskInfo = sqlProcessor.getWebSession().createAndRunAsyncTask("Table copy", runnable);
+        // Make progress available while copy is running
+        taskInfo.setExtendedResult(tableCopy);
+        tableCopy.setTaskInfo(taskInfo);
+        return taskInfo;
+    }
+
+    @Override
+    public WebDataTransferLoadProgress dataTransferCopyProgress(WebSession session, String taskId) throws DBWebException {
+        WebAsyncTaskInfo taskStatus = session.asyncTaskStatus(taskId, false);
+        if (!(taskStatus.getExtendedResult() instanceof WebDataTransferTableCopy)) {
+            throw new DBWebException("Task '" + taskId + "' is not a table copy task");
+        }
+        return ((WebDataTransferTableCopy) taskStatus.getExtendedResult()).getProgress();
     }
 
     @NotNull
@@ -118,8 +345,27 @@ public class WebServiceDataTransfer implements DBWServiceDataTransfer {
         WebDataTransferParameters parameters) throws DBWebException {
 
         WebSQLResultsInfo results = sqlContext.getResults(resultsId);
+        WebSQLProcessor sqlProcessor = sqlContext.getProcessor();
+        DBRProgressMonitor monitor = sqlProcessor.getWebSession().getProgressMonitor();
+
+        // Fully fetched results are exported from memory, without query re-execution
+        WebSQLRetainedRowsContainer retainedRows;
+        try {
+            DBDDataFilter dataFilter = parameters.getFilter() == null ?
+                new DBDDataFilter() : parameters.getFilter().makeDataFilter(monitor, null, results.getDataContainer());
+            retainedRows = WebSQLRetainedRowsContainer.create(monitor, results, dataFilter);
+        } catch (DBException e) {
+            throw new DBWebException("Error evaluating results filter", e);
+        }
+        if (retainedRows == null) {
+            return asyncExportFromDataContainer(sqlProcessor, parameters, results.getDataContainer(), TASK_NAME_EXPORT_QUERY);
+        }
+        return asyncExportFromDataContainer(sqlProcessor, parameters, retainedRows, TASK_NAME_EXPORT_RETAINED);
+    }
 
-        return asyncExportFromDataContainer(sqlContext.getProcessor(), parameters, results.getDataContainer());
+    @Override
+    public WebDataTransferStoreInfo dataTransferStoreInfo(WebSession session) {
+        return fileStore.getStoreInfo(WebDataTransferUtils.getSessionOwnerId(session));
     }
 
     @Override
@@ -140,8 +386,15 @@ public class WebServiceDataTransfer implements DBWServiceDataTransfer {
         return true;
     }
 
-    private WebAsyncTaskInfo asyncExportFromDataContainer(WebSQLProcessor sqlProcessor, WebDataTransferParameters parameters, DBSDataContainer dataContainer) {
+    private WebAsyncTaskInfo asyncExportFromDataContainer(
+        WebSQLProcessor sqlProcessor,
+        WebDataTransferParameters parameters,
+        DBSDataContainer dataContainer,
+        String taskName)
+    {
         DataTransferProcessorDescriptor processor = DataTransferRegistry.getInstance().getProcessor(parameters.getProcessorId());
+        WebDataTransferPartitionedExport partitionedExport = WebDataTransferPartitionedExport.isPartitioned(parameters, dataContainer) ?
+            new WebDataTransferPartitionedExport(this, processor, parameters, (DBSEntity) dataContainer) : null;
         WebAsyncTaskProcessor<String> runnable = new WebAsyncTaskProcessor<String>() {
             @Override
             public void run(DBRProgressMonitor monitor) throws InvocationTargetException {
@@ -149,8 +402,13 @@ public class WebServiceDataTransfer implements DBWServiceDataTransfer {
                 try {
                     monitor.subTask("Export data using " + processor.getName());
                     File exportFile = new File(dataExportFolder, makeUniqueFileName(sqlProcessor, processor));
+                    boolean archive = false;
                     try {
-                        exportData(monitor, processor, dataContainer, parameters, exportFile);
+                        if (partitionedExport != null) {
+                            archive = partitionedExport.execute(monitor, exportFile);
+                        } else {
+                            exportData(monitor, processor, dataContainer, parameters, exportFile, null);
+                        }
                     } catch (Exception e) {
                         if (exportFile.exists()) {
                             if (!exportFile.delete()) {
@@ -165,25 +423,115 @@ public class WebServiceDataTransfer implements DBWServiceDataTransfer {
                     WebDataTransferTaskConfig taskConfig = new WebDataTransferTaskConfig(exportFile, parameters);
                     String exportFileName = CommonUtils.escapeFileName(CommonUtils.truncateString(dataContainer.getName(), 32));
                     taskConfig.setExportFileName(exportFileName);
-                    WebDataTransferUtils.getSessionDataTransferConfig(sqlProcessor.getWebSession()).addTask(taskConfig);
+                    taskConfig.setArchive(archive);
+                    registerExportFile(sqlProcessor.getWebSession(), taskConfig);
 
                     result = exportFile.getName();
                 } catch (Throwable e) {
                     throw new InvocationTargetException(e);
                 } finally {
+                    if (dataContainer instanceof WebSQLRetainedRowsContainer) {
+                        ((WebSQLRetainedRowsContainer) dataContainer).dispose();
+                    }
+                    monitor.done();
+                }
+            }
+        };
+        WebAsyncTaskInfo taskInfo = sqlProcessor.getWebSession().createAndRunAsyncTask(taskName, runnable);
+        if (partitionedExport != null) {
+            partitionedExport.setTaskInfo(taskInfo);
+        }
+        return taskInfo;
+    }
+
+    /**
+     * Starts export which is sent to the client while it is running (see {@link WebDataTransferExportStream#copyTo}).
+     * Export file is not kept after it is sent.
+     */
+    @NotNull
+    public WebDataTransferExportStream streamExportFromDataContainer(
+        @NotNull WebSQLProcessor sqlProcessor,
+        @NotNull DBSDataContainer dataContainer,
+        @NotNull WebDataTransferParameters parameters) throws DBWebException
+    {
+        DataTransferProcessorDescriptor processor = DataTransferRegistry.getInstance().getProcessor(parameters.getProcessorId());
+        if (processor == null) {
+            throw new DBWebException("Wrong data processor '" + parameters.getProcessorId() + "'");
+        }
+        Number bufferSize = CBApplication.getInstance().getAppConfiguration().getResourceQuota(QUOTA_PROP_STREAM_BUFFER_SIZE);
+        WebDataTransferExportStream exportStream = new WebDataTransferExportStream(
+            new File(dataExportFolder, makeUniqueFileName(sqlProcessor, processor)),
+            bufferSize == null ? DEFAULT_STREAM_BUFFER_SIZE : bufferSize.longValue());
+        exportStream.setFileName(
+            CommonUtils.escapeFileName(CommonUtils.truncateString(dataContainer.getName(), 32)) +
+            "." + WebDataTransferUtils.getProcessorFileExtension(processor));
+        exportStream.setContentType(processor.getContentType());
+        try {
+            WebDataTransferCompression compression = WebDataTransferCompression.fromSettings(parameters.getSettings());
+            exportStream.setContentEncoding(compression == null ? null : compression.getContentEncoding());
+        } catch (DBException e) {
+            throw new DBWebException(e.getMessage(), e);
+        }
+
+        WebAsyncTaskProcessor<String> runnable = new WebAsyncTaskProcessor<String>() {
+            @Override
+            public void run(DBRProgressMonitor monitor) throws InvocationTargetException {
+                monitor.beginTask("Stream data export", 1);
+                Throwable error = null;
+                try {
+                    monitor.subTask("Export data using " + processor.getName());
+                    exportData(monitor, processor, dataContainer, parameters, exportStream.getSpoolFile(), exportStream);
+                    result = exportStream.getFileName();
+                } catch (Throwable e) {
+                    error = e;
+                    throw new InvocationTargetException(e);
+                } finally {
+                    exportStream.finish(error);
                     monitor.done();
                 }
             }
         };
-        return sqlProcessor.getWebSession().createAndRunAsyncTask("Data export", runnable);
+        WebAsyncTaskInfo taskInfo = sqlProcessor.getWebSession().createAndRunAsyncTask("Data export stream", runnable);
+        exportStream.setTaskId(taskInfo.getId());
+        return exportStream;
+    }
+
+    void exportData(
+        DBRProgressMonitor monitor,
+        DataTransferProcessorDescriptor processor,
+        DBSDataContainer dataContainer,
+        WebDataTransferParameters parameters,
+        File exportFile,
+        @Nullable WebDataTransferExportStream exportStream) throws DBException, IOException
+    {
+        exportData(
+            monitor,
+            processor,
+            dataContainer,
+            parameters,
+            // Retained rows are already filtered
+            parameters.getFilter() == null || dataContainer instanceof WebSQLRetainedRowsContainer ?
+                null : parameters.getFilter().makeDataFilter(monitor, null, dataContainer),
+            Collections.emptyMap(),
+            exportFile,
+            exportStream,
+            null);
     }
 
-    private void exportData(
+    /**
+     * Exports data with explicit data filter. Processor properties overrides replace properties specified in parameters.
+     * Shared size quota counts bytes of all files exported into the same output.
+     */
+    void exportData(
         DBRProgressMonitor monitor,
         DataTransferProcessorDescriptor processor,
         DBSDataContainer dataContainer,
         WebDataTransferParameters parameters,
-        File exportFile) throws DBException, IOException
+        @Nullable DBDDataFilter dataFilter,
+        @NotNull Map<String, Object> processorPropertiesOverrides,
+        File exportFile,
+        @Nullable WebDataTransferExportStream exportStream,
+        @Nullable WebDataTransferSizeQuota sizeQuota) throws DBException, IOException
     {
         IDataTransferProcessor processorInstance = processor.getInstance();
         if (!(processorInstance instanceof IStreamDataExporter)) {
@@ -191,15 +539,39 @@ public class WebServiceDataTransfer implements DBWServiceDataTransfer {
         }
         IStreamDataExporter exporter = (IStreamDataExporter) processorInstance;
 
+        // Compressed output is written by exporter wrapper, consumer output file stays empty
+        WebDataTransferCompression compression = WebDataTransferCompression.fromSettings(parameters.getSettings());
+        WebDataTransferCompressedExporter compressedExporter = compression == null ?
+            null : new WebDataTransferCompressedExporter(exporter, compression, exportFile);
+        File consumerFile = compressedExporter == null ?
+            exportFile : new File(exportFile.getParentFile(), exportFile.getName() + ".out");
+
         Number fileSizeLimit = CBApplication.getInstance().getAppConfiguration().getResourceQuota(QUOTA_PROP_FILE_LIMIT);
 
         StreamTransferConsumer consumer = new StreamTransferConsumer() {
+            private long quotaBytes;
+            private long storeCheckedBytes;
+
             @Override
             public void fetchRow(DBCSession session, DBCResultSet resultSet) throws DBCException {
                 super.fetchRow(session, resultSet);
-                if (fileSizeLimit != null && getBytesWritten() > fileSizeLimit.longValue()) {
+                // Quota is applied to the actual (compressed) file size
+                long bytesWritten = compressedExporter == null ? getBytesWritten() : compressedExporter.getBytesWritten();
+                if (fileSizeLimit != null && bytesWritten > fileSizeLimit.longValue()) {
                     throw new DBQuotaException(
-                        "Data export quota exceeded", QUOTA_PROP_FILE_LIMIT, fileSizeLimit.longValue(), getBytesWritten());
+                        "Data export quota exceeded", QUOTA_PROP_FILE_LIMIT, fileSizeLimit.longValue(), bytesWritten);
+                }
+                if (sizeQuota != null && bytesWritten > quotaBytes) {
+                    sizeQuota.addBytes(bytesWritten - quotaBytes);
+                    quotaBytes = bytesWritten;
+                }
+                if (bytesWritten - storeCheckedBytes >= STORE_QUOTA_CHECK_INTERVAL) {
+                    // File is registered in the store after export, but it must fit store quotas while it is written
+                    fileStore.checkFileSize(exportFile, bytesWritten);
+                    storeCheckedBytes = bytesWritten;
+                }
+                if (exportStream != null) {
+                    exportStream.waitForClient(session.getProgressMonitor(), bytesWritten);
                 }
             }
         };
@@ -207,8 +579,8 @@ public class WebServiceDataTransfer implements DBWServiceDataTransfer {
         StreamConsumerSettings settings = new StreamConsumerSettings();
 
         settings.setOutputEncodingBOM(false);
-        settings.setOutputFolder(exportFile.getParentFile().getAbsolutePath());
-        settings.setOutputFilePattern(exportFile.getName());
+        settings.setOutputFolder(consumerFile.getParentFile().getAbsolutePath());
+        settings.setOutputFilePattern(consumerFile.getName());
 
         Map<String, Object> properties = new HashMap<>();
 
@@ -218,6 +590,7 @@ public class WebServiceDataTransfer implements DBWServiceDataTransfer {
             Object propValue = processorProperties.get(CommonUtils.toString(prop.getId()));
             properties.put(prop.getId(), propValue != null ? propValue : prop.getDefaultValue());
         }
+        properties.putAll(processorPropertiesOverrides);
         // Remove extension property (we specify file name directly)
         properties.remove(StreamConsumerSettings.PROP_FILE_EXTENSION);
 
@@ -225,20 +598,28 @@ public class WebServiceDataTransfer implements DBWServiceDataTransfer {
             dataContainer,
             settings,
             new IDataTransferConsumer.TransferParameters(processor.isBinaryFormat(), processor.isHTMLFormat()),
-            exporter,
+            compressedExporter == null ? exporter : compressedExporter,
             properties);
 
-        DatabaseTransferProducer producer = new DatabaseTransferProducer(
-            dataContainer,
-            parameters.getFilter() == null ? null : parameters.getFilter().makeDataFilter(monitor, null, dataContainer));
+        DatabaseTransferProducer producer = new DatabaseTransferProducer(dataContainer, dataFilter);
         DatabaseProducerSettings producerSettings = new DatabaseProducerSettings();
         producerSettings.setExtractType(DatabaseProducerSettings.ExtractType.SINGLE_QUERY);
         producerSettings.setQueryRowCount(false);
-        producerSettings.setOpenNewConnections(CommonUtils.getOption(parameters.getSettings(), "openNewConnection"));
-
-        producer.transferData(monitor, consumer, null, producerSettings, null);
+        producerSettings.setOpenNewConnections(
+            !(dataContainer instanceof WebSQLRetainedRowsContainer) && CommonUtils.getOption(parameters.getSettings(), "openNewConnection"));
 
-        consumer.finishTransfer(monitor, false);
+        try {
+            producer.transferData(monitor, consumer, null, producerSettings, null);
+
+            consumer.finishTransfer(monitor, false);
+        } finally {
+            if (compressedExporter != null) {
+                compressedExporter.close();
+                if (consumerFile.exists() && !consumerFile.delete()) {
+                    log.error("Error deleting export output file " + consumerFile.getAbsolutePath());
+                }
+            }
+        }
     }
 
 }
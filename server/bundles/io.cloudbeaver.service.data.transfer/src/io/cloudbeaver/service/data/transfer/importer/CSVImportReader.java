@@ -0,0 +1,185 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.importer;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CSV reader.
+ * Settings: delimiter (default comma), quoteChar (default double quote), header (default true), encoding (default UTF-8)
+ * and nullString. Empty unquoted values are read as nulls if nullString is not specified.
+ * Quoted values may contain delimiters, line breaks and doubled quotes.
+ */
+class CSVImportReader implements DataImportReader {
+
+    private static final int NO_QUOTE = -2;
+
+    private final Reader reader;
+    private final char delimiter;
+    private final int quoteChar;
+    private final String nullString;
+    private final List<String> columnNames = new ArrayList<>();
+    private Object[] firstRow;
+    private boolean endOfFile;
+
+    CSVImportReader(@NotNull File file, @NotNull Map<String, Object> settings) throws IOException {
+        String delimiterSetting = DataImportFormat.getSetting(settings, "delimiter", ",");
+        this.delimiter = delimiterSetting.equals("\\t") ? '\t' : delimiterSetting.charAt(0);
+        String quoteSetting = DataImportFormat.getSetting(settings, "quoteChar", "\"");
+        this.quoteChar = quoteSetting.isEmpty() ? NO_QUOTE : quoteSetting.charAt(0);
+        this.nullString = DataImportFormat.getSetting(settings, "nullString", null);
+        Charset charset = Charset.forName(DataImportFormat.getSetting(settings, "encoding", StandardCharsets.UTF_8.name()));
+        this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset), 64 * 1024);
+
+        skipBOM();
+        List<String> firstValues = readValues();
+        if (firstValues == null) {
+            throw new IOException("CSV file is empty");
+        }
+        if (CommonUtils.getBoolean(settings.get("header"), true)) {
+            for (int i = 0; i < firstValues.size(); i++) {
+                String name = firstValues.get(i);
+                columnNames.add(CommonUtils.isEmpty(name) ? "column" + (i + 1) : name.trim());
+            }
+        } else {
+            for (int i = 0; i < firstValues.size(); i++) {
+                columnNames.add("column" + (i + 1));
+            }
+            firstRow = toRow(firstValues);
+        }
+    }
+
+    @NotNull
+    @Override
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    @Nullable
+    @Override
+    public Object[] readRow() throws IOException {
+        if (firstRow != null) {
+            Object[] row = firstRow;
+            firstRow = null;
+            return row;
+        }
+        List<String> values = readValues();
+        return values == null ? null : toRow(values);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Object[] toRow(List<String> values) {
+        // Missing trailing values are nulls, extra values are ignored
+        Object[] row = new Object[columnNames.size()];
+        for (int i = 0; i < row.length && i < values.size(); i++) {
+            String value = values.get(i);
+            row[i] = value == null || (nullString != null && nullString.equals(value)) ? null : value;
+        }
+        return row;
+    }
+
+    private void skipBOM() throws IOException {
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+    }
+
+    /**
+     * Reads values of the next record. Empty unquoted values are returned as nulls unless null string is specified.
+     * Empty lines are skipped.
+     */
+    @Nullable
+    private List<String> readValues() throws IOException {
+        while (!endOfFile) {
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            boolean inQuotes = false;
+            for (;;) {
+                int c = reader.read();
+                if (c == -1) {
+                    endOfFile = true;
+                    if (inQuotes) {
+                        throw new IOException("Unexpected end of file in quoted value");
+                    }
+                    if (values.isEmpty() && value.length() == 0 && !quoted) {
+                        return null;
+                    }
+                    values.add(makeValue(value, quoted));
+                    return values;
+                }
+                if (inQuotes) {
+                    if (c == quoteChar) {
+                        reader.mark(1);
+                        if (reader.read() == quoteChar) {
+                            value.append((char) c);
+                        } else {
+                            reader.reset();
+                            inQuotes = false;
+                        }
+                    } else {
+                        value.append((char) c);
+                    }
+                } else if (c == quoteChar && value.length() == 0 && !quoted) {
+                    inQuotes = true;
+                    quoted = true;
+                } else if (c == delimiter) {
+                    values.add(makeValue(value, quoted));
+                    value.setLength(0);
+                    quoted = false;
+                } else if (c == '\r' || c == '\n') {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    if (values.isEmpty() && value.length() == 0 && !quoted) {
+                        // Empty line
+                        break;
+                    }
+                    values.add(makeValue(value, quoted));
+                    return values;
+                } else {
+                    value.append((char) c);
+                }
+            }
+        }
+        return null;
+    }
+
+    private String makeValue(StringBuilder value, boolean quoted) {
+        if (value.length() == 0 && !quoted && nullString == null) {
+            return null;
+        }
+        return value.toString();
+    }
+}
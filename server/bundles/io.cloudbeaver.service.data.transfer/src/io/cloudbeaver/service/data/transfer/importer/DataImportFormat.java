@@ -0,0 +1,99 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.importer;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+import org.jkiss.utils.CommonUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Supported import file formats
+ */
+public enum DataImportFormat {
+
+    CSV("csv", "csv", "txt"),
+    JSONL("jsonl", "jsonl", "ndjson", "json"),
+    PARQUET("parquet", "parquet");
+
+    private final String id;
+    private final String[] fileExtensions;
+
+    DataImportFormat(String id, String... fileExtensions) {
+        this.id = id;
+        this.fileExtensions = fileExtensions;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @NotNull
+    public DataImportReader openReader(@NotNull File file, @NotNull Map<String, Object> settings) throws IOException {
+        switch (this) {
+            case CSV:
+                return new CSVImportReader(file, settings);
+            case JSONL:
+                return new JSONLinesImportReader(file, settings);
+            default:
+                return new ParquetImportReader(file);
+        }
+    }
+
+    @Nullable
+    public static DataImportFormat getById(@Nullable String id) {
+        for (DataImportFormat format : values()) {
+            if (format.id.equalsIgnoreCase(id)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Detects format by file extension
+     */
+    @Nullable
+    public static DataImportFormat getByFileName(@NotNull String fileName) {
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+        for (DataImportFormat format : values()) {
+            for (String formatExtension : format.fileExtensions) {
+                if (formatExtension.equalsIgnoreCase(extension)) {
+                    return format;
+                }
+            }
+        }
+        return null;
+    }
+
+    @NotNull
+    public static String getSupportedFormats() {
+        StringBuilder formats = new StringBuilder();
+        for (DataImportFormat format : values()) {
+            if (formats.length() > 0) formats.append(", ");
+            formats.append(format.id);
+        }
+        return formats.toString();
+    }
+
+    static String getSetting(@NotNull Map<String, Object> settings, @NotNull String name, @Nullable String defaultValue) {
+        return CommonUtils.toString(settings.get(name), defaultValue);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.importer;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads rows of an uploaded import file.
+ * Row values are strings, numbers, booleans, dates, timestamps or byte arrays and are converted to the target column types by the loader.
+ */
+public interface DataImportReader extends Closeable {
+
+    @NotNull
+    List<String> getColumnNames();
+
+    /**
+     * Returns values of the next row (in order of column names) or null at the end of file.
+     */
+    @Nullable
+    Object[] readRow() throws IOException;
+
+}
@@ -0,0 +1,136 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.importer;
+
+import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON lines reader. Each line is a JSON object, a JSON array of objects is also accepted.
+ * Columns are taken from keys of the first object, other keys are ignored.
+ * Nested objects and arrays are read as JSON strings.
+ */
+class JSONLinesImportReader implements DataImportReader {
+
+    private static final Gson gson = new GsonBuilder().create();
+
+    private final JsonReader reader;
+    private final boolean array;
+    private final List<String> columnNames = new ArrayList<>();
+    private JsonObject firstObject;
+
+    JSONLinesImportReader(@NotNull File file, @NotNull Map<String, Object> settings) throws IOException {
+        Charset charset = Charset.forName(DataImportFormat.getSetting(settings, "encoding", StandardCharsets.UTF_8.name()));
+        this.reader = new JsonReader(new BufferedReader(new InputStreamReader(new FileInputStream(file), charset), 64 * 1024));
+        // Lenient mode allows multiple top level values
+        this.reader.setLenient(true);
+        try {
+            this.array = reader.peek() == JsonToken.BEGIN_ARRAY;
+            if (array) {
+                reader.beginArray();
+            }
+            firstObject = readObject();
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+        if (firstObject == null) {
+            reader.close();
+            throw new IOException("JSON file is empty");
+        }
+        columnNames.addAll(firstObject.keySet());
+    }
+
+    @NotNull
+    @Override
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    @Nullable
+    @Override
+    public Object[] readRow() throws IOException {
+        JsonObject object = firstObject;
+        if (object != null) {
+            firstObject = null;
+        } else {
+            object = readObject();
+            if (object == null) {
+                return null;
+            }
+        }
+        Object[] row = new Object[columnNames.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = toValue(object.get(columnNames.get(i)));
+        }
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    @Nullable
+    private JsonObject readObject() throws IOException {
+        try {
+            if (array ? !reader.hasNext() : reader.peek() == JsonToken.END_DOCUMENT) {
+                return null;
+            }
+            JsonElement element = gson.fromJson(reader, JsonElement.class);
+            if (!(element instanceof JsonObject)) {
+                throw new IOException("JSON object expected at " + reader.getPath());
+            }
+            return (JsonObject) element;
+        } catch (JsonParseException e) {
+            throw new IOException("Error parsing JSON", e);
+        }
+    }
+
+    @Nullable
+    private static Object toValue(@Nullable JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            return null;
+        }
+        if (!element.isJsonPrimitive()) {
+            return element.toString();
+        }
+        JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return primitive.getAsBoolean();
+        }
+        if (primitive.isNumber()) {
+            BigDecimal number = primitive.getAsBigDecimal();
+            if (number.scale() <= 0 && number.precision() - number.scale() < 19) {
+                return number.longValue();
+            }
+            return number;
+        }
+        return primitive.getAsString();
+    }
+}
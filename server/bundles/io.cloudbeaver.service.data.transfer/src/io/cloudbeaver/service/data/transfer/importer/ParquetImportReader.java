@@ -0,0 +1,619 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.importer;
+
+import io.cloudbeaver.service.data.transfer.importer.ThriftCompactReader.ThriftStruct;
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parquet file reader.
+ * Row groups are decoded one at a time. Supports flat schemas (no nested or repeated columns), data pages V1 and V2,
+ * PLAIN and dictionary encodings, uncompressed, Snappy and GZIP codecs.
+ * Timestamps which are not explicitly adjusted to UTC are read as local date/time.
+ */
+class ParquetImportReader implements DataImportReader {
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+    // Parquet format enums
+    private static final int TYPE_BOOLEAN = 0;
+    private static final int TYPE_INT32 = 1;
+    private static final int TYPE_INT64 = 2;
+    private static final int TYPE_INT96 = 3;
+    private static final int TYPE_FLOAT = 4;
+    private static final int TYPE_DOUBLE = 5;
+    private static final int TYPE_BYTE_ARRAY = 6;
+    private static final int TYPE_FIXED_LEN_BYTE_ARRAY = 7;
+
+    private static final int CONVERTED_UTF8 = 0;
+    private static final int CONVERTED_ENUM = 4;
+    private static final int CONVERTED_DECIMAL = 5;
+    private static final int CONVERTED_DATE = 6;
+    private static final int CONVERTED_TIME_MILLIS = 7;
+    private static final int CONVERTED_TIME_MICROS = 8;
+    private static final int CONVERTED_TIMESTAMP_MILLIS = 9;
+    private static final int CONVERTED_TIMESTAMP_MICROS = 10;
+    private static final int CONVERTED_UINT_32 = 13;
+    private static final int CONVERTED_UINT_64 = 14;
+    private static final int CONVERTED_JSON = 19;
+
+    private static final int REPETITION_OPTIONAL = 1;
+    private static final int REPETITION_REPEATED = 2;
+
+    private static final int ENCODING_PLAIN = 0;
+    private static final int ENCODING_PLAIN_DICTIONARY = 2;
+    private static final int ENCODING_RLE_DICTIONARY = 8;
+
+    private static final int CODEC_UNCOMPRESSED = 0;
+    private static final int CODEC_SNAPPY = 1;
+    private static final int CODEC_GZIP = 2;
+
+    private static final int PAGE_DATA = 0;
+    private static final int PAGE_DICTIONARY = 2;
+    private static final int PAGE_DATA_V2 = 3;
+
+    // Logical value kinds
+    private static final int KIND_PLAIN = 0;
+    private static final int KIND_STRING = 1;
+    private static final int KIND_DECIMAL = 2;
+    private static final int KIND_DATE = 3;
+    private static final int KIND_TIME = 4;
+    private static final int KIND_TIMESTAMP = 5;
+    private static final int KIND_UNSIGNED = 6;
+    private static final int KIND_UUID = 7;
+
+    private static final long NANOS_PER_DAY = 86_400_000_000_000L;
+    private static final long JULIAN_EPOCH_DAY = 2_440_588;
+
+    private final RandomAccessFile file;
+    private final List<ColumnInfo> columns = new ArrayList<>();
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<ThriftStruct> rowGroups;
+    private int rowGroupIndex;
+    private Object[][] groupValues;
+    private int groupRowCount;
+    private int groupRow;
+
+    ParquetImportReader(@NotNull File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        try {
+            long fileLength = this.file.length();
+            if (fileLength < MAGIC.length * 2 + 4) {
+                throw new IOException("File is not a Parquet file");
+            }
+            byte[] tail = new byte[8];
+            this.file.seek(fileLength - tail.length);
+            this.file.readFully(tail);
+            if (!Arrays.equals(Arrays.copyOfRange(tail, 4, 8), MAGIC)) {
+                throw new IOException("File is not a Parquet file");
+            }
+            int footerLength = readIntLE(tail, 0);
+            if (footerLength <= 0 || footerLength > fileLength - tail.length - MAGIC.length) {
+                throw new IOException("Invalid Parquet footer length");
+            }
+            byte[] footer = new byte[footerLength];
+            this.file.seek(fileLength - tail.length - footerLength);
+            this.file.readFully(footer);
+            ThriftStruct fileMetaData = new ThriftCompactReader(footer, 0).readStruct();
+
+            List<ThriftStruct> schema = fileMetaData.getStructList(2);
+            if (schema.isEmpty() || schema.get(0).getInt(5, 0) != schema.size() - 1) {
+                throw new IOException("Nested Parquet schemas are not supported");
+            }
+            for (ThriftStruct element : schema.subList(1, schema.size())) {
+                ColumnInfo column = new ColumnInfo(element);
+                columns.add(column);
+                columnNames.add(column.name);
+            }
+            this.rowGroups = fileMetaData.getStructList(4);
+        } catch (IOException | RuntimeException e) {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    @NotNull
+    @Override
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    @Nullable
+    @Override
+    public Object[] readRow() throws IOException {
+        while (groupRow >= groupRowCount) {
+            if (rowGroupIndex >= rowGroups.size()) {
+                return null;
+            }
+            readRowGroup(rowGroups.get(rowGroupIndex++));
+        }
+        Object[] row = new Object[columns.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = groupValues[i][groupRow];
+        }
+        groupRow++;
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        groupValues = null;
+        file.close();
+    }
+
+    private void readRowGroup(ThriftStruct rowGroup) throws IOException {
+        long rowCount = rowGroup.getLong(3, 0);
+        if (rowCount < 0 || rowCount > Integer.MAX_VALUE - 8) {
+            throw new IOException("Invalid Parquet row group size: " + rowCount);
+        }
+        List<ThriftStruct> chunks = rowGroup.getStructList(1);
+        if (chunks.size() != columns.size()) {
+            throw new IOException("Parquet row group doesn't match file schema");
+        }
+        // Release previous row group before reading the next one
+        groupValues = null;
+        Object[][] values = new Object[columns.size()][];
+        for (int i = 0; i < columns.size(); i++) {
+            values[i] = readColumnChunk(columns.get(i), chunks.get(i).getRequiredStruct(3, "meta_data"), (int) rowCount);
+        }
+        groupValues = values;
+        groupRowCount = (int) rowCount;
+        groupRow = 0;
+    }
+
+    private Object[] readColumnChunk(ColumnInfo column, ThriftStruct metaData, int rowCount) throws IOException {
+        int codec = metaData.getInt(4, CODEC_UNCOMPRESSED);
+        long totalSize = metaData.getLong(7, 0);
+        long offset = metaData.getLong(9, 0);
+        long dictionaryOffset = metaData.getLong(11, 0);
+        if (dictionaryOffset > 0 && dictionaryOffset < offset) {
+            offset = dictionaryOffset;
+        }
+        if (totalSize < 0 || totalSize > Integer.MAX_VALUE - 8 || offset < 0 || offset + totalSize > file.length()) {
+            throw new IOException("Invalid column chunk of '" + column.name + "'");
+        }
+        byte[] chunk = new byte[(int) totalSize];
+        file.seek(offset);
+        file.readFully(chunk);
+
+        Object[] values = new Object[rowCount];
+        Object[] dictionary = null;
+        int valueIndex = 0;
+        int position = 0;
+        try {
+            while (valueIndex < rowCount && position < chunk.length) {
+                ThriftCompactReader headerReader = new ThriftCompactReader(chunk, position);
+                ThriftStruct header = headerReader.readStruct();
+                position = headerReader.getPosition();
+                int pageType = header.getInt(1, -1);
+                int uncompressedSize = header.getInt(2, 0);
+                int compressedSize = header.getInt(3, 0);
+                if (compressedSize < 0 || uncompressedSize < 0 || compressedSize > chunk.length - position) {
+                    throw new IOException("Invalid page size");
+                }
+                switch (pageType) {
+                    case PAGE_DICTIONARY: {
+                        ThriftStruct dictionaryHeader = header.getRequiredStruct(7, "dictionary_page_header");
+                        byte[] data = decompress(codec, chunk, position, compressedSize, uncompressedSize);
+                        dictionary = decodePlain(column, data, 0, data.length, dictionaryHeader.getInt(1, 0));
+                        break;
+                    }
+                    case PAGE_DATA: {
+                        ThriftStruct dataHeader = header.getRequiredStruct(5, "data_page_header");
+                        int valueCount = Math.min(dataHeader.getInt(1, 0), rowCount - valueIndex);
+                        byte[] data = decompress(codec, chunk, position, compressedSize, uncompressedSize);
+                        int valuesOffset = 0;
+                        boolean[] present = null;
+                        if (column.optional) {
+                            int levelsLength = readIntLE(data, 0);
+                            present = decodeDefinitionLevels(data, 4, levelsLength, valueCount);
+                            valuesOffset = 4 + levelsLength;
+                        }
+                        valueIndex = decodeValues(
+                            column, dataHeader.getInt(2, ENCODING_PLAIN), data, valuesOffset, data.length,
+                            present, valueCount, dictionary, values, valueIndex);
+                        break;
+                    }
+                    case PAGE_DATA_V2: {
+                        ThriftStruct dataHeader = header.getRequiredStruct(8, "data_page_header_v2");
+                        int valueCount = Math.min(dataHeader.getInt(1, 0), rowCount - valueIndex);
+                        int levelsLength = dataHeader.getInt(5, 0);
+                        int repetitionLength = dataHeader.getInt(6, 0);
+                        if (levelsLength < 0 || repetitionLength < 0 || levelsLength + repetitionLength > compressedSize) {
+                            throw new IOException("Invalid page levels size");
+                        }
+                        // Levels are never compressed
+                        boolean[] present = column.optional ?
+                            decodeDefinitionLevels(chunk, position + repetitionLength, levelsLength, valueCount) : null;
+                        int valuesOffset = position + repetitionLength + levelsLength;
+                        int valuesLength = compressedSize - repetitionLength - levelsLength;
+                        byte[] data = dataHeader.getBoolean(7, true) ?
+                            decompress(codec, chunk, valuesOffset, valuesLength, uncompressedSize - repetitionLength - levelsLength) :
+                            Arrays.copyOfRange(chunk, valuesOffset, valuesOffset + valuesLength);
+                        valueIndex = decodeValues(
+                            column, dataHeader.getInt(4, ENCODING_PLAIN), data, 0, data.length,
+                            present, valueCount, dictionary, values, valueIndex);
+                        break;
+                    }
+                    default:
+                        // Index pages are skipped
+                        break;
+                }
+                position += compressedSize;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Parquet page data of '" + column.name + "' is truncated", e);
+        }
+        if (valueIndex < rowCount) {
+            throw new IOException("Column '" + column.name + "' has fewer values than row group");
+        }
+        return values;
+    }
+
+    private static int decodeValues(
+        ColumnInfo column,
+        int encoding,
+        byte[] data,
+        int offset,
+        int end,
+        @Nullable boolean[] present,
+        int valueCount,
+        @Nullable Object[] dictionary,
+        Object[] values,
+        int valueIndex) throws IOException
+    {
+        int nonNullCount = valueCount;
+        if (present != null) {
+            nonNullCount = 0;
+            for (int i = 0; i < valueCount; i++) {
+                if (present[i]) nonNullCount++;
+            }
+        }
+        Object[] pageValues;
+        if (encoding == ENCODING_PLAIN) {
+            pageValues = decodePlain(column, data, offset, end, nonNullCount);
+        } else if (encoding == ENCODING_PLAIN_DICTIONARY || encoding == ENCODING_RLE_DICTIONARY) {
+            if (dictionary == null) {
+                throw new IOException("Dictionary page of '" + column.name + "' is missing");
+            }
+            int[] indexes = decodeHybrid(data, offset + 1, end, data[offset] & 0xFF, nonNullCount);
+            pageValues = new Object[nonNullCount];
+            for (int i = 0; i < nonNullCount; i++) {
+                if (indexes[i] < 0 || indexes[i] >= dictionary.length) {
+                    throw new IOException("Invalid dictionary index in '" + column.name + "'");
+                }
+                pageValues[i] = dictionary[indexes[i]];
+            }
+        } else {
+            throw new IOException("Parquet encoding " + encoding + " of '" + column.name + "' is not supported");
+        }
+        int pageValueIndex = 0;
+        for (int i = 0; i < valueCount; i++) {
+            values[valueIndex++] = present == null || present[i] ? pageValues[pageValueIndex++] : null;
+        }
+        return valueIndex;
+    }
+
+    private static boolean[] decodeDefinitionLevels(byte[] data, int offset, int length, int valueCount) throws IOException {
+        int[] levels = decodeHybrid(data, offset, offset + length, 1, valueCount);
+        boolean[] present = new boolean[valueCount];
+        for (int i = 0; i < valueCount; i++) {
+            present[i] = levels[i] != 0;
+        }
+        return present;
+    }
+
+    /**
+     * Decodes RLE/bit-packing hybrid encoded values
+     */
+    static int[] decodeHybrid(byte[] data, int offset, int end, int bitWidth, int count) throws IOException {
+        if (bitWidth > 32) {
+            throw new IOException("Invalid bit width " + bitWidth);
+        }
+        int[] result = new int[count];
+        int position = offset;
+        int index = 0;
+        long mask = (1L << bitWidth) - 1;
+        while (index < count) {
+            if (position >= end) {
+                throw new IOException("Unexpected end of encoded values");
+            }
+            int header = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = data[position++] & 0xFF;
+                header |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) break;
+                if (shift > 21) throw new IOException("Invalid run header");
+            }
+            if ((header & 1) == 0) {
+                int runLength = header >>> 1;
+                int value = 0;
+                for (int b = 0; b < (bitWidth + 7) / 8; b++) {
+                    value |= (data[position++] & 0xFF) << (b * 8);
+                }
+                int runEnd = Math.min(count, index + runLength);
+                Arrays.fill(result, index, runEnd, value);
+                index = runEnd;
+            } else {
+                int valueCount = (header >>> 1) * 8;
+                long bits = 0;
+                int bitCount = 0;
+                for (int i = 0; i < valueCount; i++) {
+                    while (bitCount < bitWidth) {
+                        bits |= (long) (data[position++] & 0xFF) << bitCount;
+                        bitCount += 8;
+                    }
+                    if (index < count) {
+                        result[index++] = (int) (bits & mask);
+                    }
+                    bits >>>= bitWidth;
+                    bitCount -= bitWidth;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Object[] decodePlain(ColumnInfo column, byte[] data, int offset, int end, int count) throws IOException {
+        Object[] values = new Object[count];
+        int position = offset;
+        for (int i = 0; i < count; i++) {
+            switch (column.physicalType) {
+                case TYPE_BOOLEAN:
+                    values[i] = ((data[offset + i / 8] >>> (i % 8)) & 1) != 0;
+                    break;
+                case TYPE_INT32:
+                    values[i] = column.convertLong(readIntLE(data, position));
+                    position += 4;
+                    break;
+                case TYPE_INT64:
+                    values[i] = column.convertLong(readLongLE(data, position));
+                    position += 8;
+                    break;
+                case TYPE_INT96: {
+                    // Nanoseconds of day and julian day
+                    long nanos = readLongLE(data, position);
+                    long epochDay = (readIntLE(data, position + 8) & 0xFFFFFFFFL) - JULIAN_EPOCH_DAY;
+                    values[i] = Timestamp.valueOf(LocalDateTime.of(LocalDate.ofEpochDay(epochDay), LocalTime.ofNanoOfDay(Math.floorMod(nanos, NANOS_PER_DAY))));
+                    position += 12;
+                    break;
+                }
+                case TYPE_FLOAT:
+                    values[i] = Float.intBitsToFloat(readIntLE(data, position));
+                    position += 4;
+                    break;
+                case TYPE_DOUBLE:
+                    values[i] = Double.longBitsToDouble(readLongLE(data, position));
+                    position += 8;
+                    break;
+                case TYPE_BYTE_ARRAY: {
+                    int length = readIntLE(data, position);
+                    position += 4;
+                    if (length < 0 || position + length > end) {
+                        throw new IOException("Invalid value length in '" + column.name + "'");
+                    }
+                    values[i] = column.convertBinary(data, position, length);
+                    position += length;
+                    break;
+                }
+                case TYPE_FIXED_LEN_BYTE_ARRAY:
+                    if (position + column.typeLength > end) {
+                        throw new IOException("Unexpected end of '" + column.name + "' values");
+                    }
+                    values[i] = column.convertBinary(data, position, column.typeLength);
+                    position += column.typeLength;
+                    break;
+                default:
+                    throw new IOException("Parquet type " + column.physicalType + " of '" + column.name + "' is not supported");
+            }
+        }
+        if (position > end) {
+            throw new IOException("Unexpected end of '" + column.name + "' values");
+        }
+        return values;
+    }
+
+    private static byte[] decompress(int codec, byte[] data, int offset, int length, int uncompressedSize) throws IOException {
+        switch (codec) {
+            case CODEC_UNCOMPRESSED:
+                return Arrays.copyOfRange(data, offset, offset + length);
+            case CODEC_SNAPPY:
+                return SnappyDecompressor.decompress(data, offset, length, uncompressedSize);
+            case CODEC_GZIP: {
+                byte[] result = new byte[uncompressedSize];
+                try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data, offset, length))) {
+                    int position = 0;
+                    while (position < result.length) {
+                        int count = gzip.read(result, position, result.length - position);
+                        if (count < 0) {
+                            throw new IOException("GZIP page data is truncated");
+                        }
+                        position += count;
+                    }
+                }
+                return result;
+            }
+            default:
+                throw new IOException("Parquet compression codec " + codec + " is not supported (only uncompressed, Snappy and GZIP)");
+        }
+    }
+
+    private static int readIntLE(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8 | (data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
+    }
+
+    private static long readLongLE(byte[] data, int offset) {
+        return (readIntLE(data, offset) & 0xFFFFFFFFL) | (long) readIntLE(data, offset + 4) << 32;
+    }
+
+    private static class ColumnInfo {
+        final String name;
+        final int physicalType;
+        final int typeLength;
+        final boolean optional;
+        int kind = KIND_PLAIN;
+        int scale;
+        // Time units per second for time and timestamp values
+        long timeUnits = 1000;
+        boolean adjustedToUTC;
+
+        ColumnInfo(ThriftStruct element) throws IOException {
+            this.name = element.getString(4);
+            this.physicalType = element.getInt(1, -1);
+            this.typeLength = element.getInt(2, 0);
+            int repetition = element.getInt(3, 0);
+            if (name == null || element.getInt(5, 0) > 0 || repetition == REPETITION_REPEATED) {
+                throw new IOException("Nested Parquet column '" + name + "' is not supported");
+            }
+            this.optional = repetition == REPETITION_OPTIONAL;
+
+            ThriftStruct logicalType = element.getStruct(10);
+            if (logicalType != null) {
+                readLogicalType(logicalType);
+            } else {
+                readConvertedType(element);
+            }
+        }
+
+        private void readLogicalType(ThriftStruct logicalType) {
+            if (logicalType.has(1) || logicalType.has(4) || logicalType.has(12)) {
+                kind = KIND_STRING;
+            } else if (logicalType.has(5)) {
+                ThriftStruct decimal = logicalType.getStruct(5);
+                kind = KIND_DECIMAL;
+                scale = decimal == null ? 0 : decimal.getInt(1, 0);
+            } else if (logicalType.has(6)) {
+                kind = KIND_DATE;
+            } else if (logicalType.has(7) || logicalType.has(8)) {
+                ThriftStruct temporal = logicalType.getStruct(logicalType.has(7) ? 7 : 8);
+                kind = logicalType.has(7) ? KIND_TIME : KIND_TIMESTAMP;
+                if (temporal != null) {
+                    adjustedToUTC = temporal.getBoolean(1, false);
+                    ThriftStruct unit = temporal.getStruct(2);
+                    if (unit != null) {
+                        timeUnits = unit.has(3) ? 1_000_000_000L : unit.has(2) ? 1_000_000L : 1000L;
+                    }
+                }
+            } else if (logicalType.has(10)) {
+                ThriftStruct integer = logicalType.getStruct(10);
+                if (integer != null && !integer.getBoolean(2, true)) {
+                    kind = KIND_UNSIGNED;
+                }
+            } else if (logicalType.has(14)) {
+                kind = KIND_UUID;
+            }
+        }
+
+        private void readConvertedType(ThriftStruct element) {
+            switch (element.getInt(6, -1)) {
+                case CONVERTED_UTF8:
+                case CONVERTED_ENUM:
+                case CONVERTED_JSON:
+                    kind = KIND_STRING;
+                    break;
+                case CONVERTED_DECIMAL:
+                    kind = KIND_DECIMAL;
+                    scale = element.getInt(7, 0);
+                    break;
+                case CONVERTED_DATE:
+                    kind = KIND_DATE;
+                    break;
+                case CONVERTED_TIME_MILLIS:
+                case CONVERTED_TIME_MICROS:
+                    kind = KIND_TIME;
+                    timeUnits = element.getInt(6, -1) == CONVERTED_TIME_MILLIS ? 1000L : 1_000_000L;
+                    break;
+                case CONVERTED_TIMESTAMP_MILLIS:
+                case CONVERTED_TIMESTAMP_MICROS:
+                    kind = KIND_TIMESTAMP;
+                    timeUnits = element.getInt(6, -1) == CONVERTED_TIMESTAMP_MILLIS ? 1000L : 1_000_000L;
+                    break;
+                case CONVERTED_UINT_32:
+                case CONVERTED_UINT_64:
+                    kind = KIND_UNSIGNED;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        Object convertLong(long value) {
+            switch (kind) {
+                case KIND_DECIMAL:
+                    return BigDecimal.valueOf(value, scale);
+                case KIND_DATE:
+                    return Date.valueOf(LocalDate.ofEpochDay(value));
+                case KIND_TIME:
+                    return Time.valueOf(LocalTime.ofNanoOfDay(Math.floorMod(value, 86_400L * timeUnits) * (1_000_000_000L / timeUnits)));
+                case KIND_TIMESTAMP: {
+                    long seconds = Math.floorDiv(value, timeUnits);
+                    int nanos = (int) (Math.floorMod(value, timeUnits) * (1_000_000_000L / timeUnits));
+                    return adjustedToUTC ?
+                        Timestamp.from(Instant.ofEpochSecond(seconds, nanos)) :
+                        Timestamp.valueOf(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+                }
+                case KIND_UNSIGNED:
+                    if (physicalType == TYPE_INT32) {
+                        return value & 0xFFFFFFFFL;
+                    }
+                    return value >= 0 ? (Object) value : new BigInteger(Long.toUnsignedString(value));
+                default:
+                    return physicalType == TYPE_INT32 ? (Object) (int) value : (Object) value;
+            }
+        }
+
+        Object convertBinary(byte[] data, int offset, int length) {
+            switch (kind) {
+                case KIND_STRING:
+                    return new String(data, offset, length, StandardCharsets.UTF_8);
+                case KIND_DECIMAL:
+                    return length == 0 ? BigDecimal.ZERO.setScale(scale) : new BigDecimal(new BigInteger(data, offset, length), scale);
+                case KIND_UUID:
+                    if (length == 16) {
+                        ByteBuffer buffer = ByteBuffer.wrap(data, offset, length);
+                        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+                    }
+                    return Arrays.copyOfRange(data, offset, offset + length);
+                default:
+                    return Arrays.copyOfRange(data, offset, offset + length);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.importer;
+
+import java.io.IOException;
+
+/**
+ * Raw Snappy block decompressor (Parquet doesn't use Snappy framing format)
+ */
+class SnappyDecompressor {
+
+    private SnappyDecompressor() {
+    }
+
+    static byte[] decompress(byte[] input, int offset, int length, int expectedLength) throws IOException {
+        int position = offset;
+        int end = offset + length;
+        // Uncompressed length varint
+        long outputLength = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (position >= end || shift > 28) {
+                throw new IOException("Invalid Snappy header");
+            }
+            int b = input[position++] & 0xFF;
+            outputLength |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (outputLength != expectedLength) {
+            throw new IOException("Snappy uncompressed length " + outputLength + " doesn't match page size " + expectedLength);
+        }
+        byte[] output = new byte[expectedLength];
+        int outputPos = 0;
+        while (position < end) {
+            int tag = input[position++] & 0xFF;
+            int elementLength;
+            switch (tag & 0x03) {
+                case 0: {
+                    // Literal
+                    elementLength = tag >>> 2;
+                    if (elementLength >= 60) {
+                        int lengthBytes = elementLength - 59;
+                        if (position + lengthBytes > end) {
+                            throw new IOException("Truncated Snappy literal");
+                        }
+                        elementLength = 0;
+                        for (int i = 0; i < lengthBytes; i++) {
+                            elementLength |= (input[position++] & 0xFF) << (i * 8);
+                        }
+                    }
+                    elementLength++;
+                    if (elementLength <= 0 || position + elementLength > end || outputPos + elementLength > output.length) {
+                        throw new IOException("Invalid Snappy literal length");
+                    }
+                    System.arraycopy(input, position, output, outputPos, elementLength);
+                    position += elementLength;
+                    outputPos += elementLength;
+                    continue;
+                }
+                case 1: {
+                    if (position >= end) {
+                        throw new IOException("Truncated Snappy copy");
+                    }
+                    elementLength = ((tag >>> 2) & 0x07) + 4;
+                    int copyOffset = ((tag >>> 5) << 8) | (input[position++] & 0xFF);
+                    outputPos = copy(output, outputPos, copyOffset, elementLength);
+                    continue;
+                }
+                case 2: {
+                    if (position + 2 > end) {
+                        throw new IOException("Truncated Snappy copy");
+                    }
+                    elementLength = (tag >>> 2) + 1;
+                    int copyOffset = (input[position] & 0xFF) | (input[position + 1] & 0xFF) << 8;
+                    position += 2;
+                    outputPos = copy(output, outputPos, copyOffset, elementLength);
+                    continue;
+                }
+                default: {
+                    if (position + 4 > end) {
+                        throw new IOException("Truncated Snappy copy");
+                    }
+                    elementLength = (tag >>> 2) + 1;
+                    int copyOffset = (input[position] & 0xFF) | (input[position + 1] & 0xFF) << 8 |
+                        (input[position + 2] & 0xFF) << 16 | (input[position + 3] & 0xFF) << 24;
+                    position += 4;
+                    outputPos = copy(output, outputPos, copyOffset, elementLength);
+                }
+            }
+        }
+        if (outputPos != output.length) {
+            throw new IOException("Snappy data is truncated");
+        }
+        return output;
+    }
+
+    private static int copy(byte[] output, int outputPos, int copyOffset, int length) throws IOException {
+        if (copyOffset <= 0 || copyOffset > outputPos || outputPos + length > output.length) {
+            throw new IOException("Invalid Snappy copy offset");
+        }
+        // Source and target may overlap (repeated pattern)
+        int source = outputPos - copyOffset;
+        for (int i = 0; i < length; i++) {
+            output[outputPos++] = output[source + i];
+        }
+        return outputPos;
+    }
+}
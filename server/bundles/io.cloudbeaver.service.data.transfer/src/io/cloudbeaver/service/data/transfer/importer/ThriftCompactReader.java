@@ -0,0 +1,242 @@
+/*
+ * DBeaver - Universal Database Manager
+ * Copyright (C) 2010-2022 DBeaver Corp and others
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cloudbeaver.service.data.transfer.importer;
+
+import org.jkiss.code.NotNull;
+import org.jkiss.code.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Minimal Thrift compact protocol reader (used for Parquet metadata).
+ * Structs are decoded generically into field maps, so unknown fields are skipped naturally.
+ */
+class ThriftCompactReader {
+
+    private static final int TYPE_BOOLEAN_TRUE = 1;
+    private static final int TYPE_BOOLEAN_FALSE = 2;
+    private static final int TYPE_BYTE = 3;
+    private static final int TYPE_I16 = 4;
+    private static final int TYPE_I32 = 5;
+    private static final int TYPE_I64 = 6;
+    private static final int TYPE_DOUBLE = 7;
+    private static final int TYPE_BINARY = 8;
+    private static final int TYPE_LIST = 9;
+    private static final int TYPE_SET = 10;
+    private static final int TYPE_MAP = 11;
+    private static final int TYPE_STRUCT = 12;
+
+    private static final int MAX_DEPTH = 64;
+
+    private final byte[] data;
+    private int position;
+    private int depth;
+
+    ThriftCompactReader(byte[] data, int offset) {
+        this.data = data;
+        this.position = offset;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    @NotNull
+    ThriftStruct readStruct() throws IOException {
+        if (++depth > MAX_DEPTH) {
+            throw new IOException("Thrift structure is too deep");
+        }
+        ThriftStruct struct = new ThriftStruct();
+        int lastFieldId = 0;
+        for (;;) {
+            int header = readByte();
+            if (header == 0) {
+                break;
+            }
+            int type = header & 0x0F;
+            int delta = (header >>> 4) & 0x0F;
+            int fieldId = delta == 0 ? (int) readZigzag() : lastFieldId + delta;
+            lastFieldId = fieldId;
+            Object value;
+            if (type == TYPE_BOOLEAN_TRUE || type == TYPE_BOOLEAN_FALSE) {
+                value = type == TYPE_BOOLEAN_TRUE;
+            } else {
+                value = readValue(type);
+            }
+            struct.fields.put(fieldId, value);
+        }
+        depth--;
+        return struct;
+    }
+
+    private Object readValue(int type) throws IOException {
+        switch (type) {
+            case TYPE_BOOLEAN_TRUE:
+            case TYPE_BOOLEAN_FALSE:
+                // Collection element
+                return readByte() == TYPE_BOOLEAN_TRUE;
+            case TYPE_BYTE:
+                return (long) (byte) readByte();
+            case TYPE_I16:
+            case TYPE_I32:
+            case TYPE_I64:
+                return readZigzag();
+            case TYPE_DOUBLE: {
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits |= (long) readByte() << (i * 8);
+                }
+                return Double.longBitsToDouble(bits);
+            }
+            case TYPE_BINARY: {
+                int length = (int) readVarInt();
+                if (length < 0 || length > data.length - position) {
+                    throw new IOException("Invalid Thrift binary length: " + length);
+                }
+                byte[] value = Arrays.copyOfRange(data, position, position + length);
+                position += length;
+                return value;
+            }
+            case TYPE_LIST:
+            case TYPE_SET: {
+                int header = readByte();
+                int size = (header >>> 4) & 0x0F;
+                if (size == 15) {
+                    size = (int) readVarInt();
+                }
+                int elementType = header & 0x0F;
+                checkSize(size);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(elementType));
+                }
+                return list;
+            }
+            case TYPE_MAP: {
+                int size = (int) readVarInt();
+                checkSize(size);
+                Map<Object, Object> map = new LinkedHashMap<>();
+                if (size > 0) {
+                    int types = readByte();
+                    for (int i = 0; i < size; i++) {
+                        map.put(readValue((types >>> 4) & 0x0F), readValue(types & 0x0F));
+                    }
+                }
+                return map;
+            }
+            case TYPE_STRUCT:
+                return readStruct();
+            default:
+                throw new IOException("Unsupported Thrift type " + type);
+        }
+    }
+
+    private void checkSize(int size) throws IOException {
+        // Each element takes at least one byte
+        if (size < 0 || size > data.length - position) {
+            throw new IOException("Invalid Thrift collection size: " + size);
+        }
+    }
+
+    private int readByte() throws IOException {
+        if (position >= data.length) {
+            throw new IOException("Unexpected end of Thrift data");
+        }
+        return data[position++] & 0xFF;
+    }
+
+    private long readVarInt() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Invalid Thrift varint");
+    }
+
+    private long readZigzag() throws IOException {
+        long value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Decoded struct. Integer fields are returned as longs, binary fields as byte arrays.
+     */
+    static class ThriftStruct {
+
+        private final Map<Integer, Object> fields = new HashMap<>();
+
+        boolean has(int fieldId) {
+            return fields.containsKey(fieldId);
+        }
+
+        long getLong(int fieldId, long defaultValue) {
+            Object value = fields.get(fieldId);
+            return value instanceof Long ? (Long) value : defaultValue;
+        }
+
+        int getInt(int fieldId, int defaultValue) {
+            return (int) getLong(fieldId, defaultValue);
+        }
+
+        boolean getBoolean(int fieldId, boolean defaultValue) {
+            Object value = fields.get(fieldId);
+            return value instanceof Boolean ? (Boolean) value : defaultValue;
+        }
+
+        @Nullable
+        String getString(int fieldId) {
+            Object value = fields.get(fieldId);
+            return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : null;
+        }
+
+        @Nullable
+        ThriftStruct getStruct(int fieldId) {
+            Object value = fields.get(fieldId);
+            return value instanceof ThriftStruct ? (ThriftStruct) value : null;
+        }
+
+        @NotNull
+        List<ThriftStruct> getStructList(int fieldId) {
+            Object value = fields.get(fieldId);
+            if (!(value instanceof List)) {
+                return Collections.emptyList();
+            }
+            List<ThriftStruct> result = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                if (element instanceof ThriftStruct) {
+                    result.add((ThriftStruct) element);
+                }
+            }
+            return result;
+        }
+
+        @NotNull
+        ThriftStruct getRequiredStruct(int fieldId, String name) throws IOException {
+            ThriftStruct struct = getStruct(fieldId);
+            if (struct == null) {
+                throw new IOException("Parquet metadata field '" + name + "' is missing");
+            }
+            return struct;
+        }
+    }
+}